@@ -0,0 +1,77 @@
+package com.kass.vocalanalysistool.benchmarks;
+
+import com.kass.vocalanalysistool.model.AnalysisParameters;
+import com.kass.vocalanalysistool.model.AnalysisResult;
+import com.kass.vocalanalysistool.model.AudioSignal;
+import com.kass.vocalanalysistool.model.VocalAnalysisEngine;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>End-to-end analysis of a synthetic vowel by the java engine: resampling, pitch and
+ * formant tracking, the continuity filter and the feature row. One operation is one
+ * recording, so the time per operation is the latency the user waits for.</p>
+ *
+ * <p>The SIMD kernels are enabled; add
+ * {@code -jvmArgsAppend -Dvocalanalysis.simd=false} for the scalar loops.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx2g"})
+public class AnalysisBenchmark {
+
+    /**
+     * The duration of the recording in seconds.
+     */
+    @Param({"10", "60", "600"})
+    private int seconds;
+
+    /**
+     * The threads the engine analyzes one recording on.
+     */
+    @Param({"1", "2", "4"})
+    private int threads;
+
+    /**
+     * The recording.
+     */
+    private AudioSignal mySignal;
+
+    /**
+     * The engine.
+     */
+    private VocalAnalysisEngine myEngine;
+
+    /**
+     * Generates the recording.
+     */
+    @Setup
+    public void setUp() {
+        mySignal = SyntheticVowel.generate(seconds);
+        myEngine = new VocalAnalysisEngine(AnalysisParameters.defaults(), threads);
+    }
+
+    /**
+     * @return Returns the analysis of the recording.
+     */
+    @Benchmark
+    public AnalysisResult analyze() {
+        return myEngine.analyze(mySignal, null);
+    }
+}
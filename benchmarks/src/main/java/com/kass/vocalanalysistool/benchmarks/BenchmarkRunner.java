@@ -0,0 +1,76 @@
+package com.kass.vocalanalysistool.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Runs the benchmarks with the usual JMH command line. Unless told otherwise, it adds the
+ * allocation profiler ({@code -prof gc}) and writes the results as JSON to
+ * {@code results/jmh-<date>-<time>.json}, so two runs can be compared.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * The directory the results are written to.
+     */
+    private static final Path RESULTS_DIRECTORY = Path.of("results");
+
+    /**
+     * Names the result files by the start of the run.
+     */
+    private static final DateTimeFormatter FILE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * Utility class.
+     */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param theArgs The JMH command line, e.g. {@code AnalysisBenchmark -p threads=1,4}.
+     * @throws CommandLineOptionException Thrown if the command line is invalid.
+     * @throws RunnerException            Thrown if a benchmark fails.
+     * @throws IOException                Thrown if the results directory can not be created.
+     */
+    public static void main(final String[] theArgs)
+            throws CommandLineOptionException, RunnerException, IOException {
+        final CommandLineOptions options = new CommandLineOptions(theArgs);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(theArgs);
+            return;
+        }
+
+        final ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (options.getProfilers().isEmpty()) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        if (!options.getResult().hasValue()) {
+            Files.createDirectories(RESULTS_DIRECTORY);
+            builder.result(RESULTS_DIRECTORY.resolve("jmh-" + LocalDateTime.now().format(FILE_TIME)
+                    + ".json").toString());
+            if (!options.getResultFormat().hasValue()) {
+                builder.resultFormat(ResultFormatType.JSON);
+            }
+        }
+        new Runner(builder.build()).run();
+    }
+}
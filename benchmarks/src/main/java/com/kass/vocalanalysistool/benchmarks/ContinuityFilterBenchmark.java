@@ -0,0 +1,95 @@
+package com.kass.vocalanalysistool.benchmarks;
+
+import com.kass.vocalanalysistool.model.FormantContinuityFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>The formant continuity filter on tracks with a vibrato and about one jump in twenty
+ * frames, so both the accepting and the rejecting branches run.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContinuityFilterBenchmark {
+
+    /**
+     * The number of frames (1000 frames are 10 s).
+     */
+    @Param({"1000", "60000"})
+    private int frames;
+
+    /**
+     * The frames as rows of {time, f0, f1, f2, f3, f4}.
+     */
+    private List<double[]> myRows;
+
+    /**
+     * The filter.
+     */
+    private final FormantContinuityFilter myFilter = new FormantContinuityFilter();
+
+    /**
+     * Generates the frames.
+     */
+    @Setup
+    public void setUp() {
+        final double[] centers = {190, 750, 1200, 2600, 3500};
+        final Random random = new Random(1);
+        myRows = new ArrayList<>(frames);
+        for (int i = 0; i < frames; i++) {
+            final double time = i / 100.0;
+            final double[] row = new double[centers.length + 1];
+            row[0] = time;
+            final double jump = random.nextInt(20) == 0 ? 1.6 : 1;
+            for (int f = 0; f < centers.length; f++) {
+                row[f + 1] = centers[f] * jump * (1 + 0.03 * Math.sin(2 * Math.PI * 5 * time)
+                        + 0.01 * random.nextGaussian());
+            }
+            myRows.add(row);
+        }
+    }
+
+    /**
+     * @return Returns the number of accepted frames, checked one at a time.
+     */
+    @Benchmark
+    public int accept() {
+        myFilter.reset();
+        int accepted = 0;
+        for (final double[] row : myRows) {
+            if (myFilter.accept(row[0], row[1], row[2], row[3], row[4], row[5])) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * @return Returns the accepted rows, filtered as a list like the engine does.
+     */
+    @Benchmark
+    public List<double[]> filterRows() {
+        myFilter.reset();
+        return myFilter.filter(myRows);
+    }
+}
@@ -0,0 +1,166 @@
+package com.kass.vocalanalysistool.benchmarks;
+
+import com.google.gson.Gson;
+import com.kass.vocalanalysistool.model.AnalysisResult;
+import com.kass.vocalanalysistool.model.FormantPlotRenderer;
+import com.kass.vocalanalysistool.model.UserFormantDatabase;
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Reading a stored session back: the packed F0 - F4 tracks of
+ * {@link UserFormantDatabase#getFormants(long)}, the JSON text the tracks were stored as
+ * before (still parsed when an old database is migrated), and the scatter plot image with
+ * and without its decoding into a JavaFX {@link Image}.</p>
+ *
+ * <p>The benchmark adds one session to {@code Vocal_Analysis.db} in the working directory
+ * and deletes it again when it is done. Run with {@code -t N} to read from N threads at
+ * once; the JavaFX toolkit needs a display (or Monocle's headless platform).</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatabaseBenchmark {
+
+    /**
+     * The jdbc URL of the database {@link UserFormantDatabase} opens.
+     */
+    private static final String DB_URL = "jdbc:sqlite:Vocal_Analysis.db";
+
+    /**
+     * Parses the JSON tracks.
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The number of frames of the session (1000 frames are 10 s).
+     */
+    @Param({"1000", "60000"})
+    private int frames;
+
+    /**
+     * The database.
+     */
+    private UserFormantDatabase myDatabase;
+
+    /**
+     * The id of the stored session.
+     */
+    private long mySessionId;
+
+    /**
+     * The tracks of the session as JSON arrays.
+     */
+    private String[] myJsonTracks;
+
+    /**
+     * Stores a session with its scatter plot and starts the JavaFX toolkit.
+     *
+     * @throws SQLException Thrown if the plot can not be stored.
+     */
+    @Setup
+    public void setUp() throws SQLException {
+        final Random random = new Random(1);
+        final double[] centers = {190, 750, 1200, 2600, 3500};
+        final double[] times = new double[frames];
+        final double[][] formants = new double[centers.length][frames];
+        for (int i = 0; i < frames; i++) {
+            times[i] = i / 100.0;
+            for (int f = 0; f < centers.length; f++) {
+                formants[f][i] = centers[f] * (1 + 0.05 * random.nextGaussian());
+            }
+        }
+        myDatabase = new UserFormantDatabase(false);
+        mySessionId = myDatabase.insertFormants(new AnalysisResult(times, formants, centers));
+        myJsonTracks = new String[centers.length];
+        for (int f = 0; f < centers.length; f++) {
+            myJsonTracks[f] = GSON.toJson(formants[f]);
+        }
+
+        // sessions stored by the app have no plot any more, so store the one it would draw
+        final byte[] plot = FormantPlotRenderer.render(times, formants, 1000, 600);
+        try (final Connection conn = DriverManager.getConnection(DB_URL);
+             final PreparedStatement ps = conn.prepareStatement(
+                     "UPDATE user_formants SET scatter_plot = ? WHERE id = ?")) {
+            ps.setBytes(1, plot);
+            ps.setLong(2, mySessionId);
+            ps.executeUpdate();
+        }
+
+        try {
+            Platform.startup(() -> { });
+        } catch (final IllegalStateException theException) {
+            // already started by an earlier trial of this fork
+        }
+    }
+
+    /**
+     * Deletes the stored session through the pool, whose connections enforce the foreign
+     * keys, so its features and thumbnail go with it, and sweeps its payload file.
+     */
+    @TearDown
+    public void tearDown() {
+        myDatabase.deleteSession(mySessionId);
+    }
+
+    /**
+     * @return Returns the tracks read from their packed BLOBs.
+     */
+    @Benchmark
+    public double[][] getFormants() {
+        return myDatabase.getFormants(mySessionId);
+    }
+
+    /**
+     * @return Returns the tracks parsed from JSON, as the migration of old databases does.
+     */
+    @Benchmark
+    public double[][] parseJsonTracks() {
+        final double[][] tracks = new double[myJsonTracks.length][];
+        for (int f = 0; f < myJsonTracks.length; f++) {
+            tracks[f] = GSON.fromJson(myJsonTracks[f], double[].class);
+        }
+        return tracks;
+    }
+
+    /**
+     * @return Returns the PNG bytes of the scatter plot.
+     */
+    @Benchmark
+    public byte[] getScatterPlot() {
+        return myDatabase.getScatterPlot(mySessionId);
+    }
+
+    /**
+     * @return Returns the scatter plot decoded into an image.
+     */
+    @Benchmark
+    public Image getScatterPlotImage() {
+        return new Image(new ByteArrayInputStream(myDatabase.getScatterPlot(mySessionId)));
+    }
+}
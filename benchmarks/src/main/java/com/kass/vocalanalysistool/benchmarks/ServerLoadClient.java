@@ -0,0 +1,124 @@
+package com.kass.vocalanalysistool.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Loads a running analysis server ({@code HeadlessMain --serve}) with concurrent uploads
+ * of one recording and prints the throughput, the latency percentiles of the answered
+ * requests and how many were turned away with 429:</p>
+ *
+ * <pre>{@code
+ * java -cp target/benchmarks.jar com.kass.vocalanalysistool.benchmarks.ServerLoadClient \
+ *      <file> [clients] [requests] [url]
+ * }</pre>
+ *
+ * <p>Every client is a virtual thread sending its share of the requests one after the other.
+ * A rejected request is not retried, so the 429 count shows where the queue starts to
+ * push back.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class ServerLoadClient {
+
+    /**
+     * The default server address.
+     */
+    private static final String DEFAULT_URL = "http://127.0.0.1:8765/analyze";
+
+    /**
+     * Utility class.
+     */
+    private ServerLoadClient() {
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param theArgs The recording, the number of clients (default 8), the number of requests
+     *                (default 64) and the analyze URL.
+     * @throws IOException          Thrown if the recording can not be read.
+     * @throws InterruptedException Thrown if the test was interrupted.
+     */
+    public static void main(final String[] theArgs) throws IOException, InterruptedException {
+        if (theArgs.length < 1) {
+            System.err.println("Usage: ServerLoadClient <file> [clients] [requests] [url]");
+            System.exit(2);
+        }
+        final byte[] audio = Files.readAllBytes(Path.of(theArgs[0]));
+        final int clients = theArgs.length > 1 ? Integer.parseInt(theArgs[1]) : 8;
+        final int requests = theArgs.length > 2 ? Integer.parseInt(theArgs[2]) : 64;
+        final URI uri = URI.create(theArgs.length > 3 ? theArgs[3] : DEFAULT_URL);
+
+        final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1).build();
+        final HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "audio/wav")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(audio)).build();
+        final long[] latencies = new long[requests];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger answered = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        final long start = System.nanoTime();
+        try (final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                threads.submit(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < requests) {
+                        final long sent = System.nanoTime();
+                        try {
+                            final int status = client.send(request,
+                                    HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status == 200) {
+                                latencies[answered.getAndIncrement()] =
+                                        System.nanoTime() - sent;
+                            } else if (status == 429) {
+                                rejected.incrementAndGet();
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                        } catch (final IOException theException) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        final long[] sorted = Arrays.copyOf(latencies, answered.get());
+        Arrays.sort(sorted);
+        System.out.printf(Locale.ROOT, "%d requests from %d clients in %.2f s: %d answered "
+                        + "(%.2f/s), %d rejected with 429, %d failed%n", requests, clients,
+                seconds, sorted.length, sorted.length / seconds, rejected.get(), failed.get());
+        if (sorted.length > 0) {
+            System.out.printf(Locale.ROOT, "latency ms: p50 %.1f  p95 %.1f  p99 %.1f  max %.1f%n",
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    sorted[sorted.length - 1] / 1e6);
+        }
+    }
+
+    /**
+     * @param theSorted  The latencies in ns, sorted.
+     * @param thePercent The percentile.
+     * @return Returns the percentile in ms (nearest rank).
+     */
+    private static double percentile(final long[] theSorted, final double thePercent) {
+        final int rank = (int) Math.ceil(thePercent / 100 * theSorted.length);
+        return theSorted[Math.max(0, rank - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,122 @@
+package com.kass.vocalanalysistool.benchmarks;
+
+import com.kass.vocalanalysistool.model.AudioSignal;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Random;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * <p>Generates a sustained /a/: a pulse train with a slow vibrato sent through four formant
+ * resonators, plus a little breath noise. The signal is the same for the same duration, so
+ * runs can be compared.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+final class SyntheticVowel {
+
+    /**
+     * The sampling rate of the generated signals in Hz.
+     */
+    static final double SAMPLE_RATE = 44100;
+
+    /**
+     * The mean F0 in Hz.
+     */
+    private static final double F0 = 190;
+
+    /**
+     * The formant frequencies in Hz.
+     */
+    private static final double[] FORMANTS = {750, 1200, 2600, 3500};
+
+    /**
+     * The formant bandwidths in Hz.
+     */
+    private static final double[] BANDWIDTHS = {90, 110, 160, 250};
+
+    /**
+     * Utility class.
+     */
+    private SyntheticVowel() {
+    }
+
+    /**
+     * Generates the vowel.
+     *
+     * @param theSeconds The duration in seconds.
+     * @return Returns the signal, peaking at about 0.5.
+     */
+    static AudioSignal generate(final double theSeconds) {
+        final int length = (int) Math.round(theSeconds * SAMPLE_RATE);
+        final float[] samples = new float[length];
+        final Random random = new Random(1);
+
+        // two-pole resonators in cascade, as in a Klatt synthesizer
+        final double[] a = new double[FORMANTS.length];
+        final double[] b = new double[FORMANTS.length];
+        final double[] c = new double[FORMANTS.length];
+        for (int f = 0; f < FORMANTS.length; f++) {
+            final double r = Math.exp(-Math.PI * BANDWIDTHS[f] / SAMPLE_RATE);
+            c[f] = -r * r;
+            b[f] = 2 * r * Math.cos(2 * Math.PI * FORMANTS[f] / SAMPLE_RATE);
+            a[f] = 1 - b[f] - c[f];
+        }
+        final double[] previous = new double[FORMANTS.length];
+        final double[] beforePrevious = new double[FORMANTS.length];
+
+        double phase = 0;
+        double peak = 0;
+        final double[] output = new double[length];
+        for (int i = 0; i < length; i++) {
+            final double time = i / SAMPLE_RATE;
+            phase += F0 * (1 + 0.03 * Math.sin(2 * Math.PI * 5 * time)) / SAMPLE_RATE;
+            double value = 0.02 * random.nextGaussian();
+            if (phase >= 1) {
+                phase -= 1;
+                value += 1;
+            }
+            for (int f = 0; f < FORMANTS.length; f++) {
+                final double next = a[f] * value + b[f] * previous[f] + c[f] * beforePrevious[f];
+                beforePrevious[f] = previous[f];
+                previous[f] = next;
+                value = next;
+            }
+            output[i] = value;
+            peak = Math.max(peak, Math.abs(value));
+        }
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) (0.5 * output[i] / peak);
+        }
+        return new AudioSignal(samples, SAMPLE_RATE);
+    }
+
+    /**
+     * Writes a signal as a 16 bit mono WAVE file.
+     *
+     * @param theSignal The signal.
+     * @param theFile   The file to write.
+     * @throws IOException Thrown if the file can not be written.
+     */
+    static void writeWav(final AudioSignal theSignal, final Path theFile) throws IOException {
+        final float[] samples = theSignal.getSamples();
+        final ByteBuffer pcm = ByteBuffer.allocate(samples.length * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (final float sample : samples) {
+            pcm.putShort((short) Math.round(sample * Short.MAX_VALUE));
+        }
+        final AudioFormat format = new AudioFormat((float) theSignal.getSampleRate(), 16, 1,
+                true, false);
+        try (final AudioInputStream stream = new AudioInputStream(
+                new ByteArrayInputStream(pcm.array()), format, samples.length)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, theFile.toFile());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.kass.vocalanalysistool.benchmarks;
+
+import com.kass.vocalanalysistool.model.AudioSignal;
+import com.kass.vocalanalysistool.model.MappedAudioFile;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Decoding a 16 bit mono WAVE file to floats, through the memory-mapped reader the engine
+ * uses and through javax.sound. The file stays in the page cache, so this measures the
+ * decoding, not the disk.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WavDecodeBenchmark {
+
+    /**
+     * The samples read at a time from the mapped file.
+     */
+    private static final int BLOCK_SAMPLES = 1 << 16;
+
+    /**
+     * The duration of the recording in seconds.
+     */
+    @Param({"10", "60"})
+    private int seconds;
+
+    /**
+     * The recording.
+     */
+    private Path myFile;
+
+    /**
+     * Writes the recording.
+     *
+     * @throws IOException Thrown if the file can not be written.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        myFile = Files.createTempFile("vowel", ".wav");
+        SyntheticVowel.writeWav(SyntheticVowel.generate(seconds), myFile);
+    }
+
+    /**
+     * Deletes the recording.
+     *
+     * @throws IOException Thrown if the file can not be deleted.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(myFile);
+    }
+
+    /**
+     * @return Returns the sum of the samples, read a block at a time from the mapped file.
+     * @throws IOException                   Thrown if the file can not be read.
+     * @throws UnsupportedAudioFileException Thrown if the file is not a WAVE file.
+     */
+    @Benchmark
+    public double mapped() throws IOException, UnsupportedAudioFileException {
+        try (final MappedAudioFile file = MappedAudioFile.open(myFile)) {
+            final float[] block = new float[BLOCK_SAMPLES];
+            double sum = 0;
+            for (long frame = 0; frame < file.getFrameCount(); frame += BLOCK_SAMPLES) {
+                final int count = file.read(frame, block, 0,
+                        (int) Math.min(BLOCK_SAMPLES, file.getFrameCount() - frame));
+                for (int i = 0; i < count; i++) {
+                    sum += block[i];
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * @return Returns the whole recording decoded by javax.sound.
+     * @throws IOException Thrown if the file can not be read.
+     */
+    @Benchmark
+    public AudioSignal audioSystem() throws IOException {
+        return AudioSignal.read(myFile);
+    }
+}
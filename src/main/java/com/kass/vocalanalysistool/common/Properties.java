@@ -4,5 +4,10 @@ public enum Properties {
     /**
      * Notifies the progress bar to update x amount
      */
-    UPDATE_PROGRESS
+    UPDATE_PROGRESS,
+
+    /**
+     * Publishes the frames of the latest analyzed chunk
+     */
+    PARTIAL_RESULT
 }
@@ -0,0 +1,458 @@
+package com.kass.vocalanalysistool.controller;
+
+import com.google.gson.JsonObject;
+import com.kass.vocalanalysistool.model.AnalysisCache;
+import com.kass.vocalanalysistool.model.AnalysisMode;
+import com.kass.vocalanalysistool.model.AnalysisParameters;
+import com.kass.vocalanalysistool.model.AnalysisResult;
+import com.kass.vocalanalysistool.model.AnalysisServer;
+import com.kass.vocalanalysistool.model.BatchAnalyzer;
+import com.kass.vocalanalysistool.model.BatchReport;
+import com.kass.vocalanalysistool.model.FeatureCsvWriter;
+import com.kass.vocalanalysistool.model.JsonNumbers;
+import com.kass.vocalanalysistool.model.PythonWorkerPool;
+import com.kass.vocalanalysistool.model.SessionSummary;
+import com.kass.vocalanalysistool.model.StageMetrics;
+import com.kass.vocalanalysistool.model.UserFormantDatabase;
+import com.kass.vocalanalysistool.model.VocalAnalysisEngine;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Analyzes audio files without a user interface, for build and analysis servers:</p>
+ *
+ * <pre>{@code
+ * java -m com.kass.vocalanalysistool/com.kass.vocalanalysistool.controller.HeadlessMain \
+ *      [options] <file or directory>...
+ * }</pre>
+ *
+ * <p>Directories are expanded to the audio files directly inside them. Every file is
+ * analyzed with the engine selected by {@code -Dvocalanalysis.mode} and stored in
+ * Vocal_Analysis.db and user_features.csv like in the app. The results are printed to
+ * standard output as JSON lines, one per file in the order the files were given, followed
+ * by a summary line and, with {@code --timings}, one line per timed stage. The exit code is
+ * 0 if every file was analyzed, 1 if any failed and 2 for a usage error.</p>
+ *
+ * <p>With {@code --serve} it runs an {@link AnalysisServer} instead, until the process is
+ * stopped.</p>
+ *
+ * <p>This class only uses the model; no JavaFX, ControlsFX or Ikonli class is loaded.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class HeadlessMain {
+
+    /**
+     * The exit code when every file was analyzed.
+     */
+    private static final int EXIT_OK = 0;
+
+    /**
+     * The exit code when a file could not be analyzed or stored.
+     */
+    private static final int EXIT_FAILED = 1;
+
+    /**
+     * The exit code of a usage error.
+     */
+    private static final int EXIT_USAGE = 2;
+
+    /**
+     * The usage text.
+     */
+    private static final String USAGE = """
+            Usage: HeadlessMain [options] <file or directory>...
+              --threads N   files analyzed at once (default: -Dvocalanalysis.batch.threads or
+                            the number of cores)
+              --csv FILE    append the feature rows to FILE (default: user_features.csv)
+              --no-csv      do not append the feature rows
+              --no-db       do not store the sessions in Vocal_Analysis.db
+              --cache       print the stored session of a file already analyzed with the same
+                            parameters instead of analyzing it again
+              --timings     print the per-stage timings after the results
+              --serve       analyze the recordings posted to a local HTTP server instead
+              --port N      the port of --serve (default: -Dvocalanalysis.server.port or 8765)
+              --queue N     the jobs of --serve that may wait for a thread (default:
+                            -Dvocalanalysis.server.queue or 4 per thread); more are
+                            answered with 429
+              --verbose     log to standard error
+              --help        print this text
+            """;
+
+    /**
+     * The number of files analyzed at once.
+     */
+    private int myThreads = BatchAnalyzer.getDefaultThreads();
+
+    /**
+     * The feature CSV file; null to skip it.
+     */
+    private Path myCsvFile = Path.of(FeatureCsvWriter.DEFAULT_FILE);
+
+    /**
+     * True to store the sessions in the database.
+     */
+    private boolean myStore = true;
+
+    /**
+     * True to reuse the stored sessions of files analyzed before.
+     */
+    private boolean myUseCache;
+
+    /**
+     * True to run the analysis server instead of analyzing the given files.
+     */
+    private boolean myServe;
+
+    /**
+     * The port of the analysis server; -1 for the default.
+     */
+    private int myPort = -1;
+
+    /**
+     * The number of server jobs that may wait for a thread; -1 for the default.
+     */
+    private int myQueue = -1;
+
+    /**
+     * True to print the stage timings.
+     */
+    private boolean myTimings;
+
+    /**
+     * True to keep the log output.
+     */
+    private boolean myVerbose;
+
+    /**
+     * The files to analyze.
+     */
+    private final List<Path> myFiles = new ArrayList<>();
+
+    /**
+     * The machine-readable output.
+     */
+    private final PrintWriter myOut = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+
+    /**
+     * Use {@link #main(String[])}.
+     */
+    private HeadlessMain() {
+    }
+
+    /**
+     * Analyzes the files and directories given on the command line.
+     *
+     * @param theArgs The options and the files or directories.
+     */
+    public static void main(final String[] theArgs) {
+        System.setProperty("java.awt.headless", "true");
+        final HeadlessMain cli = new HeadlessMain();
+        final int code;
+        try {
+            code = cli.parse(theArgs) ? cli.run() : EXIT_OK;
+        } catch (final IllegalArgumentException theException) {
+            System.err.println(theException.getMessage());
+            System.err.print(USAGE);
+            System.exit(EXIT_USAGE);
+            return;
+        }
+        System.exit(code);
+    }
+
+    /**
+     * Reads the options and expands the directories.
+     *
+     * @param theArgs The command line.
+     * @return Returns false if only the usage was asked for.
+     * @throws IllegalArgumentException Thrown if the command line is invalid.
+     */
+    private boolean parse(final String[] theArgs) {
+        for (int i = 0; i < theArgs.length; i++) {
+            switch (theArgs[i]) {
+                case "--help", "-h" -> {
+                    System.out.print(USAGE);
+                    return false;
+                }
+                case "--threads" -> myThreads = number(theArgs, ++i, 1);
+                case "--serve" -> myServe = true;
+                case "--port" -> myPort = number(theArgs, ++i, 0);
+                case "--queue" -> myQueue = number(theArgs, ++i, 0);
+                case "--csv" -> myCsvFile = Path.of(value(theArgs, ++i));
+                case "--no-csv" -> myCsvFile = null;
+                case "--no-db" -> myStore = false;
+                case "--cache" -> myUseCache = true;
+                case "--timings" -> myTimings = true;
+                case "--verbose" -> myVerbose = true;
+                default -> {
+                    if (theArgs[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + theArgs[i]);
+                    }
+                    addPath(Path.of(theArgs[i]));
+                }
+            }
+        }
+        if (myServe) {
+            if (!myFiles.isEmpty() || !myStore || myUseCache) {
+                throw new IllegalArgumentException(
+                        "--serve stores every posted recording and takes no files");
+            }
+            if (myPort < 0) {
+                myPort = Integer.getInteger(AnalysisServer.PORT_PROPERTY,
+                        AnalysisServer.DEFAULT_PORT);
+            }
+            myCsvFile = null;
+        } else if (myPort >= 0 || myQueue >= 0) {
+            throw new IllegalArgumentException("--port and --queue need --serve");
+        } else if (myFiles.isEmpty()) {
+            throw new IllegalArgumentException("No audio files given");
+        }
+        return true;
+    }
+
+    /**
+     * @param theArgs    The command line.
+     * @param theIndex   The index of the option value.
+     * @param theMinimum The smallest valid value.
+     * @return Returns the numeric value of an option.
+     * @throws IllegalArgumentException Thrown if the value is missing or invalid.
+     */
+    private static int number(final String[] theArgs, final int theIndex,
+                              final int theMinimum) {
+        final int number;
+        try {
+            number = Integer.parseInt(value(theArgs, theIndex));
+        } catch (final NumberFormatException theException) {
+            throw new IllegalArgumentException(theArgs[theIndex - 1] + " needs a number");
+        }
+        if (number < theMinimum) {
+            throw new IllegalArgumentException(theArgs[theIndex - 1] + " needs at least "
+                    + theMinimum);
+        }
+        return number;
+    }
+
+    /**
+     * @param theArgs  The command line.
+     * @param theIndex The index of the option value.
+     * @return Returns the value of an option.
+     * @throws IllegalArgumentException Thrown if the value is missing.
+     */
+    private static String value(final String[] theArgs, final int theIndex) {
+        if (theIndex >= theArgs.length) {
+            throw new IllegalArgumentException(theArgs[theIndex - 1] + " needs a value");
+        }
+        return theArgs[theIndex];
+    }
+
+    /**
+     * Adds a file, or the audio files of a directory.
+     *
+     * @param thePath The file or directory.
+     * @throws IllegalArgumentException Thrown if the path does not exist.
+     */
+    private void addPath(final Path thePath) {
+        if (Files.isDirectory(thePath)) {
+            try {
+                myFiles.addAll(BatchAnalyzer.listAudioFiles(thePath));
+            } catch (final IOException theException) {
+                throw new IllegalArgumentException("Unable to list " + thePath + ": "
+                        + theException.getMessage());
+            }
+        } else if (Files.isRegularFile(thePath)) {
+            myFiles.add(thePath);
+        } else {
+            throw new IllegalArgumentException("No such file or directory: " + thePath);
+        }
+    }
+
+    /**
+     * Analyzes the files on the batch threads and prints the results in order.
+     *
+     * @return Returns the exit code.
+     */
+    private int run() {
+        if (!myVerbose) {
+            Logger.getLogger("").setLevel(Level.WARNING);
+        }
+        final AnalysisMode mode = AnalysisMode.fromSystemProperty();
+        final AnalysisParameters params = AnalysisParameters.defaults();
+        final UserFormantDatabase database = myStore || myUseCache
+                ? new UserFormantDatabase(myVerbose) : null;
+
+        final PythonWorkerPool pool;
+        try {
+            pool = mode == AnalysisMode.PYTHON ? PythonWorkerPool.getShared(null) : null;
+        } catch (final IOException theException) {
+            error(null, "Unable to start the python workers: " + theException.getMessage());
+            return EXIT_FAILED;
+        }
+        final AnalysisServer.Analysis analysis;
+        if (pool != null) {
+            analysis = (theFile, theProgress) -> pool.analyze(theFile, params, theProgress);
+        } else {
+            // one file per thread, or the segments of a single file in parallel
+            final VocalAnalysisEngine engine = myThreads > 1
+                    ? new VocalAnalysisEngine(params, 1) : new VocalAnalysisEngine();
+            analysis = (theFile, theProgress) -> engine.analyze(theFile, theProgress == null
+                    ? null : (theFraction, theChunk) -> theProgress.accept(theFraction));
+        }
+        if (myServe) {
+            return serve(analysis, database);
+        }
+
+        final BatchAnalyzer batch = new BatchAnalyzer(theFile -> analysis.analyze(theFile, null),
+                myThreads, myStore ? database : null,
+                myCsvFile == null ? null : new FeatureCsvWriter(myCsvFile),
+                myUseCache ? new AnalysisCache(database, mode, params) : null);
+        final BatchReport report;
+        try {
+            report = batch.run(myFiles, (theFile, theResult, theSessionId, theNanos, theError) -> {
+                if (theError != null) {
+                    error(theFile, theError);
+                } else {
+                    result(theFile, theResult, theSessionId, theNanos, database);
+                }
+            });
+        } catch (final IOException theException) {
+            error(null, theException.getMessage());
+            return EXIT_FAILED;
+        }
+
+        final JsonObject summary = line("summary");
+        summary.addProperty("files", report.getTotal());
+        summary.addProperty("succeeded", report.getSucceeded());
+        summary.addProperty("failed", report.getFailed().size());
+        summary.addProperty("threads", myThreads);
+        summary.addProperty("mode", mode.name().toLowerCase(Locale.ROOT));
+        JsonNumbers.add(summary, "elapsed_ms", report.getElapsedSeconds() * 1000);
+        JsonNumbers.add(summary, "files_per_s", report.getFilesPerSecond());
+        print(summary);
+        if (myTimings) {
+            for (final StageMetrics.Snapshot stage : StageMetrics.snapshot()) {
+                final JsonObject timing = line("stage");
+                timing.addProperty("stage", stage.getStage());
+                timing.addProperty("count", stage.getCount());
+                JsonNumbers.add(timing, "mean_ms", stage.getMeanMillis());
+                JsonNumbers.add(timing, "p50_ms", stage.getPercentileMillis(50));
+                JsonNumbers.add(timing, "p95_ms", stage.getPercentileMillis(95));
+                JsonNumbers.add(timing, "p99_ms", stage.getPercentileMillis(99));
+                JsonNumbers.add(timing, "max_ms", stage.getMaxMillis());
+                print(timing);
+            }
+        }
+        return report.getFailed().isEmpty() ? EXIT_OK : EXIT_FAILED;
+    }
+
+    /**
+     * Serves analyses over HTTP until the process is stopped.
+     *
+     * @param theAnalysis The analysis of a single file.
+     * @param theDatabase Stores the sessions.
+     * @return Returns the exit code if the server could not start.
+     */
+    private int serve(final AnalysisServer.Analysis theAnalysis,
+                      final UserFormantDatabase theDatabase) {
+        final AnalysisServer server = new AnalysisServer(theAnalysis, myThreads,
+                myQueue >= 0 ? myQueue : AnalysisServer.getDefaultQueue(myThreads), theDatabase);
+        final int port;
+        try {
+            port = server.start(myPort);
+        } catch (final IOException theException) {
+            error(null, "Unable to listen on port " + myPort + ": " + theException.getMessage());
+            return EXIT_FAILED;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close,
+                "AnalysisServerShutdown"));
+        final JsonObject listening = line("listening");
+        listening.addProperty("url", "http://127.0.0.1:" + port + "/");
+        listening.addProperty("threads", myThreads);
+        print(listening);
+        try {
+            // the shutdown hook stops the server
+            Thread.currentThread().join();
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Prints the result line of a file. A cached session is read back from the database.
+     *
+     * @param theFile      The audio file.
+     * @param theResult    The fresh analysis; null for a cached session.
+     * @param theSessionId The stored session; -1 if none.
+     * @param theNanos     The time spent hashing and analyzing the file.
+     * @param theDatabase  The database; null if nothing is stored or cached.
+     */
+    private void result(final Path theFile, final AnalysisResult theResult,
+                        final long theSessionId, final long theNanos,
+                        final UserFormantDatabase theDatabase) {
+        final int frames;
+        final double[] averages;
+        if (theResult != null) {
+            frames = theResult.getTimes().length;
+            averages = theResult.getAverages();
+        } else {
+            final List<SessionSummary> stored = theDatabase.getSessions(theSessionId + 1, 1);
+            frames = stored.isEmpty() ? 0 : stored.get(0).getFrameCount();
+            averages = theDatabase.getAverage(theSessionId);
+        }
+        final JsonObject result = line("result");
+        result.addProperty("file", theFile.toString());
+        result.addProperty("session", theSessionId < 0 ? null : theSessionId);
+        result.addProperty("cached", theResult == null);
+        result.addProperty("frames", frames);
+        for (int f = 0; f < averages.length; f++) {
+            JsonNumbers.add(result, "f" + f, averages[f]);
+        }
+        result.addProperty("ms", theNanos / 1e6);
+        print(result);
+    }
+
+    /**
+     * Prints an error line.
+     *
+     * @param theFile    The file; null for an error of the whole run.
+     * @param theMessage The error.
+     */
+    private void error(final Path theFile, final String theMessage) {
+        final JsonObject error = line("error");
+        error.addProperty("file", theFile == null ? null : theFile.toString());
+        error.addProperty("error", theMessage);
+        print(error);
+    }
+
+    /**
+     * @param theType The type of the line.
+     * @return Returns a new output line of the type.
+     */
+    private static JsonObject line(final String theType) {
+        final JsonObject line = new JsonObject();
+        line.addProperty("type", theType);
+        return line;
+    }
+
+    /**
+     * Prints an output line.
+     *
+     * @param theLine The line.
+     */
+    private void print(final JsonObject theLine) {
+        myOut.println(theLine);
+        myOut.flush();
+    }
+}
@@ -1,10 +1,11 @@
 package com.kass.vocalanalysistool.controller;
 
-import java.util.Objects;
+import com.kass.vocalanalysistool.model.DatabaseMaintenance;
+import com.kass.vocalanalysistool.model.StageMetrics;
+import com.kass.vocalanalysistool.view.ScenePreloader;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
-import javafx.scene.image.Image;
 import javafx.stage.Stage;
 import java.io.IOException;
 
@@ -16,18 +17,28 @@ import java.io.IOException;
  */
 public class Main extends Application {
     @Override
+    public void init() {
+        // opens the database and decodes the icon while the first scene loads
+        ScenePreloader.warmUp();
+    }
+
+    @Override
+    @SuppressWarnings("try")
     public void start(Stage stage) throws IOException {
         FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource(
                 "/com/kass/vocalanalysistool/gui/SelectAudioFile.fxml"));
 
-        Scene scene = new Scene(fxmlLoader.load(), 453, 400);
+        Scene scene;
+        try (StageMetrics.Span span = StageMetrics.start("scene.select")) {
+            scene = new Scene(fxmlLoader.load(), 453, 400);
+        }
         stage.setTitle("Select Audio File");
         stage.setScene(scene);
         stage.setResizable(false);
-        stage.getIcons().add(new Image(Objects.requireNonNull(getClass().getResourceAsStream(
-                "/com/kass/vocalanalysistool/icons/vocal_analysis_icon.png"))));
+        stage.getIcons().add(ScenePreloader.getIcon());
 
         stage.show();
+        DatabaseMaintenance.start();
 
     }
 
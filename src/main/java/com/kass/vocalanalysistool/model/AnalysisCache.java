@@ -0,0 +1,132 @@
+package com.kass.vocalanalysistool.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.logging.Logger;
+
+/**
+ * <p>Remembers which session holds the analysis of a recording, so opening the same take
+ * again shows the stored session instead of analyzing it and inserting a duplicate row.</p>
+ *
+ * <p>Entries are keyed by the SHA-256 of the audio file and of everything that changes the
+ * result: the engine, the analysis parameters, the continuity filter thresholds and the DSP
+ * kernels (the SIMD sums round differently from the scalar ones). The
+ * entries of any other parameter set are evicted when the cache is opened.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class AnalysisCache {
+
+    /**
+     * Bump when the analysis itself changes in a way the parameters do not show, so older
+     * results are analyzed again.
+     */
+    private static final int CACHE_VERSION = 2;
+
+    /**
+     * The size of the buffer the audio file is hashed through.
+     */
+    private static final int HASH_BUFFER = 1 << 20;
+
+    /**
+     * Logger used for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Analysis Cache");
+
+    /**
+     * The database holding the sessions and the cache table.
+     */
+    private final UserFormantDatabase myDatabase;
+
+    /**
+     * The hash of the engine, the parameters, the filter thresholds and the kernels.
+     */
+    private final String myParamsHash;
+
+    /**
+     * Constructor for the cache; evicts the entries of other parameter sets.
+     *
+     * @param theDatabase The database.
+     * @param theMode     The engine the recordings are analyzed with.
+     * @param theParams   The analysis parameters.
+     */
+    public AnalysisCache(final UserFormantDatabase theDatabase, final AnalysisMode theMode,
+                         final AnalysisParameters theParams) {
+        myDatabase = theDatabase;
+        myParamsHash = hash("v" + CACHE_VERSION + ";" + theMode + ";" + theParams + ";"
+                + FormantContinuityFilter.getThresholds() + ";"
+                + DspKernels.SELECTED.getName());
+        final int evicted = myDatabase.evictStaleCache(myParamsHash);
+        if (evicted > 0) {
+            MY_LOGGER.info(() -> "Evicted " + evicted + " cached analyses of other parameters");
+        }
+    }
+
+    /**
+     * Hashes the content of an audio file.
+     *
+     * @param theFile The audio file.
+     * @return Returns the hex SHA-256 of the file.
+     * @throws IOException Thrown if the file can not be read.
+     */
+    public static String hashAudio(final Path theFile) throws IOException {
+        final MessageDigest digest = newDigest();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER);
+        try (final FileChannel channel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up the session of a recording analyzed with the current parameters.
+     *
+     * @param theAudioHash The hash returned by {@link #hashAudio(Path)}.
+     * @return Returns the session id, or -1 on a miss.
+     */
+    public long lookup(final String theAudioHash) {
+        return myDatabase.findCachedSession(theAudioHash, myParamsHash);
+    }
+
+    /**
+     * Remembers the session of a freshly analyzed recording.
+     *
+     * @param theAudioHash The hash returned by {@link #hashAudio(Path)}.
+     * @param theSessionId The session id of the stored analysis.
+     */
+    public void store(final String theAudioHash, final long theSessionId) {
+        myDatabase.cacheSession(theAudioHash, myParamsHash, theSessionId);
+    }
+
+    /**
+     * @param theText The text.
+     * @return Returns the hex SHA-256 of the UTF-8 text.
+     */
+    private static String hash(final String theText) {
+        return HexFormat.of().formatHex(newDigest().digest(
+                theText.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return Returns a new SHA-256 digest.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException theException) {
+            throw new IllegalStateException("SHA-256 is not available", theException);
+        }
+    }
+}
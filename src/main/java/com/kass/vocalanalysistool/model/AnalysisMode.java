@@ -0,0 +1,41 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.Locale;
+
+/**
+ * Selects which engine analyzes the recordings.
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public enum AnalysisMode {
+
+    /**
+     * The pure java engine ({@link VocalAnalysisEngine}).
+     */
+    NATIVE,
+
+    /**
+     * The python (parselmouth) script; also used as the fallback of the native engine.
+     */
+    PYTHON;
+
+    /**
+     * The system property used to select the mode, e.g. {@code -Dvocalanalysis.mode=python}.
+     */
+    public static final String PROPERTY = "vocalanalysis.mode";
+
+    /**
+     * Gets the mode selected by the {@link #PROPERTY} system property.
+     *
+     * @return Returns the selected mode, {@link #NATIVE} by default.
+     */
+    public static AnalysisMode fromSystemProperty() {
+        final String value = System.getProperty(PROPERTY, NATIVE.name());
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (final IllegalArgumentException theException) {
+            return NATIVE;
+        }
+    }
+}
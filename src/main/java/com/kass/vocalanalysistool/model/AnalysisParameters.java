@@ -0,0 +1,185 @@
+package com.kass.vocalanalysistool.model;
+
+/**
+ * The tunable parameters of the vocal analysis. The defaults mirror the values used by
+ * the python script (praat's defaults with a 10 ms time step).
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class AnalysisParameters {
+
+    /**
+     * The distance between two analysis frames in seconds.
+     */
+    private final double myTimeStep;
+
+    /**
+     * The lowest pitch that is considered voiced in Hz.
+     */
+    private final double myPitchFloor;
+
+    /**
+     * The highest pitch that is considered voiced in Hz.
+     */
+    private final double myPitchCeiling;
+
+    /**
+     * The ceiling of the formant search range in Hz.
+     */
+    private final double myMaxFormant;
+
+    /**
+     * The number of formants the LPC model searches for.
+     */
+    private final int myFormantCount;
+
+    /**
+     * The effective (gaussian) window length used for the formant analysis in seconds.
+     */
+    private final double myFormantWindowLength;
+
+    /**
+     * The frequency in Hz above which the pre-emphasis boosts the spectrum.
+     */
+    private final double myPreEmphasisFrom;
+
+    /**
+     * The autocorrelation strength a frame needs in order to be considered voiced.
+     */
+    private final double myVoicingThreshold;
+
+    /**
+     * The fraction of the global peak a frame needs in order to not be considered silent.
+     */
+    private final double mySilenceThreshold;
+
+    /**
+     * Constructor for the analysis parameters.
+     *
+     * @param theTimeStep            The distance between two frames in seconds.
+     * @param thePitchFloor          The lowest pitch in Hz.
+     * @param thePitchCeiling        The highest pitch in Hz.
+     * @param theMaxFormant          The formant ceiling in Hz.
+     * @param theFormantCount        The number of formants to search for.
+     * @param theFormantWindowLength The effective formant window length in seconds.
+     * @param thePreEmphasisFrom     The pre-emphasis corner frequency in Hz.
+     * @param theVoicingThreshold    The voicing threshold [0 - 1].
+     * @param theSilenceThreshold    The silence threshold [0 - 1].
+     */
+    public AnalysisParameters(final double theTimeStep, final double thePitchFloor,
+                              final double thePitchCeiling, final double theMaxFormant,
+                              final int theFormantCount, final double theFormantWindowLength,
+                              final double thePreEmphasisFrom, final double theVoicingThreshold,
+                              final double theSilenceThreshold) {
+        if (theTimeStep <= 0 || thePitchFloor <= 0 || thePitchCeiling <= thePitchFloor
+                || theMaxFormant <= 0 || theFormantCount <= 0 || theFormantWindowLength <= 0) {
+            throw new IllegalArgumentException("Invalid analysis parameters.");
+        }
+        myTimeStep = theTimeStep;
+        myPitchFloor = thePitchFloor;
+        myPitchCeiling = thePitchCeiling;
+        myMaxFormant = theMaxFormant;
+        myFormantCount = theFormantCount;
+        myFormantWindowLength = theFormantWindowLength;
+        myPreEmphasisFrom = thePreEmphasisFrom;
+        myVoicingThreshold = theVoicingThreshold;
+        mySilenceThreshold = theSilenceThreshold;
+    }
+
+    /**
+     * Gets the default parameters (10 ms step, 75 - 600 Hz pitch, 5 formants up to 5500 Hz).
+     *
+     * @return Returns the default analysis parameters.
+     */
+    public static AnalysisParameters defaults() {
+        return new AnalysisParameters(0.01, 75.0, 600.0, 5500.0, 5,
+                0.025, 50.0, 0.45, 0.03);
+    }
+
+    /**
+     * Copies the parameters with another formant ceiling. The formant analysis runs at twice
+     * the ceiling, so a live capture picks the ceiling that matches its sampling rate.
+     *
+     * @param theMaxFormant The formant ceiling in Hz.
+     * @return Returns the new parameters.
+     */
+    public AnalysisParameters withMaxFormant(final double theMaxFormant) {
+        return new AnalysisParameters(myTimeStep, myPitchFloor, myPitchCeiling, theMaxFormant,
+                myFormantCount, myFormantWindowLength, myPreEmphasisFrom, myVoicingThreshold,
+                mySilenceThreshold);
+    }
+
+    /**
+     * @return Returns the distance between two frames in seconds.
+     */
+    public double getTimeStep() {
+        return myTimeStep;
+    }
+
+    /**
+     * @return Returns the pitch floor in Hz.
+     */
+    public double getPitchFloor() {
+        return myPitchFloor;
+    }
+
+    /**
+     * @return Returns the pitch ceiling in Hz.
+     */
+    public double getPitchCeiling() {
+        return myPitchCeiling;
+    }
+
+    /**
+     * @return Returns the formant ceiling in Hz.
+     */
+    public double getMaxFormant() {
+        return myMaxFormant;
+    }
+
+    /**
+     * @return Returns the number of formants to search for.
+     */
+    public int getFormantCount() {
+        return myFormantCount;
+    }
+
+    /**
+     * @return Returns the effective formant window length in seconds.
+     */
+    public double getFormantWindowLength() {
+        return myFormantWindowLength;
+    }
+
+    /**
+     * @return Returns the pre-emphasis corner frequency in Hz.
+     */
+    public double getPreEmphasisFrom() {
+        return myPreEmphasisFrom;
+    }
+
+    /**
+     * @return Returns the voicing threshold.
+     */
+    public double getVoicingThreshold() {
+        return myVoicingThreshold;
+    }
+
+    /**
+     * @return Returns the silence threshold.
+     */
+    public double getSilenceThreshold() {
+        return mySilenceThreshold;
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisParameters[timeStep=" + myTimeStep + ", pitchFloor=" + myPitchFloor
+                + ", pitchCeiling=" + myPitchCeiling + ", maxFormant=" + myMaxFormant
+                + ", formantCount=" + myFormantCount + ", formantWindowLength="
+                + myFormantWindowLength + ", preEmphasisFrom=" + myPreEmphasisFrom
+                + ", voicingThreshold=" + myVoicingThreshold + ", silenceThreshold="
+                + mySilenceThreshold + "]";
+    }
+}
@@ -0,0 +1,97 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The filtered pitch and formant tracks of one recording together with their averages.
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class AnalysisResult {
+
+    /**
+     * The time of every accepted frame in seconds.
+     */
+    private final double[] myTimes;
+
+    /**
+     * The tracks where row 0 is F0 and row 4 is F4; the columns correspond to the times.
+     */
+    private final double[][] myFormants;
+
+    /**
+     * The average of F0 - F4.
+     */
+    private final double[] myAverages;
+
+    /**
+     * The feature row used by the learning model (user_features.csv), in column order.
+     */
+    private final Map<String, Double> myFeatures;
+
+    /**
+     * Constructor for an analysis result without a feature row.
+     *
+     * @param theTimes    The time of every frame.
+     * @param theFormants The F0 - F4 tracks.
+     * @param theAverages The F0 - F4 averages.
+     */
+    public AnalysisResult(final double[] theTimes, final double[][] theFormants,
+                          final double[] theAverages) {
+        this(theTimes, theFormants, theAverages, Map.of());
+    }
+
+    /**
+     * Constructor for the analysis result.
+     *
+     * @param theTimes    The time of every frame.
+     * @param theFormants The F0 - F4 tracks.
+     * @param theAverages The F0 - F4 averages.
+     * @param theFeatures The feature row in column order.
+     */
+    public AnalysisResult(final double[] theTimes, final double[][] theFormants,
+                          final double[] theAverages, final Map<String, Double> theFeatures) {
+        myTimes = theTimes;
+        myFormants = theFormants;
+        myAverages = theAverages;
+        myFeatures = Collections.unmodifiableMap(new LinkedHashMap<>(theFeatures));
+    }
+
+    /**
+     * @return Returns the time of every frame in seconds.
+     */
+    public double[] getTimes() {
+        return myTimes;
+    }
+
+    /**
+     * @return Returns a matrix where the rows are the formants and the columns are the time.
+     */
+    public double[][] getFormants() {
+        return myFormants;
+    }
+
+    /**
+     * @return Returns the averages of F0 - F4.
+     */
+    public double[] getAverages() {
+        return myAverages;
+    }
+
+    /**
+     * @return Returns the feature row in column order; empty if none was computed.
+     */
+    public Map<String, Double> getFeatures() {
+        return myFeatures;
+    }
+
+    /**
+     * @return Returns true if no frame survived the filter.
+     */
+    public boolean isEmpty() {
+        return myTimes.length == 0;
+    }
+}
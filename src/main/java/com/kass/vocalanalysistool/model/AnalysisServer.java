@@ -0,0 +1,885 @@
+package com.kass.vocalanalysistool.model;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Analyzes recordings for other tools on the same host over HTTP. The server only listens
+ * on the loopback address.</p>
+ *
+ * <ul>
+ *     <li>{@code POST /analyze} analyzes the audio file sent as the request body, or the file
+ *     named by {@code ?path=}, stores it in Vocal_Analysis.db and answers with the session
+ *     id, the F0 - F4 averages and the feature row. With {@code ?wait=false} it answers
+ *     202 with the job id right away.</li>
+ *     <li>{@code GET /jobs/<id>} answers with the state of a job, and its result once
+ *     done.</li>
+ *     <li>{@code GET /jobs/<id>/progress} streams the progress of a job as server-sent events
+ *     and ends with its result.</li>
+ *     <li>{@code GET /status} answers with the number of queued and running jobs.</li>
+ * </ul>
+ *
+ * <p>Every request is handled on its own virtual thread, so waiting clients and slow uploads
+ * cost no platform thread. The analyses run on a fixed pool of workers in front of a
+ * bounded queue; once the queue is full new jobs are answered with 429 and a Retry-After
+ * header instead of piling up.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class AnalysisServer implements AutoCloseable {
+
+    /**
+     * The system property holding the port.
+     */
+    public static final String PORT_PROPERTY = "vocalanalysis.server.port";
+
+    /**
+     * The system property holding the number of jobs that may wait for a worker.
+     */
+    public static final String QUEUE_PROPERTY = "vocalanalysis.server.queue";
+
+    /**
+     * The default port.
+     */
+    public static final int DEFAULT_PORT = 8765;
+
+    /**
+     * The largest upload accepted in bytes (about 25 minutes of 16-bit stereo at 44.1 kHz).
+     */
+    private static final long MAX_UPLOAD_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * The number of finished jobs kept for {@code GET /jobs/<id>}.
+     */
+    private static final int KEPT_JOBS = 1024;
+
+    /**
+     * The seconds a client is told to wait after a 429.
+     */
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    /**
+     * The most progress events per second of a stream.
+     */
+    private static final long PROGRESS_INTERVAL_MILLIS = 100;
+
+    /**
+     * The seconds between keep-alive comments of a stream without progress.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 15;
+
+    /**
+     * The seconds the server waits for running exchanges when it is closed.
+     */
+    private static final int STOP_SECONDS = 1;
+
+    /**
+     * Logger used for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Analysis Server");
+
+    /**
+     * Analyzes a single file and reports its progress.
+     */
+    @FunctionalInterface
+    public interface Analysis {
+
+        /**
+         * Analyzes the audio file. Called concurrently from the worker threads.
+         *
+         * @param theFile     The audio file.
+         * @param theProgress Receives the progress [0 - 1]; may be null.
+         * @return Returns the analysis result.
+         * @throws IOException Thrown if the file can not be analyzed.
+         */
+        AnalysisResult analyze(Path theFile, DoubleConsumer theProgress) throws IOException;
+    }
+
+    /**
+     * The states of a job.
+     */
+    private enum State {
+
+        /**
+         * Waiting for a worker.
+         */
+        QUEUED,
+
+        /**
+         * Being analyzed.
+         */
+        RUNNING,
+
+        /**
+         * Analyzed and stored.
+         */
+        DONE,
+
+        /**
+         * Not analyzed or not stored.
+         */
+        FAILED
+    }
+
+    /**
+     * Analyzes the single files.
+     */
+    private final Analysis myAnalysis;
+
+    /**
+     * Stores the formant tracks.
+     */
+    private final UserFormantDatabase myDatabase;
+
+    /**
+     * Runs the analyses; rejects jobs once its queue is full.
+     */
+    private final ThreadPoolExecutor myWorkers;
+
+    /**
+     * Handles the exchanges, one virtual thread each.
+     */
+    private final ExecutorService myHandlers = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * The known jobs by id.
+     */
+    private final Map<Long, Job> myJobs = new ConcurrentHashMap<>();
+
+    /**
+     * The ids of the finished jobs, oldest first, so the oldest is forgotten first.
+     */
+    private final ConcurrentLinkedQueue<Long> myFinished = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Numbers the jobs.
+     */
+    private final AtomicLong myNextId = new AtomicLong();
+
+    /**
+     * The jobs being analyzed.
+     */
+    private final AtomicInteger myRunning = new AtomicInteger();
+
+    /**
+     * The HTTP server; null until {@link #start(int)}.
+     */
+    private HttpServer myServer;
+
+    /**
+     * Constructor for the server.
+     *
+     * @param theAnalysis The analysis of a single file; must be thread safe.
+     * @param theThreads  The number of files analyzed at once.
+     * @param theQueue    The number of jobs that may wait for a worker.
+     * @param theDatabase Stores the formant tracks.
+     */
+    public AnalysisServer(final Analysis theAnalysis, final int theThreads, final int theQueue,
+                          final UserFormantDatabase theDatabase) {
+        if (theThreads < 1 || theQueue < 0) {
+            throw new IllegalArgumentException("The server needs at least one thread");
+        }
+        myAnalysis = Objects.requireNonNull(theAnalysis);
+        myDatabase = Objects.requireNonNull(theDatabase);
+        final AtomicInteger count = new AtomicInteger();
+        // a SynchronousQueue when nothing may wait, so a busy pool rejects right away
+        myWorkers = new ThreadPoolExecutor(theThreads, theThreads, 0, TimeUnit.MILLISECONDS,
+                theQueue == 0 ? new SynchronousQueue<>()
+                        : new ArrayBlockingQueue<>(theQueue), theTask -> {
+                    final Thread thread = new Thread(theTask,
+                            "AnalysisWorker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @param theThreads The number of files analyzed at once.
+     * @return Returns the queue size from {@value #QUEUE_PROPERTY}, defaulting to four jobs
+     * per thread.
+     */
+    public static int getDefaultQueue(final int theThreads) {
+        return Math.max(0, Integer.getInteger(QUEUE_PROPERTY, 4 * theThreads));
+    }
+
+    /**
+     * Starts listening on the loopback address.
+     *
+     * @param thePort The port; 0 for any free port.
+     * @return Returns the port listened on.
+     * @throws IOException Thrown if the port can not be bound.
+     */
+    public synchronized int start(final int thePort) throws IOException {
+        if (myServer != null) {
+            throw new IllegalStateException("The server is already started");
+        }
+        myServer = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), thePort), 0);
+        myServer.setExecutor(myHandlers);
+        myServer.createContext("/analyze", this::handleAnalyze);
+        myServer.createContext("/jobs/", this::handleJob);
+        myServer.createContext("/status", this::handleStatus);
+        myServer.start();
+        final int port = myServer.getAddress().getPort();
+        MY_LOGGER.info(() -> "Listening on http://127.0.0.1:" + port);
+        return port;
+    }
+
+    /**
+     * Stops listening and fails the queued jobs; running analyses are interrupted.
+     */
+    @Override
+    public synchronized void close() {
+        myWorkers.shutdownNow();
+        for (final Job job : myJobs.values()) {
+            if (!job.isFinished()) {
+                job.fail(503, "The server stopped");
+            }
+        }
+        if (myServer != null) {
+            myServer.stop(STOP_SECONDS);
+        }
+        myHandlers.shutdownNow();
+    }
+
+    /**
+     * Handles {@code POST /analyze}.
+     *
+     * @param theExchange The exchange.
+     * @throws IOException Thrown if the client went away.
+     */
+    private void handleAnalyze(final HttpExchange theExchange) throws IOException {
+        try (theExchange) {
+            if (!"POST".equals(theExchange.getRequestMethod())) {
+                sendError(theExchange, 405, "Use POST");
+                return;
+            }
+            final Map<String, String> query = parseQuery(theExchange.getRequestURI()
+                    .getRawQuery());
+            if (myWorkers.getQueue().remainingCapacity() == 0
+                    && myWorkers.getActiveCount() >= myWorkers.getMaximumPoolSize()) {
+                // the upload is dropped rather than stored, but still read so the client
+                // sees the answer instead of a reset connection
+                try (final InputStream in = new LimitedInputStream(
+                        theExchange.getRequestBody(), MAX_UPLOAD_BYTES)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+                sendBusy(theExchange);
+                return;
+            }
+
+            final Job job;
+            final String path = query.get("path");
+            if (path != null) {
+                final Path file = Path.of(path).toAbsolutePath();
+                if (!Files.isRegularFile(file)) {
+                    sendError(theExchange, 400, "No such file: " + file);
+                    return;
+                }
+                job = new Job(myNextId.incrementAndGet(), file, false);
+            } else {
+                final Path upload = receiveUpload(theExchange);
+                if (upload == null) {
+                    return;
+                }
+                job = new Job(myNextId.incrementAndGet(), upload, true);
+            }
+
+            myJobs.put(job.myId, job);
+            try {
+                myWorkers.execute(() -> run(job));
+            } catch (final RejectedExecutionException theException) {
+                myJobs.remove(job.myId);
+                job.deleteUpload();
+                sendBusy(theExchange);
+                return;
+            }
+
+            if ("false".equals(query.get("wait"))) {
+                final JsonObject accepted = job.toJson();
+                accepted.addProperty("events", "/jobs/" + job.myId + "/progress");
+                sendJson(theExchange, 202, accepted);
+                return;
+            }
+            try {
+                job.myDone.get();
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final ExecutionException theException) {
+                // the job records its failure
+            }
+            sendJson(theExchange, job.getStatusCode(), job.toJson());
+        }
+    }
+
+    /**
+     * Handles {@code GET /jobs/<id>} and {@code GET /jobs/<id>/progress}.
+     *
+     * @param theExchange The exchange.
+     * @throws IOException Thrown if the client went away.
+     */
+    private void handleJob(final HttpExchange theExchange) throws IOException {
+        try (theExchange) {
+            if (!"GET".equals(theExchange.getRequestMethod())) {
+                sendError(theExchange, 405, "Use GET");
+                return;
+            }
+            final String[] parts = theExchange.getRequestURI().getPath()
+                    .substring("/jobs/".length()).split("/");
+            Job job = null;
+            try {
+                job = myJobs.get(Long.parseLong(parts[0]));
+            } catch (final NumberFormatException theException) {
+                // answered below
+            }
+            if (job == null || parts.length > 2
+                    || parts.length == 2 && !"progress".equals(parts[1])) {
+                sendError(theExchange, 404, "No such job");
+                return;
+            }
+            if (parts.length == 2) {
+                streamProgress(theExchange, job);
+            } else {
+                sendJson(theExchange, 200, job.toJson());
+            }
+        }
+    }
+
+    /**
+     * Handles {@code GET /status}.
+     *
+     * @param theExchange The exchange.
+     * @throws IOException Thrown if the client went away.
+     */
+    private void handleStatus(final HttpExchange theExchange) throws IOException {
+        try (theExchange) {
+            final JsonObject status = new JsonObject();
+            status.addProperty("threads", myWorkers.getMaximumPoolSize());
+            status.addProperty("running", myRunning.get());
+            status.addProperty("queued", myWorkers.getQueue().size());
+            status.addProperty("queue_capacity", myWorkers.getQueue().size()
+                    + myWorkers.getQueue().remainingCapacity());
+            status.addProperty("completed", myWorkers.getCompletedTaskCount());
+            sendJson(theExchange, 200, status);
+        }
+    }
+
+    /**
+     * Analyzes and stores a job on a worker thread.
+     *
+     * @param theJob The job.
+     */
+    @SuppressWarnings("try")
+    private void run(final Job theJob) {
+        myRunning.incrementAndGet();
+        theJob.update(State.RUNNING, 0);
+        final long start = System.nanoTime();
+        try (final StageMetrics.Span span = StageMetrics.start("server.job")) {
+            final AnalysisResult result = myAnalysis.analyze(theJob.myFile,
+                    theProgress -> theJob.update(State.RUNNING, theProgress));
+            if (result.isEmpty()) {
+                theJob.fail(422, "no valid frames after filtering");
+            } else {
+                final long sessionId = myDatabase.insertFormants(result);
+                theJob.succeed(sessionId, result, System.nanoTime() - start);
+            }
+        } catch (final IOException | RuntimeException theException) {
+            MY_LOGGER.log(Level.WARNING, "Unable to analyze job " + theJob.myId, theException);
+            theJob.fail(500, String.valueOf(theException.getMessage()));
+        } finally {
+            myRunning.decrementAndGet();
+            theJob.deleteUpload();
+            myFinished.add(theJob.myId);
+            while (myFinished.size() > KEPT_JOBS) {
+                final Long oldest = myFinished.poll();
+                if (oldest != null) {
+                    myJobs.remove(oldest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams the progress of a job as server-sent events: a {@code progress} event whenever
+     * it changed (at most every {@value #PROGRESS_INTERVAL_MILLIS} ms), then a {@code result}
+     * event once the job is finished.
+     *
+     * @param theExchange The exchange.
+     * @param theJob      The job.
+     * @throws IOException Thrown if the client went away.
+     */
+    private static void streamProgress(final HttpExchange theExchange, final Job theJob)
+            throws IOException {
+        theExchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        theExchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        theExchange.sendResponseHeaders(200, 0);
+        final OutputStream out = theExchange.getResponseBody();
+        long version = -1;
+        try {
+            while (true) {
+                final long seen = theJob.awaitChange(version, KEEP_ALIVE_SECONDS);
+                if (theJob.isFinished()) {
+                    sendEvent(out, "result", theJob.toJson());
+                    return;
+                }
+                if (seen == version) {
+                    out.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                } else {
+                    version = seen;
+                    sendEvent(out, "progress", theJob.toJson());
+                    Thread.sleep(PROGRESS_INTERVAL_MILLIS);
+                }
+            }
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the request body into a temporary file.
+     *
+     * @param theExchange The exchange.
+     * @return Returns the file, or null if the request was answered with an error.
+     * @throws IOException Thrown if the file can not be written or the client went away.
+     */
+    private static Path receiveUpload(final HttpExchange theExchange) throws IOException {
+        final String length = theExchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && parseLong(length) > MAX_UPLOAD_BYTES) {
+            sendError(theExchange, 413, "The upload is larger than " + MAX_UPLOAD_BYTES
+                    + " bytes");
+            return null;
+        }
+        final String type = theExchange.getRequestHeaders().getFirst("Content-Type");
+        final Path upload = Files.createTempFile("vocalanalysis-upload",
+                type != null && type.contains("aiff") ? ".aiff" : ".wav");
+        try (final InputStream in = theExchange.getRequestBody()) {
+            final long copied = Files.copy(new LimitedInputStream(in, MAX_UPLOAD_BYTES + 1),
+                    upload, StandardCopyOption.REPLACE_EXISTING);
+            if (copied > MAX_UPLOAD_BYTES || copied == 0) {
+                Files.deleteIfExists(upload);
+                sendError(theExchange, copied == 0 ? 400 : 413, copied == 0
+                        ? "Send the audio file as the body or name it with ?path="
+                        : "The upload is larger than " + MAX_UPLOAD_BYTES + " bytes");
+                return null;
+            }
+            return upload;
+        } catch (final IOException theException) {
+            Files.deleteIfExists(upload);
+            throw theException;
+        }
+    }
+
+    /**
+     * Answers that the queue is full.
+     *
+     * @param theExchange The exchange.
+     * @throws IOException Thrown if the client went away.
+     */
+    private static void sendBusy(final HttpExchange theExchange) throws IOException {
+        theExchange.getResponseHeaders().set("Retry-After",
+                Integer.toString(RETRY_AFTER_SECONDS));
+        sendError(theExchange, 429, "The analysis queue is full");
+    }
+
+    /**
+     * Answers with an error.
+     *
+     * @param theExchange The exchange.
+     * @param theStatus   The HTTP status.
+     * @param theMessage  The error.
+     * @throws IOException Thrown if the client went away.
+     */
+    private static void sendError(final HttpExchange theExchange, final int theStatus,
+                                  final String theMessage) throws IOException {
+        final JsonObject error = new JsonObject();
+        error.addProperty("error", theMessage);
+        sendJson(theExchange, theStatus, error);
+    }
+
+    /**
+     * Answers with a JSON body.
+     *
+     * @param theExchange The exchange.
+     * @param theStatus   The HTTP status.
+     * @param theBody     The body.
+     * @throws IOException Thrown if the client went away.
+     */
+    private static void sendJson(final HttpExchange theExchange, final int theStatus,
+                                 final JsonObject theBody) throws IOException {
+        final byte[] body = theBody.toString().getBytes(StandardCharsets.UTF_8);
+        theExchange.getResponseHeaders().set("Content-Type", "application/json");
+        theExchange.sendResponseHeaders(theStatus, body.length);
+        try (final OutputStream out = theExchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Writes one server-sent event.
+     *
+     * @param theOut   The response body.
+     * @param theEvent The event name.
+     * @param theData  The event data.
+     * @throws IOException Thrown if the client went away.
+     */
+    private static void sendEvent(final OutputStream theOut, final String theEvent,
+                                  final JsonObject theData) throws IOException {
+        theOut.write(("event: " + theEvent + "\ndata: " + theData + "\n\n")
+                .getBytes(StandardCharsets.UTF_8));
+        theOut.flush();
+    }
+
+    /**
+     * @param theQuery The raw query of a URI; may be null.
+     * @return Returns the decoded parameters; the last one wins.
+     */
+    private static Map<String, String> parseQuery(final String theQuery) {
+        final Map<String, String> parameters = new HashMap<>();
+        if (theQuery == null) {
+            return parameters;
+        }
+        for (final String pair : theQuery.split("&")) {
+            final int equals = pair.indexOf('=');
+            final String name = equals < 0 ? pair : pair.substring(0, equals);
+            final String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * @param theText A header value.
+     * @return Returns the number, or -1 if it is not one.
+     */
+    private static long parseLong(final String theText) {
+        try {
+            return Long.parseLong(theText.trim());
+        } catch (final NumberFormatException theException) {
+            return -1;
+        }
+    }
+
+    /**
+     * One analysis request, shared by the worker running it and the exchanges asking for it.
+     */
+    private static final class Job {
+
+        /**
+         * The job id.
+         */
+        private final long myId;
+
+        /**
+         * The audio file.
+         */
+        private final Path myFile;
+
+        /**
+         * True if the file is an upload, deleted once the job finished.
+         */
+        private final boolean myUpload;
+
+        /**
+         * Completed once the job finished.
+         */
+        private final CompletableFuture<Void> myDone = new CompletableFuture<>();
+
+        /**
+         * Guards the state; a lock rather than a monitor so waiting virtual threads do not
+         * pin their carrier.
+         */
+        private final ReentrantLock myLock = new ReentrantLock();
+
+        /**
+         * Signalled whenever the state or the progress changed.
+         */
+        private final Condition myChanged = myLock.newCondition();
+
+        /**
+         * Counts the changes.
+         */
+        private long myVersion;
+
+        /**
+         * The state.
+         */
+        private State myState = State.QUEUED;
+
+        /**
+         * The progress [0 - 1].
+         */
+        private double myProgress;
+
+        /**
+         * The HTTP status of the answer.
+         */
+        private int myStatusCode = 202;
+
+        /**
+         * The session id, the averages and the features once done.
+         */
+        private JsonObject myResult;
+
+        /**
+         * The reason the job failed.
+         */
+        private String myError;
+
+        /**
+         * Constructor for the job.
+         *
+         * @param theId     The job id.
+         * @param theFile   The audio file.
+         * @param theUpload True if the file is an upload.
+         */
+        private Job(final long theId, final Path theFile, final boolean theUpload) {
+            myId = theId;
+            myFile = theFile;
+            myUpload = theUpload;
+        }
+
+        /**
+         * Records the progress of a running job.
+         *
+         * @param theState    The state.
+         * @param theProgress The progress [0 - 1].
+         */
+        private void update(final State theState, final double theProgress) {
+            myLock.lock();
+            try {
+                myState = theState;
+                myProgress = theProgress;
+                myVersion++;
+                myChanged.signalAll();
+            } finally {
+                myLock.unlock();
+            }
+        }
+
+        /**
+         * Records the result of a stored analysis.
+         *
+         * @param theSessionId The session id.
+         * @param theResult    The analysis result.
+         * @param theNanos     The time spent analyzing and storing.
+         */
+        private void succeed(final long theSessionId, final AnalysisResult theResult,
+                             final long theNanos) {
+            final JsonObject result = new JsonObject();
+            result.addProperty("session", theSessionId);
+            result.addProperty("frames", theResult.getTimes().length);
+            final double[] averages = theResult.getAverages();
+            for (int f = 0; f < averages.length; f++) {
+                JsonNumbers.add(result, "f" + f, averages[f]);
+            }
+            final JsonObject features = new JsonObject();
+            theResult.getFeatures().forEach((theName, theValue) ->
+                    JsonNumbers.add(features, theName, theValue));
+            result.add("features", features);
+            result.addProperty("ms", theNanos / 1e6);
+            finish(State.DONE, 200, result, null);
+        }
+
+        /**
+         * Records a failure.
+         *
+         * @param theStatusCode The HTTP status of the answer.
+         * @param theError      The reason.
+         */
+        private void fail(final int theStatusCode, final String theError) {
+            finish(State.FAILED, theStatusCode, null, theError);
+        }
+
+        /**
+         * Records the end of the job and wakes everyone waiting for it.
+         *
+         * @param theState      The final state.
+         * @param theStatusCode The HTTP status of the answer.
+         * @param theResult     The result; null on failure.
+         * @param theError      The reason of a failure; null on success.
+         */
+        private void finish(final State theState, final int theStatusCode,
+                            final JsonObject theResult, final String theError) {
+            myLock.lock();
+            try {
+                myStatusCode = theStatusCode;
+                myResult = theResult;
+                myError = theError;
+            } finally {
+                myLock.unlock();
+            }
+            update(theState, 1);
+            myDone.complete(null);
+        }
+
+        /**
+         * Waits until the job changed since a version, or the timeout passed.
+         *
+         * @param theVersion The version seen last.
+         * @param theSeconds The most seconds to wait.
+         * @return Returns the current version.
+         * @throws InterruptedException Thrown if the thread was interrupted.
+         */
+        private long awaitChange(final long theVersion, final long theSeconds)
+                throws InterruptedException {
+            myLock.lock();
+            try {
+                long nanos = TimeUnit.SECONDS.toNanos(theSeconds);
+                while (myVersion == theVersion && nanos > 0) {
+                    nanos = myChanged.awaitNanos(nanos);
+                }
+                return myVersion;
+            } finally {
+                myLock.unlock();
+            }
+        }
+
+        /**
+         * @return Returns true once the job is done or failed.
+         */
+        private boolean isFinished() {
+            return myDone.isDone();
+        }
+
+        /**
+         * @return Returns the HTTP status of the answer.
+         */
+        private int getStatusCode() {
+            myLock.lock();
+            try {
+                return myStatusCode;
+            } finally {
+                myLock.unlock();
+            }
+        }
+
+        /**
+         * @return Returns the id, state and progress of the job, with its result or error
+         * once finished.
+         */
+        private JsonObject toJson() {
+            myLock.lock();
+            try {
+                final JsonObject json = new JsonObject();
+                json.addProperty("job", myId);
+                json.addProperty("state", myState.name().toLowerCase(Locale.ROOT));
+                json.addProperty("progress", myProgress);
+                if (myResult != null) {
+                    myResult.entrySet().forEach(theEntry ->
+                            json.add(theEntry.getKey(), theEntry.getValue()));
+                }
+                if (myError != null) {
+                    json.addProperty("error", myError);
+                }
+                return json;
+            } finally {
+                myLock.unlock();
+            }
+        }
+
+        /**
+         * Deletes the uploaded file, if any.
+         */
+        private void deleteUpload() {
+            if (!myUpload) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(myFile);
+            } catch (final IOException theException) {
+                MY_LOGGER.log(Level.WARNING, "Unable to delete " + myFile, theException);
+            }
+        }
+    }
+
+    /**
+     * Reads at most a number of bytes from a stream, so an upload without a Content-Length
+     * can not fill the disk.
+     */
+    private static final class LimitedInputStream extends InputStream {
+
+        /**
+         * The stream read from.
+         */
+        private final InputStream myIn;
+
+        /**
+         * The bytes that may still be read.
+         */
+        private long myRemaining;
+
+        /**
+         * Constructor for the stream.
+         *
+         * @param theIn    The stream read from.
+         * @param theLimit The most bytes read.
+         */
+        private LimitedInputStream(final InputStream theIn, final long theLimit) {
+            myIn = theIn;
+            myRemaining = theLimit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (myRemaining <= 0) {
+                return -1;
+            }
+            final int b = myIn.read();
+            if (b >= 0) {
+                myRemaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] theBuffer, final int theOffset, final int theLength)
+                throws IOException {
+            if (myRemaining <= 0) {
+                return -1;
+            }
+            final int read = myIn.read(theBuffer, theOffset,
+                    (int) Math.min(theLength, myRemaining));
+            if (read > 0) {
+                myRemaining -= read;
+            }
+            return read;
+        }
+    }
+}
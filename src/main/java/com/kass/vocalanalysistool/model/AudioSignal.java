@@ -0,0 +1,168 @@
+package com.kass.vocalanalysistool.model;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A mono audio signal with samples normalized to [-1, 1].
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class AudioSignal implements SampleSource {
+
+    /**
+     * The mono samples.
+     */
+    private final float[] mySamples;
+
+    /**
+     * The sampling frequency in Hz.
+     */
+    private final double mySampleRate;
+
+    /**
+     * Constructor for the audio signal.
+     *
+     * @param theSamples    The mono samples in [-1, 1].
+     * @param theSampleRate The sampling frequency in Hz.
+     */
+    public AudioSignal(final float[] theSamples, final double theSampleRate) {
+        mySamples = theSamples;
+        mySampleRate = theSampleRate;
+    }
+
+    /**
+     * Reads a [.wav] or [.aiff] file and mixes all channels down to mono. Plain PCM and
+     * float files are decoded straight from a memory mapping; anything else goes through
+     * javax.sound.
+     *
+     * @param theFile The path of the audio file.
+     * @return Returns the decoded audio signal.
+     * @throws IOException Thrown if the file can not be read or has an unsupported encoding.
+     */
+    public static AudioSignal read(final Path theFile) throws IOException {
+        try (final MappedAudioFile file = MappedAudioFile.open(theFile)) {
+            return file.toSignal();
+        } catch (final UnsupportedAudioFileException theException) {
+            return readStream(theFile);
+        }
+    }
+
+    /**
+     * Reads an audio file through javax.sound and mixes all channels down to mono.
+     *
+     * @param theFile The path of the audio file.
+     * @return Returns the decoded audio signal.
+     * @throws IOException Thrown if the file can not be read or has an unsupported encoding.
+     */
+    private static AudioSignal readStream(final Path theFile) throws IOException {
+        try (final InputStream in = new BufferedInputStream(Files.newInputStream(theFile));
+             final AudioInputStream audio = AudioSystem.getAudioInputStream(in)) {
+
+            final AudioFormat format = audio.getFormat();
+            final int channels = format.getChannels();
+            final int bytesPerSample = format.getSampleSizeInBits() / 8;
+            final int frameSize = format.getFrameSize();
+            final AudioFormat.Encoding encoding = format.getEncoding();
+
+            if (bytesPerSample < 1 || bytesPerSample > 4 || frameSize != bytesPerSample * channels
+                    || !(AudioFormat.Encoding.PCM_SIGNED.equals(encoding)
+                    || AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)
+                    || AudioFormat.Encoding.PCM_FLOAT.equals(encoding))) {
+                throw new IOException("Unsupported audio encoding: " + format);
+            }
+
+            final byte[] data = audio.readAllBytes();
+            final int frames = data.length / frameSize;
+            final float[] samples = new float[frames];
+            final boolean bigEndian = format.isBigEndian();
+            final boolean isFloat = AudioFormat.Encoding.PCM_FLOAT.equals(encoding);
+            final boolean unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding);
+            final double scale = 1.0 / (1L << (bytesPerSample * 8 - 1));
+
+            for (int i = 0; i < frames; i++) {
+                double sum = 0;
+                for (int c = 0; c < channels; c++) {
+                    final int offset = i * frameSize + c * bytesPerSample;
+                    final long raw = readInteger(data, offset, bytesPerSample, bigEndian);
+                    if (isFloat) {
+                        sum += bytesPerSample == 4 ? Float.intBitsToFloat((int) raw) : 0;
+                    } else if (unsigned) {
+                        sum += (raw - (1L << (bytesPerSample * 8 - 1))) * scale;
+                    } else {
+                        // sign-extend the sample
+                        final int shift = 64 - bytesPerSample * 8;
+                        sum += ((raw << shift) >> shift) * scale;
+                    }
+                }
+                samples[i] = (float) (sum / channels);
+            }
+            return new AudioSignal(samples, format.getSampleRate());
+
+        } catch (final UnsupportedAudioFileException theException) {
+            throw new IOException("Unsupported audio file: " + theFile, theException);
+        }
+    }
+
+    /**
+     * Reads an unsigned integer of the given width from the byte array.
+     *
+     * @param theData      The raw bytes.
+     * @param theOffset    The offset of the first byte.
+     * @param theWidth     The width of the integer in bytes.
+     * @param theBigEndian True if the most significant byte comes first.
+     * @return Returns the raw unsigned value.
+     */
+    private static long readInteger(final byte[] theData, final int theOffset,
+                                    final int theWidth, final boolean theBigEndian) {
+        long value = 0;
+        for (int b = 0; b < theWidth; b++) {
+            final int index = theBigEndian ? theOffset + b : theOffset + theWidth - 1 - b;
+            value = (value << 8) | (theData[index] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * @return Returns the mono samples. The array is shared, not copied.
+     */
+    public float[] getSamples() {
+        return mySamples;
+    }
+
+    @Override
+    public long getFrameCount() {
+        return mySamples.length;
+    }
+
+    @Override
+    public int read(final long theFrame, final float[] theOut, final int theOffset,
+                    final int theLength) {
+        final int count = (int) Math.max(0, Math.min(theLength, mySamples.length - theFrame));
+        System.arraycopy(mySamples, (int) theFrame, theOut, theOffset, count);
+        return count;
+    }
+
+    /**
+     * @return Returns the sampling frequency in Hz.
+     */
+    @Override
+    public double getSampleRate() {
+        return mySampleRate;
+    }
+
+    /**
+     * @return Returns the duration of the signal in seconds.
+     */
+    public double getDuration() {
+        return mySamples.length / mySampleRate;
+    }
+}
@@ -0,0 +1,415 @@
+package com.kass.vocalanalysistool.model;
+
+import com.kass.vocalanalysistool.common.Properties;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * <p>Analyzes every [.wav] and [.aiff] file of a directory, e.g. to build the training
+ * CSV file.</p>
+ *
+ * <p>The files are analyzed on a fixed pool of worker threads. The results are stored by
+ * a single writer thread in the order of the files, so the rows of user_features.csv and
+ * user_formants are never interleaved or lost. At most twice the pool size of files are in
+ * flight at once, so a slow disk or database can not pile up results in memory.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class BatchAnalyzer {
+
+    /**
+     * The system property holding the number of worker threads.
+     */
+    public static final String THREADS_PROPERTY = "vocalanalysis.batch.threads";
+
+    /**
+     * The logger object for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Batch Analyzer");
+
+    /**
+     * Analyzes a single audio file.
+     */
+    @FunctionalInterface
+    public interface FileAnalysis {
+
+        /**
+         * Analyzes the audio file. Called concurrently from the worker threads.
+         *
+         * @param theFile The audio file.
+         * @return Returns the analysis result.
+         * @throws IOException Thrown if the file can not be analyzed.
+         */
+        AnalysisResult analyze(Path theFile) throws IOException;
+    }
+
+    /**
+     * Receives the outcome of every file once it was stored.
+     */
+    @FunctionalInterface
+    public interface FileListener {
+
+        /**
+         * Called on the writer thread, in the order of the files.
+         *
+         * @param theFile      The audio file.
+         * @param theResult    The fresh analysis; null for a cached session or a failure.
+         * @param theSessionId The stored or cached session; -1 if none.
+         * @param theNanos     The time spent hashing and analyzing the file.
+         * @param theError     The reason the file failed; null on success.
+         */
+        void fileDone(Path theFile, AnalysisResult theResult, long theSessionId,
+                      long theNanos, String theError);
+    }
+
+    /**
+     * Used to execute property change events.
+     */
+    private final PropertyChangeSupport myChanges = new PropertyChangeSupport(this);
+
+    /**
+     * Analyzes the single files.
+     */
+    private final FileAnalysis myAnalysis;
+
+    /**
+     * The number of worker threads.
+     */
+    private final int myThreads;
+
+    /**
+     * Stores the formant tracks; null to skip them.
+     */
+    private final UserFormantDatabase myDatabase;
+
+    /**
+     * Appends the feature rows; null to skip them.
+     */
+    private final FeatureCsvWriter myCsv;
+
+    /**
+     * Finds the sessions of files analyzed before; null to analyze every file.
+     */
+    private final AnalysisCache myCache;
+
+    /**
+     * Constructor for the batch analyzer.
+     *
+     * @param theAnalysis The analysis of a single file; must be thread safe.
+     * @param theThreads  The number of worker threads.
+     * @param theDatabase Stores the formant tracks.
+     * @param theCsv      Appends the feature rows.
+     */
+    public BatchAnalyzer(final FileAnalysis theAnalysis, final int theThreads,
+                         final UserFormantDatabase theDatabase, final FeatureCsvWriter theCsv) {
+        this(theAnalysis, theThreads, Objects.requireNonNull(theDatabase),
+                Objects.requireNonNull(theCsv), null);
+    }
+
+    /**
+     * Constructor for a batch analyzer that may skip the storage or reuse stored sessions.
+     *
+     * @param theAnalysis The analysis of a single file; must be thread safe.
+     * @param theThreads  The number of worker threads.
+     * @param theDatabase Stores the formant tracks; null to skip them.
+     * @param theCsv      Appends the feature rows; null to skip them.
+     * @param theCache    Finds the sessions of files analyzed before, which are then neither
+     *                    analyzed nor stored again; null to analyze every file.
+     */
+    public BatchAnalyzer(final FileAnalysis theAnalysis, final int theThreads,
+                         final UserFormantDatabase theDatabase, final FeatureCsvWriter theCsv,
+                         final AnalysisCache theCache) {
+        if (theThreads < 1) {
+            throw new IllegalArgumentException("The batch needs at least one thread");
+        }
+        myAnalysis = Objects.requireNonNull(theAnalysis);
+        myThreads = theThreads;
+        myDatabase = theDatabase;
+        myCsv = theCsv;
+        myCache = theCache;
+    }
+
+    /**
+     * @return Returns the thread count from {@value #THREADS_PROPERTY}, defaulting to the
+     * number of cores.
+     */
+    public static int getDefaultThreads() {
+        return Math.max(1, Integer.getInteger(THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Lists the audio files of the directory in name order.
+     *
+     * @param theDirectory The directory.
+     * @return Returns the [.wav] and [.aiff] files directly inside the directory.
+     * @throws IOException Thrown if the directory can not be listed.
+     */
+    public static List<Path> listAudioFiles(final Path theDirectory) throws IOException {
+        try (final Stream<Path> files = Files.list(theDirectory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(thePath -> {
+                        final String name = thePath.getFileName().toString()
+                                .toLowerCase(Locale.ROOT);
+                        return name.endsWith(".wav") || name.endsWith(".aiff")
+                                || name.endsWith(".aif");
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Analyzes all audio files of the directory and stores the results.
+     *
+     * @param theDirectory The directory.
+     * @return Returns the throughput and latency report.
+     * @throws IOException Thrown if the directory can not be listed.
+     */
+    public BatchReport run(final Path theDirectory) throws IOException {
+        return run(listAudioFiles(theDirectory), null);
+    }
+
+    /**
+     * Analyzes the audio files and stores the results.
+     *
+     * @param theFiles    The audio files.
+     * @param theListener Receives the outcome of every file; may be null.
+     * @return Returns the throughput and latency report.
+     * @throws IOException Thrown if the batch was interrupted.
+     */
+    public BatchReport run(final List<Path> theFiles, final FileListener theListener)
+            throws IOException {
+        final int total = theFiles.size();
+        final long start = System.nanoTime();
+
+        final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        final long[] latencies = new long[total];
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        final Semaphore inFlight = new Semaphore(2 * myThreads);
+        // only used on the writer thread
+        final Map<Integer, Outcome> ready = new HashMap<>();
+        final int[] next = new int[1];
+
+        final ExecutorService workers = Executors.newFixedThreadPool(myThreads,
+                namedThreads("BatchWorker"));
+        final ExecutorService writer = Executors.newSingleThreadExecutor(
+                namedThreads("BatchWriter"));
+        try {
+            for (int i = 0; i < total; i++) {
+                final int index = i;
+                final Path file = theFiles.get(i);
+                inFlight.acquire();
+                workers.execute(() -> {
+                    final long fileStart = System.nanoTime();
+                    final Outcome outcome = analyze(file);
+                    latencies[index] = System.nanoTime() - fileStart;
+                    writer.execute(() -> {
+                        ready.put(index, outcome);
+                        Outcome head;
+                        while ((head = ready.remove(next[0])) != null) {
+                            final Path headFile = theFiles.get(next[0]);
+                            if (store(headFile, head)) {
+                                succeeded.incrementAndGet();
+                            } else {
+                                failed.add(headFile + ": " + head.myError);
+                            }
+                            if (theListener != null) {
+                                try {
+                                    theListener.fileDone(headFile, head.myResult,
+                                            head.mySessionId, latencies[next[0]],
+                                            head.myError);
+                                } catch (final RuntimeException theException) {
+                                    MY_LOGGER.log(Level.WARNING, "Batch listener failed",
+                                            theException);
+                                }
+                            }
+                            next[0]++;
+                            finish(inFlight, done, total);
+                        }
+                    });
+                });
+            }
+            // every permit is returned once the last row was written
+            inFlight.acquire(2 * myThreads);
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch analysis interrupted", theException);
+        } finally {
+            workers.shutdownNow();
+            writer.shutdown();
+            awaitTermination(writer);
+        }
+
+        final BatchReport report = new BatchReport(total, succeeded.get(), failed,
+                System.nanoTime() - start, latencies, myThreads);
+        MY_LOGGER.info(report::toString);
+        return report;
+    }
+
+    /**
+     * Analyzes one file on a worker thread, or looks up its stored session.
+     *
+     * @param theFile The audio file.
+     * @return Returns the outcome.
+     */
+    @SuppressWarnings("try")
+    private Outcome analyze(final Path theFile) {
+        final Outcome outcome = new Outcome();
+        try {
+            if (myCache != null) {
+                try (final StageMetrics.Span span = StageMetrics.start("cache.hash")) {
+                    outcome.myAudioHash = AnalysisCache.hashAudio(theFile);
+                }
+                outcome.mySessionId = myCache.lookup(outcome.myAudioHash);
+            }
+            if (outcome.mySessionId < 0) {
+                try (final StageMetrics.Span span = StageMetrics.start("analysis.total")) {
+                    outcome.myResult = myAnalysis.analyze(theFile);
+                }
+                if (outcome.myResult.isEmpty()) {
+                    outcome.myResult = null;
+                    outcome.myError = "no valid frames after filtering";
+                }
+            }
+        } catch (final IOException | RuntimeException theException) {
+            MY_LOGGER.log(Level.WARNING, "Unable to analyze " + theFile, theException);
+            outcome.myResult = null;
+            outcome.myError = String.valueOf(theException.getMessage());
+        }
+        return outcome;
+    }
+
+    /**
+     * Stores a fresh result in the database, the cache and the CSV file. Called on the
+     * writer thread.
+     *
+     * @param theFile    The audio file.
+     * @param theOutcome The outcome of its analysis.
+     * @return Returns true if the file succeeded.
+     */
+    @SuppressWarnings("try")
+    private boolean store(final Path theFile, final Outcome theOutcome) {
+        if (theOutcome.myResult == null) {
+            return theOutcome.myError == null;
+        }
+        try {
+            if (myDatabase != null) {
+                theOutcome.mySessionId = myDatabase.insertFormants(theOutcome.myResult);
+                if (myCache != null) {
+                    myCache.store(theOutcome.myAudioHash, theOutcome.mySessionId);
+                }
+            }
+            if (myCsv != null) {
+                try (final StageMetrics.Span span = StageMetrics.start("csv.append")) {
+                    myCsv.append(FeatureCsvWriter.getFileId(theFile),
+                            theOutcome.myResult.getFeatures());
+                }
+            }
+            return true;
+        } catch (final IOException | RuntimeException theException) {
+            MY_LOGGER.log(Level.SEVERE, "Unable to store " + theFile, theException);
+            theOutcome.myError = "unable to store: " + theException.getMessage();
+            return false;
+        }
+    }
+
+    /**
+     * Marks one file as done and reports the progress.
+     *
+     * @param theInFlight The permits of the files in flight.
+     * @param theDone     The number of finished files.
+     * @param theTotal    The number of files.
+     */
+    private void finish(final Semaphore theInFlight, final AtomicInteger theDone,
+                        final int theTotal) {
+        theInFlight.release();
+        myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
+                (double) theDone.incrementAndGet() / theTotal);
+    }
+
+    /**
+     * Waits until the writer stored the queued results.
+     *
+     * @param theWriter The writer executor.
+     */
+    private static void awaitTermination(final ExecutorService theWriter) {
+        try {
+            if (!theWriter.awaitTermination(1, TimeUnit.MINUTES)) {
+                MY_LOGGER.warning("Batch writer did not finish in time");
+            }
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param thePrefix The thread name prefix.
+     * @return Returns a factory of numbered daemon threads.
+     */
+    private static ThreadFactory namedThreads(final String thePrefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return theRunnable -> {
+            final Thread thread = new Thread(theRunnable,
+                    thePrefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Adds a listener for the batch progress.
+     *
+     * @param theListener the listener.
+     */
+    public void addPropertyChangeListener(final PropertyChangeListener theListener) {
+        myChanges.addPropertyChangeListener(Objects.requireNonNull(theListener));
+    }
+
+    /**
+     * The outcome of one file, handed from its worker to the writer.
+     */
+    private static final class Outcome {
+
+        /**
+         * The fresh analysis; null for a cached session or a failure.
+         */
+        private AnalysisResult myResult;
+
+        /**
+         * The hash of the audio file; null if the cache is not used.
+         */
+        private String myAudioHash;
+
+        /**
+         * The stored or cached session; -1 if none.
+         */
+        private long mySessionId = -1;
+
+        /**
+         * The reason the file failed; null on success.
+         */
+        private String myError;
+    }
+}
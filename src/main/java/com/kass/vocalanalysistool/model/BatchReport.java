@@ -0,0 +1,145 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>The outcome of a batch run: how many files were analyzed, how fast, and how long
+ * the single files took.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class BatchReport {
+
+    /**
+     * The number of audio files found.
+     */
+    private final int myTotal;
+
+    /**
+     * The number of files that were analyzed and stored.
+     */
+    private final int mySucceeded;
+
+    /**
+     * The files that failed or had no valid frames.
+     */
+    private final List<String> myFailed;
+
+    /**
+     * The wall clock time of the whole run in nanoseconds.
+     */
+    private final long myElapsedNanos;
+
+    /**
+     * The sorted per-file analysis latencies in nanoseconds.
+     */
+    private final long[] myLatencies;
+
+    /**
+     * The number of worker threads.
+     */
+    private final int myThreads;
+
+    /**
+     * Constructor for the batch report.
+     *
+     * @param theTotal        The number of audio files found.
+     * @param theSucceeded    The number of files that were analyzed and stored.
+     * @param theFailed       The files that failed.
+     * @param theElapsedNanos The wall clock time of the whole run.
+     * @param theLatencies    The per-file latencies in nanoseconds.
+     * @param theThreads      The number of worker threads.
+     */
+    public BatchReport(final int theTotal, final int theSucceeded, final List<String> theFailed,
+                       final long theElapsedNanos, final long[] theLatencies,
+                       final int theThreads) {
+        myTotal = theTotal;
+        mySucceeded = theSucceeded;
+        myFailed = List.copyOf(theFailed);
+        myElapsedNanos = theElapsedNanos;
+        myLatencies = theLatencies.clone();
+        Arrays.sort(myLatencies);
+        myThreads = theThreads;
+    }
+
+    /**
+     * @return Returns the number of audio files found.
+     */
+    public int getTotal() {
+        return myTotal;
+    }
+
+    /**
+     * @return Returns the number of files that were analyzed and stored.
+     */
+    public int getSucceeded() {
+        return mySucceeded;
+    }
+
+    /**
+     * @return Returns the files that failed or had no valid frames.
+     */
+    public List<String> getFailed() {
+        return myFailed;
+    }
+
+    /**
+     * @return Returns the wall clock time of the whole run in seconds.
+     */
+    public double getElapsedSeconds() {
+        return myElapsedNanos / 1e9;
+    }
+
+    /**
+     * @return Returns the number of processed files per second.
+     */
+    public double getFilesPerSecond() {
+        return myElapsedNanos == 0 ? 0 : (mySucceeded + myFailed.size()) / getElapsedSeconds();
+    }
+
+    /**
+     * @return Returns the mean per-file latency in milliseconds.
+     */
+    public double getMeanLatencyMillis() {
+        if (myLatencies.length == 0) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (final long latency : myLatencies) {
+            sum += latency;
+        }
+        return sum / myLatencies.length / 1e6;
+    }
+
+    /**
+     * @param thePercent The percentile [0 - 100].
+     * @return Returns the per-file latency percentile in milliseconds (nearest rank).
+     */
+    public double getLatencyPercentileMillis(final double thePercent) {
+        if (myLatencies.length == 0) {
+            return Double.NaN;
+        }
+        final int rank = (int) Math.ceil(thePercent / 100.0 * myLatencies.length);
+        return myLatencies[Math.max(0, Math.min(rank, myLatencies.length) - 1)] / 1e6;
+    }
+
+    /**
+     * @return Returns the number of worker threads.
+     */
+    public int getThreads() {
+        return myThreads;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d files in %.1f s on %d threads (%.2f files/s); "
+                        + "latency mean %.0f ms, p50 %.0f ms, p95 %.0f ms, max %.0f ms; "
+                        + "%d failed",
+                mySucceeded, myTotal, getElapsedSeconds(), myThreads, getFilesPerSecond(),
+                getMeanLatencyMillis(), getLatencyPercentileMillis(50),
+                getLatencyPercentileMillis(95), getLatencyPercentileMillis(100),
+                myFailed.size());
+    }
+}
@@ -1,9 +1,431 @@
 package com.kass.vocalanalysistool.model;
 
+import com.kass.vocalanalysistool.common.Properties;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Logger;
+
 /**
- * Creates the csv file for exportation.
+ * <p>Creates the csv file for exportation.</p>
+ *
+ * <p>Two exports are available: the per-frame F0 - F4 tracks and the feature vector of
+ * every session (the columns listed in the README). Both stream straight from a database
+ * cursor through a buffered writer: a track export holds one session's BLOBs at a time
+ * and decodes them in place, a feature export holds one row. Any number of sessions can
+ * go into one file.</p>
+ *
+ * <p>The rows are written to a temporary file next to the target, which replaces the
+ * target when the export is complete, so a cancelled or failed export never leaves a
+ * half written file behind. Exports report their progress with
+ * {@link Properties#UPDATE_PROGRESS} events and stop when {@link #cancel()} is called or
+ * the exporting thread is interrupted.</p>
  *
  * @author Kassie Whitney
+ * @version 10.18.26
  */
-public class CsvFactory {
+public final class CsvFactory {
+
+    /**
+     * The header of the track export.
+     */
+    private static final String TRACK_HEADER = "session_id,time_s,f0_hz,f1_hz,f2_hz,f3_hz,f4_hz";
+
+    /**
+     * The feature columns after the averages, and the name they are stored under in the
+     * session_features table.
+     */
+    private static final String[][] FEATURE_COLUMNS = {
+            {"hnr_mean_db", "hnr_mean_db"},
+            {"hnr_median_db", "hnr_median_db"},
+            {"voiced_fraction", "voiced_frac"},
+            {"f0_mean_hz", "f0_mean_hz"},
+            {"f0_sd_st", "f0_sd_st"},
+            {"range_st_5_95", "range_st_5_95"},
+            {"slope_st_per_sec", "slope_st_per_sec"},
+            {"f0_p5_hz", "f0_p5_hz"},
+            {"f0_p95_hz", "f0_p95_hz"}
+    };
+
+    /**
+     * The number of frames between two cancellation checks.
+     */
+    private static final int CHECK_INTERVAL = 4096;
+
+    /**
+     * The size of the output buffer in characters.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The number of progress events per export at most.
+     */
+    private static final int PROGRESS_STEPS = 200;
+
+    /**
+     * The logger object for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Csv Factory");
+
+    /**
+     * Used to execute property change events.
+     */
+    private final PropertyChangeSupport myChanges = new PropertyChangeSupport(this);
+
+    /**
+     * The database the sessions are read from.
+     */
+    private final UserFormantDatabase myDatabase;
+
+    /**
+     * Reused for every line.
+     */
+    private final StringBuilder myLine = new StringBuilder(128);
+
+    /**
+     * Set by {@link #cancel()}.
+     */
+    private volatile boolean myCancelled;
+
+    /**
+     * The amount of work of the running export.
+     */
+    private long myTotal;
+
+    /**
+     * The amount of work done by the running export.
+     */
+    private long myDone;
+
+    /**
+     * The progress last reported, in {@link #PROGRESS_STEPS}.
+     */
+    private int myReported;
+
+    /**
+     * Constructor for the csv factory.
+     *
+     * @param theDatabase The database the sessions are read from.
+     */
+    public CsvFactory(final UserFormantDatabase theDatabase) {
+        myDatabase = Objects.requireNonNull(theDatabase);
+    }
+
+    /**
+     * Exports the per-frame tracks, one line per frame.
+     *
+     * @param theFile       The CSV file; replaced when the export is complete.
+     * @param theSessionIds The sessions in the order they are written; all sessions (by
+     *                      id) if none are given.
+     * @return Returns the number of frames written.
+     * @throws IOException           Thrown if the database or the file can not be accessed.
+     * @throws CancellationException Thrown if the export was cancelled.
+     */
+    public long exportTracks(final Path theFile, final long... theSessionIds)
+            throws IOException {
+        final String select = """
+                SELECT id, time_blob, f0_blob, f1_blob, f2_blob, f3_blob, f4_blob, payload
+                FROM user_formants
+                """;
+        final String count = "SELECT COALESCE(SUM(frame_count), 0) FROM user_formants";
+        return export(theFile, theSessionIds, new String[]{count, count + " WHERE id = ?"},
+                new String[]{select + "ORDER BY id", select + "WHERE id = ?"}, TRACK_HEADER,
+                this::writeTracks);
+    }
+
+    /**
+     * Exports the feature vector of every session, one line per session.
+     *
+     * @param theFile       The CSV file; replaced when the export is complete.
+     * @param theSessionIds The sessions in the order they are written; all sessions (by
+     *                      id) if none are given.
+     * @return Returns the number of sessions written.
+     * @throws IOException           Thrown if the database or the file can not be accessed.
+     * @throws CancellationException Thrown if the export was cancelled.
+     */
+    public long exportFeatures(final Path theFile, final long... theSessionIds)
+            throws IOException {
+        final StringBuilder select = new StringBuilder("""
+                SELECT u.id, u.timestamp, u.f0_avg, u.f1_avg, u.f2_avg, u.f3_avg, u.f4_avg""");
+        final StringBuilder header = new StringBuilder(
+                "session_id,timestamp,F0_avg,F1_avg,F2_avg,F3_avg,F4_avg");
+        for (final String[] column : FEATURE_COLUMNS) {
+            select.append(",\n       MAX(CASE WHEN s.name = '").append(column[1])
+                    .append("' THEN s.value END)");
+            header.append(',').append(column[0]);
+        }
+        select.append("""
+
+                FROM user_formants u
+                         LEFT JOIN session_features s ON s.session_id = u.id
+                """);
+        header.append(",formant_dispersion,gender_perception");
+        final String count = "SELECT COUNT(*) FROM user_formants";
+        return export(theFile, theSessionIds, new String[]{count, count + " WHERE id = ?"},
+                new String[]{select + "GROUP BY u.id ORDER BY u.id",
+                        select + "WHERE u.id = ? GROUP BY u.id"}, header.toString(),
+                this::writeFeatures);
+    }
+
+    /**
+     * Stops the running export. The target file is left untouched.
+     */
+    public void cancel() {
+        myCancelled = true;
+    }
+
+    /**
+     * Adds a listener for the export progress.
+     *
+     * @param theListener the listener.
+     */
+    public void addPropertyChangeListener(final PropertyChangeListener theListener) {
+        myChanges.addPropertyChangeListener(Objects.requireNonNull(theListener));
+    }
+
+    /**
+     * Writes the rows of a cursor.
+     */
+    @FunctionalInterface
+    private interface RowWriter {
+
+        /**
+         * Writes the current row of the cursor.
+         *
+         * @param theRow    The cursor.
+         * @param theWriter The output.
+         * @return Returns the number of lines written.
+         * @throws SQLException Thrown if the row can not be read.
+         * @throws IOException  Thrown if the output can not be written.
+         */
+        long write(ResultSet theRow, Writer theWriter) throws SQLException, IOException;
+    }
+
+    /**
+     * Runs an export into a temporary file and moves it over the target when it is done.
+     *
+     * @param theFile       The CSV file.
+     * @param theSessionIds The sessions; all sessions if empty.
+     * @param theCountSql   The queries for the amount of work of all sessions and of the
+     *                      session with the id bound to the parameter.
+     * @param theSelectSql  The queries of the rows of all sessions in id order and of the
+     *                      session with the id bound to the parameter.
+     * @param theHeader     The header line.
+     * @param theRowWriter  Writes one row of the query.
+     * @return Returns the number of lines written, without the header.
+     * @throws IOException Thrown if the database or the file can not be accessed.
+     */
+    private synchronized long export(final Path theFile, final long[] theSessionIds,
+                                     final String[] theCountSql, final String[] theSelectSql,
+                                     final String theHeader, final RowWriter theRowWriter)
+            throws IOException {
+        myCancelled = false;
+        myDone = 0;
+        myReported = 0;
+        final long start = System.nanoTime();
+        final Path target = theFile.toAbsolutePath();
+        final Path temp = target.resolveSibling(target.getFileName() + ".part");
+        long lines = 0;
+        try (final SqliteConnectionPool.Lease lease = myDatabase.lease();
+             final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     Files.newOutputStream(temp), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writer.write(theHeader);
+            writer.write('\n');
+            if (theSessionIds.length == 0) {
+                myTotal = count(lease.prepare(theCountSql[0]));
+                try (final ResultSet rs = lease.prepare(theSelectSql[0]).executeQuery()) {
+                    while (rs.next()) {
+                        lines += theRowWriter.write(rs, writer);
+                    }
+                }
+            } else {
+                myTotal = 0;
+                final PreparedStatement count = lease.prepare(theCountSql[1]);
+                for (final long id : theSessionIds) {
+                    count.setLong(1, id);
+                    myTotal += count(count);
+                }
+                final PreparedStatement select = lease.prepare(theSelectSql[1]);
+                for (final long id : theSessionIds) {
+                    select.setLong(1, id);
+                    try (final ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            lines += theRowWriter.write(rs, writer);
+                        }
+                    }
+                }
+            }
+        } catch (final SQLException theException) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Unable to read the sessions: " + theException.getMessage(),
+                    theException);
+        } catch (final IOException | RuntimeException theException) {
+            Files.deleteIfExists(temp);
+            throw theException;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0, (double) 1);
+        final long written = lines;
+        MY_LOGGER.info(() -> "Exported " + written + " lines to " + target + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return written;
+    }
+
+    /**
+     * Runs a count query.
+     *
+     * @param theQuery The prepared count query with its parameters bound.
+     * @return Returns the count.
+     * @throws SQLException Thrown if the query fails.
+     */
+    private static long count(final PreparedStatement theQuery) throws SQLException {
+        try (final ResultSet rs = theQuery.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Writes the frames of one session, decoding the BLOBs in place.
+     *
+     * @param theRow    The cursor on the session.
+     * @param theWriter The output.
+     * @return Returns the number of frames written.
+     * @throws SQLException Thrown if the row can not be read.
+     * @throws IOException  Thrown if the output or the payload file of the session can not
+     *                      be accessed.
+     */
+    private long writeTracks(final ResultSet theRow, final Writer theWriter)
+            throws SQLException, IOException {
+        final long id = theRow.getLong(1);
+        final String payload = theRow.getString(8);
+        final byte[][] columns = payload == null ? null : myDatabase.readPayload(payload);
+        final byte[] timeBlob = columns == null ? theRow.getBytes(2)
+                : columns[PayloadStore.TIME];
+        final DoubleBuffer times = timeBlob == null ? null : ByteBuffer.wrap(timeBlob)
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        final FloatBuffer[] tracks = new FloatBuffer[5];
+        int frames = Integer.MAX_VALUE;
+        for (int f = 0; f < 5; f++) {
+            tracks[f] = ByteBuffer.wrap(columns == null ? theRow.getBytes(f + 3)
+                            : columns[PayloadStore.F0 + f]).order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer();
+            frames = Math.min(frames, tracks[f].remaining());
+        }
+
+        for (int i = 0; i < frames; i++) {
+            final StringBuilder line = myLine;
+            line.setLength(0);
+            line.append(id).append(',');
+            if (times != null && i < times.limit()) {
+                line.append(times.get(i));
+            }
+            for (int f = 0; f < 5; f++) {
+                line.append(',');
+                final float value = tracks[f].get(i);
+                if (Float.isFinite(value)) {
+                    line.append(value);
+                }
+            }
+            line.append('\n');
+            theWriter.append(line);
+            if ((i + 1) % CHECK_INTERVAL == 0) {
+                advance(CHECK_INTERVAL);
+            }
+        }
+        advance(frames % CHECK_INTERVAL);
+        return frames;
+    }
+
+    /**
+     * Writes the feature vector of one session.
+     *
+     * @param theRow    The cursor on the session.
+     * @param theWriter The output.
+     * @return Returns 1.
+     * @throws SQLException Thrown if the row can not be read.
+     * @throws IOException  Thrown if the output can not be written.
+     */
+    private long writeFeatures(final ResultSet theRow, final Writer theWriter)
+            throws SQLException, IOException {
+        final StringBuilder line = myLine;
+        line.setLength(0);
+        line.append(theRow.getLong(1)).append(',');
+        final String timestamp = theRow.getString(2);
+        if (timestamp != null) {
+            line.append(timestamp);
+        }
+        final double[] averages = new double[5];
+        for (int f = 0; f < 5; f++) {
+            averages[f] = appendReal(line, theRow, f + 3);
+        }
+        for (int c = 0; c < FEATURE_COLUMNS.length; c++) {
+            appendReal(line, theRow, c + 8);
+        }
+        // formant_dispersion = mean([F2 - F1, F3 - F2, F4 - F3]) = (F4 - F1) / 3
+        line.append(',');
+        final double dispersion = (averages[4] - averages[1]) / 3;
+        if (Double.isFinite(dispersion)) {
+            line.append(dispersion);
+        }
+        // gender_perception is the label; it is filled in by whoever trains the model
+        line.append(",\n");
+        theWriter.append(line);
+        advance(1);
+        return 1;
+    }
+
+    /**
+     * Appends a nullable REAL column as a cell.
+     *
+     * @param theLine  The line.
+     * @param theRow   The cursor.
+     * @param theIndex The column index.
+     * @return Returns the value, NaN if it was NULL.
+     * @throws SQLException Thrown if the column can not be read.
+     */
+    private static double appendReal(final StringBuilder theLine, final ResultSet theRow,
+                                     final int theIndex) throws SQLException {
+        theLine.append(',');
+        final double value = theRow.getDouble(theIndex);
+        if (theRow.wasNull() || !Double.isFinite(value)) {
+            return Double.NaN;
+        }
+        theLine.append(value);
+        return value;
+    }
+
+    /**
+     * Counts finished work, reports the progress and checks for cancellation.
+     *
+     * @param theAmount The amount of work finished.
+     */
+    private void advance(final long theAmount) {
+        if (myCancelled || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Export cancelled");
+        }
+        myDone += theAmount;
+        final int step = myTotal <= 0 ? 0 : (int) (myDone * PROGRESS_STEPS / myTotal);
+        if (step > myReported) {
+            myReported = step;
+            myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
+                    Math.min(1.0, (double) step / PROGRESS_STEPS));
+        }
+    }
 }
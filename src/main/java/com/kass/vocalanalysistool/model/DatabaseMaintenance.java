@@ -0,0 +1,115 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Keeps Vocal_Analysis.db from growing without bound. A background thread applies the
+ * retention policy, moves the tracks of long sessions to payload files (when
+ * {@link UserFormantDatabase#PAYLOADS_PROPERTY} is "files") and returns the freed pages to
+ * the file system, shortly after the app starts and then every hour. The first run also
+ * rewrites a database created before incremental vacuum, once.</p>
+ *
+ * <p>The retention policy is off unless one of its properties is set:</p>
+ * <ul>
+ *     <li>{@code -Dvocalanalysis.retention.sessions=N} keeps the N newest sessions.</li>
+ *     <li>{@code -Dvocalanalysis.retention.days=D} deletes the sessions stored more than D
+ *     days ago.</li>
+ * </ul>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class DatabaseMaintenance {
+
+    /**
+     * The system property holding the number of newest sessions to keep.
+     */
+    public static final String KEEP_SESSIONS_PROPERTY = "vocalanalysis.retention.sessions";
+
+    /**
+     * The system property holding the age in days after which sessions are deleted.
+     */
+    public static final String KEEP_DAYS_PROPERTY = "vocalanalysis.retention.days";
+
+    /**
+     * The delay of the first run in seconds, so it does not compete with the start up.
+     */
+    private static final long FIRST_RUN_SECONDS = 30;
+
+    /**
+     * The delay between the end of a run and the start of the next in minutes.
+     */
+    private static final long INTERVAL_MINUTES = 60;
+
+    /**
+     * The most sessions moved to payload files per transaction batch.
+     */
+    private static final int EXTERNALIZE_BATCH = 20;
+
+    /**
+     * Logger used for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Database Maintenance");
+
+    /**
+     * Runs the maintenance; null until {@link #start()}.
+     */
+    private static ScheduledExecutorService ourScheduler;
+
+    /**
+     * Utility class.
+     */
+    private DatabaseMaintenance() {
+    }
+
+    /**
+     * Schedules the maintenance on a daemon thread; later calls do nothing.
+     */
+    public static synchronized void start() {
+        if (ourScheduler != null) {
+            return;
+        }
+        ourScheduler = Executors.newSingleThreadScheduledExecutor(theTask -> {
+            final Thread thread = new Thread(theTask, "DatabaseMaintenance");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        ourScheduler.scheduleWithFixedDelay(DatabaseMaintenance::runOnce, FIRST_RUN_SECONDS,
+                INTERVAL_MINUTES * 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs the maintenance once on the calling thread.
+     */
+    @SuppressWarnings("try")
+    public static void runOnce() {
+        try (final StageMetrics.Span span = StageMetrics.start("db.maintenance")) {
+            final UserFormantDatabase database = new UserFormantDatabase(false);
+            database.convertToIncrementalVacuum();
+            final int deleted = database.applyRetention(
+                    Math.max(0, Integer.getInteger(KEEP_SESSIONS_PROPERTY, 0)),
+                    Math.max(0, Integer.getInteger(KEEP_DAYS_PROPERTY, 0)));
+            int moved = 0;
+            int batch;
+            do {
+                batch = database.externalizePayloads(EXTERNALIZE_BATCH);
+                moved += batch;
+            } while (batch == EXTERNALIZE_BATCH);
+            final long pages = database.reclaimSpace();
+            if (deleted > 0 || moved > 0 || pages > 0) {
+                final int movedSessions = moved;
+                MY_LOGGER.info(() -> "Deleted " + deleted + " sessions, moved "
+                        + movedSessions + " to payload files, returned " + pages
+                        + " free pages");
+            }
+        } catch (final RuntimeException theException) {
+            // the next run tries again
+            MY_LOGGER.log(Level.WARNING, "The database maintenance failed", theException);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.logging.Logger;
+
+/**
+ * <p>The per-frame loops of the pitch and formant trackers: windowing, the FFT butterflies
+ * and power spectrum of the autocorrelation, and the sums and updates of Burg's
+ * recursion.</p>
+ *
+ * <p>{@link #SELECTED} is the SIMD implementation when the {@code jdk.incubator.vector}
+ * module is resolved (run with {@code --add-modules jdk.incubator.vector}), otherwise the
+ * scalar implementation. Run with {@code -Dvocalanalysis.simd=false} to force the scalar
+ * loops. The element-wise kernels give the same bits either way; the sums are added in a
+ * different order by the SIMD kernels, so they may differ in the last digits.
+ * DspKernelsTest holds the two implementations against each other.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+interface DspKernels {
+
+    /**
+     * The system property that disables the SIMD kernels when set to false.
+     */
+    String SIMD_PROPERTY = "vocalanalysis.simd";
+
+    /**
+     * The kernels used by the trackers.
+     */
+    DspKernels SELECTED = select();
+
+    /**
+     * @return Returns the name of the implementation, e.g. for logs and cache keys.
+     */
+    String getName();
+
+    /**
+     * @param theValues The samples.
+     * @param theStart  The first sample.
+     * @param theLength The number of samples.
+     * @return Returns the sum of the samples.
+     */
+    double sum(float[] theValues, int theStart, int theLength);
+
+    /**
+     * Removes the mean and applies the window: out[i] = (values[start + i] - mean) * window[i].
+     *
+     * @param theValues The samples.
+     * @param theStart  The first sample.
+     * @param theMean   The mean to remove.
+     * @param theWindow The window.
+     * @param theOut    Receives the windowed samples.
+     * @param theLength The number of samples.
+     * @return Returns the largest absolute value of the samples without their mean.
+     */
+    double windowCentered(float[] theValues, int theStart, double theMean, double[] theWindow,
+                          double[] theOut, int theLength);
+
+    /**
+     * Applies the window: out[i] = values[start + i] * window[i].
+     *
+     * @param theValues The samples.
+     * @param theStart  The first sample.
+     * @param theWindow The window.
+     * @param theOut    Receives the windowed samples.
+     * @param theLength The number of samples.
+     */
+    void window(float[] theValues, int theStart, double[] theWindow, double[] theOut,
+                int theLength);
+
+    /**
+     * @param theFirst  The first vector.
+     * @param theSecond The second vector.
+     * @param theLength The number of elements.
+     * @return Returns the sum of first[i] * second[i].
+     */
+    double dot(double[] theFirst, double[] theSecond, int theLength);
+
+    /**
+     * @param theFirst  The first vector.
+     * @param theSecond The second vector.
+     * @param theLength The number of elements.
+     * @return Returns the sum of first[i]^2 + second[i]^2.
+     */
+    double sumOfSquares(double[] theFirst, double[] theSecond, int theLength);
+
+    /**
+     * The prediction error update of Burg's recursion:
+     * forward[j] -= k * backward[j] and backward[j] = backward[j + 1] - k * forward[j + 1],
+     * both from the values before the update.
+     *
+     * @param theForward     The forward prediction errors.
+     * @param theBackward    The backward prediction errors.
+     * @param theCoefficient The reflection coefficient k.
+     * @param theLength      The number of errors updated.
+     */
+    void burgUpdate(double[] theForward, double[] theBackward, double theCoefficient,
+                    int theLength);
+
+    /**
+     * Replaces a spectrum with its power: real[i] = real[i]^2 + imag[i]^2, imag[i] = 0.
+     *
+     * @param theReal   The real parts.
+     * @param theImag   The imaginary parts.
+     * @param theLength The number of bins.
+     */
+    void powerSpectrum(double[] theReal, double[] theImag, int theLength);
+
+    /**
+     * One radix-2 stage of the FFT on bit-reversed data.
+     *
+     * @param theReal   The real parts.
+     * @param theImag   The imaginary parts.
+     * @param theSize   The transform size.
+     * @param theHalf   Half the butterfly span of the stage.
+     * @param theCos    The cosines of the stage, theHalf values from theOffset on.
+     * @param theSin    The sines of the stage, theHalf values from theOffset on.
+     * @param theOffset The index of the stage's first twiddle.
+     * @param theSign   -1 for the forward, 1 for the inverse transform.
+     */
+    void butterflies(double[] theReal, double[] theImag, int theSize, int theHalf,
+                     double[] theCos, double[] theSin, int theOffset, double theSign);
+
+    /**
+     * Picks the SIMD kernels when they are available.
+     *
+     * @return Returns the kernels to use.
+     */
+    private static DspKernels select() {
+        final Logger logger = Logger.getLogger("DSP Kernels");
+        if (!Boolean.parseBoolean(System.getProperty(SIMD_PROPERTY, "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            logger.info("Using the scalar DSP kernels");
+            return new ScalarKernels();
+        }
+        try {
+            final DspKernels vector = new VectorKernels();
+            logger.info(() -> "Using the " + vector.getName() + " DSP kernels");
+            return vector;
+        } catch (final LinkageError theError) {
+            logger.info("The Vector API is not available; using the scalar DSP kernels");
+            return new ScalarKernels();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.kass.vocalanalysistool.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * <p>Appends feature rows to the feature CSV file (user_features.csv), the same file the
+ * python script writes with pandas. The header is written when the file is new and missing
+ * values are written as empty cells.</p>
+ *
+ * <p>Appends are serialized, so one writer can be shared between threads.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class FeatureCsvWriter {
+
+    /**
+     * The default name of the feature CSV file.
+     */
+    public static final String DEFAULT_FILE = "user_features.csv";
+
+    /**
+     * The CSV file.
+     */
+    private final Path myFile;
+
+    /**
+     * Constructor for the feature CSV writer.
+     *
+     * @param theFile The CSV file; created on the first append.
+     */
+    public FeatureCsvWriter(final Path theFile) {
+        myFile = theFile;
+    }
+
+    /**
+     * Appends one feature row.
+     *
+     * @param theFileId   The id of the recording (the file name without extension).
+     * @param theFeatures The features in column order.
+     * @throws IOException Thrown if the file can not be written.
+     */
+    public synchronized void append(final String theFileId,
+                                    final Map<String, Double> theFeatures) throws IOException {
+        final boolean header = !Files.exists(myFile);
+        try (final BufferedWriter writer = Files.newBufferedWriter(myFile,
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            if (header) {
+                writer.write("file_id");
+                for (final String name : theFeatures.keySet()) {
+                    writer.write(',');
+                    writer.write(escape(name));
+                }
+                writer.newLine();
+            }
+            writer.write(escape(theFileId));
+            for (final Double value : theFeatures.values()) {
+                writer.write(',');
+                if (value != null && Double.isFinite(value)) {
+                    writer.write(Double.toString(value));
+                }
+            }
+            writer.newLine();
+        }
+    }
+
+    /**
+     * @return Returns the CSV file.
+     */
+    public Path getFile() {
+        return myFile;
+    }
+
+    /**
+     * Gets the id of a recording as used in the file_id column.
+     *
+     * @param theFile The audio file.
+     * @return Returns the file name without its extension.
+     */
+    public static String getFileId(final Path theFile) {
+        final String name = theFile.getFileName().toString();
+        final int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Quotes a cell if it contains a separator, a quote or a line break.
+     *
+     * @param theCell The cell text.
+     * @return Returns the escaped cell.
+     */
+    private static String escape(final String theCell) {
+        if (theCell.indexOf(',') < 0 && theCell.indexOf('"') < 0
+                && theCell.indexOf('\n') < 0 && theCell.indexOf('\r') < 0) {
+            return theCell;
+        }
+        return '"' + theCell.replace("\"", "\"\"") + '"';
+    }
+}
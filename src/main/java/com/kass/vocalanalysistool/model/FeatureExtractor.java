@@ -0,0 +1,277 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Computes the feature row of a recording, the same columns the python script writes to
+ * user_features.csv ({@code summarize_formants} and {@code flatten_features}).</p>
+ *
+ * <p>The formant features are taken from the filtered tracks, the intonation and
+ * breathiness features from the unfiltered pitch track. The HNR comes from the pitch
+ * tracker's autocorrelation strength rather than praat's separate cross-correlation
+ * harmonicity, so the breathiness columns are close to, but not identical with, the
+ * python values.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class FeatureExtractor {
+
+    /**
+     * The reference frequency of the semitone scale.
+     */
+    private static final double SEMITONE_REFERENCE = 55.0;
+
+    /**
+     * The minimum number of voiced frames for the intonation statistics.
+     */
+    private static final int MIN_VOICED_FRAMES = 5;
+
+    /**
+     * Utility class.
+     */
+    private FeatureExtractor() {
+    }
+
+    /**
+     * Computes the feature row.
+     *
+     * @param theFormants    The filtered tracks, rows F0 - F4.
+     * @param thePitchTimes  The time of every analyzed frame.
+     * @param thePitch       The unfiltered F0 of every analyzed frame, 0 if unvoiced.
+     * @param theHarmonicity The HNR in dB of every analyzed frame,
+     *                       {@link PitchTracker#UNVOICED_DB} if unvoiced.
+     * @param theFrames      The number of analyzed frames.
+     * @param theParams      The analysis parameters.
+     * @return Returns the features in CSV column order.
+     */
+    public static Map<String, Double> extract(final double[][] theFormants,
+                                              final double[] thePitchTimes,
+                                              final double[] thePitch,
+                                              final double[] theHarmonicity,
+                                              final int theFrames,
+                                              final AnalysisParameters theParams) {
+        final Map<String, Double> features = new LinkedHashMap<>();
+        summarizeFormants(theFormants, features);
+        addIntonation(thePitchTimes, thePitch, theFrames, theParams, features);
+        addBreathiness(theHarmonicity, theFrames, features);
+        return features;
+    }
+
+    /**
+     * Adds the medians and ratios of the filtered tracks.
+     *
+     * @param theFormants The filtered tracks, rows F0 - F4.
+     * @param theFeatures Receives the features.
+     */
+    private static void summarizeFormants(final double[][] theFormants,
+                                          final Map<String, Double> theFeatures) {
+        final double[] f0 = positive(theFormants[0]);
+        theFeatures.put("F0_med", percentile(f0, 50));
+        theFeatures.put("F0_p5", percentile(f0, 5));
+        theFeatures.put("F0_p95", percentile(f0, 95));
+        final double[] medians = new double[5];
+        for (int f = 1; f < 5; f++) {
+            medians[f] = percentile(positive(theFormants[f]), 50);
+            theFeatures.put("F" + f + "_med", medians[f]);
+        }
+        theFeatures.put("F2_over_F1", ratio(medians[2], medians[1]));
+        theFeatures.put("F3_over_F2", ratio(medians[3], medians[2]));
+        theFeatures.put("F4_over_F3", ratio(medians[4], medians[3]));
+    }
+
+    /**
+     * Adds the intonation statistics of the voiced frames.
+     *
+     * @param theTimes    The frame times.
+     * @param thePitch    The unfiltered F0, 0 if unvoiced.
+     * @param theFrames   The number of analyzed frames.
+     * @param theParams   The analysis parameters.
+     * @param theFeatures Receives the features.
+     */
+    private static void addIntonation(final double[] theTimes, final double[] thePitch,
+                                      final int theFrames, final AnalysisParameters theParams,
+                                      final Map<String, Double> theFeatures) {
+        int voiced = 0;
+        int inRange = 0;
+        final double[] f0 = new double[theFrames];
+        final double[] times = new double[theFrames];
+        final double[] voicedF0 = new double[theFrames];
+        for (int i = 0; i < theFrames; i++) {
+            final double value = thePitch[i];
+            if (value > 0) {
+                voicedF0[voiced++] = value;
+                if (value >= theParams.getPitchFloor() && value <= theParams.getPitchCeiling()) {
+                    f0[inRange] = value;
+                    times[inRange++] = theTimes[i];
+                }
+            }
+        }
+
+        if (inRange < MIN_VOICED_FRAMES) {
+            for (final String name : new String[]{"f0_mean_hz", "f0_sd_hz", "f0_min_hz",
+                    "f0_max_hz", "f0_p5_hz", "f0_p95_hz", "range_semitones", "range_st_5_95",
+                    "slope_st_per_sec", "f0_sd_st", "voiced_frac"}) {
+                theFeatures.put(name, Double.NaN);
+            }
+            return;
+        }
+
+        final double[] sorted = Arrays.copyOf(f0, inRange);
+        Arrays.sort(sorted);
+        final double[] semitones = new double[inRange];
+        for (int i = 0; i < inRange; i++) {
+            semitones[i] = 12.0 * log2(f0[i] / SEMITONE_REFERENCE);
+        }
+        final double p5 = percentile(sorted, 5);
+        final double p95 = percentile(sorted, 95);
+
+        theFeatures.put("f0_mean_hz", mean(sorted, inRange));
+        theFeatures.put("f0_sd_hz", standardDeviation(voicedF0, voiced));
+        theFeatures.put("f0_min_hz", sorted[0]);
+        theFeatures.put("f0_max_hz", sorted[inRange - 1]);
+        theFeatures.put("f0_p5_hz", p5);
+        theFeatures.put("f0_p95_hz", p95);
+        theFeatures.put("range_semitones", 12.0 * log2(sorted[inRange - 1] / sorted[0]));
+        theFeatures.put("range_st_5_95", p5 > 0 ? 12.0 * log2(p95 / p5) : Double.NaN);
+        theFeatures.put("slope_st_per_sec", slope(times, semitones, inRange));
+        theFeatures.put("f0_sd_st", standardDeviation(semitones, inRange));
+        theFeatures.put("voiced_frac", theFrames == 0 ? Double.NaN
+                : (double) voiced / theFrames);
+    }
+
+    /**
+     * Adds the HNR statistics of the voiced frames.
+     *
+     * @param theHarmonicity The HNR in dB, {@link PitchTracker#UNVOICED_DB} if unvoiced.
+     * @param theFrames      The number of analyzed frames.
+     * @param theFeatures    Receives the features.
+     */
+    private static void addBreathiness(final double[] theHarmonicity, final int theFrames,
+                                       final Map<String, Double> theFeatures) {
+        final double[] voiced = new double[theFrames];
+        int count = 0;
+        for (int i = 0; i < theFrames; i++) {
+            final double value = theHarmonicity[i];
+            if (value != PitchTracker.UNVOICED_DB && Double.isFinite(value)) {
+                voiced[count++] = value;
+            }
+        }
+        final double[] sorted = Arrays.copyOf(voiced, count);
+        Arrays.sort(sorted);
+        final double hnrMean = count == 0 ? Double.NaN : mean(sorted, count);
+
+        theFeatures.put("hnr_mean_db", hnrMean);
+        theFeatures.put("hnr_median_db", percentile(sorted, 50));
+        theFeatures.put("hnr_voiced_fraction", theFrames == 0 ? Double.NaN
+                : (double) count / theFrames);
+        // higher = breathier
+        theFeatures.put("breathiness_index", -hnrMean);
+    }
+
+    /**
+     * @param theTrack A track.
+     * @return Returns the sorted positive, finite values of the track.
+     */
+    private static double[] positive(final double[] theTrack) {
+        final double[] values = new double[theTrack.length];
+        int count = 0;
+        for (final double value : theTrack) {
+            if (value > 0 && Double.isFinite(value)) {
+                values[count++] = value;
+            }
+        }
+        final double[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Linear interpolated percentile (numpy's default).
+     *
+     * @param theSorted  The sorted values.
+     * @param thePercent The percentile [0 - 100].
+     * @return Returns the percentile, NaN if there are no values.
+     */
+    static double percentile(final double[] theSorted, final double thePercent) {
+        if (theSorted.length == 0) {
+            return Double.NaN;
+        }
+        final double position = thePercent / 100.0 * (theSorted.length - 1);
+        final int lower = (int) Math.floor(position);
+        final int upper = Math.min(lower + 1, theSorted.length - 1);
+        return theSorted[lower] + (position - lower) * (theSorted[upper] - theSorted[lower]);
+    }
+
+    /**
+     * @param theValues The values.
+     * @param theCount  The number of values used.
+     * @return Returns the mean.
+     */
+    private static double mean(final double[] theValues, final int theCount) {
+        double sum = 0;
+        for (int i = 0; i < theCount; i++) {
+            sum += theValues[i];
+        }
+        return sum / theCount;
+    }
+
+    /**
+     * @param theValues The values.
+     * @param theCount  The number of values used.
+     * @return Returns the sample standard deviation, 0 for a single value.
+     */
+    private static double standardDeviation(final double[] theValues, final int theCount) {
+        if (theCount < 2) {
+            return theCount == 0 ? Double.NaN : 0.0;
+        }
+        final double mean = mean(theValues, theCount);
+        double sum = 0;
+        for (int i = 0; i < theCount; i++) {
+            final double delta = theValues[i] - mean;
+            sum += delta * delta;
+        }
+        return Math.sqrt(sum / (theCount - 1));
+    }
+
+    /**
+     * Least squares slope of y over x.
+     *
+     * @param theX     The x values.
+     * @param theY     The y values.
+     * @param theCount The number of points used.
+     * @return Returns the slope.
+     */
+    private static double slope(final double[] theX, final double[] theY, final int theCount) {
+        final double meanX = mean(theX, theCount);
+        final double meanY = mean(theY, theCount);
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < theCount; i++) {
+            final double dx = theX[i] - meanX;
+            covariance += dx * (theY[i] - meanY);
+            variance += dx * dx;
+        }
+        return variance == 0 ? Double.NaN : covariance / variance;
+    }
+
+    /**
+     * @param theNumerator   The numerator.
+     * @param theDenominator The denominator.
+     * @return Returns the ratio, NaN if the denominator is 0 or not finite.
+     */
+    private static double ratio(final double theNumerator, final double theDenominator) {
+        return theDenominator != 0 && Double.isFinite(theDenominator)
+                ? theNumerator / theDenominator : Double.NaN;
+    }
+
+    /**
+     * @param theValue A positive value.
+     * @return Returns the base 2 logarithm.
+     */
+    private static double log2(final double theValue) {
+        return Math.log(theValue) / Math.log(2);
+    }
+}
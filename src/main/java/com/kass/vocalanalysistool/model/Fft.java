@@ -0,0 +1,113 @@
+package com.kass.vocalanalysistool.model;
+
+/**
+ * In-place iterative radix-2 fast fourier transform on split real/imaginary arrays.
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+final class Fft {
+
+    /**
+     * The transform size (a power of two).
+     */
+    private final int mySize;
+
+    /**
+     * The cosines of every stage; the stage of half span h starts at index h - 1.
+     */
+    private final double[] myCos;
+
+    /**
+     * The sines of every stage, laid out like {@link #myCos}.
+     */
+    private final double[] mySin;
+
+    /**
+     * The kernels running the butterflies.
+     */
+    private final DspKernels myKernels;
+
+    /**
+     * Constructor for the transform.
+     *
+     * @param theSize The transform size, must be a power of two.
+     */
+    Fft(final int theSize) {
+        this(theSize, DspKernels.SELECTED);
+    }
+
+    /**
+     * Constructor for the transform with the given kernels.
+     *
+     * @param theSize    The transform size, must be a power of two.
+     * @param theKernels The kernels running the butterflies.
+     */
+    Fft(final int theSize, final DspKernels theKernels) {
+        if (Integer.bitCount(theSize) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + theSize);
+        }
+        mySize = theSize;
+        myKernels = theKernels;
+        // one contiguous table per stage, so a stage reads its twiddles without a stride
+        myCos = new double[Math.max(1, theSize - 1)];
+        mySin = new double[Math.max(1, theSize - 1)];
+        for (int half = 1; half < theSize; half <<= 1) {
+            final int step = theSize / (2 * half);
+            for (int k = 0; k < half; k++) {
+                myCos[half - 1 + k] = Math.cos(2 * Math.PI * (k * step) / theSize);
+                mySin[half - 1 + k] = Math.sin(2 * Math.PI * (k * step) / theSize);
+            }
+        }
+    }
+
+    /**
+     * Gets the smallest power of two that is greater or equal to the value.
+     *
+     * @param theValue The value.
+     * @return Returns the next power of two.
+     */
+    static int nextPowerOfTwo(final int theValue) {
+        return theValue <= 1 ? 1 : Integer.highestOneBit(theValue - 1) << 1;
+    }
+
+    /**
+     * @return Returns the transform size.
+     */
+    int getSize() {
+        return mySize;
+    }
+
+    /**
+     * Transforms the data in place.
+     *
+     * @param theReal    The real parts.
+     * @param theImag    The imaginary parts.
+     * @param theInverse True for the inverse transform (unscaled).
+     */
+    void transform(final double[] theReal, final double[] theImag, final boolean theInverse) {
+        final int n = mySize;
+
+        // bit reversal permutation
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double tmp = theReal[i];
+                theReal[i] = theReal[j];
+                theReal[j] = tmp;
+                tmp = theImag[i];
+                theImag[i] = theImag[j];
+                theImag[j] = tmp;
+            }
+        }
+
+        final double sign = theInverse ? 1.0 : -1.0;
+        for (int half = 1; half < n; half <<= 1) {
+            myKernels.butterflies(theReal, theImag, n, half, myCos, mySin, half - 1, sign);
+        }
+    }
+}
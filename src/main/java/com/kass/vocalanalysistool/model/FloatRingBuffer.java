@@ -0,0 +1,137 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A lock-free ring of samples between exactly one producer (the capture thread) and
+ * exactly one consumer (the analysis thread).</p>
+ *
+ * <p>The positions only ever grow; the producer publishes its position with a release
+ * store after copying the samples and the consumer does the same after reading them, so
+ * neither side takes a lock or allocates. If the consumer falls behind by a full ring the
+ * newest samples are dropped and counted as an overrun.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class FloatRingBuffer {
+
+    /**
+     * The samples.
+     */
+    private final float[] myData;
+
+    /**
+     * The capacity minus one; the capacity is a power of two.
+     */
+    private final int myMask;
+
+    /**
+     * The number of samples written so far.
+     */
+    private final AtomicLong myWritePosition = new AtomicLong();
+
+    /**
+     * The number of samples consumed so far.
+     */
+    private final AtomicLong myReadPosition = new AtomicLong();
+
+    /**
+     * The number of samples dropped because the ring was full.
+     */
+    private final AtomicLong myOverruns = new AtomicLong();
+
+    /**
+     * Constructor for the ring buffer.
+     *
+     * @param theMinCapacity The minimum number of samples; rounded up to a power of two.
+     */
+    public FloatRingBuffer(final int theMinCapacity) {
+        if (theMinCapacity < 1 || theMinCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + theMinCapacity);
+        }
+        final int capacity = Integer.highestOneBit(theMinCapacity) == theMinCapacity
+                ? theMinCapacity : Integer.highestOneBit(theMinCapacity) << 1;
+        myData = new float[capacity];
+        myMask = capacity - 1;
+    }
+
+    /**
+     * @return Returns the number of samples the ring holds.
+     */
+    public int getCapacity() {
+        return myData.length;
+    }
+
+    /**
+     * Appends samples. Producer side only.
+     *
+     * @param theSamples The samples.
+     * @param theOffset  The first sample to append.
+     * @param theLength  The number of samples to append.
+     * @return Returns the number of samples appended; fewer if the ring was full.
+     */
+    public int write(final float[] theSamples, final int theOffset, final int theLength) {
+        final long write = myWritePosition.getPlain();
+        final int free = myData.length - (int) (write - myReadPosition.getAcquire());
+        final int count = Math.min(free, theLength);
+        if (count < theLength) {
+            myOverruns.addAndGet(theLength - count);
+        }
+        final int start = (int) write & myMask;
+        final int first = Math.min(count, myData.length - start);
+        System.arraycopy(theSamples, theOffset, myData, start, first);
+        System.arraycopy(theSamples, theOffset + first, myData, 0, count - first);
+        myWritePosition.setRelease(write + count);
+        return count;
+    }
+
+    /**
+     * @return Returns the number of samples written but not consumed yet.
+     */
+    public int available() {
+        return (int) (myWritePosition.getAcquire() - myReadPosition.getPlain());
+    }
+
+    /**
+     * @return Returns the total number of samples consumed so far. Consumer side only.
+     */
+    public long getReadPosition() {
+        return myReadPosition.getPlain();
+    }
+
+    /**
+     * Copies the oldest samples without consuming them. Consumer side only.
+     *
+     * @param theOut    Receives the samples.
+     * @param theLength The number of samples; at most {@link #available()}.
+     */
+    public void peek(final float[] theOut, final int theLength) {
+        if (theLength > available()) {
+            throw new IllegalStateException("Only " + available() + " samples available");
+        }
+        final int start = (int) myReadPosition.getPlain() & myMask;
+        final int first = Math.min(theLength, myData.length - start);
+        System.arraycopy(myData, start, theOut, 0, first);
+        System.arraycopy(myData, 0, theOut, first, theLength - first);
+    }
+
+    /**
+     * Consumes samples. Consumer side only.
+     *
+     * @param theLength The number of samples; at most {@link #available()}.
+     */
+    public void skip(final int theLength) {
+        if (theLength > available()) {
+            throw new IllegalStateException("Only " + available() + " samples available");
+        }
+        myReadPosition.setRelease(myReadPosition.getPlain() + theLength);
+    }
+
+    /**
+     * @return Returns the number of samples dropped because the ring was full.
+     */
+    public long getOverruns() {
+        return myOverruns.get();
+    }
+}
@@ -0,0 +1,273 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Java port of the python script's {@code filter_frequency_synchronized_patch}. Removes
+ * anomalous frequency data and unvoiced frames.
+ *
+ * <p>The previous-frame state lives in the filter object instead of module globals, so
+ * every analysis uses its own filter and any number of analyses can run on different
+ * threads. A filter itself is not thread safe.</p>
+ *
+ * <p>The semitone thresholds are turned into frequency ratios once, so a frame is checked
+ * with multiplications and compares instead of logarithms, and neither
+ * {@link #accept(double, double, double, double, double, double)} nor the in-place
+ * {@link #filter(double[], double[][], int)} allocate.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class FormantContinuityFilter {
+
+    /**
+     * Frames closer than this to the previously accepted one are rejected (seconds).
+     */
+    private static final double MIN_SPACING = 0.02;
+
+    /**
+     * The largest allowed pitch jump rate in semitones per second (2 octaves in 1 s).
+     */
+    private static final double MAX_F0_RATE = 24.0;
+
+    /**
+     * The largest allowed pitch jump in semitones.
+     */
+    private static final double MAX_F0_JUMP = 4.0;
+
+    /**
+     * The plausible pitch range in Hz.
+     */
+    private static final double[] F0_RANGE = {75.0, 600.0};
+
+    /**
+     * Continuity thresholds (semitones) and plausibility ranges (Hz) of F1 - F4.
+     */
+    private static final double[][] FORMANT_RANGES = {
+            {5.0, 250.0, 950.0},
+            {7.0, 700.0, 3300.0},
+            {8.0, 1500.0, 3700.0},
+            {9.0, 2700.0, 5000.0}
+    };
+
+    /**
+     * The largest allowed pitch ratio between neighboring frames.
+     */
+    private static final double MAX_F0_RATIO = toRatio(MAX_F0_JUMP);
+
+    /**
+     * The largest allowed ratio between neighboring frames of F1 - F4.
+     */
+    private static final double[] MAX_FORMANT_RATIOS = {toRatio(FORMANT_RANGES[0][0]),
+            toRatio(FORMANT_RANGES[1][0]), toRatio(FORMANT_RANGES[2][0]),
+            toRatio(FORMANT_RANGES[3][0])};
+
+    /**
+     * The previously accepted frequencies F0 - F4.
+     */
+    private final double[] myPrevious = new double[5];
+
+    /**
+     * The time of the previously accepted frame; NaN before the first frame.
+     */
+    private double myPreviousTime = Double.NaN;
+
+    /**
+     * The time difference {@link #myRateRatio} was computed for.
+     */
+    private double myRateInterval = Double.NaN;
+
+    /**
+     * The largest pitch ratio the jump rate allows over {@link #myRateInterval}.
+     */
+    private double myRateRatio;
+
+    /**
+     * @return Returns every threshold of the filter, e.g. to tell cached results of other
+     *         thresholds apart.
+     */
+    static String getThresholds() {
+        return "spacing=" + MIN_SPACING + ", f0Rate=" + MAX_F0_RATE + ", f0Jump=" + MAX_F0_JUMP
+                + ", f0Range=" + Arrays.toString(F0_RANGE)
+                + ", formants=" + Arrays.deepToString(FORMANT_RANGES);
+    }
+
+    /**
+     * @param theSemitones An interval in semitones.
+     * @return Returns the frequency ratio of the interval.
+     */
+    private static double toRatio(final double theSemitones) {
+        return Math.pow(2, theSemitones / 12.0);
+    }
+
+    /**
+     * Resets the filter to its initial state.
+     */
+    public void reset() {
+        myPreviousTime = Double.NaN;
+        Arrays.fill(myPrevious, 0);
+    }
+
+    /**
+     * Filters the rows.
+     *
+     * @param theRows Rows of {time, f0, f1, f2, f3, f4}.
+     * @return Returns the accepted rows.
+     */
+    public List<double[]> filter(final List<double[]> theRows) {
+        final List<double[]> postFilter = new ArrayList<>();
+        for (final double[] row : theRows) {
+            if (accept(row[0], row[1], row[2], row[3], row[4], row[5])) {
+                postFilter.add(row);
+            }
+        }
+        return postFilter;
+    }
+
+    /**
+     * Filters primitive tracks in place: the accepted frames are moved to the front of the
+     * arrays, in order.
+     *
+     * @param theTimes  The time of every frame.
+     * @param theTracks The F0 - F4 tracks.
+     * @param theCount  The number of frames.
+     * @return Returns the number of accepted frames.
+     */
+    public int filter(final double[] theTimes, final double[][] theTracks, final int theCount) {
+        final double[] f0 = theTracks[0];
+        final double[] f1 = theTracks[1];
+        final double[] f2 = theTracks[2];
+        final double[] f3 = theTracks[3];
+        final double[] f4 = theTracks[4];
+        int kept = 0;
+        for (int i = 0; i < theCount; i++) {
+            if (accept(theTimes[i], f0[i], f1[i], f2[i], f3[i], f4[i])) {
+                theTimes[kept] = theTimes[i];
+                f0[kept] = f0[i];
+                f1[kept] = f1[i];
+                f2[kept] = f2[i];
+                f3[kept] = f3[i];
+                f4[kept++] = f4[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Checks the next frame and, if it is accepted, makes it the previous frame.
+     *
+     * @param theTime The time of the frame.
+     * @param theF0   The pitch in Hz.
+     * @param theF1   F1 in Hz.
+     * @param theF2   F2 in Hz.
+     * @param theF3   F3 in Hz.
+     * @param theF4   F4 in Hz.
+     * @return Returns true if the frame is accepted.
+     */
+    public boolean accept(final double theTime, final double theF0, final double theF1,
+                          final double theF2, final double theF3, final double theF4) {
+        // Initialize the previous frequencies
+        if (Double.isNaN(myPreviousTime)) {
+            setPrevious(theF0, theF1, theF2, theF3, theF4);
+        }
+
+        // Skips if the pitch is zero
+        if (!(theF0 > 0)) {
+            return false;
+        }
+
+        final boolean gated = myPreviousTime < theTime && theTime - myPreviousTime <= MIN_SPACING;
+        if (gated || !isPitchOk(theF0, theTime)) {
+            return false;
+        }
+        final int formantOkCount = (isFormantOk(1, theF1) ? 1 : 0)
+                + (isFormantOk(2, theF2) ? 1 : 0)
+                + (isFormantOk(3, theF3) ? 1 : 0)
+                + (isFormantOk(4, theF4) ? 1 : 0);
+        if (formantOkCount > 2) {
+            setPrevious(theF0, theF1, theF2, theF3, theF4);
+            myPreviousTime = theTime;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param theF0 The pitch in Hz.
+     * @param theF1 F1 in Hz.
+     * @param theF2 F2 in Hz.
+     * @param theF3 F3 in Hz.
+     * @param theF4 F4 in Hz.
+     */
+    private void setPrevious(final double theF0, final double theF1, final double theF2,
+                             final double theF3, final double theF4) {
+        myPrevious[0] = theF0;
+        myPrevious[1] = theF1;
+        myPrevious[2] = theF2;
+        myPrevious[3] = theF3;
+        myPrevious[4] = theF4;
+    }
+
+    /**
+     * Determines if the pitch is plausible and continuous with the previous frame.
+     *
+     * @param theFrequency The positive pitch in Hz.
+     * @param theTime      The time of the frame.
+     * @return Returns true if the pitch is accepted.
+     */
+    private boolean isPitchOk(final double theFrequency, final double theTime) {
+        if (theFrequency <= F0_RANGE[0] || theFrequency >= F0_RANGE[1]) {
+            return false;
+        }
+        final double previous = myPrevious[0];
+        if (!(previous > 0)) {
+            return true;
+        }
+        double limit = MAX_F0_RATIO;
+        if (theTime > myPreviousTime) {
+            final double interval = theTime - myPreviousTime;
+            if (interval != myRateInterval) {
+                // the frames lie on a fixed grid, so the interval rarely changes
+                myRateInterval = interval;
+                myRateRatio = toRatio(MAX_F0_RATE * interval);
+            }
+            limit = Math.min(limit, myRateRatio);
+        }
+        return isWithin(theFrequency, previous, limit);
+    }
+
+    /**
+     * Determines if the formant is plausible and continuous with the previous frame.
+     *
+     * @param theFormant   The formant number [1 - 4].
+     * @param theFrequency The formant frequency in Hz.
+     * @return Returns true if the formant is accepted.
+     */
+    private boolean isFormantOk(final int theFormant, final double theFrequency) {
+        if (!(theFrequency > 0)) {
+            return false;
+        }
+        final double[] range = FORMANT_RANGES[theFormant - 1];
+        if (theFrequency <= range[1] || theFrequency >= range[2]) {
+            return false;
+        }
+        // a NaN previous value (first frame unvoiced) rejects the formant, as in python
+        final double previous = myPrevious[theFormant];
+        return previous <= 0
+                || isWithin(theFrequency, previous, MAX_FORMANT_RATIOS[theFormant - 1]);
+    }
+
+    /**
+     * @param theFrequency The frequency in Hz.
+     * @param thePrevious  The previous frequency in Hz.
+     * @param theRatio     The largest allowed ratio, at least 1.
+     * @return Returns true if the frequencies are at most the ratio apart either way; false
+     *         if either is NaN.
+     */
+    private static boolean isWithin(final double theFrequency, final double thePrevious,
+                                    final double theRatio) {
+        return theFrequency <= thePrevious * theRatio && theFrequency * theRatio >= thePrevious;
+    }
+}
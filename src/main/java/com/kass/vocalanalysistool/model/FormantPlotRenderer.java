@@ -0,0 +1,269 @@
+package com.kass.vocalanalysistool.model;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.imageio.ImageIO;
+
+/**
+ * Renders the pitch line and the F1 - F4 scatter plot as a PNG, the same chart the python
+ * script draws with matplotlib.
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class FormantPlotRenderer {
+
+    /**
+     * The highest frequency shown on the y axis.
+     */
+    private static final double MAX_FREQUENCY = 5501.0;
+
+    /**
+     * The colors of F1 - F4 (matplotlib's default cycle).
+     */
+    private static final Color[] FORMANT_COLORS = {
+            new Color(0x1f77b4), new Color(0xff7f0e), new Color(0x2ca02c), new Color(0xd62728)
+    };
+
+    /**
+     * Space left of the plot area in pixels.
+     */
+    private static final int LEFT = 70;
+
+    /**
+     * Space right of the plot area in pixels.
+     */
+    private static final int RIGHT = 20;
+
+    /**
+     * Space above the plot area in pixels.
+     */
+    private static final int TOP = 20;
+
+    /**
+     * Space below the plot area in pixels.
+     */
+    private static final int BOTTOM = 50;
+
+    /**
+     * Utility class.
+     */
+    private FormantPlotRenderer() {
+    }
+
+    /**
+     * Renders the chart.
+     *
+     * @param theTimes    The time of every frame.
+     * @param theFormants The F0 - F4 tracks.
+     * @param theWidth    The image width in pixels.
+     * @param theHeight   The image height in pixels.
+     * @return Returns the PNG bytes of the chart.
+     */
+    @SuppressWarnings("try")
+    public static byte[] render(final double[] theTimes, final double[][] theFormants,
+                                final int theWidth, final int theHeight) {
+        final BufferedImage image = new BufferedImage(theWidth, theHeight,
+                BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+        try (final StageMetrics.Span span = StageMetrics.start("plot.draw")) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, theWidth, theHeight);
+
+            final int plotWidth = theWidth - LEFT - RIGHT;
+            final int plotHeight = theHeight - TOP - BOTTOM;
+            final double maxTime = theTimes.length == 0 ? 1.0
+                    : Math.max(theTimes[theTimes.length - 1], 1e-3);
+
+            drawGrid(g, plotWidth, plotHeight, maxTime);
+
+            // Pitch line
+            g.setColor(Color.BLACK);
+            g.setStroke(new BasicStroke(1.5f));
+            final Path2D.Double pitch = new Path2D.Double();
+            for (int i = 0; i < theTimes.length; i++) {
+                final double x = LEFT + theTimes[i] / maxTime * plotWidth;
+                final double y = toY(theFormants[0][i], plotHeight);
+                if (i == 0) {
+                    pitch.moveTo(x, y);
+                } else {
+                    pitch.lineTo(x, y);
+                }
+            }
+            g.draw(pitch);
+
+            // F1 - F4 scatter
+            for (int f = 1; f <= 4; f++) {
+                g.setColor(FORMANT_COLORS[f - 1]);
+                for (int i = 0; i < theTimes.length; i++) {
+                    final int x = (int) Math.round(LEFT + theTimes[i] / maxTime * plotWidth);
+                    final int y = (int) Math.round(toY(theFormants[f][i], plotHeight));
+                    g.fillOval(x - 2, y - 2, 4, 4);
+                }
+            }
+
+            drawLegend(g);
+        } finally {
+            g.dispose();
+        }
+
+        return encode(image);
+    }
+
+    /**
+     * Renders a small version of the chart without axes or legend, e.g. for the session
+     * history. At most two frames per pixel column are drawn, so long sessions are as
+     * cheap to render as short ones.
+     *
+     * @param theTimes    The time of every frame.
+     * @param theFormants The F0 - F4 tracks.
+     * @param theWidth    The image width in pixels.
+     * @param theHeight   The image height in pixels.
+     * @return Returns the PNG bytes of the thumbnail.
+     */
+    @SuppressWarnings("try")
+    public static byte[] renderThumbnail(final double[] theTimes, final double[][] theFormants,
+                                         final int theWidth, final int theHeight) {
+        final BufferedImage image = new BufferedImage(theWidth, theHeight,
+                BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+        try (final StageMetrics.Span span = StageMetrics.start("plot.thumbnail")) {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, theWidth, theHeight);
+            final double maxTime = theTimes.length == 0 ? 1.0
+                    : Math.max(theTimes[theTimes.length - 1], 1e-3);
+            final int stride = Math.max(1, theTimes.length / (2 * theWidth));
+
+            for (int f = 4; f >= 0; f--) {
+                g.setColor(f == 0 ? Color.BLACK : FORMANT_COLORS[f - 1]);
+                for (int i = 0; i < theTimes.length; i += stride) {
+                    final double frequency = theFormants[f][i];
+                    if (!(frequency > 0) || frequency > MAX_FREQUENCY) {
+                        continue;
+                    }
+                    final int x = (int) (theTimes[i] / maxTime * (theWidth - 1));
+                    final int y = (int) ((1 - frequency / MAX_FREQUENCY) * (theHeight - 1));
+                    g.fillRect(x, y, 1, 1);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return encode(image);
+    }
+
+    /**
+     * @param theImage The rendered chart.
+     * @return Returns the PNG bytes of the chart.
+     */
+    @SuppressWarnings("try")
+    private static byte[] encode(final BufferedImage theImage) {
+        try (final StageMetrics.Span span = StageMetrics.start("plot.encode");
+             final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            ImageIO.write(theImage, "png", out);
+            return out.toByteArray();
+        } catch (final IOException theException) {
+            throw new UncheckedIOException("Unable to encode the plot", theException);
+        }
+    }
+
+    /**
+     * Draws the axes, ticks and grid lines.
+     *
+     * @param theG          The graphics context.
+     * @param thePlotWidth  The plot area width.
+     * @param thePlotHeight The plot area height.
+     * @param theMaxTime    The last time on the x axis.
+     */
+    private static void drawGrid(final Graphics2D theG, final int thePlotWidth,
+                                 final int thePlotHeight, final double theMaxTime) {
+        theG.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 10));
+        theG.setStroke(new BasicStroke(0.5f));
+
+        // 100 Hz ticks up to 1 kHz, 500 Hz ticks above (same as the python plot)
+        for (int hz = 0; hz <= MAX_FREQUENCY; hz += hz < 1000 ? 100 : 500) {
+            final int y = (int) Math.round(toY(hz, thePlotHeight));
+            theG.setColor(Color.LIGHT_GRAY);
+            theG.drawLine(LEFT, y, LEFT + thePlotWidth, y);
+            theG.setColor(Color.BLACK);
+            theG.drawString(Integer.toString(hz), LEFT - 35, y + 4);
+        }
+
+        final double tickStep = niceStep(theMaxTime / 6);
+        for (double t = 0; t <= theMaxTime + 1e-9; t += tickStep) {
+            final int x = (int) Math.round(LEFT + t / theMaxTime * thePlotWidth);
+            theG.setColor(Color.LIGHT_GRAY);
+            theG.drawLine(x, TOP, x, TOP + thePlotHeight);
+            theG.setColor(Color.BLACK);
+            theG.drawString(String.format("%.1f", t), x - 8, TOP + thePlotHeight + 15);
+        }
+
+        theG.setColor(Color.BLACK);
+        theG.drawRect(LEFT, TOP, thePlotWidth, thePlotHeight);
+        theG.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 12));
+        theG.drawString("Times (s)", LEFT + thePlotWidth / 2 - 25, TOP + thePlotHeight + 38);
+        final Graphics2D rotated = (Graphics2D) theG.create();
+        rotated.rotate(-Math.PI / 2);
+        rotated.drawString("Frequency (Hz)", -(TOP + thePlotHeight / 2 + 40), 15);
+        rotated.dispose();
+    }
+
+    /**
+     * Draws the legend in the upper left corner.
+     *
+     * @param theG The graphics context.
+     */
+    private static void drawLegend(final Graphics2D theG) {
+        final int x = LEFT + 8;
+        final int y = TOP + 8;
+        theG.setColor(Color.WHITE);
+        theG.fillRect(x, y, 70, 80);
+        theG.setColor(Color.GRAY);
+        theG.drawRect(x, y, 70, 80);
+        theG.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 11));
+
+        theG.setColor(Color.BLACK);
+        theG.drawLine(x + 6, y + 13, x + 22, y + 13);
+        theG.drawString("Pitch", x + 28, y + 17);
+        for (int f = 1; f <= 4; f++) {
+            final int rowY = y + 13 + f * 15;
+            theG.setColor(FORMANT_COLORS[f - 1]);
+            theG.fillOval(x + 11, rowY - 3, 6, 6);
+            theG.setColor(Color.BLACK);
+            theG.drawString("F" + f, x + 28, rowY + 4);
+        }
+    }
+
+    /**
+     * Converts a frequency into a y pixel coordinate.
+     *
+     * @param theFrequency  The frequency in Hz.
+     * @param thePlotHeight The plot area height.
+     * @return Returns the y coordinate.
+     */
+    private static double toY(final double theFrequency, final int thePlotHeight) {
+        return TOP + thePlotHeight - theFrequency / MAX_FREQUENCY * thePlotHeight;
+    }
+
+    /**
+     * Rounds a tick distance to 1, 2 or 5 times a power of ten.
+     *
+     * @param theRaw The raw tick distance.
+     * @return Returns the rounded tick distance.
+     */
+    private static double niceStep(final double theRaw) {
+        final double magnitude = Math.pow(10, Math.floor(Math.log10(theRaw)));
+        final double normalized = theRaw / magnitude;
+        final double nice = normalized < 1.5 ? 1 : normalized < 3.5 ? 2 : normalized < 7.5 ? 5 : 10;
+        return nice * magnitude;
+    }
+}
@@ -0,0 +1,329 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.Arrays;
+
+/**
+ * <p>Estimates the formants (F1 - F4) of a single frame with Burg's LPC method, the same
+ * method praat's "To Formant (burg)" uses.</p>
+ *
+ * <p>The signal has to be resampled to {@link #getAnalysisSampleRate(AnalysisParameters)}
+ * and pre-emphasized with {@link #preEmphasize(float[], AnalysisParameters)} once. The
+ * tracker keeps its scratch buffers between calls, so analyzing a frame does not
+ * allocate. An instance is not thread safe; use one tracker per thread.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class FormantTracker {
+
+    /**
+     * The number of formants reported (F1 - F4).
+     */
+    public static final int REPORTED_FORMANTS = 4;
+
+    /**
+     * Formants closer than this to 0 Hz or to the ceiling are discarded (same as praat).
+     */
+    private static final double EDGE_MARGIN = 50.0;
+
+    /**
+     * The maximum number of root finder iterations.
+     */
+    private static final int MAX_ITERATIONS = 200;
+
+    /**
+     * The analysis parameters.
+     */
+    private final AnalysisParameters myParams;
+
+    /**
+     * The sampling frequency of the analysis signal in Hz.
+     */
+    private final double mySampleRate;
+
+    /**
+     * The physical window length in samples (twice the effective length).
+     */
+    private final int myWindowLength;
+
+    /**
+     * The LPC order (two poles per formant).
+     */
+    private final int myOrder;
+
+    /**
+     * The gaussian window.
+     */
+    private final double[] myWindow;
+
+    /**
+     * Scratch buffer holding the windowed frame.
+     */
+    private final double[] myFrame;
+
+    /**
+     * Burg forward prediction errors.
+     */
+    private final double[] myForward;
+
+    /**
+     * Burg backward prediction errors.
+     */
+    private final double[] myBackward;
+
+    /**
+     * Burg previous coefficients.
+     */
+    private final double[] myPrevious;
+
+    /**
+     * The LPC coefficients, index 1 to order.
+     */
+    private final double[] myCoefficients;
+
+    /**
+     * The monic polynomial whose roots are the poles.
+     */
+    private final double[] myPolynomial;
+
+    /**
+     * The real parts of the roots.
+     */
+    private final double[] myRootsReal;
+
+    /**
+     * The imaginary parts of the roots.
+     */
+    private final double[] myRootsImag;
+
+    /**
+     * Formant candidates found in the last frame.
+     */
+    private final double[] myCandidates;
+
+    /**
+     * Constructor for the formant tracker.
+     *
+     * @param theParams The analysis parameters.
+     */
+    public FormantTracker(final AnalysisParameters theParams) {
+        myParams = theParams;
+        mySampleRate = getAnalysisSampleRate(theParams);
+        myWindowLength = (int) Math.round(2 * theParams.getFormantWindowLength() * mySampleRate);
+        myOrder = 2 * theParams.getFormantCount();
+
+        myWindow = new double[myWindowLength];
+        final double edge = Math.exp(-12.0);
+        final double mid = 0.5 * (myWindowLength + 1);
+        for (int i = 0; i < myWindowLength; i++) {
+            final double x = (i + 1 - mid) / (myWindowLength + 1);
+            myWindow[i] = (Math.exp(-48.0 * x * x) - edge) / (1.0 - edge);
+        }
+
+        myFrame = new double[myWindowLength];
+        myForward = new double[myWindowLength];
+        myBackward = new double[myWindowLength];
+        myPrevious = new double[myOrder + 1];
+        myCoefficients = new double[myOrder + 1];
+        myPolynomial = new double[myOrder + 1];
+        myRootsReal = new double[myOrder];
+        myRootsImag = new double[myOrder];
+        myCandidates = new double[myOrder];
+    }
+
+    /**
+     * Gets the sampling frequency the formant analysis runs at. The pitch analysis runs on
+     * the same resampled signal, so a recording is only resampled once.
+     *
+     * @param theParams The analysis parameters.
+     * @return Returns twice the formant ceiling.
+     */
+    public static double getAnalysisSampleRate(final AnalysisParameters theParams) {
+        return 2 * theParams.getMaxFormant();
+    }
+
+    /**
+     * Applies the pre-emphasis to a signal that is already at the analysis sampling rate.
+     *
+     * @param theResampled The signal at {@link #getAnalysisSampleRate(AnalysisParameters)}.
+     * @param theParams    The analysis parameters.
+     * @return Returns a pre-emphasized copy of the signal.
+     */
+    public static float[] preEmphasize(final float[] theResampled,
+                                       final AnalysisParameters theParams) {
+        final float[] emphasized = new float[theResampled.length];
+        preEmphasize(theResampled, theResampled.length, emphasized, theParams);
+        return emphasized;
+    }
+
+    /**
+     * Applies the pre-emphasis into a caller owned buffer, so a live analysis can reuse
+     * one buffer for every frame.
+     *
+     * @param theResampled The signal at {@link #getAnalysisSampleRate(AnalysisParameters)}.
+     * @param theLength    The number of samples to process.
+     * @param theOut       Receives the pre-emphasized samples; at least theLength long.
+     * @param theParams    The analysis parameters.
+     */
+    public static void preEmphasize(final float[] theResampled, final int theLength,
+                                    final float[] theOut, final AnalysisParameters theParams) {
+        final double alpha = Math.exp(-2 * Math.PI * theParams.getPreEmphasisFrom()
+                / getAnalysisSampleRate(theParams));
+        if (theLength > 0) {
+            theOut[0] = theResampled[0];
+        }
+        for (int i = 1; i < theLength; i++) {
+            theOut[i] = (float) (theResampled[i] - alpha * theResampled[i - 1]);
+        }
+    }
+
+    /**
+     * @return Returns the window length in samples of the analysis signal.
+     */
+    public int getWindowLength() {
+        return myWindowLength;
+    }
+
+    /**
+     * Analyzes the window of the pre-emphasized signal that starts at the given sample.
+     *
+     * @param thePrepared The resampled and pre-emphasized signal.
+     * @param theStart    The first sample of the window.
+     * @param theOut      Receives F1 - F4 in Hz; missing formants are set to NaN.
+     */
+    public void analyze(final float[] thePrepared, final int theStart, final double[] theOut) {
+        Arrays.fill(theOut, 0, REPORTED_FORMANTS, Double.NaN);
+
+        DspKernels.SELECTED.window(thePrepared, theStart, myWindow, myFrame, myWindowLength);
+        if (!burg()) {
+            return;
+        }
+
+        // A(z) = 1 - sum(a_k z^-k)  ->  z^p - a_1 z^(p-1) - ... - a_p
+        myPolynomial[0] = 1.0;
+        for (int k = 1; k <= myOrder; k++) {
+            myPolynomial[k] = -myCoefficients[k];
+        }
+        findRoots();
+
+        final double ceiling = myParams.getMaxFormant() - EDGE_MARGIN;
+        int count = 0;
+        for (int i = 0; i < myOrder; i++) {
+            double re = myRootsReal[i];
+            double im = myRootsImag[i];
+            if (im <= 0) {
+                continue;
+            }
+            final double magnitude = re * re + im * im;
+            if (magnitude > 1.0) {
+                // reflect unstable poles into the unit circle
+                re /= magnitude;
+                im /= magnitude;
+            }
+            final double frequency = Math.atan2(im, re) * mySampleRate / (2 * Math.PI);
+            if (frequency >= EDGE_MARGIN && frequency <= ceiling) {
+                myCandidates[count++] = frequency;
+            }
+        }
+        Arrays.sort(myCandidates, 0, count);
+        for (int i = 0; i < Math.min(count, REPORTED_FORMANTS); i++) {
+            theOut[i] = myCandidates[i];
+        }
+    }
+
+    /**
+     * Computes the LPC coefficients of the windowed frame with Burg's algorithm.
+     *
+     * @return Returns false if the frame is silent.
+     */
+    private boolean burg() {
+        final DspKernels kernels = DspKernels.SELECTED;
+        final int n = myWindowLength;
+        final double energy = kernels.dot(myFrame, myFrame, n);
+        if (energy <= 0) {
+            return false;
+        }
+
+        System.arraycopy(myFrame, 0, myForward, 0, n - 1);
+        System.arraycopy(myFrame, 1, myBackward, 0, n - 1);
+        Arrays.fill(myCoefficients, 0);
+
+        for (int k = 1; k <= myOrder; k++) {
+            final double num = kernels.dot(myForward, myBackward, n - k);
+            final double denom = kernels.sumOfSquares(myForward, myBackward, n - k);
+            if (denom <= 0) {
+                return false;
+            }
+            myCoefficients[k] = 2.0 * num / denom;
+            for (int i = 1; i < k; i++) {
+                myCoefficients[i] = myPrevious[i] - myCoefficients[k] * myPrevious[k - i];
+            }
+            if (k == myOrder) {
+                return true;
+            }
+            System.arraycopy(myCoefficients, 1, myPrevious, 1, k);
+            kernels.burgUpdate(myForward, myBackward, myPrevious[k], n - k - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Finds all complex roots of the monic polynomial with the Durand-Kerner iteration.
+     */
+    private void findRoots() {
+        final int degree = myOrder;
+        // start on a spiral that is not symmetric to the real axis
+        double seedRe = 1.0;
+        double seedIm = 0.0;
+        for (int i = 0; i < degree; i++) {
+            myRootsReal[i] = seedRe;
+            myRootsImag[i] = seedIm;
+            final double re = seedRe * 0.4 - seedIm * 0.9;
+            seedIm = seedRe * 0.9 + seedIm * 0.4;
+            seedRe = re;
+        }
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double change = 0;
+            for (int i = 0; i < degree; i++) {
+                final double zr = myRootsReal[i];
+                final double zi = myRootsImag[i];
+
+                // evaluate the polynomial with horner's scheme
+                double pr = myPolynomial[0];
+                double pi = 0;
+                for (int k = 1; k <= degree; k++) {
+                    final double tr = pr * zr - pi * zi + myPolynomial[k];
+                    pi = pr * zi + pi * zr;
+                    pr = tr;
+                }
+
+                // product of the distances to the other roots
+                double qr = 1;
+                double qi = 0;
+                for (int j = 0; j < degree; j++) {
+                    if (j != i) {
+                        final double dr = zr - myRootsReal[j];
+                        final double di = zi - myRootsImag[j];
+                        final double tr = qr * dr - qi * di;
+                        qi = qr * di + qi * dr;
+                        qr = tr;
+                    }
+                }
+
+                final double qq = qr * qr + qi * qi;
+                if (qq == 0) {
+                    continue;
+                }
+                final double stepR = (pr * qr + pi * qi) / qq;
+                final double stepI = (pi * qr - pr * qi) / qq;
+                myRootsReal[i] = zr - stepR;
+                myRootsImag[i] = zi - stepI;
+                change = Math.max(change, Math.abs(stepR) + Math.abs(stepI));
+            }
+            if (change < 1e-12) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.kass.vocalanalysistool.model;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Scores the gender perception of a voice with a standardized logistic regression, in
+ * the JVM and without a python round-trip.</p>
+ *
+ * <p>The model is a small JSON file written after training, e.g. from scikit-learn's
+ * {@code StandardScaler} and {@code LogisticRegression}:</p>
+ *
+ * <pre>
+ * {
+ *   "features":     ["F0_avg", "F1_avg", ..., "formant_dispersion"],
+ *   "mean":         [...],   // scaler.mean_
+ *   "scale":        [...],   // scaler.scale_
+ *   "coefficients": [...],   // model.coef_[0]
+ *   "intercept":    0.0,     // model.intercept_[0]
+ *   "labels":       ["masculine", "feminine"]   // model.classes_
+ * }
+ * </pre>
+ *
+ * <p>The scaler is folded into the coefficients when the model is loaded, so a score is one
+ * dot product and an exponential. A missing (NaN) feature is replaced by its training mean,
+ * i.e. it does not move the score. No model ships with the app; without one the scorer
+ * can not be loaded.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class GenderPerceptionModel {
+
+    /**
+     * The system property with the path of the model file.
+     */
+    public static final String MODEL_PROPERTY = "vocalanalysis.model";
+
+    /**
+     * The model file used when the property is not set.
+     */
+    public static final String DEFAULT_FILE = "gender_model.json";
+
+    /**
+     * Stored feature names and the README name they are known by in a model.
+     */
+    private static final Map<String, String> ALIASES = Map.of("voiced_frac", "voiced_fraction");
+
+    /**
+     * The README feature derived from the formant averages.
+     */
+    private static final String DISPERSION = "formant_dispersion";
+
+    /**
+     * The names of the features in model order.
+     */
+    private final List<String> myFeatures;
+
+    /**
+     * The model index of every feature name and alias.
+     */
+    private final Map<String, Integer> myIndex = new HashMap<>();
+
+    /**
+     * The training means, used for missing features.
+     */
+    private final double[] myMeans;
+
+    /**
+     * The coefficients divided by the scaler's scale.
+     */
+    private final double[] myWeights;
+
+    /**
+     * The intercept minus the weighted means.
+     */
+    private final double myBias;
+
+    /**
+     * The label of a score below 0.5.
+     */
+    private final String myNegativeLabel;
+
+    /**
+     * The label of a score of 0.5 and above.
+     */
+    private final String myPositiveLabel;
+
+    /**
+     * Constructor for the model.
+     *
+     * @param theFeatures     The feature names in model order.
+     * @param theMeans        The scaler means.
+     * @param theScales       The scaler scales.
+     * @param theCoefficients The coefficients of the standardized features.
+     * @param theIntercept    The intercept.
+     * @param theNegative     The label of the negative class.
+     * @param thePositive     The label of the positive class.
+     */
+    public GenderPerceptionModel(final List<String> theFeatures, final double[] theMeans,
+                                 final double[] theScales, final double[] theCoefficients,
+                                 final double theIntercept, final String theNegative,
+                                 final String thePositive) {
+        final int size = theFeatures.size();
+        if (size == 0 || theMeans.length != size || theScales.length != size
+                || theCoefficients.length != size || !Double.isFinite(theIntercept)) {
+            throw new IllegalArgumentException("The model needs one mean, scale and "
+                    + "coefficient for each of its " + size + " features");
+        }
+        myFeatures = List.copyOf(theFeatures);
+        myMeans = theMeans.clone();
+        myWeights = new double[size];
+        double bias = theIntercept;
+        for (int i = 0; i < size; i++) {
+            if (!(theScales[i] > 0) || !Double.isFinite(theScales[i])
+                    || !Double.isFinite(theMeans[i]) || !Double.isFinite(theCoefficients[i])) {
+                throw new IllegalArgumentException("Invalid scaler or coefficient for "
+                        + theFeatures.get(i));
+            }
+            myWeights[i] = theCoefficients[i] / theScales[i];
+            bias -= myWeights[i] * theMeans[i];
+            if (myIndex.putIfAbsent(myFeatures.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate feature " + myFeatures.get(i));
+            }
+        }
+        for (final Map.Entry<String, String> alias : ALIASES.entrySet()) {
+            final Integer index = myIndex.get(alias.getValue());
+            if (index != null) {
+                myIndex.putIfAbsent(alias.getKey(), index);
+            }
+        }
+        myBias = bias;
+        myNegativeLabel = theNegative;
+        myPositiveLabel = thePositive;
+    }
+
+    /**
+     * @return Returns the model file named by {@link #MODEL_PROPERTY}.
+     */
+    public static Path getDefaultFile() {
+        return Path.of(System.getProperty(MODEL_PROPERTY, DEFAULT_FILE));
+    }
+
+    /**
+     * Loads a model file.
+     *
+     * @param theFile The JSON model file.
+     * @return Returns the model.
+     * @throws IOException Thrown if the file can not be read or is not a valid model.
+     */
+    public static GenderPerceptionModel load(final Path theFile) throws IOException {
+        try (final Reader reader = Files.newBufferedReader(theFile, StandardCharsets.UTF_8)) {
+            final JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            final List<String> features = new ArrayList<>();
+            for (final JsonElement feature : json.getAsJsonArray("features")) {
+                features.add(feature.getAsString());
+            }
+            final JsonArray labels = json.has("labels") ? json.getAsJsonArray("labels")
+                    : null;
+            return new GenderPerceptionModel(features, toArray(json, "mean"),
+                    toArray(json, "scale"), toArray(json, "coefficients"),
+                    json.get("intercept").getAsDouble(),
+                    labels == null ? "negative" : labels.get(0).getAsString(),
+                    labels == null ? "positive" : labels.get(1).getAsString());
+        } catch (final JsonParseException | IllegalStateException | NullPointerException
+                       | UnsupportedOperationException | IndexOutOfBoundsException
+                       | IllegalArgumentException theException) {
+            throw new IOException("Invalid model file " + theFile + ": "
+                    + theException.getMessage(), theException);
+        }
+    }
+
+    /**
+     * @param theJson The model object.
+     * @param theName The name of a numeric array.
+     * @return Returns the array.
+     */
+    private static double[] toArray(final JsonObject theJson, final String theName) {
+        final JsonArray array = theJson.getAsJsonArray(theName);
+        final double[] values = new double[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.get(i).getAsDouble();
+        }
+        return values;
+    }
+
+    /**
+     * Scores a feature vector.
+     *
+     * @param theVector The features in the order of {@link #getFeatureNames()}; NaN for a
+     *                  missing feature.
+     * @return Returns the probability of the positive label.
+     */
+    public double score(final double[] theVector) {
+        double z = myBias;
+        for (int i = 0; i < myWeights.length; i++) {
+            final double value = theVector[i];
+            z += myWeights[i] * (Double.isFinite(value) ? value : myMeans[i]);
+        }
+        return 1 / (1 + Math.exp(-z));
+    }
+
+    /**
+     * Scores named features, e.g. the feature row of an {@link AnalysisResult} together
+     * with its averages.
+     *
+     * @param theFeatures The features by name; the model's features that are missing count
+     *                    as their mean.
+     * @return Returns the probability of the positive label.
+     */
+    public double score(final Map<String, Double> theFeatures) {
+        final double[] vector = newVector();
+        final double[] averages = newAverages();
+        for (final Map.Entry<String, Double> feature : theFeatures.entrySet()) {
+            set(vector, averages, feature.getKey(),
+                    feature.getValue() == null ? Double.NaN : feature.getValue());
+        }
+        return score(finish(vector, averages));
+    }
+
+    /**
+     * Scores every row of a feature CSV file, either user_features.csv or an export of the
+     * feature vectors. The columns are matched to the model by their header names; the
+     * first column is the id of the row. The rows are scored on all cores.
+     *
+     * @param theFile The CSV file with a header line.
+     * @return Returns the probability of the positive label by row id, in file order.
+     * @throws IOException Thrown if the file can not be read.
+     */
+    public Map<String, Double> scoreCsv(final Path theFile) throws IOException {
+        final List<String> lines = Files.readAllLines(theFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            return Map.of();
+        }
+        final List<String> header = splitCsv(lines.get(0));
+        final int rows = lines.size() - 1;
+        final String[] ids = new String[rows];
+        final double[] scores = new double[rows];
+
+        IntStream.range(0, rows).parallel().forEach(theRow -> {
+            final List<String> cells = splitCsv(lines.get(theRow + 1));
+            final double[] vector = newVector();
+            final double[] averages = newAverages();
+            for (int c = 1; c < Math.min(header.size(), cells.size()); c++) {
+                set(vector, averages, header.get(c), parse(cells.get(c)));
+            }
+            ids[theRow] = cells.isEmpty() ? "" : cells.get(0);
+            scores[theRow] = score(finish(vector, averages));
+        });
+
+        final Map<String, Double> result = new LinkedHashMap<>();
+        for (int i = 0; i < rows; i++) {
+            if (!lines.get(i + 1).isBlank()) {
+                result.put(ids[i], scores[i]);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Scores stored sessions from their averages and their session_features rows. The rows
+     * are read with one query and scored on all cores.
+     *
+     * @param theDatabase   The database.
+     * @param theSessionIds The sessions to score; all sessions if none are given.
+     * @return Returns the probability of the positive label by session id, in id order.
+     * @throws IOException Thrown if the database can not be read.
+     */
+    public Map<Long, Double> scoreSessions(final UserFormantDatabase theDatabase,
+                                           final long... theSessionIds) throws IOException {
+        final StringBuilder query = new StringBuilder("""
+                SELECT u.id, u.f0_avg, u.f1_avg, u.f2_avg, u.f3_avg, u.f4_avg, s.name, s.value
+                FROM user_formants u
+                         LEFT JOIN session_features s ON s.session_id = u.id
+                """);
+        if (theSessionIds.length > 0) {
+            query.append("WHERE u.id IN (?").append(",?".repeat(theSessionIds.length - 1))
+                    .append(")\n");
+        }
+        query.append("ORDER BY u.id");
+
+        final List<Long> ids = new ArrayList<>();
+        final List<double[]> vectors = new ArrayList<>();
+        try (final SqliteConnectionPool.Lease lease = theDatabase.lease()) {
+            final PreparedStatement ps = lease.getConnection().prepareStatement(
+                    query.toString());
+            for (int i = 0; i < theSessionIds.length; i++) {
+                ps.setLong(i + 1, theSessionIds[i]);
+            }
+            try (ps; final ResultSet rs = ps.executeQuery()) {
+                long current = Long.MIN_VALUE;
+                double[] vector = null;
+                double[] averages = null;
+                while (rs.next()) {
+                    final long id = rs.getLong(1);
+                    if (id != current) {
+                        if (vector != null) {
+                            vectors.add(finish(vector, averages));
+                        }
+                        current = id;
+                        ids.add(id);
+                        vector = newVector();
+                        averages = newAverages();
+                        for (int f = 0; f < 5; f++) {
+                            set(vector, averages, "F" + f + "_avg", getReal(rs, f + 2));
+                        }
+                    }
+                    final String name = rs.getString(7);
+                    if (name != null) {
+                        set(vector, averages, name, getReal(rs, 8));
+                    }
+                }
+                if (vector != null) {
+                    vectors.add(finish(vector, averages));
+                }
+            }
+        } catch (final SQLException theException) {
+            throw new IOException("Unable to read the sessions: " + theException.getMessage(),
+                    theException);
+        }
+
+        final double[] scores = new double[vectors.size()];
+        IntStream.range(0, scores.length).parallel()
+                .forEach(theRow -> scores[theRow] = score(vectors.get(theRow)));
+        final Map<Long, Double> result = new LinkedHashMap<>();
+        for (int i = 0; i < scores.length; i++) {
+            result.put(ids.get(i), scores[i]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * @return Returns a vector of missing features.
+     */
+    private double[] newVector() {
+        final double[] vector = new double[myWeights.length];
+        Arrays.fill(vector, Double.NaN);
+        return vector;
+    }
+
+    /**
+     * @return Returns missing F0 - F4 averages.
+     */
+    private static double[] newAverages() {
+        final double[] averages = new double[5];
+        Arrays.fill(averages, Double.NaN);
+        return averages;
+    }
+
+    /**
+     * Stores one named feature in the vector; the formant averages are also kept aside to
+     * derive the dispersion.
+     *
+     * @param theVector   The vector in model order.
+     * @param theAverages The F0 - F4 averages seen so far.
+     * @param theName     The name of the feature.
+     * @param theValue    The value of the feature.
+     */
+    private void set(final double[] theVector, final double[] theAverages, final String theName,
+                     final double theValue) {
+        if (theName.length() == 6 && theName.startsWith("F") && theName.endsWith("_avg")) {
+            final int formant = theName.charAt(1) - '0';
+            if (formant >= 0 && formant < 5) {
+                theAverages[formant] = theValue;
+            }
+        }
+        final Integer index = myIndex.get(theName);
+        if (index != null) {
+            theVector[index] = theValue;
+        }
+    }
+
+    /**
+     * Derives the formant dispersion if the model uses it and it was not given.
+     *
+     * @param theVector   The vector in model order.
+     * @param theAverages The F0 - F4 averages.
+     * @return Returns the vector.
+     */
+    private double[] finish(final double[] theVector, final double[] theAverages) {
+        final Integer index = myIndex.get(DISPERSION);
+        if (index != null && Double.isNaN(theVector[index])) {
+            // mean([F2 - F1, F3 - F2, F4 - F3]) = (F4 - F1) / 3
+            theVector[index] = (theAverages[4] - theAverages[1]) / 3;
+        }
+        return theVector;
+    }
+
+    /**
+     * @param theResultSet The row.
+     * @param theColumn    The column index.
+     * @return Returns the REAL value, NaN for NULL.
+     * @throws SQLException Thrown if the column can not be read.
+     */
+    private static double getReal(final ResultSet theResultSet, final int theColumn)
+            throws SQLException {
+        final double value = theResultSet.getDouble(theColumn);
+        return theResultSet.wasNull() ? Double.NaN : value;
+    }
+
+    /**
+     * @param theCell A CSV cell.
+     * @return Returns the number, NaN if the cell is empty or not a number.
+     */
+    private static double parse(final String theCell) {
+        if (theCell.isEmpty()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(theCell);
+        } catch (final NumberFormatException theException) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Splits a CSV line, honoring quoted cells.
+     *
+     * @param theLine The line.
+     * @return Returns the cells without quotes.
+     */
+    private static List<String> splitCsv(final String theLine) {
+        final List<String> cells = new ArrayList<>();
+        final StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < theLine.length(); i++) {
+            final char c = theLine.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < theLine.length() && theLine.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    /**
+     * @return Returns the feature names in model order.
+     */
+    public List<String> getFeatureNames() {
+        return myFeatures;
+    }
+
+    /**
+     * @return Returns the label of a score below 0.5.
+     */
+    public String getNegativeLabel() {
+        return myNegativeLabel;
+    }
+
+    /**
+     * @return Returns the label of a score of 0.5 and above.
+     */
+    public String getPositiveLabel() {
+        return myPositiveLabel;
+    }
+
+    /**
+     * @param theScore A probability returned by a score method.
+     * @return Returns the label the score stands for.
+     */
+    public String getLabel(final double theScore) {
+        return theScore >= 0.5 ? myPositiveLabel : myNegativeLabel;
+    }
+}
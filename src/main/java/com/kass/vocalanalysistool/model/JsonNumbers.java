@@ -0,0 +1,35 @@
+package com.kass.vocalanalysistool.model;
+
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+/**
+ * <p>Adds numbers to the JSON the analysis server answers with and the headless runner
+ * prints. JSON has no NaN: an unvoiced recording has no average pitch, and a missing
+ * value is written as null rather than failing the whole line.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class JsonNumbers {
+
+    /**
+     * Utility class.
+     */
+    private JsonNumbers() {
+    }
+
+    /**
+     * @param theObject The JSON object.
+     * @param theName   The member name.
+     * @param theValue  The value; null, NaN and infinities are written as null.
+     */
+    public static void add(final JsonObject theObject, final String theName,
+                           final Double theValue) {
+        if (theValue == null || !Double.isFinite(theValue)) {
+            theObject.add(theName, JsonNull.INSTANCE);
+        } else {
+            theObject.addProperty(theName, theValue);
+        }
+    }
+}
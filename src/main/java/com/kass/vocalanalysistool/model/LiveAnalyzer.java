@@ -0,0 +1,516 @@
+package com.kass.vocalanalysistool.model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+
+/**
+ * <p>Tracks F0 - F4 of the microphone while the user speaks.</p>
+ *
+ * <p>A capture thread reads small blocks from the sound card, converts (and if needed
+ * decimates) them into preallocated buffers and appends them to a lock-free
+ * {@link FloatRingBuffer}. An analysis thread takes the newest window out of the ring every
+ * time step, runs the same pitch and formant trackers as {@link VocalAnalysisEngine} and
+ * appends the frame to a {@link LiveTrack} that the view polls. Neither thread allocates
+ * per block or per frame. When the analysis falls behind it jumps to the newest window
+ * instead of queueing, so the display never lags more than one window plus one block.</p>
+ *
+ * <p>{@link #startFile(Path)} feeds a recording paced in real time instead of the
+ * microphone, so the live path can be tested without a sound card.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class LiveAnalyzer {
+
+    /**
+     * The capture rates to try, lowest first. Each is decimated by an integer factor to
+     * roughly 11 kHz, the rate the formant analysis runs at.
+     */
+    private static final float[] CAPTURE_RATES = {11025f, 22050f, 44100f, 48000f};
+
+    /**
+     * The analysis rate the capture rates are decimated to.
+     */
+    private static final double TARGET_RATE = 11025.0;
+
+    /**
+     * The length of one capture block in seconds.
+     */
+    private static final double BLOCK_SECONDS = 0.005;
+
+    /**
+     * The time constant of the running peak used for the silence gate in seconds.
+     */
+    private static final double PEAK_DECAY_SECONDS = 2.0;
+
+    /**
+     * The number of frames the live track keeps (20 s at 10 ms).
+     */
+    private static final int TRACK_FRAMES = 2048;
+
+    /**
+     * Set to true to pass the live frames through the continuity filter, so only the frames
+     * a stored analysis would keep are shown.
+     */
+    public static final String FILTER_PROPERTY = "vocalanalysis.live.filter";
+
+    /**
+     * The logger object for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Live Analyzer");
+
+    /**
+     * The frames of the current capture; replaced on every start.
+     */
+    private volatile LiveTrack myTrack = new LiveTrack(TRACK_FRAMES);
+
+    /**
+     * Set while the capture runs.
+     */
+    private volatile boolean myRunning;
+
+    /**
+     * The nanoTime of the newest block written to the ring.
+     */
+    private volatile long myLastWriteNanos;
+
+    /**
+     * The error that ended the capture, or null.
+     */
+    private volatile Throwable myFailure;
+
+    /**
+     * The microphone line, or null when a file is played.
+     */
+    private TargetDataLine myLine;
+
+    /**
+     * The capture thread.
+     */
+    private Thread myCaptureThread;
+
+    /**
+     * The analysis thread; unparked by the capture thread after every block.
+     */
+    private volatile Thread myAnalysisThread;
+
+    /**
+     * The samples between the two threads.
+     */
+    private volatile FloatRingBuffer myRing;
+
+    /**
+     * The sampling frequency of the ring in Hz.
+     */
+    private double myRate;
+
+    /**
+     * @return Returns the frames of the current (or last) capture.
+     */
+    public LiveTrack getTrack() {
+        return myTrack;
+    }
+
+    /**
+     * @return Returns true while the capture runs.
+     */
+    public boolean isRunning() {
+        return myRunning;
+    }
+
+    /**
+     * @return Returns the error that ended the capture, or null.
+     */
+    public Throwable getFailure() {
+        return myFailure;
+    }
+
+    /**
+     * @return Returns the number of samples dropped because the analysis fell behind.
+     */
+    public long getOverruns() {
+        final FloatRingBuffer ring = myRing;
+        return ring == null ? 0 : ring.getOverruns();
+    }
+
+    /**
+     * Starts capturing the default microphone.
+     *
+     * @throws LineUnavailableException Thrown if no microphone supports a usable format.
+     */
+    public synchronized void startMicrophone() throws LineUnavailableException {
+        if (myRunning) {
+            throw new IllegalStateException("The live analysis is already running");
+        }
+        for (final float rate : CAPTURE_RATES) {
+            final AudioFormat format = new AudioFormat(rate, 16, 1, true, false);
+            final DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
+            if (!AudioSystem.isLineSupported(info)) {
+                continue;
+            }
+            final int factor = Math.max(1, (int) Math.round(rate / TARGET_RATE));
+            final int block = factor * (int) Math.round(BLOCK_SECONDS * rate / factor);
+            final TargetDataLine line = (TargetDataLine) AudioSystem.getLine(info);
+            // a small device buffer keeps the blocks coming at an even pace
+            line.open(format, 4 * block * format.getFrameSize());
+            line.start();
+            myLine = line;
+            MY_LOGGER.info(() -> "Capturing " + format + ", decimated by " + factor);
+            start(rate / factor, () -> captureLine(line, block, factor));
+            return;
+        }
+        throw new LineUnavailableException("No microphone supports 16 bit mono capture");
+    }
+
+    /**
+     * Plays a recording through the live path in real time.
+     *
+     * @param theFile The [.wav] or [.aiff] file.
+     * @throws IOException Thrown if the file can not be read.
+     */
+    public void startFile(final Path theFile) throws IOException {
+        startFile(theFile, true);
+    }
+
+    /**
+     * Plays a recording through the live path, in real time or as fast as the blocks can be
+     * copied. Unpaced, the capture outruns the analysis and overflows the ring, which the
+     * tests use to check that the analysis skips ahead instead of falling behind.
+     *
+     * @param theFile  The [.wav] or [.aiff] file.
+     * @param thePaced True to write the blocks at the rate they would be recorded.
+     * @throws IOException Thrown if the file can not be read.
+     */
+    synchronized void startFile(final Path theFile, final boolean thePaced)
+            throws IOException {
+        if (myRunning) {
+            throw new IllegalStateException("The live analysis is already running");
+        }
+        final AudioSignal signal = AudioSignal.read(Objects.requireNonNull(theFile));
+        final float[] samples = Resampler.resample(signal.getSamples(),
+                signal.getSampleRate(), TARGET_RATE);
+        start(TARGET_RATE, () -> captureSamples(samples, thePaced));
+    }
+
+    /**
+     * Stops the capture and waits for both threads to finish.
+     */
+    public synchronized void stop() {
+        myRunning = false;
+        if (myLine != null) {
+            myLine.stop();
+            myLine.close();
+            myLine = null;
+        }
+        join(myCaptureThread);
+        join(myAnalysisThread);
+        myCaptureThread = null;
+        myAnalysisThread = null;
+    }
+
+    /**
+     * Allocates the buffers and starts both threads.
+     *
+     * @param theRate    The sampling frequency of the ring in Hz.
+     * @param theCapture The body of the capture thread.
+     */
+    private void start(final double theRate, final Runnable theCapture) {
+        myRate = theRate;
+        myRing = new FloatRingBuffer((int) theRate);
+        myTrack = new LiveTrack(TRACK_FRAMES);
+        myFailure = null;
+        myRunning = true;
+
+        final Thread analysis = new Thread(this::analyzeLoop, "LiveAnalysis");
+        analysis.setDaemon(true);
+        analysis.setPriority(Thread.MAX_PRIORITY - 1);
+        myAnalysisThread = analysis;
+
+        final Thread capture = new Thread(() -> {
+            try {
+                theCapture.run();
+            } catch (final RuntimeException theException) {
+                fail(theException);
+            }
+        }, "LiveCapture");
+        capture.setDaemon(true);
+        capture.setPriority(Thread.MAX_PRIORITY);
+        myCaptureThread = capture;
+
+        analysis.start();
+        capture.start();
+    }
+
+    /**
+     * Reads the microphone until the capture is stopped.
+     *
+     * @param theLine   The open line.
+     * @param theBlock  The number of frames per block at the capture rate.
+     * @param theFactor The decimation factor.
+     */
+    private void captureLine(final TargetDataLine theLine, final int theBlock,
+                             final int theFactor) {
+        final byte[] bytes = new byte[2 * theBlock];
+        final float[] samples = new float[theBlock];
+        final float[] decimated = new float[theBlock / theFactor + 1];
+        final Decimator decimator = theFactor > 1 ? new Decimator(theFactor, theBlock) : null;
+
+        while (myRunning) {
+            final int read = theLine.read(bytes, 0, bytes.length);
+            if (read <= 0) {
+                if (!theLine.isOpen()) {
+                    break;
+                }
+                continue;
+            }
+            final int frames = read / 2;
+            for (int i = 0; i < frames; i++) {
+                samples[i] = (short) ((bytes[2 * i] & 0xff) | (bytes[2 * i + 1] << 8))
+                        / 32768f;
+            }
+            if (decimator == null) {
+                publish(samples, frames);
+            } else {
+                publish(decimated, decimator.process(samples, frames, decimated));
+            }
+        }
+    }
+
+    /**
+     * Writes the recording to the ring in blocks.
+     *
+     * @param theSamples The recording at the ring rate.
+     * @param thePaced   True to pace the blocks by the wall clock.
+     */
+    private void captureSamples(final float[] theSamples, final boolean thePaced) {
+        final int block = (int) Math.round(BLOCK_SECONDS * myRate);
+        final float[] chunk = new float[block];
+        final long start = System.nanoTime();
+        for (int offset = 0; myRunning && offset + block <= theSamples.length;
+             offset += block) {
+            // the block is "captured" once its last sample would have been recorded
+            final long due = start + (long) ((offset + block) / myRate * 1e9);
+            long wait;
+            while (thePaced && (wait = due - System.nanoTime()) > 0 && myRunning) {
+                LockSupport.parkNanos(wait);
+            }
+            System.arraycopy(theSamples, offset, chunk, 0, block);
+            publish(chunk, block);
+        }
+        myRunning = false;
+    }
+
+    /**
+     * Appends a block to the ring and wakes the analysis thread.
+     *
+     * @param theSamples The block.
+     * @param theLength  The number of samples.
+     */
+    private void publish(final float[] theSamples, final int theLength) {
+        myLastWriteNanos = System.nanoTime();
+        myRing.write(theSamples, 0, theLength);
+        LockSupport.unpark(myAnalysisThread);
+    }
+
+    /**
+     * Analyzes the newest window every time step until the capture is stopped.
+     */
+    private void analyzeLoop() {
+        try {
+            final AnalysisParameters params = AnalysisParameters.defaults()
+                    .withMaxFormant(myRate / 2);
+            final PitchTracker pitchTracker = new PitchTracker(myRate, params);
+            final FormantTracker formantTracker = new FormantTracker(params);
+            final int window = Math.max(pitchTracker.getWindowLength(),
+                    formantTracker.getWindowLength());
+            final int pitchStart = (window - pitchTracker.getWindowLength()) / 2;
+            final int formantStart = (window - formantTracker.getWindowLength()) / 2;
+            final int hop = (int) Math.round(params.getTimeStep() * myRate);
+            final double peakDecay = Math.exp(-params.getTimeStep() / PEAK_DECAY_SECONDS);
+            final long idleNanos = TimeUnit.MILLISECONDS.toNanos(2);
+
+            final float[] samples = new float[window];
+            final float[] prepared = new float[window];
+            final double[] formants = new double[FormantTracker.REPORTED_FORMANTS];
+            final double[] unvoiced = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+            final FloatRingBuffer ring = myRing;
+            final LiveTrack track = myTrack;
+            final FormantContinuityFilter filter = Boolean.getBoolean(FILTER_PROPERTY)
+                    ? new FormantContinuityFilter() : null;
+            double runningPeak = 0;
+
+            while (myRunning || ring.available() >= window) {
+                int available = ring.available();
+                if (available < window) {
+                    LockSupport.parkNanos(idleNanos);
+                    continue;
+                }
+                if (available >= window + 2 * hop) {
+                    // behind: drop the backlog rather than show stale frames
+                    ring.skip(available - window);
+                    available = window;
+                }
+                ring.peek(samples, window);
+
+                double peak = 0;
+                for (int i = 0; i < window; i++) {
+                    peak = Math.max(peak, Math.abs(samples[i]));
+                }
+                runningPeak = Math.max(peak, runningPeak * peakDecay);
+
+                final double time = (ring.getReadPosition() + window / 2.0) / myRate;
+                boolean voiced = pitchTracker.analyze(samples, pitchStart, runningPeak);
+                if (voiced) {
+                    FormantTracker.preEmphasize(samples, window, prepared, params);
+                    formantTracker.analyze(prepared, formantStart, formants);
+                    voiced = filter == null || filter.accept(Math.round(time * 100) / 100.0,
+                            pitchTracker.getFrequency(), formants[0], formants[1],
+                            formants[2], formants[3]);
+                }
+                if (voiced) {
+                    track.append(time, pitchTracker.getFrequency(), formants,
+                            latency(available - window));
+                } else {
+                    track.append(time, Double.NaN, unvoiced, latency(available - window));
+                }
+                ring.skip(hop);
+            }
+        } catch (final RuntimeException theException) {
+            fail(theException);
+        }
+    }
+
+    /**
+     * Gets the delay between capturing the newest sample of the frame and now.
+     *
+     * @param theNewer The number of samples in the ring that are newer than the frame.
+     * @return Returns the latency in nanoseconds.
+     */
+    private long latency(final int theNewer) {
+        return System.nanoTime() - myLastWriteNanos + (long) (theNewer / myRate * 1e9);
+    }
+
+    /**
+     * Ends the capture with an error.
+     *
+     * @param theException The error.
+     */
+    private void fail(final Throwable theException) {
+        MY_LOGGER.log(Level.SEVERE, "Live analysis failed", theException);
+        myFailure = theException;
+        myRunning = false;
+    }
+
+    /**
+     * Waits for a thread to finish.
+     *
+     * @param theThread The thread, or null.
+     */
+    private static void join(final Thread theThread) {
+        if (theThread == null || theThread == Thread.currentThread()) {
+            return;
+        }
+        LockSupport.unpark(theThread);
+        try {
+            theThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Streaming low-pass and integer decimation of the capture blocks with a hann windowed
+     * sinc FIR. The history of the previous block is kept, so the blocks join seamlessly.
+     */
+    private static final class Decimator {
+
+        /**
+         * The number of zero crossings of the kernel on each side.
+         */
+        private static final int ZERO_CROSSINGS = 8;
+
+        /**
+         * The FIR taps.
+         */
+        private final float[] myTaps;
+
+        /**
+         * The decimation factor.
+         */
+        private final int myFactor;
+
+        /**
+         * The history followed by the current block.
+         */
+        private final float[] myBuffer;
+
+        /**
+         * The offset of the next output sample past the end of the last block.
+         */
+        private int myPhase;
+
+        /**
+         * Constructor for the decimator.
+         *
+         * @param theFactor   The decimation factor.
+         * @param theMaxBlock The largest block that is processed.
+         */
+        private Decimator(final int theFactor, final int theMaxBlock) {
+            myFactor = theFactor;
+            final int half = ZERO_CROSSINGS * theFactor;
+            myTaps = new float[2 * half + 1];
+            // cut off a little below the new nyquist frequency
+            final double cutoff = 0.9 / theFactor;
+            double sum = 0;
+            for (int i = 0; i < myTaps.length; i++) {
+                final double x = i - half;
+                final double sinc = x == 0 ? 1.0
+                        : Math.sin(Math.PI * cutoff * x) / (Math.PI * cutoff * x);
+                final double hann = 0.5 + 0.5 * Math.cos(Math.PI * x / (half + 1));
+                myTaps[i] = (float) (sinc * hann);
+                sum += myTaps[i];
+            }
+            for (int i = 0; i < myTaps.length; i++) {
+                myTaps[i] /= (float) sum;
+            }
+            myBuffer = new float[myTaps.length - 1 + theMaxBlock];
+        }
+
+        /**
+         * Filters and decimates a block.
+         *
+         * @param theIn     The block at the capture rate.
+         * @param theLength The number of samples in the block.
+         * @param theOut    Receives the decimated samples.
+         * @return Returns the number of decimated samples.
+         */
+        private int process(final float[] theIn, final int theLength, final float[] theOut) {
+            final int history = myTaps.length - 1;
+            System.arraycopy(theIn, 0, myBuffer, history, theLength);
+            final int total = history + theLength;
+            int produced = 0;
+            int last = history + myPhase;
+            for (; last < total; last += myFactor) {
+                double sum = 0;
+                final int first = last - history;
+                for (int t = 0; t < myTaps.length; t++) {
+                    sum += myTaps[t] * myBuffer[first + t];
+                }
+                theOut[produced++] = (float) sum;
+            }
+            myPhase = last - total;
+            System.arraycopy(myBuffer, theLength, myBuffer, 0, history);
+            return produced;
+        }
+    }
+}
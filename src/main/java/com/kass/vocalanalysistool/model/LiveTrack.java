@@ -0,0 +1,118 @@
+package com.kass.vocalanalysistool.model;
+
+/**
+ * <p>The most recent frames of a live analysis, kept in preallocated arrays that the
+ * analysis thread overwrites in a circle.</p>
+ *
+ * <p>One thread appends; any thread may read the frames up to {@link #getCount()}. The
+ * count is published after the frame is written, so a reader never sees a half written
+ * frame unless it lags a full capacity behind, which a scrolling view never does.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class LiveTrack {
+
+    /**
+     * The number of tracks (F0 - F4).
+     */
+    public static final int TRACKS = 5;
+
+    /**
+     * The frame times in seconds since the start of the capture.
+     */
+    private final double[] myTimes;
+
+    /**
+     * The frequencies by track; NaN where a frame was unvoiced.
+     */
+    private final double[][] myTracks;
+
+    /**
+     * The delay between capturing the newest sample of a frame and the frame being done.
+     */
+    private final long[] myLatencies;
+
+    /**
+     * The capacity minus one; the capacity is a power of two.
+     */
+    private final int myMask;
+
+    /**
+     * The number of frames appended so far.
+     */
+    private volatile long myCount;
+
+    /**
+     * Constructor for the live track.
+     *
+     * @param theMinFrames The minimum number of frames to keep; rounded up to a power of two.
+     */
+    public LiveTrack(final int theMinFrames) {
+        final int capacity = Integer.highestOneBit(Math.max(2, theMinFrames - 1)) << 1;
+        myTimes = new double[capacity];
+        myTracks = new double[TRACKS][capacity];
+        myLatencies = new long[capacity];
+        myMask = capacity - 1;
+    }
+
+    /**
+     * @return Returns the number of frames that are kept.
+     */
+    public int getCapacity() {
+        return myTimes.length;
+    }
+
+    /**
+     * Appends a frame. Called by the analysis thread only.
+     *
+     * @param theTime     The frame time in seconds.
+     * @param thePitch    F0 in Hz, NaN if unvoiced.
+     * @param theFormants F1 - F4 in Hz, NaN where missing.
+     * @param theLatency  The capture-to-result delay in nanoseconds.
+     */
+    void append(final double theTime, final double thePitch, final double[] theFormants,
+                final long theLatency) {
+        final long count = myCount;
+        final int index = (int) count & myMask;
+        myTimes[index] = theTime;
+        myTracks[0][index] = thePitch;
+        for (int f = 1; f < TRACKS; f++) {
+            myTracks[f][index] = theFormants[f - 1];
+        }
+        myLatencies[index] = theLatency;
+        myCount = count + 1;
+    }
+
+    /**
+     * @return Returns the number of frames appended so far.
+     */
+    public long getCount() {
+        return myCount;
+    }
+
+    /**
+     * @param theFrame The frame number, within the last {@link #getCapacity()} frames.
+     * @return Returns the frame time in seconds.
+     */
+    public double getTime(final long theFrame) {
+        return myTimes[(int) theFrame & myMask];
+    }
+
+    /**
+     * @param theTrack The track, 0 for F0 up to 4 for F4.
+     * @param theFrame The frame number, within the last {@link #getCapacity()} frames.
+     * @return Returns the frequency in Hz, NaN where the frame had none.
+     */
+    public double getFrequency(final int theTrack, final long theFrame) {
+        return myTracks[theTrack][(int) theFrame & myMask];
+    }
+
+    /**
+     * @param theFrame The frame number, within the last {@link #getCapacity()} frames.
+     * @return Returns the capture-to-result delay in nanoseconds.
+     */
+    public long getLatency(final long theFrame) {
+        return myLatencies[(int) theFrame & myMask];
+    }
+}
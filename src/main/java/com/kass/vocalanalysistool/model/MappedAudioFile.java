@@ -0,0 +1,649 @@
+package com.kass.vocalanalysistool.model;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * <p>A [.wav] or [.aiff] file whose sample data is memory-mapped rather than read.</p>
+ *
+ * <p>Only the chunk headers are read when the file is opened; the data chunk is mapped in
+ * segments of at most 1 GiB and decoded one window at a time, so an hour-long recording
+ * opens instantly and costs no heap beyond the windows the caller asks for. RIFF/WAVE
+ * (including WAVE_FORMAT_EXTENSIBLE and RF64 for files over 4 GB) and AIFF/AIFC are
+ * supported with 8/16/24/32-bit integer or 32/64-bit float samples.</p>
+ *
+ * <p>The mappings stay valid after the file channel is closed. {@link #close()} unmaps them
+ * right away, so the file can be deleted (e.g. on Windows) and the address space is not held
+ * until the next garbage collection; the file must not be read afterward.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class MappedAudioFile implements SampleSource {
+
+    /**
+     * The largest number of bytes mapped by one buffer.
+     */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    /**
+     * The WAVE format tag of integer PCM.
+     */
+    private static final int WAVE_PCM = 1;
+
+    /**
+     * The WAVE format tag of IEEE float samples.
+     */
+    private static final int WAVE_FLOAT = 3;
+
+    /**
+     * The WAVE format tag whose real format is in the sub-format GUID.
+     */
+    private static final int WAVE_EXTENSIBLE = 0xFFFE;
+
+    /**
+     * The size of an RF64 data chunk whose real size is in the ds64 chunk.
+     */
+    private static final long RF64_PLACEHOLDER = 0xFFFFFFFFL;
+
+    /**
+     * The logger object for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Mapped Audio File");
+
+    /**
+     * The sampling frequency in Hz.
+     */
+    private final double mySampleRate;
+
+    /**
+     * The number of interleaved channels.
+     */
+    private final int myChannels;
+
+    /**
+     * The number of bytes of one sample of one channel.
+     */
+    private final int myBytesPerSample;
+
+    /**
+     * True if the samples are IEEE floats.
+     */
+    private final boolean myFloat;
+
+    /**
+     * True if 8-bit samples are unsigned (WAVE), false if signed (AIFF).
+     */
+    private final boolean myUnsigned8;
+
+    /**
+     * The number of complete frames in the data chunk.
+     */
+    private final long myFrameCount;
+
+    /**
+     * The number of frames covered by each mapped segment.
+     */
+    private final long myFramesPerSegment;
+
+    /**
+     * The mapped segments of the data chunk, in the byte order of the file.
+     */
+    private final ByteBuffer[] mySegments;
+
+    /**
+     * Set once the mappings were released.
+     */
+    private volatile boolean myClosed;
+
+    /**
+     * Constructor for the mapped file.
+     *
+     * @param theChannel  The open file channel.
+     * @param theFormat   The parsed format and data chunk location.
+     * @throws IOException Thrown if the data chunk can not be mapped.
+     */
+    private MappedAudioFile(final FileChannel theChannel, final Format theFormat)
+            throws IOException {
+        mySampleRate = theFormat.mySampleRate;
+        myChannels = theFormat.myChannels;
+        myBytesPerSample = theFormat.myBitsPerSample / 8;
+        myFloat = theFormat.myFloat;
+        myUnsigned8 = theFormat.myUnsigned8;
+
+        final int frameSize = myChannels * myBytesPerSample;
+        final long available = Math.max(0, theChannel.size() - theFormat.myDataOffset);
+        long dataBytes = Math.min(theFormat.myDataSize, available);
+        long frames = dataBytes / frameSize;
+        if (theFormat.myFrameCount >= 0) {
+            frames = Math.min(frames, theFormat.myFrameCount);
+        }
+        myFrameCount = frames;
+        dataBytes = frames * frameSize;
+
+        myFramesPerSegment = SEGMENT_BYTES / frameSize;
+        final int segments = (int) ((frames + myFramesPerSegment - 1) / myFramesPerSegment);
+        mySegments = new ByteBuffer[segments];
+        final ByteOrder order = theFormat.myBigEndian ? ByteOrder.BIG_ENDIAN
+                : ByteOrder.LITTLE_ENDIAN;
+        for (int s = 0; s < segments; s++) {
+            final long start = s * myFramesPerSegment * frameSize;
+            final long length = Math.min(myFramesPerSegment * frameSize, dataBytes - start);
+            final MappedByteBuffer segment = theChannel.map(FileChannel.MapMode.READ_ONLY,
+                    theFormat.myDataOffset + start, length);
+            mySegments[s] = segment.order(order);
+        }
+    }
+
+    /**
+     * Opens a [.wav] or [.aiff] file and maps its sample data.
+     *
+     * @param theFile The path of the audio file.
+     * @return Returns the mapped file.
+     * @throws IOException                   Thrown if the file can not be read.
+     * @throws UnsupportedAudioFileException Thrown if the file is not a WAVE or AIFF file or
+     *                                       its samples are compressed.
+     */
+    public static MappedAudioFile open(final Path theFile)
+            throws IOException, UnsupportedAudioFileException {
+        try (final FileChannel channel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+            if (channel.size() < 12) {
+                throw new UnsupportedAudioFileException("Not a WAVE or AIFF file: " + theFile);
+            }
+            final ByteBuffer header = ByteBuffer.allocate(12);
+            readFully(channel, header, 0);
+            final String form = fourCc(header, 0);
+            final String type = fourCc(header, 8);
+            final Format format;
+            if (("RIFF".equals(form) || "RF64".equals(form)) && "WAVE".equals(type)) {
+                format = parseWave(channel);
+            } else if ("FORM".equals(form) && ("AIFF".equals(type) || "AIFC".equals(type))) {
+                format = parseAiff(channel, "AIFC".equals(type));
+            } else {
+                throw new UnsupportedAudioFileException("Not a WAVE or AIFF file: " + theFile);
+            }
+            return new MappedAudioFile(channel, format);
+        }
+    }
+
+    /**
+     * Walks the chunks of a RIFF/WAVE file.
+     *
+     * @param theChannel The open file channel.
+     * @return Returns the format and data chunk location.
+     * @throws IOException                   Thrown if the file can not be read.
+     * @throws UnsupportedAudioFileException Thrown if the chunks are missing or unsupported.
+     */
+    private static Format parseWave(final FileChannel theChannel)
+            throws IOException, UnsupportedAudioFileException {
+        final Format format = new Format();
+        format.myBigEndian = false;
+        format.myUnsigned8 = true;
+        long rf64DataSize = -1;
+        boolean hasFormat = false;
+        final ByteBuffer chunk = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 12;
+
+        while (position + 8 <= theChannel.size()) {
+            chunk.clear();
+            readFully(theChannel, chunk, position);
+            final String id = fourCc(chunk, 0);
+            final long size = Integer.toUnsignedLong(chunk.getInt(4));
+            final long body = position + 8;
+
+            if ("fmt ".equals(id)) {
+                requireSize(id, size, 16);
+                final ByteBuffer fmt = ByteBuffer.allocate((int) Math.min(size, 40))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                readFully(theChannel, fmt, body);
+                int tag = fmt.getShort(0) & 0xFFFF;
+                format.myChannels = fmt.getShort(2) & 0xFFFF;
+                format.mySampleRate = Integer.toUnsignedLong(fmt.getInt(4));
+                format.myBitsPerSample = fmt.getShort(14) & 0xFFFF;
+                if (tag == WAVE_EXTENSIBLE && size >= 26) {
+                    // the first two bytes of the sub-format GUID are the real format tag
+                    tag = fmt.getShort(24) & 0xFFFF;
+                }
+                if (tag != WAVE_PCM && tag != WAVE_FLOAT) {
+                    throw new UnsupportedAudioFileException("Unsupported WAVE format " + tag);
+                }
+                format.myFloat = tag == WAVE_FLOAT;
+                hasFormat = true;
+            } else if ("ds64".equals(id)) {
+                requireSize(id, size, 16);
+                final ByteBuffer ds64 = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(theChannel, ds64, body);
+                rf64DataSize = ds64.getLong(8);
+            } else if ("data".equals(id)) {
+                if (!hasFormat) {
+                    throw new UnsupportedAudioFileException("The data chunk precedes fmt");
+                }
+                format.myDataOffset = body;
+                // recorders that were cut off leave the placeholder or zero behind
+                format.myDataSize = size == RF64_PLACEHOLDER && rf64DataSize >= 0
+                        ? rf64DataSize
+                        : size == 0 || size == RF64_PLACEHOLDER ? Long.MAX_VALUE : size;
+                return format.validate();
+            }
+            position = body + size + (size & 1);
+        }
+        throw new UnsupportedAudioFileException("The WAVE file has no data chunk");
+    }
+
+    /**
+     * Walks the chunks of an AIFF or AIFC file.
+     *
+     * @param theChannel The open file channel.
+     * @param theAifc    True if the form type is AIFC.
+     * @return Returns the format and data chunk location.
+     * @throws IOException                   Thrown if the file can not be read.
+     * @throws UnsupportedAudioFileException Thrown if the chunks are missing or unsupported.
+     */
+    private static Format parseAiff(final FileChannel theChannel, final boolean theAifc)
+            throws IOException, UnsupportedAudioFileException {
+        final Format format = new Format();
+        format.myBigEndian = true;
+        boolean hasFormat = false;
+        long dataOffset = -1;
+        long dataSize = 0;
+        final ByteBuffer chunk = ByteBuffer.allocate(8);
+        long position = 12;
+
+        while (position + 8 <= theChannel.size()) {
+            chunk.clear();
+            readFully(theChannel, chunk, position);
+            final String id = fourCc(chunk, 0);
+            final long size = Integer.toUnsignedLong(chunk.getInt(4));
+            final long body = position + 8;
+
+            if ("COMM".equals(id)) {
+                requireSize(id, size, 18);
+                final ByteBuffer comm = ByteBuffer.allocate((int) Math.min(size, 22));
+                readFully(theChannel, comm, body);
+                format.myChannels = comm.getShort(0) & 0xFFFF;
+                format.myFrameCount = Integer.toUnsignedLong(comm.getInt(2));
+                format.myBitsPerSample = ((comm.getShort(6) & 0xFFFF) + 7) / 8 * 8;
+                format.mySampleRate = extendedToDouble(comm, 8);
+                if (theAifc && size >= 22) {
+                    final String compression = fourCc(comm, 18);
+                    switch (compression) {
+                        case "NONE", "twos" -> { }
+                        case "sowt" -> format.myBigEndian = false;
+                        case "fl32", "FL32", "fl64", "FL64" -> format.myFloat = true;
+                        default -> throw new UnsupportedAudioFileException(
+                                "Unsupported AIFC compression " + compression);
+                    }
+                }
+                hasFormat = true;
+            } else if ("SSND".equals(id)) {
+                if (size != 0) {
+                    requireSize(id, size, 8);
+                }
+                final ByteBuffer ssnd = ByteBuffer.allocate(4);
+                readFully(theChannel, ssnd, body);
+                dataOffset = body + 8 + Integer.toUnsignedLong(ssnd.getInt(0));
+                if (size != 0 && dataOffset > body + size) {
+                    throw new UnsupportedAudioFileException(
+                            "The SSND offset lies beyond the chunk");
+                }
+                dataSize = size == 0 ? Long.MAX_VALUE : body + size - dataOffset;
+            }
+            if (hasFormat && dataOffset >= 0) {
+                format.myDataOffset = dataOffset;
+                format.myDataSize = dataSize;
+                return format.validate();
+            }
+            position = body + size + (size & 1);
+        }
+        throw new UnsupportedAudioFileException("The AIFF file has no COMM or SSND chunk");
+    }
+
+    /**
+     * Checks that a chunk holds the fields read from it.
+     *
+     * @param theId      The chunk id.
+     * @param theSize    The size of the chunk body.
+     * @param theMinimum The smallest valid size.
+     * @throws UnsupportedAudioFileException Thrown if the chunk is too short.
+     */
+    private static void requireSize(final String theId, final long theSize,
+                                    final int theMinimum) throws UnsupportedAudioFileException {
+        if (theSize < theMinimum) {
+            throw new UnsupportedAudioFileException("The " + theId.trim() + " chunk is "
+                    + theSize + " bytes, at least " + theMinimum + " are needed");
+        }
+    }
+
+    /**
+     * Decodes an 80-bit IEEE extended float, the AIFF sample rate.
+     *
+     * @param theBuffer The buffer holding the value.
+     * @param theIndex  The index of the first byte.
+     * @return Returns the value as a double.
+     */
+    private static double extendedToDouble(final ByteBuffer theBuffer, final int theIndex) {
+        final int exponent = (theBuffer.getShort(theIndex) & 0x7FFF) - 16383;
+        final long mantissa = theBuffer.getLong(theIndex + 2);
+        return Math.scalb((double) (mantissa >>> 1), exponent - 62);
+    }
+
+    /**
+     * Reads four ASCII characters.
+     *
+     * @param theBuffer The buffer.
+     * @param theIndex  The index of the first character.
+     * @return Returns the four character code.
+     */
+    private static String fourCc(final ByteBuffer theBuffer, final int theIndex) {
+        return new String(theBuffer.array(), theIndex, 4, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Fills the buffer from the given position of the channel.
+     *
+     * @param theChannel  The open file channel.
+     * @param theBuffer   The buffer to fill.
+     * @param thePosition The position in the file.
+     * @throws IOException Thrown if the file ends before the buffer is full.
+     */
+    private static void readFully(final FileChannel theChannel, final ByteBuffer theBuffer,
+                                  final long thePosition) throws IOException {
+        long position = thePosition;
+        while (theBuffer.hasRemaining()) {
+            final int read = theChannel.read(theBuffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the audio file header");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Decodes a window of frames and mixes its channels down to mono.
+     *
+     * @param theFrame  The first frame to read.
+     * @param theOut    The array receiving the samples in [-1, 1].
+     * @param theOffset The index of the first sample written.
+     * @param theLength The number of frames wanted.
+     * @return Returns the number of frames read; fewer than asked at the end of the file.
+     */
+    @Override
+    public int read(final long theFrame, final float[] theOut, final int theOffset,
+                    final int theLength) {
+        if (theFrame < 0 || theOffset < 0 || theLength < 0
+                || theOffset + theLength > theOut.length) {
+            throw new IndexOutOfBoundsException("Invalid window " + theFrame + "+" + theLength);
+        }
+        if (myClosed) {
+            throw new IllegalStateException("The audio file is closed");
+        }
+        final int total = (int) Math.max(0, Math.min(theLength, myFrameCount - theFrame));
+        int done = 0;
+        while (done < total) {
+            final long frame = theFrame + done;
+            final ByteBuffer segment = mySegments[(int) (frame / myFramesPerSegment)];
+            final int first = (int) (frame % myFramesPerSegment);
+            final int count = (int) Math.min(total - done, myFramesPerSegment - first);
+            decode(segment, first, theOut, theOffset + done, count);
+            done += count;
+        }
+        return total;
+    }
+
+    /**
+     * Decodes frames that all lie in one segment.
+     *
+     * @param theSegment The mapped segment.
+     * @param theFirst   The first frame relative to the segment.
+     * @param theOut     The array receiving the samples.
+     * @param theOffset  The index of the first sample written.
+     * @param theCount   The number of frames.
+     */
+    private void decode(final ByteBuffer theSegment, final int theFirst, final float[] theOut,
+                        final int theOffset, final int theCount) {
+        final int width = myBytesPerSample;
+        final int frameSize = width * myChannels;
+        final float gain = 1f / myChannels;
+        final boolean bigEndian = theSegment.order() == ByteOrder.BIG_ENDIAN;
+
+        for (int i = 0; i < theCount; i++) {
+            int position = (theFirst + i) * frameSize;
+            float sum = 0;
+            for (int c = 0; c < myChannels; c++, position += width) {
+                if (myFloat) {
+                    sum += width == 4 ? theSegment.getFloat(position)
+                            : (float) theSegment.getDouble(position);
+                    continue;
+                }
+                switch (width) {
+                    case 1 -> sum += (myUnsigned8
+                            ? (theSegment.get(position) & 0xFF) - 128
+                            : theSegment.get(position)) / 128f;
+                    case 2 -> sum += theSegment.getShort(position) / 32768f;
+                    case 3 -> {
+                        final int b0 = theSegment.get(position) & 0xFF;
+                        final int b1 = theSegment.get(position + 1) & 0xFF;
+                        final int b2 = theSegment.get(position + 2);
+                        final int value = bigEndian ? (b0 << 24 | b1 << 16 | (b2 & 0xFF) << 8)
+                                : (b2 << 24 | b1 << 16 | b0 << 8);
+                        // the sample sits in the top 24 bits, keeping its sign
+                        sum += (value >> 8) / 8388608f;
+                    }
+                    default -> sum += theSegment.getInt(position) / 2147483648f;
+                }
+            }
+            theOut[theOffset + i] = sum * gain;
+        }
+    }
+
+    /**
+     * Decodes the whole file into a mono signal.
+     *
+     * @return Returns the audio signal.
+     * @throws IOException Thrown if the file has more frames than an array can hold.
+     */
+    public AudioSignal toSignal() throws IOException {
+        if (myFrameCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("The recording is too long to decode at once: "
+                    + myFrameCount + " frames");
+        }
+        final float[] samples = new float[(int) myFrameCount];
+        read(0, samples, 0, samples.length);
+        return new AudioSignal(samples, mySampleRate);
+    }
+
+    /**
+     * Unmaps the sample data. Every read must have returned before; reading afterward
+     * throws an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        if (myClosed) {
+            return;
+        }
+        myClosed = true;
+        for (int s = 0; s < mySegments.length; s++) {
+            Unmapper.unmap(mySegments[s]);
+            mySegments[s] = null;
+        }
+    }
+
+    /**
+     * @return Returns the sampling frequency in Hz.
+     */
+    @Override
+    public double getSampleRate() {
+        return mySampleRate;
+    }
+
+    /**
+     * @return Returns the number of channels mixed into each sample.
+     */
+    public int getChannels() {
+        return myChannels;
+    }
+
+    /**
+     * @return Returns the number of bits of each sample of one channel.
+     */
+    public int getBitsPerSample() {
+        return myBytesPerSample * 8;
+    }
+
+    /**
+     * @return Returns true if the samples are IEEE floats.
+     */
+    public boolean isFloat() {
+        return myFloat;
+    }
+
+    /**
+     * @return Returns the number of frames.
+     */
+    @Override
+    public long getFrameCount() {
+        return myFrameCount;
+    }
+
+    /**
+     * @return Returns the duration of the recording in seconds.
+     */
+    public double getDuration() {
+        return myFrameCount / mySampleRate;
+    }
+
+    /**
+     * The fields collected while walking the chunks.
+     */
+    private static final class Format {
+
+        /**
+         * The sampling frequency in Hz.
+         */
+        private double mySampleRate;
+
+        /**
+         * The number of channels.
+         */
+        private int myChannels;
+
+        /**
+         * The bits of each sample, rounded up to whole bytes.
+         */
+        private int myBitsPerSample;
+
+        /**
+         * True if the samples are IEEE floats.
+         */
+        private boolean myFloat;
+
+        /**
+         * True if 8-bit samples are unsigned.
+         */
+        private boolean myUnsigned8;
+
+        /**
+         * True if the samples are big-endian.
+         */
+        private boolean myBigEndian;
+
+        /**
+         * The number of frames declared by the header, or -1 if it declares none.
+         */
+        private long myFrameCount = -1;
+
+        /**
+         * The offset of the first sample in the file.
+         */
+        private long myDataOffset;
+
+        /**
+         * The declared size of the sample data in bytes.
+         */
+        private long myDataSize;
+
+        /**
+         * Checks that the format can be decoded.
+         *
+         * @return Returns this format.
+         * @throws UnsupportedAudioFileException Thrown if the sample layout is unsupported.
+         */
+        private Format validate() throws UnsupportedAudioFileException {
+            final boolean validWidth = myFloat
+                    ? myBitsPerSample == 32 || myBitsPerSample == 64
+                    : myBitsPerSample >= 8 && myBitsPerSample <= 32 && myBitsPerSample % 8 == 0;
+            if (!validWidth || myChannels < 1 || !(mySampleRate > 0)) {
+                throw new UnsupportedAudioFileException("Unsupported sample layout: "
+                        + myChannels + " channels of " + myBitsPerSample + " bit "
+                        + (myFloat ? "float" : "integer") + " at " + mySampleRate + " Hz");
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Releases mappings before they are garbage collected, through sun.misc.Unsafe, the only
+     * way the JDK offers without the preview foreign memory API.
+     */
+    private static final class Unmapper {
+
+        /**
+         * Unsafe.invokeCleaner bound to the unsafe instance; null if it is not accessible,
+         * which leaves the mappings to the garbage collector.
+         */
+        private static final MethodHandle INVOKE_CLEANER = find();
+
+        /**
+         * Holder class.
+         */
+        private Unmapper() {
+        }
+
+        /**
+         * @return Returns the bound invokeCleaner method, or null.
+         */
+        private static MethodHandle find() {
+            try {
+                final Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+                final Field instance = unsafe.getDeclaredField("theUnsafe");
+                instance.setAccessible(true);
+                return MethodHandles.lookup().findVirtual(unsafe, "invokeCleaner",
+                        MethodType.methodType(void.class, ByteBuffer.class))
+                        .bindTo(instance.get(null));
+            } catch (final ReflectiveOperationException | RuntimeException theException) {
+                MY_LOGGER.log(Level.FINE, "Mappings are released by the garbage collector",
+                        theException);
+                return null;
+            }
+        }
+
+        /**
+         * Unmaps a mapped buffer.
+         *
+         * @param theBuffer The buffer; never used again.
+         */
+        private static void unmap(final ByteBuffer theBuffer) {
+            if (INVOKE_CLEANER == null || theBuffer == null || !theBuffer.isDirect()) {
+                return;
+            }
+            try {
+                INVOKE_CLEANER.invokeExact(theBuffer);
+            } catch (final Throwable theException) {
+                MY_LOGGER.log(Level.WARNING, "Unable to unmap the audio file", theException);
+            }
+        }
+    }
+}
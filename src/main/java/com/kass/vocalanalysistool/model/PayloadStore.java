@@ -0,0 +1,242 @@
+package com.kass.vocalanalysistool.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Keeps the track payloads of large sessions in files next to the database instead of in
+ * their user_formants row, so the rows stay small and a query that walks the table does not
+ * pull megabytes of tracks through the page cache.</p>
+ *
+ * <p>A payload holds the BLOB columns of one row (times, F0 - F4 and the legacy plot image)
+ * in one file named after the SHA-256 of its content, so identical analyses share a file.
+ * The row keeps the hash. Files are written to a temporary name and moved into place, so a
+ * reader never sees a partial file.</p>
+ *
+ * <p>Writers hold {@link #lock()} from writing the file until the row referencing it is
+ * committed, and {@link #sweep(Set)} holds it while it deletes the files no row references,
+ * so a file is never deleted between being written and being referenced.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+final class PayloadStore {
+
+    /**
+     * The index of the time track in a payload.
+     */
+    static final int TIME = 0;
+
+    /**
+     * The index of the F0 track in a payload; F1 - F4 follow.
+     */
+    static final int F0 = 1;
+
+    /**
+     * The index of the plot image in a payload.
+     */
+    static final int PLOT = 6;
+
+    /**
+     * The number of columns of a payload.
+     */
+    static final int COLUMNS = 7;
+
+    /**
+     * The first four bytes of a payload file ("VATP").
+     */
+    private static final int MAGIC = 0x56415450;
+
+    /**
+     * The stored length of a NULL column.
+     */
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * The names of payload files.
+     */
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    /**
+     * The directory holding the payload files.
+     */
+    private final Path myDirectory;
+
+    /**
+     * Held from writing a payload until its row is committed, and while sweeping.
+     */
+    private final ReentrantLock myLock = new ReentrantLock();
+
+    /**
+     * Constructor for the store. The directory is created with the first payload.
+     *
+     * @param theDirectory The directory holding the payload files.
+     */
+    PayloadStore(final Path theDirectory) {
+        myDirectory = theDirectory;
+    }
+
+    /**
+     * Blocks writers and sweeps; call before {@link #write(byte[][])} and unlock once the row
+     * referencing the payload is committed.
+     */
+    void lock() {
+        myLock.lock();
+    }
+
+    /**
+     * Releases {@link #lock()}.
+     */
+    void unlock() {
+        myLock.unlock();
+    }
+
+    /**
+     * Stores a payload unless a file with the same content exists.
+     *
+     * @param theColumns The {@value #COLUMNS} columns; null entries are kept as NULL.
+     * @return Returns the hash that names the payload.
+     * @throws IOException Thrown if the file can not be written.
+     */
+    String write(final byte[][] theColumns) throws IOException {
+        final byte[] packed = pack(theColumns);
+        final String hash = HexFormat.of().formatHex(newDigest().digest(packed));
+        final Path file = resolve(hash);
+        if (!Files.exists(file)) {
+            Files.createDirectories(file.getParent());
+            final Path temp = Files.createTempFile(file.getParent(), hash, ".part");
+            try {
+                Files.write(temp, packed);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Reads a payload.
+     *
+     * @param theHash The hash returned by {@link #write(byte[][])}.
+     * @return Returns the {@value #COLUMNS} columns; NULL columns are null.
+     * @throws IOException Thrown if the file is missing or damaged.
+     */
+    byte[][] read(final String theHash) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(resolve(theHash)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a payload file: " + theHash);
+            }
+            final byte[][] columns = new byte[COLUMNS][];
+            for (int c = 0; c < COLUMNS; c++) {
+                final int length = buffer.getInt();
+                if (length != NULL_LENGTH) {
+                    columns[c] = new byte[length];
+                    buffer.get(columns[c]);
+                }
+            }
+            return columns;
+        } catch (final RuntimeException theException) {
+            throw new IOException("Damaged payload file: " + theHash, theException);
+        }
+    }
+
+    /**
+     * Deletes the payload files no row references, the temporary files of writes that did
+     * not finish and the directories left empty. Writers are blocked meanwhile.
+     *
+     * @param theReferenced The hashes still referenced; read under {@link #lock()}.
+     * @return Returns the number of deleted files.
+     * @throws IOException Thrown if the directory can not be listed.
+     */
+    int sweep(final Set<String> theReferenced) throws IOException {
+        if (!Files.isDirectory(myDirectory)) {
+            return 0;
+        }
+        int deleted = 0;
+        try (final DirectoryStream<Path> prefixes = Files.newDirectoryStream(myDirectory)) {
+            for (final Path prefix : prefixes) {
+                if (!Files.isDirectory(prefix)) {
+                    continue;
+                }
+                boolean empty = true;
+                try (final DirectoryStream<Path> files = Files.newDirectoryStream(prefix)) {
+                    for (final Path file : files) {
+                        if (theReferenced.contains(file.getFileName().toString())) {
+                            empty = false;
+                        } else if (Files.deleteIfExists(file)) {
+                            deleted++;
+                        }
+                    }
+                }
+                if (empty) {
+                    Files.deleteIfExists(prefix);
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * @param theHash The hash of a payload.
+     * @return Returns the file of the payload, in a directory named after the first two hex
+     * digits so no directory grows too large.
+     * @throws IOException Thrown if the text is not a hash (e.g. a damaged row).
+     */
+    private Path resolve(final String theHash) throws IOException {
+        if (theHash == null || !HASH.matcher(theHash).matches()) {
+            throw new IOException("Not a payload hash: " + theHash);
+        }
+        return myDirectory.resolve(theHash.substring(0, 2)).resolve(theHash);
+    }
+
+    /**
+     * @param theColumns The columns.
+     * @return Returns the magic number followed by each column as its little-endian int32
+     * length (-1 for NULL) and its bytes.
+     */
+    private static byte[] pack(final byte[][] theColumns) {
+        if (theColumns.length != COLUMNS) {
+            throw new IllegalArgumentException("A payload has " + COLUMNS + " columns");
+        }
+        int size = Integer.BYTES * (1 + COLUMNS);
+        for (final byte[] column : theColumns) {
+            size += column == null ? 0 : column.length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        for (final byte[] column : theColumns) {
+            if (column == null) {
+                buffer.putInt(NULL_LENGTH);
+            } else {
+                buffer.putInt(column.length).put(column);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return Returns a new SHA-256 digest.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException theException) {
+            throw new IllegalStateException("SHA-256 is not available", theException);
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.Arrays;
+
+/**
+ * <p>Chooses one pitch candidate per frame with praat's Viterbi path finder
+ * ({@code Pitch_pathFinder}): the path through the candidates of {@link PitchTracker} that
+ * maximizes their strengths, less an octave cost for low candidates, a cost for every octave
+ * jumped between two frames and a cost for every voiced / unvoiced switch. A single frame
+ * whose subharmonic peak happens to be the highest therefore stays on the pitch of its
+ * neighbors instead of dropping an octave.</p>
+ *
+ * <p>The frames are added in time order. {@link #settle(Decision)} hands out the oldest
+ * frames as soon as every path still open runs through the same candidate of a frame; no
+ * later frame can change them, so deciding them early gives the same path as deciding the
+ * whole recording at once. {@link #finish(Decision)} decides the rest. Only the undecided
+ * frames are kept, which in speech are a few dozen.</p>
+ *
+ * <p>A path finder is not thread safe.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class PitchPathFinder {
+
+    /**
+     * Praat's default octave jump cost, per octave between two frames 10 ms apart.
+     */
+    private static final double OCTAVE_JUMP_COST = 0.35;
+
+    /**
+     * Praat's default voiced / unvoiced cost, per switch between two frames 10 ms apart.
+     */
+    private static final double VOICED_UNVOICED_COST = 0.14;
+
+    /**
+     * The time step the costs above are given for, in seconds.
+     */
+    private static final double COST_TIME_STEP = 0.01;
+
+    /**
+     * The number of undecided frames room is made for at first.
+     */
+    private static final int INITIAL_FRAMES = 64;
+
+    /**
+     * The octave jump cost scaled to the time step.
+     */
+    private final double myOctaveJumpCost;
+
+    /**
+     * The voiced / unvoiced cost scaled to the time step.
+     */
+    private final double myVoicedUnvoicedCost;
+
+    /**
+     * The pitch ceiling in Hz, the reference of the octave cost.
+     */
+    private final double myCeiling;
+
+    /**
+     * The candidate frequencies of the undecided frames, {@link PitchTracker#MAX_CANDIDATES}
+     * per frame, in a circle.
+     */
+    private double[] myFrequencies;
+
+    /**
+     * The candidate strengths of the undecided frames.
+     */
+    private double[] myStrengths;
+
+    /**
+     * The best candidate of the previous frame to reach each candidate from.
+     */
+    private byte[] myBack;
+
+    /**
+     * The number of candidates of each undecided frame.
+     */
+    private int[] myCounts;
+
+    /**
+     * The slot of the oldest undecided frame.
+     */
+    private int myFirst;
+
+    /**
+     * The number of undecided frames.
+     */
+    private int mySize;
+
+    /**
+     * The score of the best path to each candidate of the newest frame.
+     */
+    private double[] myDelta = new double[PitchTracker.MAX_CANDIDATES];
+
+    /**
+     * The scores of the frame being added.
+     */
+    private double[] myNextDelta = new double[PitchTracker.MAX_CANDIDATES];
+
+    /**
+     * The candidate frequencies of the newest frame, kept after it is decided.
+     */
+    private final double[] myPreviousFrequencies = new double[PitchTracker.MAX_CANDIDATES];
+
+    /**
+     * The number of candidates of the newest frame; 0 before the first frame.
+     */
+    private int myPreviousCount;
+
+    /**
+     * The candidates still on an open path, while settling.
+     */
+    private final boolean[] myOpen = new boolean[PitchTracker.MAX_CANDIDATES];
+
+    /**
+     * The candidates reached from {@link #myOpen}, while settling.
+     */
+    private final boolean[] myReached = new boolean[PitchTracker.MAX_CANDIDATES];
+
+    /**
+     * The chosen candidate of each frame, while deciding.
+     */
+    private int[] myChosen;
+
+    /**
+     * Constructor for the path finder.
+     *
+     * @param theParams The analysis parameters.
+     */
+    public PitchPathFinder(final AnalysisParameters theParams) {
+        final double correction = COST_TIME_STEP / theParams.getTimeStep();
+        myOctaveJumpCost = OCTAVE_JUMP_COST * correction;
+        myVoicedUnvoicedCost = VOICED_UNVOICED_COST * correction;
+        myCeiling = theParams.getPitchCeiling();
+        allocate(INITIAL_FRAMES);
+    }
+
+    /**
+     * Tells whether any path could make the frame the tracker analyzed last voiced, so the
+     * work of frames that are unvoiced anyway can be skipped. A voiced candidate whose score
+     * is more than two voiced / unvoiced costs below the unvoiced one loses on every path to
+     * leaving the frame unvoiced, since the octave jump costs only add to its own.
+     *
+     * @param theTracker The tracker.
+     * @param theParams  The analysis parameters.
+     * @return Returns true if a voiced candidate may be chosen.
+     */
+    public static boolean canBeVoiced(final PitchTracker theTracker,
+                                      final AnalysisParameters theParams) {
+        final double switchCost = 2 * VOICED_UNVOICED_COST * COST_TIME_STEP
+                / theParams.getTimeStep();
+        final double threshold = theTracker.getCandidateStrength(0) - switchCost;
+        for (int c = 1; c < theTracker.getCandidateCount(); c++) {
+            if (getScore(theTracker.getCandidateFrequency(c),
+                    theTracker.getCandidateStrength(c), theParams.getPitchCeiling())
+                    >= threshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a frame.
+     *
+     * @param theFrequencies The candidate frequencies in Hz; the first is 0 (unvoiced).
+     * @param theStrengths   The candidate strengths.
+     * @param theOffset      The index of the first candidate in the arrays.
+     * @param theCount       The number of candidates, at least 1.
+     */
+    public void addFrame(final double[] theFrequencies, final double[] theStrengths,
+                         final int theOffset, final int theCount) {
+        final int slot = append(theCount);
+        final int base = slot * PitchTracker.MAX_CANDIDATES;
+        System.arraycopy(theFrequencies, theOffset, myFrequencies, base, theCount);
+        System.arraycopy(theStrengths, theOffset, myStrengths, base, theCount);
+        link(slot);
+    }
+
+    /**
+     * @return Returns the number of frames that are added but not decided yet.
+     */
+    public int getPending() {
+        return mySize;
+    }
+
+    /**
+     * Decides the oldest frames that every open path agrees on.
+     *
+     * @param theDecision Receives the decided frames, oldest first.
+     */
+    public void settle(final Decision theDecision) {
+        if (mySize == 0) {
+            return;
+        }
+        int frame = mySize - 1;
+        Arrays.fill(myOpen, false);
+        Arrays.fill(myOpen, 0, myCounts[slot(frame)], true);
+        int open = myCounts[slot(frame)];
+        while (open > 1 && frame > 0) {
+            final int slot = slot(frame);
+            Arrays.fill(myReached, false);
+            open = 0;
+            for (int c = 0; c < myCounts[slot]; c++) {
+                if (myOpen[c]) {
+                    final int back = myBack[slot * PitchTracker.MAX_CANDIDATES + c];
+                    if (!myReached[back]) {
+                        myReached[back] = true;
+                        open++;
+                    }
+                }
+            }
+            System.arraycopy(myReached, 0, myOpen, 0, myOpen.length);
+            frame--;
+        }
+        if (open == 1) {
+            int candidate = 0;
+            while (!myOpen[candidate]) {
+                candidate++;
+            }
+            decide(frame, candidate, theDecision);
+        }
+    }
+
+    /**
+     * Decides the remaining frames along the best path and empties the path finder.
+     *
+     * @param theDecision Receives the decided frames, oldest first.
+     */
+    public void finish(final Decision theDecision) {
+        if (mySize == 0) {
+            return;
+        }
+        final int last = mySize - 1;
+        int best = 0;
+        for (int c = 1; c < myCounts[slot(last)]; c++) {
+            if (myDelta[c] > myDelta[best]) {
+                best = c;
+            }
+        }
+        decide(last, best, theDecision);
+        myPreviousCount = 0;
+    }
+
+    /**
+     * Makes room for a frame at the end of the circle.
+     *
+     * @param theCount The number of candidates of the frame.
+     * @return Returns the slot of the frame.
+     */
+    private int append(final int theCount) {
+        if (theCount < 1 || theCount > PitchTracker.MAX_CANDIDATES) {
+            throw new IllegalArgumentException("Invalid candidate count: " + theCount);
+        }
+        if (mySize == myCounts.length) {
+            grow();
+        }
+        final int slot = slot(mySize++);
+        myCounts[slot] = theCount;
+        return slot;
+    }
+
+    /**
+     * Finds the best path to every candidate of the newest frame (the Viterbi step).
+     *
+     * @param theSlot The slot of the newest frame.
+     */
+    private void link(final int theSlot) {
+        final int base = theSlot * PitchTracker.MAX_CANDIDATES;
+        final int count = myCounts[theSlot];
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < count; c++) {
+            final double frequency = myFrequencies[base + c];
+            final double local = getScore(frequency, myStrengths[base + c], myCeiling);
+            double best = 0;
+            int back = 0;
+            if (myPreviousCount > 0) {
+                best = Double.NEGATIVE_INFINITY;
+                for (int p = 0; p < myPreviousCount; p++) {
+                    final double value = myDelta[p]
+                            - transitionCost(myPreviousFrequencies[p], frequency);
+                    if (value > best) {
+                        best = value;
+                        back = p;
+                    }
+                }
+            }
+            myNextDelta[c] = best + local;
+            myBack[base + c] = (byte) back;
+            max = Math.max(max, myNextDelta[c]);
+        }
+        // only the differences matter; keeps the scores of long recordings small
+        for (int c = 0; c < count; c++) {
+            myNextDelta[c] -= max;
+        }
+        final double[] delta = myDelta;
+        myDelta = myNextDelta;
+        myNextDelta = delta;
+        System.arraycopy(myFrequencies, base, myPreviousFrequencies, 0, count);
+        myPreviousCount = count;
+    }
+
+    /**
+     * Gets the cost of going from one candidate to the next.
+     *
+     * @param theFrom The frequency of the earlier candidate, 0 if unvoiced.
+     * @param theTo   The frequency of the later candidate, 0 if unvoiced.
+     * @return Returns the cost.
+     */
+    private double transitionCost(final double theFrom, final double theTo) {
+        if (theFrom <= 0 && theTo <= 0) {
+            return 0;
+        }
+        if (theFrom <= 0 || theTo <= 0) {
+            return myVoicedUnvoicedCost;
+        }
+        return myOctaveJumpCost * Math.abs(log2(theFrom / theTo));
+    }
+
+    /**
+     * Hands out the frames up to the given one along the path that ends in its candidate.
+     *
+     * @param theFrame     The newest frame decided, counted from the oldest undecided one.
+     * @param theCandidate The candidate chosen for it.
+     * @param theDecision  Receives the frames, oldest first.
+     */
+    private void decide(final int theFrame, final int theCandidate,
+                        final Decision theDecision) {
+        int candidate = theCandidate;
+        for (int frame = theFrame; frame >= 0; frame--) {
+            myChosen[frame] = candidate;
+            candidate = myBack[slot(frame) * PitchTracker.MAX_CANDIDATES + candidate];
+        }
+        for (int frame = 0; frame <= theFrame; frame++) {
+            final int index = slot(frame) * PitchTracker.MAX_CANDIDATES + myChosen[frame];
+            theDecision.decided(myFrequencies[index], myStrengths[index]);
+        }
+        myFirst = slot(theFrame + 1);
+        mySize -= theFrame + 1;
+    }
+
+    /**
+     * @param theFrame A frame counted from the oldest undecided one.
+     * @return Returns the slot of the frame.
+     */
+    private int slot(final int theFrame) {
+        return (myFirst + theFrame) & (myCounts.length - 1);
+    }
+
+    /**
+     * Doubles the room for undecided frames, keeping them in order.
+     */
+    private void grow() {
+        final double[] frequencies = myFrequencies;
+        final double[] strengths = myStrengths;
+        final byte[] back = myBack;
+        final int[] counts = myCounts;
+        final int first = myFirst;
+        allocate(2 * counts.length);
+        for (int frame = 0; frame < mySize; frame++) {
+            final int from = (first + frame) & (counts.length - 1);
+            final int to = frame * PitchTracker.MAX_CANDIDATES;
+            System.arraycopy(frequencies, from * PitchTracker.MAX_CANDIDATES, myFrequencies, to,
+                    PitchTracker.MAX_CANDIDATES);
+            System.arraycopy(strengths, from * PitchTracker.MAX_CANDIDATES, myStrengths, to,
+                    PitchTracker.MAX_CANDIDATES);
+            System.arraycopy(back, from * PitchTracker.MAX_CANDIDATES, myBack, to,
+                    PitchTracker.MAX_CANDIDATES);
+            myCounts[frame] = counts[from];
+        }
+    }
+
+    /**
+     * Allocates room for undecided frames and starts the circle at slot 0.
+     *
+     * @param theFrames The number of frames, a power of two.
+     */
+    private void allocate(final int theFrames) {
+        myFrequencies = new double[theFrames * PitchTracker.MAX_CANDIDATES];
+        myStrengths = new double[theFrames * PitchTracker.MAX_CANDIDATES];
+        myBack = new byte[theFrames * PitchTracker.MAX_CANDIDATES];
+        myCounts = new int[theFrames];
+        myChosen = new int[theFrames];
+        myFirst = 0;
+    }
+
+    /**
+     * Gets the score of a candidate on its own: its strength, less praat's octave cost for
+     * every octave a voiced candidate lies below the ceiling.
+     *
+     * @param theFrequency The frequency in Hz, 0 if unvoiced.
+     * @param theStrength  The strength.
+     * @param theCeiling   The pitch ceiling in Hz.
+     * @return Returns the score.
+     */
+    private static double getScore(final double theFrequency, final double theStrength,
+                                   final double theCeiling) {
+        return theFrequency <= 0 ? theStrength
+                : theStrength - PitchTracker.OCTAVE_COST * log2(theCeiling / theFrequency);
+    }
+
+    /**
+     * @param theValue The value.
+     * @return Returns the base 2 logarithm of the value.
+     */
+    private static double log2(final double theValue) {
+        return Math.log(theValue) / Math.log(2);
+    }
+
+    /**
+     * Receives the decided frames.
+     */
+    @FunctionalInterface
+    public interface Decision {
+
+        /**
+         * Called for every frame in time order.
+         *
+         * @param theFrequency The chosen frequency in Hz, 0 if the frame is unvoiced.
+         * @param theStrength  The strength of the chosen candidate.
+         */
+        void decided(double theFrequency, double theStrength);
+    }
+}
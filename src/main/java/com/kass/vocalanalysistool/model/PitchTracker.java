@@ -0,0 +1,360 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.Arrays;
+
+/**
+ * <p>Estimates the fundamental frequency (F0) of a single frame with the autocorrelation
+ * method (Boersma, 1993), the same method praat's "To Pitch (ac)" uses.</p>
+ *
+ * <p>Besides its own best guess every frame keeps praat's candidates: the unvoiced one and
+ * the strongest autocorrelation peaks, which {@link PitchPathFinder} chooses from with the
+ * frames around it.</p>
+ *
+ * <p>The tracker keeps its scratch buffers between calls, so analyzing a frame does not
+ * allocate. An instance is not thread safe; use one tracker per thread.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class PitchTracker {
+
+    /**
+     * The HNR value used for unvoiced frames (same as praat).
+     */
+    public static final double UNVOICED_DB = -200.0;
+
+    /**
+     * Number of pitch periods (of the pitch floor) that fit in an analysis window.
+     */
+    private static final double PERIODS_PER_WINDOW = 3.0;
+
+    /**
+     * Praat's default octave cost; favours higher pitch candidates slightly.
+     */
+    static final double OCTAVE_COST = 0.01;
+
+    /**
+     * Praat's default maximum number of candidates of a frame, the unvoiced one included.
+     */
+    public static final int MAX_CANDIDATES = 15;
+
+    /**
+     * The analysis parameters.
+     */
+    private final AnalysisParameters myParams;
+
+    /**
+     * The sampling frequency in Hz.
+     */
+    private final double mySampleRate;
+
+    /**
+     * The window length in samples.
+     */
+    private final int myWindowLength;
+
+    /**
+     * The smallest lag searched (pitch ceiling).
+     */
+    private final int myMinLag;
+
+    /**
+     * The largest lag searched (pitch floor).
+     */
+    private final int myMaxLag;
+
+    /**
+     * The hanning window.
+     */
+    private final double[] myWindow;
+
+    /**
+     * The normalized autocorrelation of the window itself.
+     */
+    private final double[] myWindowAutocorrelation;
+
+    /**
+     * The transform used for the autocorrelation.
+     */
+    private final Fft myFft;
+
+    /**
+     * Scratch buffer for the real parts.
+     */
+    private final double[] myReal;
+
+    /**
+     * Scratch buffer for the imaginary parts.
+     */
+    private final double[] myImag;
+
+    /**
+     * The frequency of the last analyzed frame, 0 if unvoiced.
+     */
+    private double myFrequency;
+
+    /**
+     * The autocorrelation strength of the last analyzed frame.
+     */
+    private double myStrength;
+
+    /**
+     * The candidate frequencies of the last analyzed frame; the first is 0 (unvoiced).
+     */
+    private final double[] myCandidateFrequencies = new double[MAX_CANDIDATES];
+
+    /**
+     * The candidate strengths of the last analyzed frame.
+     */
+    private final double[] myCandidateStrengths = new double[MAX_CANDIDATES];
+
+    /**
+     * The number of candidates of the last analyzed frame.
+     */
+    private int myCandidateCount;
+
+    /**
+     * Constructor for the pitch tracker.
+     *
+     * @param theSampleRate The sampling frequency in Hz.
+     * @param theParams     The analysis parameters.
+     */
+    public PitchTracker(final double theSampleRate, final AnalysisParameters theParams) {
+        myParams = theParams;
+        mySampleRate = theSampleRate;
+        myWindowLength = (int) Math.round(PERIODS_PER_WINDOW / theParams.getPitchFloor()
+                * theSampleRate);
+        myMinLag = Math.max(2, (int) Math.floor(theSampleRate / theParams.getPitchCeiling()));
+        myMaxLag = Math.min(myWindowLength / 2,
+                (int) Math.ceil(theSampleRate / theParams.getPitchFloor()));
+
+        myWindow = new double[myWindowLength];
+        for (int i = 0; i < myWindowLength; i++) {
+            myWindow[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * (i + 0.5) / myWindowLength);
+        }
+
+        myFft = new Fft(Fft.nextPowerOfTwo(myWindowLength + myMaxLag + 1));
+        myReal = new double[myFft.getSize()];
+        myImag = new double[myFft.getSize()];
+
+        // autocorrelation of the window, used to undo the window's taper (Boersma eq. 9)
+        myWindowAutocorrelation = new double[myMaxLag + 2];
+        System.arraycopy(myWindow, 0, myReal, 0, myWindowLength);
+        autocorrelate();
+        for (int lag = 0; lag < myWindowAutocorrelation.length; lag++) {
+            myWindowAutocorrelation[lag] = myReal[lag] / myReal[0];
+        }
+    }
+
+    /**
+     * @return Returns the window length in samples.
+     */
+    public int getWindowLength() {
+        return myWindowLength;
+    }
+
+    /**
+     * Analyzes the window that starts at the given sample.
+     *
+     * @param theSamples    The signal.
+     * @param theStart      The first sample of the window.
+     * @param theGlobalPeak The absolute peak of the whole signal (used for the silence gate).
+     * @return Returns true if the frame is voiced.
+     */
+    public boolean analyze(final float[] theSamples, final int theStart,
+                           final double theGlobalPeak) {
+        myFrequency = 0;
+        myStrength = 0;
+
+        final double mean = DspKernels.SELECTED.sum(theSamples, theStart, myWindowLength)
+                / myWindowLength;
+        final double localPeak = DspKernels.SELECTED.windowCentered(theSamples, theStart, mean,
+                myWindow, myReal, myWindowLength);
+        myCandidateCount = 1;
+        myCandidateFrequencies[0] = 0;
+        myCandidateStrengths[0] = getUnvoicedStrength(
+                theGlobalPeak > 0 ? localPeak / theGlobalPeak : 0);
+        if (localPeak == 0 || localPeak < myParams.getSilenceThreshold() * theGlobalPeak) {
+            return false;
+        }
+        Arrays.fill(myReal, myWindowLength, myReal.length, 0);
+        autocorrelate();
+
+        final double energy = myReal[0];
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double bestLag = 0;
+        double bestStrength = 0;
+        for (int lag = myMinLag; lag <= myMaxLag; lag++) {
+            final double prev = normalized(lag - 1, energy);
+            final double cur = normalized(lag, energy);
+            final double next = normalized(lag + 1, energy);
+            if (cur <= prev || cur < next) {
+                continue;
+            }
+            // parabolic interpolation around the local maximum
+            final double denom = prev - 2 * cur + next;
+            final double shift = denom == 0 ? 0 : 0.5 * (prev - next) / denom;
+            final double peak = Math.min(1.0, cur - 0.25 * (prev - next) * shift);
+            final double refinedLag = lag + shift;
+            final double score = peak - OCTAVE_COST
+                    * log2(myParams.getPitchFloor() * refinedLag / mySampleRate);
+            if (score > bestScore) {
+                bestScore = score;
+                bestLag = refinedLag;
+                bestStrength = peak;
+            }
+            addCandidate(mySampleRate / refinedLag, peak, score);
+        }
+
+        myStrength = Math.max(0, bestStrength);
+        if (bestLag <= 0 || bestStrength < myParams.getVoicingThreshold()) {
+            return false;
+        }
+        final double frequency = mySampleRate / bestLag;
+        if (frequency < myParams.getPitchFloor() || frequency > myParams.getPitchCeiling()) {
+            return false;
+        }
+        myFrequency = frequency;
+        return true;
+    }
+
+    /**
+     * Keeps a peak as a candidate if it is strong enough and in the pitch range. Once the
+     * candidates are full it replaces the weakest one, if that is weaker (as in praat).
+     *
+     * @param theFrequency The frequency of the peak in Hz.
+     * @param theStrength  The height of the peak.
+     * @param theScore     The height less the octave cost.
+     */
+    private void addCandidate(final double theFrequency, final double theStrength,
+                              final double theScore) {
+        if (theStrength <= 0.5 * myParams.getVoicingThreshold()
+                || theFrequency < myParams.getPitchFloor()
+                || theFrequency > myParams.getPitchCeiling()) {
+            return;
+        }
+        int place = myCandidateCount;
+        if (place == MAX_CANDIDATES) {
+            double weakest = theScore;
+            place = 0;
+            for (int i = 1; i < MAX_CANDIDATES; i++) {
+                final double score = myCandidateStrengths[i] - OCTAVE_COST
+                        * log2(myParams.getPitchFloor() / myCandidateFrequencies[i]);
+                if (score < weakest) {
+                    weakest = score;
+                    place = i;
+                }
+            }
+            if (place == 0) {
+                return;
+            }
+        } else {
+            myCandidateCount++;
+        }
+        myCandidateFrequencies[place] = theFrequency;
+        myCandidateStrengths[place] = theStrength;
+    }
+
+    /**
+     * Gets the strength of the unvoiced candidate: the voicing threshold, raised for frames
+     * that are quiet compared to the signal (praat's silence threshold).
+     *
+     * @param theIntensity The peak of the frame over the peak of the signal.
+     * @return Returns the strength.
+     */
+    private double getUnvoicedStrength(final double theIntensity) {
+        final double silence = myParams.getSilenceThreshold();
+        final double voicing = myParams.getVoicingThreshold();
+        final double quiet = silence <= 0 ? 0 : 2 - theIntensity / (silence / (1 + voicing));
+        return voicing + Math.max(0, quiet);
+    }
+
+    /**
+     * @return Returns the number of candidates of the last frame, at least the unvoiced one.
+     */
+    public int getCandidateCount() {
+        return myCandidateCount;
+    }
+
+    /**
+     * @param theCandidate The candidate, 0 for the unvoiced one.
+     * @return Returns the frequency of the candidate in Hz, 0 if unvoiced.
+     */
+    public double getCandidateFrequency(final int theCandidate) {
+        return myCandidateFrequencies[theCandidate];
+    }
+
+    /**
+     * @param theCandidate The candidate, 0 for the unvoiced one.
+     * @return Returns the strength of the candidate.
+     */
+    public double getCandidateStrength(final int theCandidate) {
+        return myCandidateStrengths[theCandidate];
+    }
+
+    /**
+     * @return Returns the frequency of the last frame in Hz, or 0 if it was unvoiced.
+     */
+    public double getFrequency() {
+        return myFrequency;
+    }
+
+    /**
+     * @return Returns the normalized autocorrelation peak of the last frame [0 - 1].
+     */
+    public double getStrength() {
+        return myStrength;
+    }
+
+    /**
+     * Gets the harmonics-to-noise ratio of the last frame from the autocorrelation peak.
+     *
+     * @return Returns the HNR in dB, or {@link #UNVOICED_DB} if the frame was unvoiced.
+     */
+    public double getHarmonicity() {
+        return myFrequency <= 0 ? UNVOICED_DB : toHarmonicity(myStrength);
+    }
+
+    /**
+     * Converts an autocorrelation peak to a harmonics-to-noise ratio.
+     *
+     * @param theStrength The normalized autocorrelation peak.
+     * @return Returns the HNR in dB, or {@link #UNVOICED_DB} if the peak is not positive.
+     */
+    static double toHarmonicity(final double theStrength) {
+        if (theStrength <= 0) {
+            return UNVOICED_DB;
+        }
+        final double r = Math.min(theStrength, 0.999999);
+        return 10 * Math.log10(r / (1 - r));
+    }
+
+    /**
+     * Gets the autocorrelation at the given lag corrected for the window taper.
+     *
+     * @param theLag    The lag in samples.
+     * @param theEnergy The autocorrelation at lag 0.
+     * @return Returns the normalized autocorrelation.
+     */
+    private double normalized(final int theLag, final double theEnergy) {
+        return myReal[theLag] / theEnergy / myWindowAutocorrelation[theLag];
+    }
+
+    /**
+     * Replaces the contents of the real scratch buffer with its autocorrelation.
+     */
+    private void autocorrelate() {
+        Arrays.fill(myImag, 0);
+        myFft.transform(myReal, myImag, false);
+        DspKernels.SELECTED.powerSpectrum(myReal, myImag, myReal.length);
+        myFft.transform(myReal, myImag, true);
+    }
+
+    /**
+     * @param theValue The value.
+     * @return Returns the base 2 logarithm of the value.
+     */
+    private static double log2(final double theValue) {
+        return Math.log(theValue) / Math.log(2);
+    }
+}
@@ -0,0 +1,378 @@
+package com.kass.vocalanalysistool.model;
+
+import com.kass.vocalanalysistool.common.Properties;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Prepares the python virtual environment the analysis script runs in.</p>
+ *
+ * <p>Running the setup script, pip and the import probe takes seconds and hits the
+ * network, so after a successful setup a fingerprint of the venv is stored next to it:
+ * the interpreter path, a hash of requirements.txt and the installed package versions.
+ * As long as the fingerprint matches, the setup is skipped entirely.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class PythonEnvironment {
+
+    /**
+     * The name of the fingerprint file inside the venv.
+     */
+    private static final String FINGERPRINT_FILE = ".vat_fingerprint";
+
+    /**
+     * The logger object for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Python Environment");
+
+    /**
+     * Used to execute property change events.
+     */
+    private final PropertyChangeSupport myChanges = new PropertyChangeSupport(this);
+
+    /**
+     * The directory the venv lives in.
+     */
+    private final Path myAppDir;
+
+    /**
+     * Constructor for the python environment.
+     *
+     * @param theAppDir The program install location; the venv is created at appDir\.venv.
+     */
+    public PythonEnvironment(final Path theAppDir) {
+        myAppDir = theAppDir;
+    }
+
+    /**
+     * Makes sure the venv is ready, running the setup only if the fingerprint changed.
+     *
+     * @return Returns the path of the venv python interpreter.
+     * @throws IOException Thrown if the setup fails.
+     */
+    @SuppressWarnings("try")
+    public Path ensureReady() throws IOException {
+        final Path venvPy = getInterpreter();
+        final String stored = readStoredFingerprint();
+        final boolean matches;
+        try (final StageMetrics.Span span = StageMetrics.start("python.fingerprint")) {
+            matches = stored != null && Files.exists(venvPy)
+                    && stored.equals(computeFingerprint());
+        }
+        if (matches) {
+            MY_LOGGER.info("Python environment fingerprint matches; skipping setup.");
+            fireProgress(0.95);
+            return venvPy;
+        }
+        MY_LOGGER.info("Python environment fingerprint changed or missing; running setup.");
+        setup();
+        Files.writeString(getFingerprintFile(), computeFingerprint(), StandardCharsets.UTF_8);
+        fireProgress(0.95);
+        return venvPy;
+    }
+
+    /**
+     * Forgets the stored fingerprint so the next {@link #ensureReady()} rebuilds the venv.
+     * Used when the script fails to import its packages.
+     */
+    public void invalidate() {
+        try {
+            Files.deleteIfExists(getFingerprintFile());
+        } catch (final IOException theException) {
+            MY_LOGGER.log(Level.WARNING, "Unable to delete the fingerprint", theException);
+        }
+    }
+
+    /**
+     * @return Returns the path of the venv python interpreter.
+     */
+    public Path getInterpreter() {
+        return myAppDir.resolve(".venv").resolve("Scripts").resolve("python.exe");
+    }
+
+    /**
+     * @return Returns the program install location.
+     */
+    public Path getAppDir() {
+        return myAppDir;
+    }
+
+    /**
+     * Runs the setup script, installs the requirements and probes matplotlib.
+     *
+     * @throws IOException Thrown if any of the steps fail.
+     */
+    @SuppressWarnings("try")
+    private void setup() throws IOException {
+        try {
+            final Path setupBat = extractResourceToTemp("/pythonInstall.bat", ".bat");
+
+            fireProgress(0.16);
+
+            // 1) Run setup in appDir so .venv is created at appDir\.venv
+            final ProcessBuilder setupPB = new ProcessBuilder("cmd.exe", "/c",
+                    setupBat.toString());
+            setupPB.directory(myAppDir.toFile());
+            setupPB.redirectErrorStream(true);
+            final int setupExit;
+            try (final StageMetrics.Span span = StageMetrics.start("python.install")) {
+                setupExit = runAndLog(setupPB.start(), "[setup] ");
+            }
+            if (setupExit != 0) {
+                throw new IOException("Environment setup failed (exit " + setupExit + ")");
+            }
+
+            fireProgress(0.32);
+
+            // 2) Resolve venv python; do not silently fall back
+            final Path venvPy = getInterpreter();
+            if (!Files.exists(venvPy)) {
+                throw new IOException("Venv python not found at " + venvPy
+                        + ". Ensure setup ran in " + myAppDir);
+            }
+            final String pythonExe = venvPy.toString();
+
+            fireProgress(0.48);
+
+            // 3) Ensure matplotlib is installed in the venv
+            final Path req = myAppDir.resolve("requirements.txt");
+            int code;
+            try (final StageMetrics.Span span = StageMetrics.start("python.pip")) {
+                if (Files.exists(req)) {
+                    MY_LOGGER.info("Installing requirements from: " + req);
+                    code = run(pythonExe, "-m", "pip", "install", "-r", req.toString());
+                    if (code != 0) {
+                        throw new IOException("pip install -r failed with code " + code);
+                    }
+                } else {
+                    // Minimal guarantee
+                    MY_LOGGER.info("requirements.txt not found in " + myAppDir
+                            + " — installing matplotlib explicitly.");
+                    code = run(pythonExe, "-m", "pip", "install", "matplotlib");
+                    if (code != 0) {
+                        throw new IOException("pip install matplotlib failed with code "
+                                + code);
+                    }
+                }
+            }
+
+            fireProgress(0.64);
+
+            // 4) Probe: show interpreter & matplotlib version (fail fast if missing)
+            try (final StageMetrics.Span span = StageMetrics.start("python.probe")) {
+                code = run(pythonExe, "-c",
+                        "import sys; print('[PyProbe] exe:', sys.executable); "
+                                + "import importlib, pkgutil; "
+                                + "m = importlib.util.find_spec('matplotlib'); "
+                                + "print('[PyProbe] matplotlib present:', bool(m)); "
+                                + "import matplotlib; print('[PyProbe] matplotlib version:', "
+                                + "matplotlib.__version__)");
+            }
+            if (code != 0) {
+                throw new IOException("Probe failed; matplotlib not importable.");
+            }
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Python setup interrupted", theException);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the venv as it currently is on disk. Only reads the
+     * requirements file and lists site-packages; no python process is started.
+     *
+     * @return Returns the fingerprint as "key=value" lines.
+     * @throws IOException Thrown if the files can not be read.
+     */
+    String computeFingerprint() throws IOException {
+        final Path req = myAppDir.resolve("requirements.txt");
+        final String reqHash = Files.exists(req) ? sha256(Files.readAllBytes(req)) : "none";
+        final List<String> packages = listInstalledPackages();
+
+        return "interpreter=" + getInterpreter().toAbsolutePath() + '\n'
+                + "requirements.sha256=" + reqHash + '\n'
+                + "packages=" + String.join(",", packages) + '\n';
+    }
+
+    /**
+     * Lists the installed packages from the names of the dist-info directories
+     * (e.g. "numpy-2.2.6").
+     *
+     * @return Returns the sorted "name-version" entries.
+     * @throws IOException Thrown if site-packages can not be listed.
+     */
+    private List<String> listInstalledPackages() throws IOException {
+        final List<String> packages = new ArrayList<>();
+        final Path sitePackages = myAppDir.resolve(".venv").resolve("Lib")
+                .resolve("site-packages");
+        if (!Files.isDirectory(sitePackages)) {
+            return packages;
+        }
+        try (final DirectoryStream<Path> dirs = Files.newDirectoryStream(sitePackages,
+                "*.dist-info")) {
+            for (final Path dir : dirs) {
+                final String name = dir.getFileName().toString();
+                packages.add(name.substring(0, name.length() - ".dist-info".length()));
+            }
+        }
+        Collections.sort(packages);
+        return packages;
+    }
+
+    /**
+     * @return Returns the stored fingerprint, or null if there is none.
+     */
+    private String readStoredFingerprint() {
+        final Path file = getFingerprintFile();
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (final IOException theException) {
+            MY_LOGGER.log(Level.WARNING, "Unable to read the fingerprint", theException);
+            return null;
+        }
+    }
+
+    /**
+     * @return Returns the path of the fingerprint file.
+     */
+    private Path getFingerprintFile() {
+        return myAppDir.resolve(".venv").resolve(FINGERPRINT_FILE);
+    }
+
+    /**
+     * Runs a short python/pip command and logs all output.
+     *
+     * @param theArgs The command line.
+     * @return Returns the exit code, -1 if the process could not be started.
+     * @throws InterruptedException Thrown if interrupted while waiting.
+     */
+    private int run(final String... theArgs) throws InterruptedException {
+        try {
+            return runAndLog(createProcess(new ProcessBuilder(theArgs), myAppDir), "[pip] ");
+        } catch (final IOException theException) {
+            MY_LOGGER.log(Level.SEVERE, "Subprocess failed: " + String.join(" ", theArgs),
+                    theException);
+            return -1;
+        }
+    }
+
+    /**
+     * Logs the output of the process and waits for it to exit.
+     *
+     * @param theProcess The process.
+     * @param thePrefix  The log line prefix.
+     * @return Returns the exit code.
+     * @throws IOException          Thrown if the output can not be read.
+     * @throws InterruptedException Thrown if interrupted while waiting.
+     */
+    private static int runAndLog(final Process theProcess, final String thePrefix)
+            throws IOException, InterruptedException {
+        try (final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(theProcess.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                MY_LOGGER.info(thePrefix + line);
+            }
+        }
+        return theProcess.waitFor();
+    }
+
+    /**
+     * Helper method to condense code. Gets the process object based on the process builder.
+     *
+     * @param theCommandArgs the arguments of which process builder is executing
+     * @param theAppDir      The path of the application directory
+     * @return Returns a process object to execute the commands.
+     * @throws IOException Thrown if the path is invalid.
+     */
+    public static Process createProcess(final ProcessBuilder theCommandArgs,
+                                        final Path theAppDir) throws IOException {
+
+        theCommandArgs.directory(theAppDir.toFile());
+        theCommandArgs.redirectErrorStream(true);
+
+        final Map<String, String> env = theCommandArgs.environment();
+        env.remove("PYTHONHOME");
+        env.remove("PYTHONPATH");
+        env.put("MPLBACKEND", "Agg");
+        env.putIfAbsent("PYTHONIOENCODING", "utf-8");
+
+        return theCommandArgs.start();
+    }
+
+    /**
+     * Gets the temporary location of a resource file for execution.
+     *
+     * @param theResourcePath the path of the resource file.
+     * @param theSuffix       the file extension type.
+     * @return returns the path of the temporary file.
+     * @throws IOException Thrown if the input stream is null
+     */
+    public static Path extractResourceToTemp(final String theResourcePath,
+                                             final String theSuffix) throws IOException {
+        final Path tmp = Files.createTempFile("vat_", theSuffix);
+        tmp.toFile().deleteOnExit();
+        try (final InputStream in = PythonEnvironment.class.getResourceAsStream(
+                theResourcePath)) {
+            if (in == null) {
+                throw new IOException("Resource not found");
+            }
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return tmp;
+    }
+
+    /**
+     * @param theData The bytes to hash.
+     * @return Returns the hex encoded SHA-256 of the bytes.
+     */
+    private static String sha256(final byte[] theData) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(theData));
+        } catch (final NoSuchAlgorithmException theException) {
+            throw new IllegalStateException(theException);
+        }
+    }
+
+    /**
+     * Fires a progress update to the listeners.
+     *
+     * @param theProgress The progress [0 - 1].
+     */
+    private void fireProgress(final double theProgress) {
+        myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0, theProgress);
+    }
+
+    /**
+     * Adds a listener for the setup progress.
+     *
+     * @param theListener the listener.
+     */
+    public void addPropertyChangeListener(final PropertyChangeListener theListener) {
+        myChanges.addPropertyChangeListener(Objects.requireNonNull(theListener));
+    }
+}
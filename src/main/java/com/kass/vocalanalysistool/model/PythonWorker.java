@@ -0,0 +1,319 @@
+package com.kass.vocalanalysistool.model;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>One warm python process running the analysis script in worker mode
+ * ({@code Vocal_Analysis_Script.py --worker}).</p>
+ *
+ * <p>The process imports parselmouth, numpy, matplotlib and pandas once and then answers
+ * line-delimited JSON requests on stdin/stdout. A worker handles one request at a time;
+ * {@link PythonWorkerPool} hands workers out to callers.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class PythonWorker {
+
+    /**
+     * The logger object for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Python Worker");
+
+    /**
+     * Source of the request ids.
+     */
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    /**
+     * The worker process.
+     */
+    private final Process myProcess;
+
+    /**
+     * Writes requests to the worker's stdin.
+     */
+    private final BufferedWriter myInput;
+
+    /**
+     * Completed once the worker reported that its imports are done.
+     */
+    private final CompletableFuture<Void> myReady = new CompletableFuture<>();
+
+    /**
+     * The id of the request in flight.
+     */
+    private volatile long myRequestId;
+
+    /**
+     * The response of the request in flight.
+     */
+    private volatile CompletableFuture<JsonObject> myResponse;
+
+    /**
+     * Receives the progress of the request in flight.
+     */
+    private volatile DoubleConsumer myProgress;
+
+    /**
+     * Starts a worker process.
+     *
+     * @param thePythonExe The venv python interpreter.
+     * @param theScript    The extracted analysis script.
+     * @param theAppDir    The working directory of the worker.
+     * @param theName      The name of the worker (used for logging and the reader thread).
+     * @throws IOException Thrown if the process can not be started.
+     */
+    PythonWorker(final Path thePythonExe, final Path theScript, final Path theAppDir,
+                 final String theName) throws IOException {
+        myProcess = PythonEnvironment.createProcess(new ProcessBuilder(thePythonExe.toString(),
+                "-u", theScript.toString(), "--worker"), theAppDir);
+        myInput = new BufferedWriter(new OutputStreamWriter(myProcess.getOutputStream(),
+                StandardCharsets.UTF_8));
+
+        final Thread reader = new Thread(this::readResponses, theName);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Waits until the worker finished its imports.
+     *
+     * @param theTimeoutMillis The maximum time to wait.
+     * @throws IOException Thrown if the worker died or did not start in time.
+     */
+    void awaitReady(final long theTimeoutMillis) throws IOException {
+        try {
+            myReady.get(theTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while starting the python worker", theException);
+        } catch (final ExecutionException | TimeoutException theException) {
+            throw new IOException("Python worker failed to start", theException);
+        }
+    }
+
+    /**
+     * @return Returns true if the worker process is running.
+     */
+    boolean isAlive() {
+        return myProcess.isAlive();
+    }
+
+    /**
+     * Sends a ping and waits for the answer.
+     *
+     * @param theTimeoutMillis The maximum time to wait.
+     * @return Returns true if the worker answered in time.
+     */
+    boolean ping(final long theTimeoutMillis) {
+        try {
+            final JsonObject request = new JsonObject();
+            request.addProperty("type", "ping");
+            return "pong".equals(send(request, null, theTimeoutMillis).get("type").getAsString());
+        } catch (final IOException theException) {
+            return false;
+        }
+    }
+
+    /**
+     * Analyzes the audio file.
+     *
+     * @param theFile          The audio file.
+     * @param theParams        The analysis parameters.
+     * @param theProgress      Receives the progress [0 - 1]; may be null.
+     * @param theTimeoutMillis The maximum time the request may take.
+     * @return Returns the analysis result; empty if no frame survived the filter.
+     * @throws IOException Thrown if the request failed or timed out.
+     */
+    AnalysisResult analyze(final Path theFile, final AnalysisParameters theParams,
+                           final DoubleConsumer theProgress, final long theTimeoutMillis)
+            throws IOException {
+        final JsonObject params = new JsonObject();
+        params.addProperty("time_step", theParams.getTimeStep());
+        params.addProperty("pitch_floor", theParams.getPitchFloor());
+        params.addProperty("pitch_ceiling", theParams.getPitchCeiling());
+        params.addProperty("max_formant", theParams.getMaxFormant());
+        params.addProperty("formant_count", theParams.getFormantCount());
+        params.addProperty("window_length", theParams.getFormantWindowLength());
+        params.addProperty("pre_emphasis", theParams.getPreEmphasisFrom());
+
+        final JsonObject request = new JsonObject();
+        request.addProperty("type", "analyze");
+        request.addProperty("path", theFile.toAbsolutePath().toString());
+        request.add("params", params);
+
+        final JsonObject response = send(request, theProgress, theTimeoutMillis);
+        final String type = response.get("type").getAsString();
+        if ("empty".equals(type)) {
+            return new AnalysisResult(new double[0], new double[5][0], new double[5]);
+        }
+        if (!"result".equals(type)) {
+            throw new IOException("Python worker failed: " + response.get("message"));
+        }
+
+        final double[][] formants = new double[5][];
+        for (int f = 0; f < 5; f++) {
+            formants[f] = toArray(response.getAsJsonArray("f" + f));
+        }
+        final Map<String, Double> features = new LinkedHashMap<>();
+        for (final Map.Entry<String, JsonElement> entry
+                : response.getAsJsonObject("features").entrySet()) {
+            final JsonElement value = entry.getValue();
+            if (value.isJsonNull()) {
+                features.put(entry.getKey(), Double.NaN);
+            } else if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber()) {
+                features.put(entry.getKey(), value.getAsDouble());
+            }
+        }
+        return new AnalysisResult(toArray(response.getAsJsonArray("times")), formants,
+                toArray(response.getAsJsonArray("averages")), features);
+    }
+
+    /**
+     * Kills the worker process.
+     */
+    void destroy() {
+        myProcess.destroyForcibly();
+        final CompletableFuture<JsonObject> response = myResponse;
+        if (response != null) {
+            response.completeExceptionally(new IOException("Python worker was stopped"));
+        }
+    }
+
+    /**
+     * Sends one request and waits for its final response.
+     *
+     * @param theRequest       The request without an id.
+     * @param theProgress      Receives progress messages; may be null.
+     * @param theTimeoutMillis The maximum time to wait.
+     * @return Returns the final response.
+     * @throws IOException Thrown if the worker failed or did not answer in time.
+     */
+    private synchronized JsonObject send(final JsonObject theRequest,
+                                         final DoubleConsumer theProgress,
+                                         final long theTimeoutMillis) throws IOException {
+        final long id = NEXT_ID.getAndIncrement();
+        theRequest.addProperty("id", id);
+        final CompletableFuture<JsonObject> response = new CompletableFuture<>();
+        myProgress = theProgress;
+        myRequestId = id;
+        myResponse = response;
+        try {
+            myInput.write(theRequest.toString());
+            myInput.newLine();
+            myInput.flush();
+            return response.get(theTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the python worker",
+                    theException);
+        } catch (final TimeoutException theException) {
+            throw new IOException("Python worker timed out after " + theTimeoutMillis + " ms",
+                    theException);
+        } catch (final ExecutionException theException) {
+            throw new IOException("Python worker failed", theException.getCause());
+        } finally {
+            myResponse = null;
+            myProgress = null;
+        }
+    }
+
+    /**
+     * Reads the worker's stdout until it exits. JSON lines are dispatched to the request in
+     * flight; anything else (warnings, prints) is logged.
+     */
+    private void readResponses() {
+        try (final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(myProcess.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final JsonObject message = parse(line);
+                if (message == null || !message.has("type")) {
+                    MY_LOGGER.info("[Python] " + line);
+                    continue;
+                }
+                final String type = message.get("type").getAsString();
+                if ("ready".equals(type)) {
+                    myReady.complete(null);
+                    continue;
+                }
+                final JsonElement id = message.get("id");
+                if (id == null || id.isJsonNull() || id.getAsLong() != myRequestId) {
+                    continue;
+                }
+                if ("progress".equals(type)) {
+                    final DoubleConsumer progress = myProgress;
+                    if (progress != null) {
+                        progress.accept(message.get("value").getAsDouble());
+                    }
+                } else {
+                    final CompletableFuture<JsonObject> response = myResponse;
+                    if (response != null) {
+                        response.complete(message);
+                    }
+                }
+            }
+        } catch (final IOException theException) {
+            MY_LOGGER.log(Level.FINE, "Python worker output closed", theException);
+        }
+
+        // the process is gone; fail whoever is still waiting
+        final IOException died = new IOException("Python worker exited");
+        myReady.completeExceptionally(died);
+        final CompletableFuture<JsonObject> response = myResponse;
+        if (response != null) {
+            response.completeExceptionally(died);
+        }
+    }
+
+    /**
+     * @param theLine A line of output.
+     * @return Returns the parsed JSON object, or null if the line is not a JSON object.
+     */
+    private static JsonObject parse(final String theLine) {
+        if (!theLine.startsWith("{")) {
+            return null;
+        }
+        try {
+            final JsonElement element = JsonParser.parseString(theLine);
+            return element.isJsonObject() ? element.getAsJsonObject() : null;
+        } catch (final JsonParseException theException) {
+            return null;
+        }
+    }
+
+    /**
+     * @param theArray A JSON array of numbers (null entries become NaN).
+     * @return Returns the numbers as a primitive array.
+     */
+    private static double[] toArray(final JsonArray theArray) {
+        final double[] values = new double[theArray.size()];
+        for (int i = 0; i < values.length; i++) {
+            final JsonElement element = theArray.get(i);
+            values[i] = element.isJsonNull() ? Double.NaN : element.getAsDouble();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,334 @@
+package com.kass.vocalanalysistool.model;
+
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>A fixed number of warm {@link PythonWorker}s. Starting python and importing
+ * parselmouth, numpy, matplotlib and pandas takes seconds; the pool pays that once and every
+ * later analysis only pays for the analysis itself.</p>
+ *
+ * <p>Workers that crashed, stopped answering the health check ping or exceeded the request
+ * timeout are killed and replaced. The pool size is read from the system property
+ * {@value #WORKERS_PROPERTY} (default 1) and the request timeout in seconds from
+ * {@value #TIMEOUT_PROPERTY} (default 120).</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class PythonWorkerPool implements AutoCloseable {
+
+    /**
+     * The system property holding the number of workers.
+     */
+    public static final String WORKERS_PROPERTY = "vocalanalysis.python.workers";
+
+    /**
+     * The system property holding the request timeout in seconds.
+     */
+    public static final String TIMEOUT_PROPERTY = "vocalanalysis.python.timeout";
+
+    /**
+     * The time a worker may take to import its packages.
+     */
+    private static final long STARTUP_TIMEOUT_MILLIS = 60_000;
+
+    /**
+     * The time a worker may take to answer the health check ping.
+     */
+    private static final long PING_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * The seconds between two health checks.
+     */
+    private static final long HEALTH_CHECK_SECONDS = 30;
+
+    /**
+     * The logger object for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Python Worker Pool");
+
+    /**
+     * The pool shared by the app and the headless runner; started on the first python
+     * analysis.
+     */
+    private static PythonWorkerPool ourShared;
+
+    /**
+     * The venv python interpreter.
+     */
+    private final Path myPythonExe;
+
+    /**
+     * The extracted analysis script.
+     */
+    private final Path myScript;
+
+    /**
+     * The working directory of the workers.
+     */
+    private final Path myAppDir;
+
+    /**
+     * The workers that are not analyzing right now.
+     */
+    private final BlockingQueue<PythonWorker> myIdle;
+
+    /**
+     * The maximum time a single request may take.
+     */
+    private final long myTimeoutMillis;
+
+    /**
+     * Runs the periodic health check.
+     */
+    private final ScheduledExecutorService myHealthCheck;
+
+    /**
+     * Numbers the workers for their thread names.
+     */
+    private int myStarted;
+
+    /**
+     * Set once the pool was closed.
+     */
+    private volatile boolean myClosed;
+
+    /**
+     * Starts the workers and waits until all of them are ready.
+     *
+     * @param thePythonExe The venv python interpreter.
+     * @param theScript    The extracted analysis script.
+     * @param theAppDir    The working directory of the workers.
+     * @param theSize      The number of workers.
+     * @param theTimeout   The maximum time in milliseconds a single request may take.
+     * @throws IOException Thrown if a worker can not be started.
+     */
+    public PythonWorkerPool(final Path thePythonExe, final Path theScript, final Path theAppDir,
+                            final int theSize, final long theTimeout) throws IOException {
+        if (theSize < 1) {
+            throw new IllegalArgumentException("The pool needs at least one worker");
+        }
+        myPythonExe = thePythonExe;
+        myScript = theScript;
+        myAppDir = theAppDir;
+        myTimeoutMillis = theTimeout;
+        myIdle = new LinkedBlockingQueue<>();
+
+        final List<PythonWorker> started = new ArrayList<>();
+        try {
+            for (int i = 0; i < theSize; i++) {
+                started.add(startWorker());
+            }
+        } catch (final IOException theException) {
+            started.forEach(PythonWorker::destroy);
+            throw theException;
+        }
+        myIdle.addAll(started);
+
+        myHealthCheck = Executors.newSingleThreadScheduledExecutor(theRunnable -> {
+            final Thread thread = new Thread(theRunnable, "PythonWorkerHealthCheck");
+            thread.setDaemon(true);
+            return thread;
+        });
+        myHealthCheck.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_SECONDS,
+                HEALTH_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a pool sized by the system properties.
+     *
+     * @param thePythonExe The venv python interpreter.
+     * @param theScript    The extracted analysis script.
+     * @param theAppDir    The working directory of the workers.
+     * @return Returns the started pool.
+     * @throws IOException Thrown if a worker can not be started.
+     */
+    public static PythonWorkerPool fromSystemProperties(final Path thePythonExe,
+                                                        final Path theScript,
+                                                        final Path theAppDir)
+            throws IOException {
+        final int size = Math.max(1, Integer.getInteger(WORKERS_PROPERTY, 1));
+        final long timeout = TimeUnit.SECONDS.toMillis(Math.max(1,
+                Long.getLong(TIMEOUT_PROPERTY, 120)));
+        return new PythonWorkerPool(thePythonExe, theScript, theAppDir, size, timeout);
+    }
+
+    /**
+     * Gets the shared pool, setting up the venv in the working directory and starting the
+     * workers on the first call. The pool is closed when the JVM exits.
+     *
+     * @param theListener Receives the venv setup progress; may be null.
+     * @return Returns the running pool.
+     * @throws IOException Thrown if the venv can not be set up or the workers can not start.
+     */
+    public static synchronized PythonWorkerPool getShared(
+            final PropertyChangeListener theListener) throws IOException {
+        if (ourShared != null) {
+            return ourShared;
+        }
+        final PythonEnvironment environment = new PythonEnvironment(
+                Path.of(System.getProperty("user.dir")).toAbsolutePath());
+        if (theListener != null) {
+            environment.addPropertyChangeListener(theListener);
+        }
+        final Path pythonScript = PythonEnvironment.extractResourceToTemp(
+                "/VocalAnalysisToolKit/Vocal_Analysis_Script.py", ".py");
+
+        // 1) - 4) Setup, pip and probe; skipped while the fingerprint matches
+        PythonWorkerPool pool;
+        try {
+            pool = fromSystemProperties(environment.ensureReady(), pythonScript,
+                    environment.getAppDir());
+        } catch (final IOException theException) {
+            MY_LOGGER.log(Level.WARNING, "Python workers failed to start; rebuilding venv.",
+                    theException);
+            environment.invalidate();
+            pool = fromSystemProperties(environment.ensureReady(), pythonScript,
+                    environment.getAppDir());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(pool::close, "PythonWorkerShutdown"));
+        ourShared = pool;
+        return pool;
+    }
+
+    /**
+     * Analyzes the audio file on the next free worker. Blocks while all workers are busy.
+     *
+     * @param theFile     The audio file.
+     * @param theParams   The analysis parameters.
+     * @param theProgress Receives the progress [0 - 1]; may be null.
+     * @return Returns the analysis result; empty if no frame survived the filter.
+     * @throws IOException Thrown if the analysis failed or timed out.
+     */
+    @SuppressWarnings("try")
+    public AnalysisResult analyze(final Path theFile, final AnalysisParameters theParams,
+                                  final DoubleConsumer theProgress) throws IOException {
+        final PythonWorker worker;
+        try (final StageMetrics.Span span = StageMetrics.start("python.checkOut")) {
+            worker = checkOut();
+        }
+        boolean healthy = false;
+        try (final StageMetrics.Span span = StageMetrics.start("python.script")) {
+            final AnalysisResult result = worker.analyze(theFile, theParams, theProgress,
+                    myTimeoutMillis);
+            healthy = true;
+            return result;
+        } catch (final IOException theException) {
+            // an error reply leaves the worker usable; a timeout or crash does not
+            healthy = worker.isAlive() && worker.ping(PING_TIMEOUT_MILLIS);
+            throw theException;
+        } finally {
+            checkIn(worker, healthy);
+        }
+    }
+
+    /**
+     * Stops all workers. Requests that are still running fail.
+     */
+    @Override
+    public void close() {
+        myClosed = true;
+        myHealthCheck.shutdownNow();
+        final List<PythonWorker> idle = new ArrayList<>();
+        myIdle.drainTo(idle);
+        idle.forEach(PythonWorker::destroy);
+    }
+
+    /**
+     * Takes an idle worker, replacing it first if its process died.
+     *
+     * @return Returns a running worker.
+     * @throws IOException Thrown if the pool is closed or a replacement can not be started.
+     */
+    private PythonWorker checkOut() throws IOException {
+        if (myClosed) {
+            throw new IOException("The python worker pool is closed");
+        }
+        final PythonWorker worker;
+        try {
+            worker = myIdle.take();
+        } catch (final InterruptedException theException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a python worker", theException);
+        }
+        if (worker.isAlive()) {
+            return worker;
+        }
+        MY_LOGGER.warning("Python worker died while idle; restarting it.");
+        try {
+            return startWorker();
+        } catch (final IOException theException) {
+            // keep the pool size; the next caller tries again
+            myIdle.add(worker);
+            throw theException;
+        }
+    }
+
+    /**
+     * Returns a worker to the pool, replacing it if it is no longer healthy.
+     *
+     * @param theWorker  The worker.
+     * @param theHealthy True if the worker can take the next request.
+     */
+    private void checkIn(final PythonWorker theWorker, final boolean theHealthy) {
+        if (myClosed) {
+            theWorker.destroy();
+            return;
+        }
+        if (theHealthy) {
+            myIdle.add(theWorker);
+            return;
+        }
+        MY_LOGGER.warning("Python worker failed or timed out; restarting it.");
+        theWorker.destroy();
+        try {
+            myIdle.add(startWorker());
+        } catch (final IOException theException) {
+            MY_LOGGER.log(Level.SEVERE, "Unable to restart the python worker", theException);
+            // the dead worker keeps its slot and is restarted on the next checkout
+            myIdle.add(theWorker);
+        }
+    }
+
+    /**
+     * Pings every idle worker and replaces the ones that do not answer.
+     */
+    private void checkHealth() {
+        final List<PythonWorker> idle = new ArrayList<>();
+        myIdle.drainTo(idle);
+        for (final PythonWorker worker : idle) {
+            checkIn(worker, worker.isAlive() && worker.ping(PING_TIMEOUT_MILLIS));
+        }
+    }
+
+    /**
+     * Starts a new worker and waits until it is ready.
+     *
+     * @return Returns the ready worker.
+     * @throws IOException Thrown if the worker can not be started.
+     */
+    @SuppressWarnings("try")
+    private synchronized PythonWorker startWorker() throws IOException {
+        final PythonWorker worker = new PythonWorker(myPythonExe, myScript, myAppDir,
+                "PythonWorker-" + ++myStarted);
+        try (final StageMetrics.Span span = StageMetrics.start("python.workerStart")) {
+            worker.awaitReady(STARTUP_TIMEOUT_MILLIS);
+        } catch (final IOException theException) {
+            worker.destroy();
+            throw theException;
+        }
+        return worker;
+    }
+}
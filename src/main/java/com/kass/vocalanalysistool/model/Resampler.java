@@ -0,0 +1,210 @@
+package com.kass.vocalanalysistool.model;
+
+/**
+ * Band-limited resampling with a hann windowed sinc interpolator.
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+final class Resampler {
+
+    /**
+     * The number of zero crossings of the sinc kernel on each side.
+     */
+    private static final int ZERO_CROSSINGS = 8;
+
+    /**
+     * The number of kernel table entries per zero crossing.
+     */
+    private static final int RESOLUTION = 256;
+
+    /**
+     * The windowed sinc kernel sampled from 0 to {@link #ZERO_CROSSINGS}; looking it up is
+     * far cheaper than evaluating sin and cos for every tap.
+     */
+    private static final float[] KERNEL = createKernel();
+
+    /**
+     * Utility class.
+     */
+    private Resampler() {
+    }
+
+    /**
+     * Resamples the signal to the target rate.
+     *
+     * @param theSamples    The signal.
+     * @param theSourceRate The sampling frequency of the signal in Hz.
+     * @param theTargetRate The wanted sampling frequency in Hz.
+     * @return Returns the resampled signal (a copy, even if the rates are equal).
+     */
+    static float[] resample(final float[] theSamples, final double theSourceRate,
+                            final double theTargetRate) {
+        if (theSourceRate == theTargetRate) {
+            return theSamples.clone();
+        }
+        final int length = (int) getLength(theSamples.length, theSourceRate, theTargetRate);
+        final float[] result = new float[length];
+        resample(theSamples, 0, theSamples.length, theSourceRate, theTargetRate, 0, result,
+                length);
+        return result;
+    }
+
+    /**
+     * @param theSourceLength The number of samples of the signal.
+     * @param theSourceRate   The sampling frequency of the signal in Hz.
+     * @param theTargetRate   The wanted sampling frequency in Hz.
+     * @return Returns the number of samples of the resampled signal.
+     */
+    static long getLength(final long theSourceLength, final double theSourceRate,
+                          final double theTargetRate) {
+        if (theSourceRate == theTargetRate) {
+            return theSourceLength;
+        }
+        return (long) Math.floor(theSourceLength * (theTargetRate / theSourceRate));
+    }
+
+    /**
+     * Gets the first signal sample that contributes to the given output sample.
+     *
+     * @param theOutput       The index of the output sample.
+     * @param theSourceRate   The sampling frequency of the signal in Hz.
+     * @param theTargetRate   The wanted sampling frequency in Hz.
+     * @return Returns the index of the first contributing sample (may be negative).
+     */
+    static long getFirstInput(final long theOutput, final double theSourceRate,
+                              final double theTargetRate) {
+        if (theSourceRate == theTargetRate) {
+            return theOutput;
+        }
+        final double ratio = theTargetRate / theSourceRate;
+        return (long) Math.ceil(theOutput / ratio - ZERO_CROSSINGS / Math.min(1.0, ratio));
+    }
+
+    /**
+     * Gets the last signal sample that contributes to the given output sample.
+     *
+     * @param theOutput       The index of the output sample.
+     * @param theSourceRate   The sampling frequency of the signal in Hz.
+     * @param theTargetRate   The wanted sampling frequency in Hz.
+     * @return Returns the index of the last contributing sample (may be past the end).
+     */
+    static long getLastInput(final long theOutput, final double theSourceRate,
+                             final double theTargetRate) {
+        if (theSourceRate == theTargetRate) {
+            return theOutput;
+        }
+        final double ratio = theTargetRate / theSourceRate;
+        return (long) Math.floor(theOutput / ratio + ZERO_CROSSINGS / Math.min(1.0, ratio));
+    }
+
+    /**
+     * Resamples one range of the output from a window of the signal. Every output sample
+     * depends only on the signal around it, so resampling a long recording range by range
+     * gives exactly the samples of resampling it at once.
+     *
+     * @param theWindow       The signal samples from theWindowStart on; they must cover
+     *                        {@link #getFirstInput} of theFirst to {@link #getLastInput}
+     *                        of the last output sample, clipped to the signal.
+     * @param theWindowStart  The index in the signal of theWindow[0].
+     * @param theSourceLength The number of samples of the whole signal.
+     * @param theSourceRate   The sampling frequency of the signal in Hz.
+     * @param theTargetRate   The wanted sampling frequency in Hz.
+     * @param theFirst        The index of the first output sample.
+     * @param theOut          Receives the output samples from index 0 on.
+     * @param theCount        The number of output samples.
+     */
+    static void resample(final float[] theWindow, final long theWindowStart,
+                         final long theSourceLength, final double theSourceRate,
+                         final double theTargetRate, final long theFirst, final float[] theOut,
+                         final int theCount) {
+        resample(theWindow, theWindowStart, theSourceLength, theSourceRate, theTargetRate,
+                theFirst, theOut, 0, theCount);
+    }
+
+    /**
+     * Resamples one range of the output from a window of the signal into the given part of
+     * the output array, so several threads can fill one array.
+     *
+     * @param theWindow       The signal samples from theWindowStart on, as above.
+     * @param theWindowStart  The index in the signal of theWindow[0].
+     * @param theSourceLength The number of samples of the whole signal.
+     * @param theSourceRate   The sampling frequency of the signal in Hz.
+     * @param theTargetRate   The wanted sampling frequency in Hz.
+     * @param theFirst        The index of the first output sample.
+     * @param theOut          Receives the output samples.
+     * @param theOffset       The index in theOut of the first output sample.
+     * @param theCount        The number of output samples.
+     */
+    static void resample(final float[] theWindow, final long theWindowStart,
+                         final long theSourceLength, final double theSourceRate,
+                         final double theTargetRate, final long theFirst, final float[] theOut,
+                         final int theOffset, final int theCount) {
+        if (theSourceRate == theTargetRate) {
+            System.arraycopy(theWindow, (int) (theFirst - theWindowStart), theOut, theOffset,
+                    theCount);
+            return;
+        }
+        final double ratio = theTargetRate / theSourceRate;
+
+        // low-pass at the lower of the two nyquist frequencies
+        final double cutoff = Math.min(1.0, ratio);
+        final double halfWidth = ZERO_CROSSINGS / cutoff;
+        final double tableStep = cutoff * RESOLUTION;
+
+        for (int k = 0; k < theCount; k++) {
+            final double position = (theFirst + k) / ratio;
+            final long first = (long) Math.ceil(position - halfWidth);
+            final long last = (long) Math.floor(position + halfWidth);
+            final long from = Math.max(0, first);
+            final int to = (int) (Math.min(theSourceLength - 1, last) - theWindowStart);
+            double sum = 0;
+            double index = (from - position) * tableStep;
+            for (int j = (int) (from - theWindowStart); j <= to; j++, index += tableStep) {
+                sum += theWindow[j] * kernel(Math.abs(index));
+            }
+            theOut[theOffset + k] = (float) (sum * cutoff);
+        }
+    }
+
+    /**
+     * Looks up the kernel with linear interpolation between the table entries.
+     *
+     * @param theIndex The absolute distance in table entries.
+     * @return Returns the kernel value, 0 outside the kernel.
+     */
+    private static double kernel(final double theIndex) {
+        final int base = (int) theIndex;
+        if (base >= KERNEL.length - 1) {
+            return 0;
+        }
+        final double fraction = theIndex - base;
+        return KERNEL[base] + fraction * (KERNEL[base + 1] - KERNEL[base]);
+    }
+
+    /**
+     * @return Returns the sampled hann windowed sinc kernel.
+     */
+    private static float[] createKernel() {
+        final float[] kernel = new float[ZERO_CROSSINGS * RESOLUTION + 2];
+        for (int i = 0; i < kernel.length; i++) {
+            final double x = (double) i / RESOLUTION;
+            if (x <= ZERO_CROSSINGS) {
+                kernel[i] = (float) (sinc(x) * (0.5 + 0.5 * Math.cos(Math.PI * x / ZERO_CROSSINGS)));
+            }
+        }
+        return kernel;
+    }
+
+    /**
+     * @param theX The argument.
+     * @return Returns the normalized sinc function sin(pi x) / (pi x).
+     */
+    private static double sinc(final double theX) {
+        if (theX == 0) {
+            return 1.0;
+        }
+        final double arg = Math.PI * theX;
+        return Math.sin(arg) / arg;
+    }
+}
@@ -0,0 +1,40 @@
+package com.kass.vocalanalysistool.model;
+
+/**
+ * A mono recording that can be read one window at a time, either decoded in memory or
+ * straight from a mapped file. Close the source once it was read.
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public interface SampleSource extends AutoCloseable {
+
+    /**
+     * @return Returns the sampling frequency in Hz.
+     */
+    double getSampleRate();
+
+    /**
+     * @return Returns the number of samples.
+     */
+    long getFrameCount();
+
+    /**
+     * Copies a window of samples in [-1, 1].
+     *
+     * @param theFrame  The first sample to read.
+     * @param theOut    The array receiving the samples.
+     * @param theOffset The index of the first sample written.
+     * @param theLength The number of samples wanted.
+     * @return Returns the number of samples read; fewer than asked at the end.
+     */
+    int read(long theFrame, float[] theOut, int theOffset, int theLength);
+
+    /**
+     * Releases the file behind the source; a source held in memory has nothing to release.
+     * The source must not be read afterward.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,103 @@
+package com.kass.vocalanalysistool.model;
+
+/**
+ * The plain loops of {@link DspKernels}; the reference the SIMD kernels are checked
+ * against and the fallback when the Vector API is not available.
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+final class ScalarKernels implements DspKernels {
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public double sum(final float[] theValues, final int theStart, final int theLength) {
+        double sum = 0;
+        for (int i = 0; i < theLength; i++) {
+            sum += theValues[theStart + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double windowCentered(final float[] theValues, final int theStart,
+                                 final double theMean, final double[] theWindow,
+                                 final double[] theOut, final int theLength) {
+        double peak = 0;
+        for (int i = 0; i < theLength; i++) {
+            final double value = theValues[theStart + i] - theMean;
+            peak = Math.max(peak, Math.abs(value));
+            theOut[i] = value * theWindow[i];
+        }
+        return peak;
+    }
+
+    @Override
+    public void window(final float[] theValues, final int theStart, final double[] theWindow,
+                       final double[] theOut, final int theLength) {
+        for (int i = 0; i < theLength; i++) {
+            theOut[i] = theValues[theStart + i] * theWindow[i];
+        }
+    }
+
+    @Override
+    public double dot(final double[] theFirst, final double[] theSecond, final int theLength) {
+        double sum = 0;
+        for (int i = 0; i < theLength; i++) {
+            sum += theFirst[i] * theSecond[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double sumOfSquares(final double[] theFirst, final double[] theSecond,
+                               final int theLength) {
+        double sum = 0;
+        for (int i = 0; i < theLength; i++) {
+            sum += theFirst[i] * theFirst[i] + theSecond[i] * theSecond[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void burgUpdate(final double[] theForward, final double[] theBackward,
+                           final double theCoefficient, final int theLength) {
+        for (int j = 0; j < theLength; j++) {
+            theForward[j] -= theCoefficient * theBackward[j];
+            theBackward[j] = theBackward[j + 1] - theCoefficient * theForward[j + 1];
+        }
+    }
+
+    @Override
+    public void powerSpectrum(final double[] theReal, final double[] theImag,
+                              final int theLength) {
+        for (int i = 0; i < theLength; i++) {
+            theReal[i] = theReal[i] * theReal[i] + theImag[i] * theImag[i];
+            theImag[i] = 0;
+        }
+    }
+
+    @Override
+    public void butterflies(final double[] theReal, final double[] theImag, final int theSize,
+                            final int theHalf, final double[] theCos, final double[] theSin,
+                            final int theOffset, final double theSign) {
+        for (int i = 0; i < theSize; i += 2 * theHalf) {
+            for (int k = 0; k < theHalf; k++) {
+                final double wr = theCos[theOffset + k];
+                final double wi = theSign * theSin[theOffset + k];
+                final int a = i + k;
+                final int b = a + theHalf;
+                final double xr = theReal[b] * wr - theImag[b] * wi;
+                final double xi = theReal[b] * wi + theImag[b] * wr;
+                theReal[b] = theReal[a] - xr;
+                theImag[b] = theImag[a] - xi;
+                theReal[a] += xr;
+                theImag[a] += xi;
+            }
+        }
+    }
+}
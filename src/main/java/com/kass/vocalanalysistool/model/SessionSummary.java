@@ -0,0 +1,82 @@
+package com.kass.vocalanalysistool.model;
+
+/**
+ * <p>One row of the session history: what is needed to list a session without reading
+ * its tracks.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class SessionSummary {
+
+    /**
+     * The session id.
+     */
+    private final long myId;
+
+    /**
+     * The time the session was stored, as SQLite wrote it (UTC, "yyyy-MM-dd HH:mm:ss").
+     */
+    private final String myTimestamp;
+
+    /**
+     * The number of frames of the session.
+     */
+    private final int myFrameCount;
+
+    /**
+     * The F0 - F4 averages; NaN where the session had no valid frames.
+     */
+    private final double[] myAverages;
+
+    /**
+     * Constructor for the summary.
+     *
+     * @param theId         The session id.
+     * @param theTimestamp  The time the session was stored.
+     * @param theFrameCount The number of frames of the session.
+     * @param theAverages   The F0 - F4 averages.
+     */
+    public SessionSummary(final long theId, final String theTimestamp, final int theFrameCount,
+                          final double[] theAverages) {
+        myId = theId;
+        myTimestamp = theTimestamp;
+        myFrameCount = theFrameCount;
+        myAverages = theAverages.clone();
+    }
+
+    /**
+     * @return Returns the session id.
+     */
+    public long getId() {
+        return myId;
+    }
+
+    /**
+     * @return Returns the time the session was stored (UTC, "yyyy-MM-dd HH:mm:ss").
+     */
+    public String getTimestamp() {
+        return myTimestamp;
+    }
+
+    /**
+     * @return Returns the number of frames of the session.
+     */
+    public int getFrameCount() {
+        return myFrameCount;
+    }
+
+    /**
+     * @return Returns the F0 - F4 averages; NaN where the session had no valid frames.
+     */
+    public double[] getAverages() {
+        return myAverages.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s: F0 %.0f Hz, F1 %.0f Hz, F2 %.0f Hz, F3 %.0f Hz, "
+                        + "F4 %.0f Hz", myId, myTimestamp, myAverages[0], myAverages[1],
+                myAverages[2], myAverages[3], myAverages[4]);
+    }
+}
@@ -0,0 +1,317 @@
+package com.kass.vocalanalysistool.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.sqlite.SQLiteDataSource;
+
+/**
+ * <p>A small pool of open SQLite connections shared by everything that talks to the same
+ * database file.</p>
+ *
+ * <p>Every connection is opened once with WAL journaling, so the batch writer and the UI
+ * readers no longer block each other, plus synchronous=NORMAL (safe with WAL), a 16 MB page
+ * cache, a 256 MB memory map and a busy timeout for the remaining writer-writer
+ * contention. Each connection keeps its prepared statements, so a query is compiled once
+ * per connection instead of once per call.</p>
+ *
+ * <p>Usage:</p>
+ * <pre>{@code
+ * try (final SqliteConnectionPool.Lease lease = pool.lease()) {
+ *     final PreparedStatement ps = lease.prepare("SELECT ...");
+ *     ...
+ * }
+ * }</pre>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class SqliteConnectionPool implements AutoCloseable {
+
+    /**
+     * The system property holding the number of pooled connections.
+     */
+    public static final String SIZE_PROPERTY = "vocalanalysis.db.connections";
+
+    /**
+     * The pragmas every new connection runs. auto_vacuum only takes effect on a file without
+     * tables, and only before it is switched to WAL.
+     */
+    private static final String[] PRAGMAS = {
+            "PRAGMA auto_vacuum = INCREMENTAL",
+            "PRAGMA journal_mode = WAL",
+            "PRAGMA synchronous = NORMAL",
+            "PRAGMA cache_size = -16000",
+            "PRAGMA mmap_size = 268435456",
+            "PRAGMA temp_store = MEMORY",
+            "PRAGMA busy_timeout = 5000",
+            "PRAGMA foreign_keys = ON"
+    };
+
+    /**
+     * The logger object for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("SQLite Connection Pool");
+
+    /**
+     * One pool per jdbc URL.
+     */
+    private static final Map<String, SqliteConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The jdbc URL.
+     */
+    private final String myUrl;
+
+    /**
+     * Opens the connections.
+     */
+    private final SQLiteDataSource myDs;
+
+    /**
+     * The connections that are not leased right now.
+     */
+    private final BlockingQueue<Lease> myIdle;
+
+    /**
+     * Every connection opened by this pool.
+     */
+    private final List<Lease> myAll = new ArrayList<>();
+
+    /**
+     * The maximum number of connections.
+     */
+    private final int mySize;
+
+    /**
+     * Set once the pool was closed.
+     */
+    private volatile boolean myClosed;
+
+    /**
+     * Constructor for the pool. Connections are opened lazily.
+     *
+     * @param theUrl  The jdbc URL.
+     * @param theSize The maximum number of connections.
+     */
+    private SqliteConnectionPool(final String theUrl, final int theSize) {
+        myUrl = theUrl;
+        mySize = theSize;
+        myDs = new SQLiteDataSource();
+        myDs.setUrl(theUrl);
+        myIdle = new ArrayBlockingQueue<>(theSize);
+    }
+
+    /**
+     * Gets the shared pool of the database, creating it on the first call. The pool is
+     * closed when the JVM exits.
+     *
+     * @param theUrl The jdbc URL.
+     * @return Returns the shared pool.
+     */
+    public static SqliteConnectionPool getInstance(final String theUrl) {
+        return POOLS.computeIfAbsent(theUrl, theKey -> {
+            final SqliteConnectionPool pool = new SqliteConnectionPool(theKey,
+                    Math.max(1, Integer.getInteger(SIZE_PROPERTY, 4)));
+            Runtime.getRuntime().addShutdownHook(new Thread(pool::close,
+                    "SqlitePoolShutdown"));
+            return pool;
+        });
+    }
+
+    /**
+     * Leases a connection. Blocks while all connections are leased.
+     *
+     * @return Returns the lease; close it to return the connection.
+     * @throws SQLException Thrown if the pool is closed or a connection can not be opened.
+     */
+    public Lease lease() throws SQLException {
+        if (myClosed) {
+            throw new SQLException("The connection pool is closed");
+        }
+        Lease lease = myIdle.poll();
+        if (lease == null) {
+            lease = openIfBelowLimit();
+        }
+        if (lease == null) {
+            try {
+                lease = myIdle.take();
+            } catch (final InterruptedException theException) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection",
+                        theException);
+            }
+        }
+        return lease;
+    }
+
+    /**
+     * Closes all idle connections; leased connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        myClosed = true;
+        Lease lease;
+        while ((lease = myIdle.poll()) != null) {
+            lease.closeConnection();
+        }
+    }
+
+    /**
+     * Opens a new connection if the pool has not reached its size yet.
+     *
+     * @return Returns the new lease, or null if the pool is full.
+     * @throws SQLException Thrown if the connection can not be opened.
+     */
+    private Lease openIfBelowLimit() throws SQLException {
+        synchronized (myAll) {
+            if (myAll.size() >= mySize) {
+                return null;
+            }
+            final Connection connection = myDs.getConnection();
+            try (final Statement stmt = connection.createStatement()) {
+                for (final String pragma : PRAGMAS) {
+                    stmt.execute(pragma);
+                }
+            } catch (final SQLException theException) {
+                connection.close();
+                throw theException;
+            }
+            final Lease lease = new Lease(connection);
+            myAll.add(lease);
+            MY_LOGGER.fine(() -> "Opened connection " + myAll.size() + "/" + mySize
+                    + " to " + myUrl);
+            return lease;
+        }
+    }
+
+    /**
+     * A leased connection with its prepared statement cache. A lease must only be used by
+     * the thread that leased it, and statements returned by {@link #prepare(String)} must
+     * not be closed by the caller.
+     */
+    public final class Lease implements AutoCloseable {
+
+        /**
+         * The pooled connection.
+         */
+        private final Connection myConnection;
+
+        /**
+         * The prepared statements by SQL text.
+         */
+        private final Map<String, PreparedStatement> myStatements = new HashMap<>();
+
+        /**
+         * The prepared statements returning generated keys by SQL text.
+         */
+        private final Map<String, PreparedStatement> myKeyStatements = new HashMap<>();
+
+        /**
+         * Constructor for the lease.
+         *
+         * @param theConnection The pooled connection.
+         */
+        private Lease(final Connection theConnection) {
+            myConnection = theConnection;
+        }
+
+        /**
+         * Gets the cached statement of the SQL text, preparing it on the first use.
+         *
+         * @param theSql The SQL text.
+         * @return Returns the statement with its parameters cleared.
+         * @throws SQLException Thrown if the statement can not be prepared.
+         */
+        public PreparedStatement prepare(final String theSql) throws SQLException {
+            return cached(myStatements, theSql, false);
+        }
+
+        /**
+         * Gets the cached statement of the SQL text that returns the generated keys.
+         *
+         * @param theSql The insert statement.
+         * @return Returns the statement with its parameters cleared.
+         * @throws SQLException Thrown if the statement can not be prepared.
+         */
+        public PreparedStatement prepareWithKeys(final String theSql) throws SQLException {
+            return cached(myKeyStatements, theSql, true);
+        }
+
+        /**
+         * @return Returns the pooled connection, e.g. for transactions. Must not be closed.
+         */
+        public Connection getConnection() {
+            return myConnection;
+        }
+
+        /**
+         * Returns the connection to the pool. An open transaction is rolled back.
+         */
+        @Override
+        public void close() {
+            try {
+                if (!myConnection.getAutoCommit()) {
+                    myConnection.rollback();
+                    myConnection.setAutoCommit(true);
+                }
+            } catch (final SQLException theException) {
+                MY_LOGGER.log(Level.WARNING, "Unable to reset the connection", theException);
+            }
+            if (myClosed || !myIdle.offer(this)) {
+                closeConnection();
+            }
+        }
+
+        /**
+         * Looks up or prepares a statement.
+         *
+         * @param theCache The cache to use.
+         * @param theSql   The SQL text.
+         * @param theKeys  True if the statement returns generated keys.
+         * @return Returns the statement with its parameters cleared.
+         * @throws SQLException Thrown if the statement can not be prepared.
+         */
+        private PreparedStatement cached(final Map<String, PreparedStatement> theCache,
+                                         final String theSql, final boolean theKeys)
+                throws SQLException {
+            PreparedStatement statement = theCache.get(theSql);
+            if (statement == null) {
+                statement = theKeys
+                        ? myConnection.prepareStatement(theSql, Statement.RETURN_GENERATED_KEYS)
+                        : myConnection.prepareStatement(theSql);
+                theCache.put(theSql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+
+        /**
+         * Closes the cached statements and the connection.
+         */
+        private void closeConnection() {
+            try {
+                for (final PreparedStatement statement : myStatements.values()) {
+                    statement.close();
+                }
+                for (final PreparedStatement statement : myKeyStatements.values()) {
+                    statement.close();
+                }
+                myConnection.close();
+            } catch (final SQLException theException) {
+                MY_LOGGER.log(Level.WARNING, "Unable to close the connection", theException);
+            }
+        }
+    }
+}
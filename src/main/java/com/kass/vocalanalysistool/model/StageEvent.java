@@ -0,0 +1,40 @@
+package com.kass.vocalanalysistool.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>The Flight Recorder event of one {@link StageMetrics.Span}; its duration is the time
+ * the stage took. Record with e.g.
+ * {@code -XX:StartFlightRecording=filename=vat.jfr} and look for
+ * {@code com.kass.vocalanalysistool.Stage} in JDK Mission Control or
+ * {@code jfr print --events com.kass.vocalanalysistool.Stage vat.jfr}.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+@Name("com.kass.vocalanalysistool.Stage")
+@Label("Analysis Stage")
+@Category("Vocal Analysis")
+@Description("A timed stage of the analysis pipeline")
+@StackTrace(false)
+final class StageEvent extends Event {
+
+    /**
+     * The name of the stage.
+     */
+    @Name("stage")
+    @Label("Stage")
+    private String myStage;
+
+    /**
+     * @param theStage The name of the stage.
+     */
+    void setStage(final String theStage) {
+        myStage = theStage;
+    }
+}
@@ -0,0 +1,340 @@
+package com.kass.vocalanalysistool.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Times the stages of the pipeline (python setup, analysis, database calls, plot
+ * rendering, scene loading) so a slow analysis can be traced to the stage that took the
+ * time. Wrap a stage in a span:</p>
+ *
+ * <pre>{@code
+ * try (StageMetrics.Span span = StageMetrics.start("db.insert")) {
+ *     ...
+ * }
+ * }</pre>
+ *
+ * <p>The span is only there to be closed, so javac's {@code [try]} lint reports it as never
+ * referenced; the methods that open a span suppress that lint, so it still checks the
+ * other resources of their classes.</p>
+ *
+ * <p>Every span is recorded twice: as a {@link StageEvent} for the Flight Recorder (only
+ * when a recording is running) and in the per-stage statistics of this class. The
+ * statistics keep the count, mean and maximum of all spans of a stage and the percentiles
+ * of its last {@value #WINDOW} spans. Run with
+ * {@code -Dvocalanalysis.metrics.file=metrics.csv} to write them to a file when the app
+ * exits.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class StageMetrics {
+
+    /**
+     * The system property naming the file the statistics are written to on exit.
+     */
+    public static final String FILE_PROPERTY = "vocalanalysis.metrics.file";
+
+    /**
+     * The number of recent spans per stage the percentiles are taken from.
+     */
+    private static final int WINDOW = 1024;
+
+    /**
+     * The statistics of every stage by name.
+     */
+    private static final Map<String, Stage> STAGES = new ConcurrentHashMap<>();
+
+    /**
+     * Logger used for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger("Stage Metrics");
+
+    static {
+        final String file = System.getProperty(FILE_PROPERTY);
+        if (file != null && !file.isBlank()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    dump(Path.of(file));
+                } catch (final IOException theException) {
+                    MY_LOGGER.log(Level.WARNING, "Unable to write the stage metrics",
+                            theException);
+                }
+            }, "StageMetricsDump"));
+        }
+    }
+
+    /**
+     * Utility class.
+     */
+    private StageMetrics() {
+    }
+
+    /**
+     * Starts timing a stage.
+     *
+     * @param theStage The name of the stage, e.g. "python.pip" or "db.insert".
+     * @return Returns the span; close it when the stage is done.
+     */
+    public static Span start(final String theStage) {
+        return new Span(theStage);
+    }
+
+    /**
+     * @return Returns the statistics of every stage timed so far, sorted by name.
+     */
+    public static List<Snapshot> snapshot() {
+        final List<Snapshot> snapshots = new ArrayList<>();
+        for (final Map.Entry<String, Stage> stage : STAGES.entrySet()) {
+            snapshots.add(stage.getValue().snapshot(stage.getKey()));
+        }
+        snapshots.sort((theFirst, theSecond) ->
+                theFirst.getStage().compareTo(theSecond.getStage()));
+        return snapshots;
+    }
+
+    /**
+     * Writes the statistics as a CSV file with one row per stage; the times are in
+     * milliseconds.
+     *
+     * @param theFile The file to write.
+     * @throws IOException Thrown if the file can not be written.
+     */
+    public static void dump(final Path theFile) throws IOException {
+        final List<Snapshot> snapshots = snapshot();
+        try (final BufferedWriter writer = Files.newBufferedWriter(theFile,
+                StandardCharsets.UTF_8)) {
+            writer.write("stage,count,mean_ms,p50_ms,p95_ms,p99_ms,max_ms");
+            writer.newLine();
+            for (final Snapshot snapshot : snapshots) {
+                writer.write(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f",
+                        snapshot.getStage(), snapshot.getCount(), snapshot.getMeanMillis(),
+                        snapshot.getPercentileMillis(50), snapshot.getPercentileMillis(95),
+                        snapshot.getPercentileMillis(99), snapshot.getMaxMillis()));
+                writer.newLine();
+            }
+        }
+        MY_LOGGER.info(() -> "Wrote the metrics of " + snapshots.size() + " stages to "
+                + theFile);
+    }
+
+    /**
+     * Records a finished span.
+     *
+     * @param theStage The name of the stage.
+     * @param theNanos The duration in nanoseconds.
+     */
+    private static void record(final String theStage, final long theNanos) {
+        STAGES.computeIfAbsent(theStage, theName -> new Stage()).add(theNanos);
+    }
+
+    /**
+     * The timing of one run of a stage.
+     */
+    public static final class Span implements AutoCloseable {
+
+        /**
+         * The name of the stage.
+         */
+        private final String myStage;
+
+        /**
+         * The start time of the span.
+         */
+        private final long myStart;
+
+        /**
+         * The Flight Recorder event of the span.
+         */
+        private final StageEvent myEvent = new StageEvent();
+
+        /**
+         * Set once the span was recorded.
+         */
+        private boolean myClosed;
+
+        /**
+         * Constructor for the span.
+         *
+         * @param theStage The name of the stage.
+         */
+        private Span(final String theStage) {
+            myStage = theStage;
+            myEvent.begin();
+            myStart = System.nanoTime();
+        }
+
+        /**
+         * Ends the span and records it; later calls do nothing.
+         */
+        @Override
+        public void close() {
+            if (myClosed) {
+                return;
+            }
+            myClosed = true;
+            final long nanos = System.nanoTime() - myStart;
+            myEvent.end();
+            if (myEvent.shouldCommit()) {
+                myEvent.setStage(myStage);
+                myEvent.commit();
+            }
+            record(myStage, nanos);
+        }
+    }
+
+    /**
+     * The running statistics of one stage.
+     */
+    private static final class Stage {
+
+        /**
+         * The most recent durations in nanoseconds.
+         */
+        private final long[] myRecent = new long[WINDOW];
+
+        /**
+         * The number of spans.
+         */
+        private long myCount;
+
+        /**
+         * The sum of all durations in nanoseconds.
+         */
+        private long myTotal;
+
+        /**
+         * The longest duration in nanoseconds.
+         */
+        private long myMax;
+
+        /**
+         * @param theNanos A duration in nanoseconds.
+         */
+        private synchronized void add(final long theNanos) {
+            myRecent[(int) (myCount % WINDOW)] = theNanos;
+            myCount++;
+            myTotal += theNanos;
+            myMax = Math.max(myMax, theNanos);
+        }
+
+        /**
+         * @param theStage The name of the stage.
+         * @return Returns the current statistics.
+         */
+        private synchronized Snapshot snapshot(final String theStage) {
+            final long[] recent = Arrays.copyOf(myRecent, (int) Math.min(myCount, WINDOW));
+            return new Snapshot(theStage, myCount, myTotal, myMax, recent);
+        }
+    }
+
+    /**
+     * The statistics of one stage at one point in time.
+     */
+    public static final class Snapshot {
+
+        /**
+         * The name of the stage.
+         */
+        private final String myStage;
+
+        /**
+         * The number of spans.
+         */
+        private final long myCount;
+
+        /**
+         * The sum of all durations in nanoseconds.
+         */
+        private final long myTotal;
+
+        /**
+         * The longest duration in nanoseconds.
+         */
+        private final long myMax;
+
+        /**
+         * The sorted durations of the most recent spans in nanoseconds.
+         */
+        private final long[] myRecent;
+
+        /**
+         * Constructor for the snapshot.
+         *
+         * @param theStage  The name of the stage.
+         * @param theCount  The number of spans.
+         * @param theTotal  The sum of all durations in nanoseconds.
+         * @param theMax    The longest duration in nanoseconds.
+         * @param theRecent The durations of the most recent spans; sorted in place.
+         */
+        private Snapshot(final String theStage, final long theCount, final long theTotal,
+                         final long theMax, final long[] theRecent) {
+            myStage = theStage;
+            myCount = theCount;
+            myTotal = theTotal;
+            myMax = theMax;
+            myRecent = theRecent;
+            Arrays.sort(myRecent);
+        }
+
+        /**
+         * @return Returns the name of the stage.
+         */
+        public String getStage() {
+            return myStage;
+        }
+
+        /**
+         * @return Returns the number of spans.
+         */
+        public long getCount() {
+            return myCount;
+        }
+
+        /**
+         * @return Returns the mean duration in milliseconds.
+         */
+        public double getMeanMillis() {
+            return myCount == 0 ? Double.NaN : (double) myTotal / myCount / 1e6;
+        }
+
+        /**
+         * @return Returns the longest duration in milliseconds.
+         */
+        public double getMaxMillis() {
+            return myMax / 1e6;
+        }
+
+        /**
+         * @param thePercent The percentile [0 - 100].
+         * @return Returns the duration percentile of the recent spans in milliseconds
+         * (nearest rank).
+         */
+        public double getPercentileMillis(final double thePercent) {
+            if (myRecent.length == 0) {
+                return Double.NaN;
+            }
+            final int rank = (int) Math.ceil(thePercent / 100.0 * myRecent.length);
+            return myRecent[Math.max(0, Math.min(rank, myRecent.length) - 1)] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d spans, mean %.1f ms, p50 %.1f ms, p95 %.1f ms, "
+                            + "p99 %.1f ms, max %.1f ms", myStage, myCount, getMeanMillis(),
+                    getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99),
+                    getMaxMillis());
+        }
+    }
+}
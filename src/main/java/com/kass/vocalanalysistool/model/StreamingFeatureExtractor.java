@@ -0,0 +1,521 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Computes the feature row of {@link FeatureExtractor} in a single pass, one frame at a
+ * time and in constant memory, so the features of a long recording can be shown while it is
+ * still being analyzed.</p>
+ *
+ * <p>Means and standard deviations are Welford accumulators, the intonation slope is an
+ * online least squares fit and the medians and percentiles are P&sup2; estimates (Jain and
+ * Chlamtac). Counts, means, deviations, minima, maxima and the slope equal the batch values
+ * up to rounding; the percentiles are exact up to five values and estimates after that,
+ * usually within a few Hz of the batch value for a voice track.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class StreamingFeatureExtractor {
+
+    /**
+     * The reference frequency of the semitone scale.
+     */
+    private static final double SEMITONE_REFERENCE = 55.0;
+
+    /**
+     * The minimum number of voiced frames for the intonation statistics.
+     */
+    private static final int MIN_VOICED_FRAMES = 5;
+
+    /**
+     * The intonation features, NaN until enough frames are voiced.
+     */
+    private static final String[] INTONATION = {"f0_mean_hz", "f0_sd_hz", "f0_min_hz",
+            "f0_max_hz", "f0_p5_hz", "f0_p95_hz", "range_semitones", "range_st_5_95",
+            "slope_st_per_sec", "f0_sd_st", "voiced_frac"};
+
+    /**
+     * The analysis parameters.
+     */
+    private final AnalysisParameters myParams;
+
+    /**
+     * The median, 5th and 95th percentile of the filtered F0.
+     */
+    private final Quantile[] myF0 = {new Quantile(0.5), new Quantile(0.05),
+            new Quantile(0.95)};
+
+    /**
+     * The medians of the filtered F1 - F4, index 0 unused.
+     */
+    private final Quantile[] myFormantMedians = {null, new Quantile(0.5), new Quantile(0.5),
+            new Quantile(0.5), new Quantile(0.5)};
+
+    /**
+     * The F0 of all voiced frames in Hz.
+     */
+    private final Moments myVoicedHz = new Moments();
+
+    /**
+     * The F0 of the voiced frames inside the pitch range in Hz.
+     */
+    private final Moments myInRangeHz = new Moments();
+
+    /**
+     * The F0 of the voiced frames inside the pitch range in semitones.
+     */
+    private final Moments myInRangeSt = new Moments();
+
+    /**
+     * The semitones over time of the frames inside the pitch range.
+     */
+    private final Regression mySlope = new Regression();
+
+    /**
+     * The 5th and 95th percentile of the F0 inside the pitch range.
+     */
+    private final Quantile[] myInRangePercentiles = {new Quantile(0.05), new Quantile(0.95)};
+
+    /**
+     * The HNR of the voiced frames.
+     */
+    private final Moments myHnr = new Moments();
+
+    /**
+     * The median HNR of the voiced frames.
+     */
+    private final Quantile myHnrMedian = new Quantile(0.5);
+
+    /**
+     * The lowest F0 inside the pitch range.
+     */
+    private double myMin;
+
+    /**
+     * The highest F0 inside the pitch range.
+     */
+    private double myMax;
+
+    /**
+     * The number of analyzed frames.
+     */
+    private long myFrames;
+
+    /**
+     * Constructor for the extractor.
+     *
+     * @param theParams The analysis parameters.
+     */
+    public StreamingFeatureExtractor(final AnalysisParameters theParams) {
+        myParams = theParams;
+        reset();
+    }
+
+    /**
+     * Forgets every frame.
+     */
+    public void reset() {
+        for (final Quantile quantile : myF0) {
+            quantile.reset();
+        }
+        for (int f = 1; f < myFormantMedians.length; f++) {
+            myFormantMedians[f].reset();
+        }
+        for (final Quantile quantile : myInRangePercentiles) {
+            quantile.reset();
+        }
+        myVoicedHz.reset();
+        myInRangeHz.reset();
+        myInRangeSt.reset();
+        mySlope.reset();
+        myHnr.reset();
+        myHnrMedian.reset();
+        myMin = Double.POSITIVE_INFINITY;
+        myMax = Double.NEGATIVE_INFINITY;
+        myFrames = 0;
+    }
+
+    /**
+     * Adds an analyzed frame (the unfiltered pitch track).
+     *
+     * @param theTime        The time of the frame.
+     * @param thePitch       The unfiltered F0, 0 if unvoiced.
+     * @param theHarmonicity The HNR in dB, {@link PitchTracker#UNVOICED_DB} if unvoiced.
+     */
+    public void addFrame(final double theTime, final double thePitch,
+                         final double theHarmonicity) {
+        myFrames++;
+        if (thePitch > 0) {
+            myVoicedHz.add(thePitch);
+            if (thePitch >= myParams.getPitchFloor() && thePitch <= myParams.getPitchCeiling()) {
+                final double semitones = 12.0 * log2(thePitch / SEMITONE_REFERENCE);
+                myInRangeHz.add(thePitch);
+                myInRangeSt.add(semitones);
+                mySlope.add(theTime, semitones);
+                myInRangePercentiles[0].add(thePitch);
+                myInRangePercentiles[1].add(thePitch);
+                myMin = Math.min(myMin, thePitch);
+                myMax = Math.max(myMax, thePitch);
+            }
+        }
+        if (theHarmonicity != PitchTracker.UNVOICED_DB && Double.isFinite(theHarmonicity)) {
+            myHnr.add(theHarmonicity);
+            myHnrMedian.add(theHarmonicity);
+        }
+    }
+
+    /**
+     * Adds a frame that passed the continuity filter.
+     *
+     * @param theRow The row {time, f0, f1, f2, f3, f4}.
+     */
+    public void addFormants(final double[] theRow) {
+        final double f0 = theRow[1];
+        if (f0 > 0 && Double.isFinite(f0)) {
+            for (final Quantile quantile : myF0) {
+                quantile.add(f0);
+            }
+        }
+        for (int f = 1; f < myFormantMedians.length; f++) {
+            final double value = theRow[f + 1];
+            if (value > 0 && Double.isFinite(value)) {
+                myFormantMedians[f].add(value);
+            }
+        }
+    }
+
+    /**
+     * @return Returns the features of the frames so far, in CSV column order.
+     */
+    public Map<String, Double> getFeatures() {
+        final Map<String, Double> features = new LinkedHashMap<>();
+        features.put("F0_med", myF0[0].get());
+        features.put("F0_p5", myF0[1].get());
+        features.put("F0_p95", myF0[2].get());
+        final double[] medians = new double[5];
+        for (int f = 1; f < 5; f++) {
+            medians[f] = myFormantMedians[f].get();
+            features.put("F" + f + "_med", medians[f]);
+        }
+        features.put("F2_over_F1", ratio(medians[2], medians[1]));
+        features.put("F3_over_F2", ratio(medians[3], medians[2]));
+        features.put("F4_over_F3", ratio(medians[4], medians[3]));
+
+        if (myInRangeHz.getCount() < MIN_VOICED_FRAMES) {
+            for (final String name : INTONATION) {
+                features.put(name, Double.NaN);
+            }
+        } else {
+            final double p5 = myInRangePercentiles[0].get();
+            final double p95 = myInRangePercentiles[1].get();
+            features.put("f0_mean_hz", myInRangeHz.getMean());
+            features.put("f0_sd_hz", myVoicedHz.getStandardDeviation());
+            features.put("f0_min_hz", myMin);
+            features.put("f0_max_hz", myMax);
+            features.put("f0_p5_hz", p5);
+            features.put("f0_p95_hz", p95);
+            features.put("range_semitones", 12.0 * log2(myMax / myMin));
+            features.put("range_st_5_95", p5 > 0 ? 12.0 * log2(p95 / p5) : Double.NaN);
+            features.put("slope_st_per_sec", mySlope.getSlope());
+            features.put("f0_sd_st", myInRangeSt.getStandardDeviation());
+            features.put("voiced_frac", (double) myVoicedHz.getCount() / myFrames);
+        }
+
+        final double hnrMean = myHnr.getCount() == 0 ? Double.NaN : myHnr.getMean();
+        features.put("hnr_mean_db", hnrMean);
+        features.put("hnr_median_db", myHnrMedian.get());
+        features.put("hnr_voiced_fraction", myFrames == 0 ? Double.NaN
+                : (double) myHnr.getCount() / myFrames);
+        // higher = breathier
+        features.put("breathiness_index", -hnrMean);
+        return features;
+    }
+
+    /**
+     * @param theNumerator   The numerator.
+     * @param theDenominator The denominator.
+     * @return Returns the ratio, NaN if the denominator is 0 or not finite.
+     */
+    private static double ratio(final double theNumerator, final double theDenominator) {
+        return theDenominator != 0 && Double.isFinite(theDenominator)
+                ? theNumerator / theDenominator : Double.NaN;
+    }
+
+    /**
+     * @param theValue A positive value.
+     * @return Returns the base 2 logarithm.
+     */
+    private static double log2(final double theValue) {
+        return Math.log(theValue) / Math.log(2);
+    }
+
+    /**
+     * Welford's running mean and variance.
+     */
+    private static final class Moments {
+
+        /**
+         * The number of values.
+         */
+        private long myCount;
+
+        /**
+         * The mean of the values.
+         */
+        private double myMean;
+
+        /**
+         * The sum of the squared deviations from the mean.
+         */
+        private double mySquares;
+
+        /**
+         * Forgets every value.
+         */
+        private void reset() {
+            myCount = 0;
+            myMean = 0;
+            mySquares = 0;
+        }
+
+        /**
+         * @param theValue The next value.
+         */
+        private void add(final double theValue) {
+            myCount++;
+            final double delta = theValue - myMean;
+            myMean += delta / myCount;
+            mySquares += delta * (theValue - myMean);
+        }
+
+        /**
+         * @return Returns the number of values.
+         */
+        private long getCount() {
+            return myCount;
+        }
+
+        /**
+         * @return Returns the mean, NaN without values.
+         */
+        private double getMean() {
+            return myCount == 0 ? Double.NaN : myMean;
+        }
+
+        /**
+         * @return Returns the sample standard deviation, 0 for a single value.
+         */
+        private double getStandardDeviation() {
+            if (myCount < 2) {
+                return myCount == 0 ? Double.NaN : 0.0;
+            }
+            return Math.sqrt(mySquares / (myCount - 1));
+        }
+    }
+
+    /**
+     * Running least squares fit of y over x.
+     */
+    private static final class Regression {
+
+        /**
+         * The number of points.
+         */
+        private long myCount;
+
+        /**
+         * The mean of x.
+         */
+        private double myMeanX;
+
+        /**
+         * The mean of y.
+         */
+        private double myMeanY;
+
+        /**
+         * The sum of the squared deviations of x.
+         */
+        private double myVarianceX;
+
+        /**
+         * The sum of the co-deviations of x and y.
+         */
+        private double myCovariance;
+
+        /**
+         * Forgets every point.
+         */
+        private void reset() {
+            myCount = 0;
+            myMeanX = 0;
+            myMeanY = 0;
+            myVarianceX = 0;
+            myCovariance = 0;
+        }
+
+        /**
+         * @param theX The x value.
+         * @param theY The y value.
+         */
+        private void add(final double theX, final double theY) {
+            myCount++;
+            final double dx = theX - myMeanX;
+            myMeanX += dx / myCount;
+            myMeanY += (theY - myMeanY) / myCount;
+            myVarianceX += dx * (theX - myMeanX);
+            myCovariance += dx * (theY - myMeanY);
+        }
+
+        /**
+         * @return Returns the slope, NaN if x does not vary.
+         */
+        private double getSlope() {
+            return myVarianceX == 0 ? Double.NaN : myCovariance / myVarianceX;
+        }
+    }
+
+    /**
+     * P&sup2; estimate of one quantile with five markers. The first five values are kept,
+     * so small samples give the exact (linear interpolated) percentile.
+     */
+    private static final class Quantile {
+
+        /**
+         * The quantile [0 - 1].
+         */
+        private final double myProbability;
+
+        /**
+         * The marker heights.
+         */
+        private final double[] myHeights = new double[5];
+
+        /**
+         * The marker positions, 0 based.
+         */
+        private final long[] myPositions = new long[5];
+
+        /**
+         * The desired marker positions.
+         */
+        private final double[] myDesired = new double[5];
+
+        /**
+         * The increments of the desired positions.
+         */
+        private final double[] myIncrements;
+
+        /**
+         * The number of values.
+         */
+        private long myCount;
+
+        /**
+         * Constructor for the estimate.
+         *
+         * @param theProbability The quantile [0 - 1].
+         */
+        private Quantile(final double theProbability) {
+            myProbability = theProbability;
+            myIncrements = new double[]{0, theProbability / 2, theProbability,
+                    (1 + theProbability) / 2, 1};
+        }
+
+        /**
+         * Forgets every value.
+         */
+        private void reset() {
+            myCount = 0;
+        }
+
+        /**
+         * @param theValue The next value.
+         */
+        private void add(final double theValue) {
+            if (myCount < 5) {
+                myHeights[(int) myCount++] = theValue;
+                if (myCount == 5) {
+                    Arrays.sort(myHeights);
+                    for (int i = 0; i < 5; i++) {
+                        myPositions[i] = i;
+                    }
+                    myDesired[0] = 0;
+                    myDesired[1] = 2 * myProbability;
+                    myDesired[2] = 4 * myProbability;
+                    myDesired[3] = 2 + 2 * myProbability;
+                    myDesired[4] = 4;
+                }
+                return;
+            }
+            myCount++;
+
+            final int cell;
+            if (theValue < myHeights[0]) {
+                myHeights[0] = theValue;
+                cell = 0;
+            } else if (theValue >= myHeights[4]) {
+                myHeights[4] = theValue;
+                cell = 3;
+            } else {
+                int k = 0;
+                while (theValue >= myHeights[k + 1]) {
+                    k++;
+                }
+                cell = k;
+            }
+            for (int i = cell + 1; i < 5; i++) {
+                myPositions[i]++;
+            }
+            for (int i = 0; i < 5; i++) {
+                myDesired[i] += myIncrements[i];
+            }
+
+            for (int i = 1; i < 4; i++) {
+                final double offset = myDesired[i] - myPositions[i];
+                if (offset >= 1 && myPositions[i + 1] - myPositions[i] > 1
+                        || offset <= -1 && myPositions[i - 1] - myPositions[i] < -1) {
+                    final int sign = offset > 0 ? 1 : -1;
+                    final double height = parabolic(i, sign);
+                    if (myHeights[i - 1] < height && height < myHeights[i + 1]) {
+                        myHeights[i] = height;
+                    } else {
+                        myHeights[i] += sign * (myHeights[i + sign] - myHeights[i])
+                                / (myPositions[i + sign] - myPositions[i]);
+                    }
+                    myPositions[i] += sign;
+                }
+            }
+        }
+
+        /**
+         * @param theMarker The marker [1 - 3].
+         * @param theSign   The direction the marker moves.
+         * @return Returns the piecewise parabolic height of the moved marker.
+         */
+        private double parabolic(final int theMarker, final int theSign) {
+            final double below = myPositions[theMarker] - myPositions[theMarker - 1];
+            final double above = myPositions[theMarker + 1] - myPositions[theMarker];
+            return myHeights[theMarker] + theSign / (below + above)
+                    * ((below + theSign) * (myHeights[theMarker + 1] - myHeights[theMarker])
+                    / above
+                    + (above - theSign) * (myHeights[theMarker] - myHeights[theMarker - 1])
+                    / below);
+        }
+
+        /**
+         * @return Returns the quantile, NaN without values.
+         */
+        private double get() {
+            if (myCount <= 5) {
+                final double[] sorted = Arrays.copyOf(myHeights, (int) myCount);
+                Arrays.sort(sorted);
+                return FeatureExtractor.percentile(sorted, 100 * myProbability);
+            }
+            return myHeights[2];
+        }
+    }
+}
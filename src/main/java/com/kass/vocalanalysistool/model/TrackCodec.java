@@ -0,0 +1,81 @@
+package com.kass.vocalanalysistool.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * <p>Packs the tracks of an analysis into the BLOB columns of the user_formants table:
+ * the times as little-endian float64 and the frequencies as little-endian float32 (a
+ * float keeps 0.01 Hz precision up to 100 kHz). The python script writes the same layout
+ * with {@code numpy.asarray(track, "<f4").tobytes()}.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class TrackCodec {
+
+    /**
+     * Utility class.
+     */
+    private TrackCodec() {
+    }
+
+    /**
+     * @param theTrack The frequencies.
+     * @return Returns the frequencies as packed little-endian float32.
+     */
+    public static byte[] encodeFloat32(final double[] theTrack) {
+        final ByteBuffer buffer = ByteBuffer.allocate(theTrack.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        final FloatBuffer floats = buffer.asFloatBuffer();
+        for (final double value : theTrack) {
+            floats.put((float) value);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param theTrack The times.
+     * @return Returns the times as packed little-endian float64.
+     */
+    public static byte[] encodeFloat64(final double[] theTrack) {
+        final ByteBuffer buffer = ByteBuffer.allocate(theTrack.length * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asDoubleBuffer().put(theTrack);
+        return buffer.array();
+    }
+
+    /**
+     * @param theBlob Packed little-endian float32, or null.
+     * @return Returns the decoded values; empty if the blob is null.
+     */
+    public static double[] decodeFloat32(final byte[] theBlob) {
+        if (theBlob == null) {
+            return new double[0];
+        }
+        final FloatBuffer floats = ByteBuffer.wrap(theBlob).order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+        final double[] values = new double[floats.remaining()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = floats.get(i);
+        }
+        return values;
+    }
+
+    /**
+     * @param theBlob Packed little-endian float64, or null.
+     * @return Returns the decoded values; empty if the blob is null.
+     */
+    public static double[] decodeFloat64(final byte[] theBlob) {
+        if (theBlob == null) {
+            return new double[0];
+        }
+        final DoubleBuffer doubles = ByteBuffer.wrap(theBlob).order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer();
+        final double[] values = new double[doubles.remaining()];
+        doubles.get(values);
+        return values;
+    }
+}
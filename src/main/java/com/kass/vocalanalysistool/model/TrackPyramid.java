@@ -0,0 +1,110 @@
+package com.kass.vocalanalysistool.model;
+
+import java.util.Arrays;
+
+/**
+ * <p>Min/max summary of a frequency track for drawing it one pixel column at a time.</p>
+ *
+ * <p>The track is stored as a bottom-up segment tree of float minima and maxima, so the
+ * extremes of any range of frames are found in O(log n) no matter how many frames the
+ * range spans. A chart then costs O(width log n) per redraw, however long the recording
+ * is. Missing values (NaN, zero) are skipped.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class TrackPyramid {
+
+    /**
+     * The number of leaves (a power of two).
+     */
+    private final int myLeaves;
+
+    /**
+     * The minimum of every node; node 1 is the root, the leaves start at {@link #myLeaves}.
+     */
+    private final float[] myMin;
+
+    /**
+     * The maximum of every node.
+     */
+    private final float[] myMax;
+
+    /**
+     * The values of the track.
+     */
+    private final double[] myValues;
+
+    /**
+     * Constructor for the pyramid.
+     *
+     * @param theValues The frequencies of the track.
+     */
+    public TrackPyramid(final double[] theValues) {
+        myValues = theValues;
+        myLeaves = Integer.highestOneBit(Math.max(1, theValues.length - 1)) << 1;
+        myMin = new float[2 * myLeaves];
+        myMax = new float[2 * myLeaves];
+        Arrays.fill(myMin, Float.POSITIVE_INFINITY);
+        Arrays.fill(myMax, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < theValues.length; i++) {
+            final double value = theValues[i];
+            if (value > 0 && Double.isFinite(value)) {
+                myMin[myLeaves + i] = (float) value;
+                myMax[myLeaves + i] = (float) value;
+            }
+        }
+        for (int node = myLeaves - 1; node > 0; node--) {
+            myMin[node] = Math.min(myMin[2 * node], myMin[2 * node + 1]);
+            myMax[node] = Math.max(myMax[2 * node], myMax[2 * node + 1]);
+        }
+    }
+
+    /**
+     * @param theIndex The frame.
+     * @return Returns the value of the frame.
+     */
+    public double get(final int theIndex) {
+        return myValues[theIndex];
+    }
+
+    /**
+     * Gets the smallest valid value of a range of frames.
+     *
+     * @param theFrom The first frame (inclusive).
+     * @param theTo   The last frame (exclusive).
+     * @return Returns the minimum, or +infinity if the range has no valid value.
+     */
+    public double min(final int theFrom, final int theTo) {
+        float result = Float.POSITIVE_INFINITY;
+        for (int lo = theFrom + myLeaves, hi = theTo + myLeaves; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                result = Math.min(result, myMin[lo++]);
+            }
+            if ((hi & 1) == 1) {
+                result = Math.min(result, myMin[--hi]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the largest valid value of a range of frames.
+     *
+     * @param theFrom The first frame (inclusive).
+     * @param theTo   The last frame (exclusive).
+     * @return Returns the maximum, or -infinity if the range has no valid value.
+     */
+    public double max(final int theFrom, final int theTo) {
+        float result = Float.NEGATIVE_INFINITY;
+        for (int lo = theFrom + myLeaves, hi = theTo + myLeaves; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                result = Math.max(result, myMax[lo++]);
+            }
+            if ((hi & 1) == 1) {
+                result = Math.max(result, myMax[--hi]);
+            }
+        }
+        return result;
+    }
+}
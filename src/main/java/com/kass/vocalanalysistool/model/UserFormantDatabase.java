@@ -1,23 +1,109 @@
 package com.kass.vocalanalysistool.model;
 
 import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Date;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.sqlite.SQLiteDataSource;
 
 
 public class UserFormantDatabase {
 
     /**
-     * The data source object.
+     * The shared connection pool of the database.
      */
-    private SQLiteDataSource myDs;
+    private SqliteConnectionPool myPool;
+
+    /**
+     * The version of the user_formants schema stored in PRAGMA user_version.
+     * 0: tracks as JSON text, 2: tracks as packed BLOBs, 3: index for the latest session,
+     * 4: session_features table, 5: analysis_cache table, 6: session_thumbnails table,
+     * 7: payload column for tracks kept in files, 8: app_meta table.
+     */
+    private static final int SCHEMA_VERSION = 8;
+
+    /**
+     * The system property that keeps the tracks of large sessions in files next to the
+     * database when set to "files"; they are stored in their row otherwise.
+     */
+    public static final String PAYLOADS_PROPERTY = "vocalanalysis.db.payloads";
+
+    /**
+     * The directory holding the payload files, next to the database.
+     */
+    public static final String PAYLOAD_DIRECTORY = "Vocal_Analysis.payloads";
+
+    /**
+     * Sessions whose tracks are smaller than this (in bytes) stay in their row even with
+     * {@link #PAYLOADS_PROPERTY} set; a file per short take is not worth it.
+     */
+    private static final int EXTERNAL_MIN_BYTES = 64 * 1024;
+
+    /**
+     * The value of PRAGMA auto_vacuum for incremental vacuum.
+     */
+    private static final int INCREMENTAL_VACUUM = 2;
+
+    /**
+     * The most free pages returned to the file system per transaction.
+     */
+    private static final int VACUUM_STEP_PAGES = 1024;
+
+    /**
+     * The most sessions deleted per transaction by {@link #applyRetention(int, int)}.
+     */
+    private static final int RETENTION_BATCH = 100;
+
+    /**
+     * The format SQLite stores the timestamps in (UTC).
+     */
+    private static final DateTimeFormatter STORED_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * The payload files of this process' database.
+     */
+    private static final PayloadStore PAYLOADS = new PayloadStore(Path.of(PAYLOAD_DIRECTORY));
+
+    /**
+     * An empty track; the placeholder of the NOT NULL track columns of a row whose tracks
+     * are kept in a payload file.
+     */
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * The width of the session thumbnails in pixels.
+     */
+    public static final int THUMBNAIL_WIDTH = 160;
+
+    /**
+     * The height of the session thumbnails in pixels.
+     */
+    public static final int THUMBNAIL_HEIGHT = 60;
+
+    /**
+     * Parses the JSON tracks of databases that are migrated.
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Set once the schema of this process' database is current.
+     */
+    private static volatile boolean ourSchemaReady;
 
     /**
      * The jdbc URL.
@@ -37,6 +123,7 @@ public class UserFormantDatabase {
     public UserFormantDatabase(final boolean theDebugger) {
         setDebugger(theDebugger);
         initializeDatabase();
+        ensureSchema();
     }
 
     /**
@@ -55,8 +142,7 @@ public class UserFormantDatabase {
      */
     private void initializeDatabase() {
         try {
-            myDs = new SQLiteDataSource();
-            myDs.setUrl(DB_URL);
+            myPool = SqliteConnectionPool.getInstance(DB_URL);
             MY_LOGGER.info("Database connection established successfully\n");
         } catch (final Exception theException) {
             MY_LOGGER.severe(theException.getMessage() + "\n");
@@ -65,66 +151,949 @@ public class UserFormantDatabase {
     }
 
     /**
-     * Deletes all records from the 'user_formants' table.
+     * Creates the 'user_formants' table if it does not exist yet and migrates the tracks of
+     * an older database from JSON text to packed BLOBs. Runs once per process.
+     */
+    @SuppressWarnings("try")
+    private void ensureSchema() {
+        if (ourSchemaReady) {
+            return;
+        }
+        synchronized (UserFormantDatabase.class) {
+            if (ourSchemaReady) {
+                return;
+            }
+            try (final StageMetrics.Span span = StageMetrics.start("db.schema");
+                 final SqliteConnectionPool.Lease lease = myPool.lease()) {
+                final Connection conn = lease.getConnection();
+                final int version;
+                try (final Statement stmt = conn.createStatement();
+                     final ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                    version = rs.next() ? rs.getInt(1) : 0;
+                }
+                if (version < SCHEMA_VERSION) {
+                    migrate(conn);
+                }
+                ourSchemaReady = true;
+            } catch (final SQLException theEvent) {
+                MY_LOGGER.severe("Unable to create the user_formants table: "
+                        + theEvent.getMessage());
+                throw new RuntimeException("Unable to create the user_formants table: "
+                        + theEvent.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Creates the current schema in one transaction. Rows of the JSON schema (version 0,
+     * written by older versions of the app and the python script) are copied over with
+     * their id and timestamp. That schema did not store the frame times, so migrated rows
+     * have no time track.
+     *
+     * @param theConn An open connection.
+     * @throws SQLException Thrown if the migration fails; nothing is changed then.
+     */
+    private static void migrate(final Connection theConn) throws SQLException {
+        final String createSQL = """
+                CREATE TABLE IF NOT EXISTS user_formants
+                (
+                    id           INTEGER PRIMARY KEY AUTOINCREMENT,
+                    timestamp    TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    frame_count  INTEGER NOT NULL,
+                    time_blob    BLOB,
+                    f0_blob      BLOB NOT NULL,
+                    f1_blob      BLOB NOT NULL,
+                    f2_blob      BLOB NOT NULL,
+                    f3_blob      BLOB NOT NULL,
+                    f4_blob      BLOB NOT NULL,
+                    f0_avg       REAL,
+                    f1_avg       REAL,
+                    f2_avg       REAL,
+                    f3_avg       REAL,
+                    f4_avg       REAL,
+                    scatter_plot BLOB
+                )
+                """;
+        theConn.setAutoCommit(false);
+        try (final Statement stmt = theConn.createStatement()) {
+            final boolean legacy;
+            try (final ResultSet rs = stmt.executeQuery("""
+                    SELECT 1 FROM pragma_table_info('user_formants') WHERE name = 'f0_json'
+                    """)) {
+                legacy = rs.next();
+            }
+            if (legacy) {
+                stmt.executeUpdate("ALTER TABLE user_formants RENAME TO user_formants_json");
+            }
+            stmt.executeUpdate(createSQL);
+            if (legacy) {
+                final int migrated = copyJsonRows(theConn);
+                stmt.executeUpdate("DROP TABLE user_formants_json");
+                MY_LOGGER.info("Migrated " + migrated + " rows to the BLOB schema");
+            }
+            stmt.executeUpdate("""
+                    CREATE INDEX IF NOT EXISTS idx_user_formants_timestamp
+                        ON user_formants (timestamp, id)
+                    """);
+            stmt.executeUpdate("""
+                    CREATE TABLE IF NOT EXISTS session_features
+                    (
+                        session_id INTEGER NOT NULL
+                            REFERENCES user_formants (id) ON DELETE CASCADE,
+                        name       TEXT    NOT NULL,
+                        value      REAL,
+                        PRIMARY KEY (session_id, name)
+                    ) WITHOUT ROWID
+                    """);
+            stmt.executeUpdate("""
+                    CREATE TABLE IF NOT EXISTS analysis_cache
+                    (
+                        audio_hash  TEXT    NOT NULL,
+                        params_hash TEXT    NOT NULL,
+                        session_id  INTEGER NOT NULL
+                            REFERENCES user_formants (id) ON DELETE CASCADE,
+                        PRIMARY KEY (audio_hash, params_hash)
+                    ) WITHOUT ROWID
+                    """);
+            final boolean payloads;
+            try (final ResultSet rs = stmt.executeQuery("""
+                    SELECT 1 FROM pragma_table_info('user_formants') WHERE name = 'payload'
+                    """)) {
+                payloads = rs.next();
+            }
+            if (!payloads) {
+                stmt.executeUpdate("ALTER TABLE user_formants ADD COLUMN payload TEXT");
+            }
+            stmt.executeUpdate("""
+                    CREATE INDEX IF NOT EXISTS idx_user_formants_payload
+                        ON user_formants (payload) WHERE payload IS NOT NULL
+                    """);
+            stmt.executeUpdate("""
+                    CREATE INDEX IF NOT EXISTS idx_analysis_cache_session
+                        ON analysis_cache (session_id)
+                    """);
+            stmt.executeUpdate("""
+                    CREATE TABLE IF NOT EXISTS session_thumbnails
+                    (
+                        session_id INTEGER PRIMARY KEY
+                            REFERENCES user_formants (id) ON DELETE CASCADE,
+                        thumbnail  BLOB NOT NULL
+                    )
+                    """);
+            stmt.executeUpdate("""
+                    CREATE TABLE IF NOT EXISTS app_meta
+                    (
+                        key   TEXT PRIMARY KEY,
+                        value TEXT
+                    ) WITHOUT ROWID
+                    """);
+            stmt.executeUpdate("PRAGMA user_version = " + SCHEMA_VERSION);
+            theConn.commit();
+        } catch (final SQLException theEvent) {
+            theConn.rollback();
+            throw theEvent;
+        } finally {
+            theConn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Copies the rows of the renamed JSON table into the BLOB table.
+     *
+     * @param theConn A connection inside the migration transaction.
+     * @return Returns the number of copied rows.
+     * @throws SQLException Thrown if a row can not be copied.
      */
+    private static int copyJsonRows(final Connection theConn) throws SQLException {
+        final String selectSQL = """
+                SELECT id, timestamp, f0_json, f1_json, f2_json, f3_json, f4_json,
+                       formant_avg_json, scatter_plot
+                FROM user_formants_json
+                """;
+        final String insertSQL = """
+                INSERT INTO user_formants(id, timestamp, frame_count, f0_blob, f1_blob, f2_blob,
+                                          f3_blob, f4_blob, f0_avg, f1_avg, f2_avg, f3_avg,
+                                          f4_avg, scatter_plot)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+        int count = 0;
+        try (final Statement select = theConn.createStatement();
+             final ResultSet rs = select.executeQuery(selectSQL);
+             final PreparedStatement insert = theConn.prepareStatement(insertSQL)) {
+            while (rs.next()) {
+                final double[] f0 = GSON.fromJson(rs.getString("f0_json"), double[].class);
+                insert.setLong(1, rs.getLong("id"));
+                insert.setString(2, rs.getString("timestamp"));
+                insert.setInt(3, f0.length);
+                insert.setBytes(4, TrackCodec.encodeFloat32(f0));
+                for (int f = 1; f < 5; f++) {
+                    insert.setBytes(4 + f, TrackCodec.encodeFloat32(GSON.fromJson(
+                            rs.getString("f" + f + "_json"), double[].class)));
+                }
+                final double[] averages = GSON.fromJson(rs.getString("formant_avg_json"),
+                        double[].class);
+                for (int f = 0; f < 5; f++) {
+                    setAverage(insert, 9 + f, f < averages.length ? averages[f] : Double.NaN);
+                }
+                insert.setBytes(14, rs.getBytes("scatter_plot"));
+                insert.executeUpdate();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Binds an average or a feature; NaN (no valid frames) is stored as NULL.
+     *
+     * @param theStatement The statement.
+     * @param theIndex     The parameter index.
+     * @param theAverage   The average.
+     * @throws SQLException Thrown if the parameter can not be bound.
+     */
+    private static void setAverage(final PreparedStatement theStatement, final int theIndex,
+                                   final double theAverage) throws SQLException {
+        if (Double.isFinite(theAverage)) {
+            theStatement.setDouble(theIndex, theAverage);
+        } else {
+            theStatement.setNull(theIndex, Types.REAL);
+        }
+    }
+
+    /**
+     * Inserts the result of an analysis, its feature row and its history thumbnail in one
+     * transaction. The chart is drawn from the tracks, so no plot image is stored
+     * (scatter_plot stays NULL). With {@link #PAYLOADS_PROPERTY} set to "files" the tracks
+     * of a long session are written to a payload file and the row only keeps its hash.
+     *
+     * @param theResult The filtered tracks and averages.
+     * @return Returns the session id of the analysis (the id of the inserted row).
+     */
+    @SuppressWarnings("try")
+    public final long insertFormants(final AnalysisResult theResult) {
+        final double[][] formants = theResult.getFormants();
+        final double[] averages = theResult.getAverages();
+        final String insertSQL = """
+                INSERT INTO user_formants(frame_count, time_blob, f0_blob, f1_blob, f2_blob,
+                                          f3_blob, f4_blob, f0_avg, f1_avg, f2_avg, f3_avg,
+                                          f4_avg, payload)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+        final String featureSQL = """
+                INSERT INTO session_features(session_id, name, value)
+                VALUES (?, ?, ?)
+                """;
+        final byte[] thumbnail = FormantPlotRenderer.renderThumbnail(theResult.getTimes(),
+                formants, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+        final byte[][] columns = new byte[PayloadStore.COLUMNS][];
+        columns[PayloadStore.TIME] = TrackCodec.encodeFloat64(theResult.getTimes());
+        for (int f = 0; f < 5; f++) {
+            columns[PayloadStore.F0 + f] = TrackCodec.encodeFloat32(formants[f]);
+        }
+        final boolean external = isExternal(columns);
+        if (external) {
+            PAYLOADS.lock();
+        }
+        try (final StageMetrics.Span span = StageMetrics.start("db.insertFormants");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final String payload = external ? writePayload(columns) : null;
+            lease.getConnection().setAutoCommit(false);
+            final PreparedStatement ps = lease.prepareWithKeys(insertSQL);
+            ps.setInt(1, theResult.getTimes().length);
+            ps.setBytes(2, payload == null ? columns[PayloadStore.TIME] : null);
+            for (int f = 0; f < 5; f++) {
+                ps.setBytes(f + 3, payload == null ? columns[PayloadStore.F0 + f] : EMPTY);
+                setAverage(ps, f + 8, averages[f]);
+            }
+            ps.setString(13, payload);
+            ps.executeUpdate();
+            final long sessionId;
+            try (final ResultSet keys = ps.getGeneratedKeys()) {
+                sessionId = keys.next() ? keys.getLong(1) : -1;
+            }
+            final PreparedStatement features = lease.prepare(featureSQL);
+            for (final Map.Entry<String, Double> feature : theResult.getFeatures().entrySet()) {
+                features.setLong(1, sessionId);
+                features.setString(2, feature.getKey());
+                setAverage(features, 3, feature.getValue() == null ? Double.NaN
+                        : feature.getValue());
+                features.addBatch();
+            }
+            features.executeBatch();
+            storeThumbnail(lease, sessionId, thumbnail);
+            lease.getConnection().commit();
+            return sessionId;
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to insert the formant data: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to insert the formant data: "
+                    + theEvent.getMessage());
+        } finally {
+            if (external) {
+                PAYLOADS.unlock();
+            }
+        }
+    }
+
+    /**
+     * @param theColumns The BLOB columns of a session.
+     * @return Returns true if they are kept in a payload file: payload files are enabled and
+     * the columns are at least {@value #EXTERNAL_MIN_BYTES} bytes.
+     */
+    private static boolean isExternal(final byte[][] theColumns) {
+        if (!"files".equalsIgnoreCase(System.getProperty(PAYLOADS_PROPERTY))) {
+            return false;
+        }
+        long size = 0;
+        for (final byte[] column : theColumns) {
+            size += column == null ? 0 : column.length;
+        }
+        return size >= EXTERNAL_MIN_BYTES;
+    }
+
+    /**
+     * Writes a payload file; the caller holds the payload lock.
+     *
+     * @param theColumns The BLOB columns of a session.
+     * @return Returns the hash of the payload, or null if it could not be written and the
+     * columns have to stay in the row.
+     */
+    @SuppressWarnings("try")
+    private static String writePayload(final byte[][] theColumns) {
+        try (final StageMetrics.Span span = StageMetrics.start("db.writePayload")) {
+            return PAYLOADS.write(theColumns);
+        } catch (final IOException theException) {
+            MY_LOGGER.warning("Unable to write the payload file, keeping the tracks in the "
+                    + "database: " + theException.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the payload file of a session, e.g. to stream its tracks with a cursor.
+     *
+     * @param theHash The payload column of the row.
+     * @return Returns the BLOB columns of the session, indexed like {@link PayloadStore}.
+     * @throws IOException Thrown if the file is missing or damaged.
+     */
+    @SuppressWarnings("try")
+    byte[][] readPayload(final String theHash) throws IOException {
+        try (final StageMetrics.Span span = StageMetrics.start("db.readPayload")) {
+            return PAYLOADS.read(theHash);
+        }
+    }
+
+    /**
+     * Reads the payload file of a session for a query method.
+     *
+     * @param theHash The payload column of the row.
+     * @return Returns the BLOB columns of the session, indexed like {@link PayloadStore}.
+     */
+    private byte[][] loadPayload(final String theHash) {
+        try {
+            return readPayload(theHash);
+        } catch (final IOException theException) {
+            MY_LOGGER.severe("Unable to read the payload file: " + theException.getMessage());
+            throw new RuntimeException("Unable to read the payload file: "
+                    + theException.getMessage());
+        }
+    }
+
+    /**
+     * Leases a pooled connection of the database, e.g. to stream rows with a cursor.
+     *
+     * @return Returns the lease; close it to return the connection.
+     * @throws SQLException Thrown if no connection can be opened.
+     */
+    SqliteConnectionPool.Lease lease() throws SQLException {
+        return myPool.lease();
+    }
+
+    /**
+     * Deletes all records from the 'user_formants' table and their payload files, and returns
+     * the freed pages to the file system.
+     */
+    @SuppressWarnings("try")
     public final void clearDatabase() {
         final String deleteSQL = "DELETE FROM user_formants";
-        try (final Connection conn = myDs.getConnection();
-             final Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate(deleteSQL);
+        try (final StageMetrics.Span span = StageMetrics.start("db.clearDatabase");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            lease.prepare("DELETE FROM analysis_cache").executeUpdate();
+            lease.prepare("DELETE FROM session_features").executeUpdate();
+            lease.prepare("DELETE FROM session_thumbnails").executeUpdate();
+            lease.prepare(deleteSQL).executeUpdate();
         } catch (final SQLException theEvent) {
             MY_LOGGER.log(Level.SEVERE, "Error clearing database: " + theEvent.getMessage() +
                     "\n");
+            return;
+        }
+        sweepPayloads();
+        reclaimSpace();
+    }
+
+    /**
+     * Deletes a session together with its features, thumbnail and cache entries, and its
+     * payload file unless another session shares it.
+     *
+     * @param theSessionId The id of the session.
+     * @return Returns true if the session existed.
+     */
+    @SuppressWarnings("try")
+    public final boolean deleteSession(final long theSessionId) {
+        final String deleteSQL = """
+                DELETE FROM user_formants
+                WHERE id = ?
+                """;
+        final boolean deleted;
+        try (final StageMetrics.Span span = StageMetrics.start("db.deleteSession");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(deleteSQL);
+            ps.setLong(1, theSessionId);
+            deleted = ps.executeUpdate() > 0;
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to delete the session: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to delete the session: "
+                    + theEvent.getMessage());
+        }
+        if (deleted) {
+            sweepPayloads();
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes the oldest sessions beyond the retention limits, together with their features,
+     * thumbnails and cache entries, then the payload files no session references any more.
+     * The rows are deleted {@value #RETENTION_BATCH} at a time, so an analysis that is
+     * stored meanwhile only waits for one batch. The freed pages are reused by later
+     * sessions; {@link #reclaimSpace()} returns them to the file system.
+     *
+     * @param theKeepSessions The number of newest sessions to keep; 0 keeps all.
+     * @param theKeepDays     Sessions stored more than this many days ago are deleted; 0
+     *                        keeps all.
+     * @return Returns the number of deleted sessions.
+     */
+    @SuppressWarnings("try")
+    public final int applyRetention(final int theKeepSessions, final int theKeepDays) {
+        if (theKeepSessions <= 0 && theKeepDays <= 0) {
+            return 0;
+        }
+        final String cutoffSQL = """
+                SELECT id
+                FROM user_formants
+                ORDER BY id DESC
+                LIMIT 1 OFFSET ?
+                """;
+        final String deleteSQL = """
+                DELETE FROM user_formants
+                WHERE id IN (SELECT id
+                             FROM user_formants
+                             WHERE id < ? OR timestamp < ?
+                             ORDER BY id
+                             LIMIT ?)
+                """;
+        // nothing is older than the empty string
+        final String storedBefore = theKeepDays <= 0 ? ""
+                : LocalDateTime.now(ZoneOffset.UTC).minusDays(theKeepDays).format(STORED_TIME);
+        int deleted = 0;
+        try (final StageMetrics.Span span = StageMetrics.start("db.applyRetention")) {
+            long oldestKept = Long.MIN_VALUE;
+            if (theKeepSessions > 0) {
+                try (final SqliteConnectionPool.Lease lease = myPool.lease()) {
+                    final PreparedStatement ps = lease.prepare(cutoffSQL);
+                    ps.setInt(1, theKeepSessions - 1);
+                    try (final ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            oldestKept = rs.getLong(1);
+                        }
+                    }
+                }
+            }
+            int batch;
+            do {
+                try (final SqliteConnectionPool.Lease lease = myPool.lease()) {
+                    final PreparedStatement ps = lease.prepare(deleteSQL);
+                    ps.setLong(1, oldestKept);
+                    ps.setString(2, storedBefore);
+                    ps.setInt(3, RETENTION_BATCH);
+                    batch = ps.executeUpdate();
+                }
+                deleted += batch;
+            } while (batch == RETENTION_BATCH);
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to apply the retention policy: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to apply the retention policy: "
+                    + theEvent.getMessage());
+        }
+        if (deleted > 0) {
+            sweepPayloads();
+        }
+        return deleted;
+    }
+
+    /**
+     * Moves the tracks of sessions stored in their row (by an older version, the python
+     * script or with payload files off) to payload files. Does nothing unless
+     * {@link #PAYLOADS_PROPERTY} is set to "files".
+     *
+     * @param theLimit The most sessions to move.
+     * @return Returns the number of moved sessions; fewer than theLimit once all are moved.
+     */
+    @SuppressWarnings("try")
+    public final int externalizePayloads(final int theLimit) {
+        if (!"files".equalsIgnoreCase(System.getProperty(PAYLOADS_PROPERTY))) {
+            return 0;
+        }
+        final String selectSQL = """
+                SELECT id, time_blob, f0_blob, f1_blob, f2_blob, f3_blob, f4_blob, scatter_plot
+                FROM user_formants
+                WHERE payload IS NULL
+                  AND COALESCE(length(time_blob), 0) + length(f0_blob) + length(f1_blob)
+                      + length(f2_blob) + length(f3_blob) + length(f4_blob)
+                      + COALESCE(length(scatter_plot), 0) >= ?
+                ORDER BY id
+                LIMIT ?
+                """;
+        final String updateSQL = """
+                UPDATE user_formants
+                SET time_blob    = NULL,
+                    f0_blob      = x'',
+                    f1_blob      = x'',
+                    f2_blob      = x'',
+                    f3_blob      = x'',
+                    f4_blob      = x'',
+                    scatter_plot = NULL,
+                    payload      = ?
+                WHERE id = ? AND payload IS NULL
+                """;
+        final List<Long> ids = new ArrayList<>();
+        final List<byte[][]> rows = new ArrayList<>();
+        int moved = 0;
+        try (final StageMetrics.Span span = StageMetrics.start("db.externalizePayloads")) {
+            try (final SqliteConnectionPool.Lease lease = myPool.lease()) {
+                final PreparedStatement select = lease.prepare(selectSQL);
+                select.setInt(1, EXTERNAL_MIN_BYTES);
+                select.setInt(2, theLimit);
+                try (final ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                        final byte[][] columns = new byte[PayloadStore.COLUMNS][];
+                        for (int c = 0; c < PayloadStore.COLUMNS; c++) {
+                            columns[c] = rs.getBytes(c + 2);
+                        }
+                        rows.add(columns);
+                    }
+                }
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                // the payload lock is always taken before a lease, as in insertFormants
+                PAYLOADS.lock();
+                try (final SqliteConnectionPool.Lease lease = myPool.lease()) {
+                    final PreparedStatement update = lease.prepare(updateSQL);
+                    update.setString(1, PAYLOADS.write(rows.get(i)));
+                    update.setLong(2, ids.get(i));
+                    moved += update.executeUpdate();
+                } finally {
+                    PAYLOADS.unlock();
+                }
+                rows.set(i, null);
+            }
+        } catch (final SQLException | IOException theException) {
+            MY_LOGGER.severe("Unable to move the tracks to payload files: "
+                    + theException.getMessage());
+            throw new RuntimeException("Unable to move the tracks to payload files: "
+                    + theException.getMessage());
+        }
+        return moved;
+    }
+
+    /**
+     * Returns the free pages of the database file to the file system,
+     * {@value #VACUUM_STEP_PAGES} pages per transaction so writers are not blocked for long.
+     *
+     * @return Returns the number of pages returned; 0 if incremental vacuum could not be
+     * enabled for this database.
+     */
+    @SuppressWarnings("try")
+    public final long reclaimSpace() {
+        long reclaimed = 0;
+        try (final StageMetrics.Span span = StageMetrics.start("db.reclaimSpace")) {
+            while (true) {
+                try (final SqliteConnectionPool.Lease lease = myPool.lease()) {
+                    final long free = freePages(lease);
+                    if (free == 0) {
+                        break;
+                    }
+                    // a prepared statement frees one page per execution and stays in
+                    // progress; a plain one runs the pragma to the end
+                    try (final Statement stmt = lease.getConnection().createStatement()) {
+                        stmt.executeUpdate("PRAGMA incremental_vacuum(" + VACUUM_STEP_PAGES
+                                + ")");
+                    }
+                    final long left = freePages(lease);
+                    if (left >= free) {
+                        // auto_vacuum is off for this database
+                        break;
+                    }
+                    reclaimed += free - left;
+                }
+            }
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.warning("Unable to reclaim the free pages: " + theEvent.getMessage());
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Switches a database created before incremental vacuum to it, so the pages freed by
+     * deleted sessions can be returned to the file system by {@link #reclaimSpace()}. Only a
+     * new file is switched when it is opened, so this rewrites the file with VACUUM,
+     * which needs as much free disk space as the file takes and keeps the other connections
+     * waiting; it is left to {@link DatabaseMaintenance}. The attempt is recorded in app_meta
+     * before the rewrite starts and never repeated: a file whose rewrite failed keeps
+     * working, its free pages are only reused instead of returned.
+     *
+     * @return Returns true if the file was rewritten.
+     */
+    @SuppressWarnings("try")
+    public final boolean convertToIncrementalVacuum() {
+        final String attemptedSQL = """
+                SELECT value FROM app_meta WHERE key = 'incremental_vacuum'
+                """;
+        final String recordSQL = """
+                INSERT OR REPLACE INTO app_meta(key, value)
+                VALUES ('incremental_vacuum', CURRENT_TIMESTAMP)
+                """;
+        try (final StageMetrics.Span span = StageMetrics.start("db.vacuum");
+             final SqliteConnectionPool.Lease lease = myPool.lease();
+             final Statement stmt = lease.getConnection().createStatement()) {
+            try (final ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                if (rs.next() && rs.getInt(1) == INCREMENTAL_VACUUM) {
+                    return false;
+                }
+            }
+            // plain statements, since VACUUM fails while a cached one is still in progress
+            try (final ResultSet rs = stmt.executeQuery(attemptedSQL)) {
+                if (rs.next()) {
+                    return false;
+                }
+            }
+            stmt.executeUpdate(recordSQL);
+
+            final long start = System.nanoTime();
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            stmt.execute("VACUUM");
+            MY_LOGGER.info("Rewrote the database for incremental vacuum in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.warning("Unable to enable incremental vacuum: " + theEvent.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param theLease A leased connection.
+     * @return Returns the number of free pages of the database file.
+     * @throws SQLException Thrown if the pragma fails.
+     */
+    private static long freePages(final SqliteConnectionPool.Lease theLease)
+            throws SQLException {
+        try (final ResultSet rs = theLease.prepare("PRAGMA freelist_count").executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Deletes the payload files no session references. Writers of payloads wait meanwhile,
+     * so a file that was just written is never taken for unreferenced.
+     *
+     * @return Returns the number of deleted files.
+     */
+    @SuppressWarnings("try")
+    private int sweepPayloads() {
+        final String query = """
+                SELECT DISTINCT payload
+                FROM user_formants
+                WHERE payload IS NOT NULL
+                """;
+        PAYLOADS.lock();
+        try (final StageMetrics.Span span = StageMetrics.start("db.sweepPayloads");
+             final SqliteConnectionPool.Lease lease = myPool.lease();
+             final ResultSet rs = lease.prepare(query).executeQuery()) {
+            final Set<String> referenced = new HashSet<>();
+            while (rs.next()) {
+                referenced.add(rs.getString(1));
+            }
+            return PAYLOADS.sweep(referenced);
+        } catch (final SQLException | IOException theException) {
+            // the files are swept again after the next deletion
+            MY_LOGGER.warning("Unable to delete the unreferenced payload files: "
+                    + theException.getMessage());
+            return 0;
+        } finally {
+            PAYLOADS.unlock();
+        }
+    }
+
+    /**
+     * Looks up the session that holds the analysis of a recording.
+     *
+     * @param theAudioHash  The hash of the audio file.
+     * @param theParamsHash The hash of the analysis parameters.
+     * @return Returns the session id, or -1 if the recording was not analyzed with these
+     *         parameters.
+     */
+    @SuppressWarnings("try")
+    public final long findCachedSession(final String theAudioHash, final String theParamsHash) {
+        final String query = """
+                SELECT session_id
+                FROM analysis_cache
+                WHERE audio_hash = ? AND params_hash = ?
+                """;
+        try (final StageMetrics.Span span = StageMetrics.start("db.findCachedSession");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(query);
+            ps.setString(1, theAudioHash);
+            ps.setString(2, theParamsHash);
+            try (final ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to look up the analysis cache: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to look up the analysis cache: "
+                    + theEvent.getMessage());
+        }
+    }
+
+    /**
+     * Remembers the session that holds the analysis of a recording.
+     *
+     * @param theAudioHash  The hash of the audio file.
+     * @param theParamsHash The hash of the analysis parameters.
+     * @param theSessionId  The session id returned by {@link #insertFormants}.
+     */
+    @SuppressWarnings("try")
+    public final void cacheSession(final String theAudioHash, final String theParamsHash,
+                                   final long theSessionId) {
+        final String insertSQL = """
+                INSERT OR REPLACE INTO analysis_cache(audio_hash, params_hash, session_id)
+                VALUES (?, ?, ?)
+                """;
+        try (final StageMetrics.Span span = StageMetrics.start("db.cacheSession");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(insertSQL);
+            ps.setString(1, theAudioHash);
+            ps.setString(2, theParamsHash);
+            ps.setLong(3, theSessionId);
+            ps.executeUpdate();
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to update the analysis cache: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to update the analysis cache: "
+                    + theEvent.getMessage());
         }
     }
 
     /**
-     * Retrieves the formant data from the sqlite database
+     * Forgets the cached analyses of every other parameter set. The sessions themselves are
+     * kept; they are only no longer reused.
+     *
+     * @param theParamsHash The hash of the current analysis parameters.
+     * @return Returns the number of evicted entries.
+     */
+    @SuppressWarnings("try")
+    public final int evictStaleCache(final String theParamsHash) {
+        final String deleteSQL = "DELETE FROM analysis_cache WHERE params_hash <> ?";
+        try (final StageMetrics.Span span = StageMetrics.start("db.evictStaleCache");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(deleteSQL);
+            ps.setString(1, theParamsHash);
+            return ps.executeUpdate();
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to evict the analysis cache: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to evict the analysis cache: "
+                    + theEvent.getMessage());
+        }
+    }
+
+    /**
+     * Gets the session id of the most recent analysis.
+     *
+     * @return Returns the session id.
+     */
+    @SuppressWarnings("try")
+    public final long getLatestSessionId() {
+        final String query = """
+                SELECT id
+                FROM user_formants
+                ORDER BY timestamp DESC, id DESC
+                LIMIT 1
+                """;
+        try (final StageMetrics.Span span = StageMetrics.start("db.getLatestSessionId");
+             final SqliteConnectionPool.Lease lease = myPool.lease();
+             final ResultSet rs = lease.prepare(query).executeQuery()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            throw new RuntimeException("There are no sessions present!");
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to retrieve the latest session: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to retrieve the latest session: "
+                    + theEvent.getMessage());
+        }
+    }
+
+    /**
+     * Lists the sessions older than a given one, newest first. Only the id, timestamp,
+     * frame count and averages are read, so a page costs the same whatever the length of
+     * the tracks. Pass the id of the last session of a page to get the next one.
+     *
+     * @param theBeforeId Only sessions with a smaller id are listed; Long.MAX_VALUE for
+     *                    the first page.
+     * @param theLimit    The most sessions to list.
+     * @return Returns the sessions, newest first; fewer than theLimit on the last page.
+     */
+    @SuppressWarnings("try")
+    public final List<SessionSummary> getSessions(final long theBeforeId, final int theLimit) {
+        final String query = """
+                SELECT id, timestamp, frame_count, f0_avg, f1_avg, f2_avg, f3_avg, f4_avg
+                FROM user_formants
+                WHERE id < ?
+                ORDER BY id DESC
+                LIMIT ?
+                """;
+        final List<SessionSummary> sessions = new ArrayList<>(theLimit);
+        try (final StageMetrics.Span span = StageMetrics.start("db.getSessions");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(query);
+            ps.setLong(1, theBeforeId);
+            ps.setInt(2, theLimit);
+            try (final ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    final double[] averages = new double[5];
+                    for (int f = 0; f < 5; f++) {
+                        final double average = rs.getDouble(4 + f);
+                        averages[f] = rs.wasNull() ? Double.NaN : average;
+                    }
+                    sessions.add(new SessionSummary(rs.getLong(1), rs.getString(2),
+                            rs.getInt(3), averages));
+                }
+            }
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to list the sessions: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to list the sessions: " + theEvent.getMessage());
+        }
+        return sessions;
+    }
+
+    /**
+     * Gets the history thumbnail of a session. Sessions stored before thumbnails existed get
+     * theirs rendered and stored on the first call.
+     *
+     * @param theSessionId The session id returned by {@link #insertFormants}.
+     * @return Returns the PNG bytes of the thumbnail
+     * ({@value #THUMBNAIL_WIDTH} x {@value #THUMBNAIL_HEIGHT}).
+     */
+    @SuppressWarnings("try")
+    public final byte[] getThumbnail(final long theSessionId) {
+        final String query = """
+                SELECT thumbnail
+                FROM session_thumbnails
+                WHERE session_id = ?
+                """;
+        try (final StageMetrics.Span span = StageMetrics.start("db.getThumbnail");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(query);
+            ps.setLong(1, theSessionId);
+            try (final ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getBytes(1);
+                }
+            }
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to retrieve the thumbnail: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to retrieve the thumbnail: "
+                    + theEvent.getMessage());
+        }
+
+        final double[][] formants = getFormants(theSessionId);
+        double[] times = getTimes(theSessionId);
+        if (times.length != formants[0].length) {
+            // sessions migrated from the JSON schema have no times
+            final double step = AnalysisParameters.defaults().getTimeStep();
+            times = new double[formants[0].length];
+            for (int i = 0; i < times.length; i++) {
+                times[i] = i * step;
+            }
+        }
+        final byte[] thumbnail = FormantPlotRenderer.renderThumbnail(times, formants,
+                THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+        try (final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            storeThumbnail(lease, theSessionId, thumbnail);
+        } catch (final SQLException theEvent) {
+            // the thumbnail is still shown; it is rendered again next time
+            MY_LOGGER.warning("Unable to store the thumbnail: " + theEvent.getMessage());
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Stores the history thumbnail of a session, replacing an older one.
+     *
+     * @param theLease     A leased connection.
+     * @param theSessionId The session id.
+     * @param theThumbnail The PNG bytes.
+     * @throws SQLException Thrown if the thumbnail can not be stored.
+     */
+    private static void storeThumbnail(final SqliteConnectionPool.Lease theLease,
+                                       final long theSessionId, final byte[] theThumbnail)
+            throws SQLException {
+        final PreparedStatement ps = theLease.prepare("""
+                INSERT OR REPLACE INTO session_thumbnails(session_id, thumbnail)
+                VALUES (?, ?)
+                """);
+        ps.setLong(1, theSessionId);
+        ps.setBytes(2, theThumbnail);
+        ps.executeUpdate();
+    }
+
+    /**
+     * Retrieves the formant data of the most recent analysis.
      *
      * @return Returns a matrix where the rows are the formants and the columns are the time
      */
     public final double[][] getFormants() {
+        return getFormants(getLatestSessionId());
+    }
+
+    /**
+     * Retrieves the formant data of an analysis.
+     *
+     * @param theSessionId The session id returned by {@link #insertFormants}.
+     * @return Returns a matrix where the rows are the formants and the columns are the time
+     */
+    @SuppressWarnings("try")
+    public final double[][] getFormants(final long theSessionId) {
         final double[][] results = new double[5][];
-        String f0_str = "";
-        String f1_str = "";
-        String f2_str = "";
-        String f3_str = "";
-        String f4_str = "";
-        final double[] f0;
-        final double[] f1;
-        final double[] f2;
-        final double[] f3;
-        final double[] f4;
-
-        final String query = """ 
-                SELECT f0_json, f1_json, f2_json, f3_json, f4_json
+        final String query = """
+                SELECT f0_blob, f1_blob, f2_blob, f3_blob, f4_blob, payload
                 FROM user_formants
+                WHERE id = ?
                 """;
-        try (final Connection conn = myDs.getConnection();
-             final Statement stmt = conn.createStatement();
-             final ResultSet rs = stmt.executeQuery(query)) {
-            while (rs.next()) {
-                f0_str = rs.getString("f0_json");
-                f1_str = rs.getString("f1_json");
-                f2_str = rs.getString("f2_json");
-                f3_str = rs.getString("f3_json");
-                f4_str = rs.getString("f4_json");
-            }
-            if (!f0_str.isEmpty() && !f1_str.isEmpty() && !f2_str.isEmpty()
-                    && !f3_str.isEmpty() && !f4_str.isEmpty()) {
-                f0 = new Gson().fromJson(f0_str, double[].class);
-                f1 = new Gson().fromJson(f1_str, double[].class);
-                f2 = new Gson().fromJson(f2_str, double[].class);
-                f3 = new Gson().fromJson(f3_str, double[].class);
-                f4 = new Gson().fromJson(f4_str, double[].class);
-                results[0] = f0;
-                results[1] = f1;
-                results[2] = f2;
-                results[3] = f3;
-                results[4] = f4;
-            } else {
-                MY_LOGGER.severe("Formants are empty. Unable to retrieve them!");
-                throw new RuntimeException("Formants are empty.");
+        try (final StageMetrics.Span span = StageMetrics.start("db.getFormants");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(query);
+            ps.setLong(1, theSessionId);
+            try (final ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    MY_LOGGER.severe("Formants are empty. Unable to retrieve them!");
+                    throw new RuntimeException("Formants are empty.");
+                }
+                final String payload = rs.getString(6);
+                final byte[][] columns = payload == null ? null : loadPayload(payload);
+                for (int f = 0; f < 5; f++) {
+                    results[f] = TrackCodec.decodeFloat32(columns == null ? rs.getBytes(f + 1)
+                            : columns[PayloadStore.F0 + f]);
+                }
             }
         } catch (final SQLException theException) {
             MY_LOGGER.severe("Unable to execute SQL query!");
@@ -134,25 +1103,73 @@ public class UserFormantDatabase {
     }
 
     /**
-     * Gets the average formant data.
+     * Retrieves the frame times of an analysis.
+     *
+     * @param theSessionId The session id returned by {@link #insertFormants}.
+     * @return Returns the time in seconds of every column of {@link #getFormants(long)};
+     * empty for sessions migrated from the JSON schema.
+     */
+    @SuppressWarnings("try")
+    public final double[] getTimes(final long theSessionId) {
+        final String query = """
+                SELECT time_blob, payload
+                FROM user_formants
+                WHERE id = ?
+                """;
+        try (final StageMetrics.Span span = StageMetrics.start("db.getTimes");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(query);
+            ps.setLong(1, theSessionId);
+            try (final ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new RuntimeException("No session with the id " + theSessionId);
+                }
+                final String payload = rs.getString(2);
+                return TrackCodec.decodeFloat64(payload == null ? rs.getBytes(1)
+                        : loadPayload(payload)[PayloadStore.TIME]);
+            }
+        } catch (final SQLException theEvent) {
+            MY_LOGGER.severe("Unable to retrieve the times: " + theEvent.getMessage());
+            throw new RuntimeException("Unable to retrieve the times: " + theEvent.getMessage());
+        }
+    }
+
+    /**
+     * Gets the average formant data of the most recent analysis.
      *
      * @return Returns an array of average formans from f0-f4
      */
     public final double[] getAverage() {
-        final double[] result;
-        String f_Avg = "";
+        return getAverage(getLatestSessionId());
+    }
+
+    /**
+     * Gets the average formant data of an analysis.
+     *
+     * @param theSessionId The session id returned by {@link #insertFormants}.
+     * @return Returns an array of average formans from f0-f4
+     */
+    @SuppressWarnings("try")
+    public final double[] getAverage(final long theSessionId) {
+        final double[] result = new double[5];
         final String query = """
-                SELECT formant_avg_json
+                SELECT f0_avg, f1_avg, f2_avg, f3_avg, f4_avg
                 FROM user_formants
+                WHERE id = ?
                 """;
-        try (final Connection conn = myDs.getConnection();
-             final Statement stmt = conn.createStatement();
-             final ResultSet rs = stmt.executeQuery(query)) {
-
-            while (rs.next()) {
-                f_Avg = rs.getString("formant_avg_json");
+        try (final StageMetrics.Span span = StageMetrics.start("db.getAverage");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(query);
+            ps.setLong(1, theSessionId);
+            try (final ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new RuntimeException("No session with the id " + theSessionId);
+                }
+                for (int f = 0; f < 5; f++) {
+                    final double average = rs.getDouble(f + 1);
+                    result[f] = rs.wasNull() ? Double.NaN : average;
+                }
             }
-            result = new Gson().fromJson(f_Avg, double[].class);
         } catch (final SQLException theEvent) {
             MY_LOGGER.severe("Unable to retrieve the average formant data: " + theEvent.getMessage());
             throw new RuntimeException("Unable to retrieve the average formant data: " + theEvent.getMessage());
@@ -161,29 +1178,45 @@ public class UserFormantDatabase {
     }
 
     /**
-     * Gets the scatter plot image from the database.
+     * Gets the scatter plot image of the most recent analysis. Only sessions stored before
+     * the chart was drawn natively have one.
      *
      * @return Returns a binary byte array of the image.
      */
     public final byte[] getScatterPlot() {
+        return getScatterPlot(getLatestSessionId());
+    }
 
+    /**
+     * Gets the scatter plot image of an analysis. Only sessions stored before the chart was
+     * drawn natively have one.
+     *
+     * @param theSessionId The session id returned by {@link #insertFormants}.
+     * @return Returns a binary byte array of the image.
+     */
+    @SuppressWarnings("try")
+    public final byte[] getScatterPlot(final long theSessionId) {
         final String query = """
-                SELECT scatter_plot, timestamp, id
+                SELECT scatter_plot, payload
                 FROM user_formants
-                ORDER BY timestamp DESC, id DESC
-                LIMIT 1
+                WHERE id = ?
                 """;
-        try (Connection conn = myDs.getConnection();
-             PreparedStatement ps = conn.prepareStatement(query);
-             ResultSet rs = ps.executeQuery()) {
-
-            if (rs.next()) {
-                return rs.getBytes("scatter_plot");
-            } else {
-                throw new RuntimeException("There are no images present!");
+        try (final StageMetrics.Span span = StageMetrics.start("db.getScatterPlot");
+             final SqliteConnectionPool.Lease lease = myPool.lease()) {
+            final PreparedStatement ps = lease.prepare(query);
+            ps.setLong(1, theSessionId);
+            try (final ResultSet rs = ps.executeQuery()) {
+                byte[] image = null;
+                if (rs.next()) {
+                    final String payload = rs.getString(2);
+                    image = payload == null ? rs.getBytes(1)
+                            : loadPayload(payload)[PayloadStore.PLOT];
+                }
+                if (image == null) {
+                    throw new RuntimeException("There are no images present!");
+                }
+                return image;
             }
-
-
         } catch (final SQLException theEvent) {
             MY_LOGGER.severe("Unable to retrieve the image: " + theEvent.getMessage());
             throw new RuntimeException("Unable to get the image: " + theEvent.getMessage());
@@ -0,0 +1,212 @@
+package com.kass.vocalanalysistool.model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>The loops of {@link DspKernels} on the Vector API, using the widest vectors of the
+ * CPU (4 doubles with AVX2, 8 with AVX-512). Each kernel handles the remainder that does
+ * not fill a vector with a scalar loop.</p>
+ *
+ * <p>The element-wise kernels do the same multiplications and additions in the same order
+ * as {@link ScalarKernels} (no fused multiply-add), so they give the same bits. Only the
+ * sums are added lane by lane and then across the lanes.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+final class VectorKernels implements DspKernels {
+
+    /**
+     * The double vectors.
+     */
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Float vectors with as many lanes as {@link #DOUBLES}.
+     */
+    private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class,
+            VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    /**
+     * The number of lanes.
+     */
+    private static final int LANES = DOUBLES.length();
+
+    /**
+     * Used for FFT stages narrower than a vector.
+     */
+    private final ScalarKernels myScalar = new ScalarKernels();
+
+    @Override
+    public String getName() {
+        return "SIMD " + DOUBLES.vectorBitSize() + "-bit";
+    }
+
+    /**
+     * @param theValues The samples.
+     * @param theIndex  The first sample of the vector.
+     * @return Returns the samples widened to doubles.
+     */
+    private static DoubleVector widen(final float[] theValues, final int theIndex) {
+        return (DoubleVector) FloatVector.fromArray(FLOATS, theValues, theIndex)
+                .convertShape(VectorOperators.F2D, DOUBLES, 0);
+    }
+
+    @Override
+    public double sum(final float[] theValues, final int theStart, final int theLength) {
+        final int bound = DOUBLES.loopBound(theLength);
+        DoubleVector sums = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            sums = sums.add(widen(theValues, theStart + i));
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < theLength; i++) {
+            sum += theValues[theStart + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double windowCentered(final float[] theValues, final int theStart,
+                                 final double theMean, final double[] theWindow,
+                                 final double[] theOut, final int theLength) {
+        final int bound = DOUBLES.loopBound(theLength);
+        DoubleVector peaks = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            final DoubleVector value = widen(theValues, theStart + i).sub(theMean);
+            peaks = peaks.max(value.abs());
+            value.mul(DoubleVector.fromArray(DOUBLES, theWindow, i)).intoArray(theOut, i);
+        }
+        double peak = peaks.reduceLanes(VectorOperators.MAX);
+        for (; i < theLength; i++) {
+            final double value = theValues[theStart + i] - theMean;
+            peak = Math.max(peak, Math.abs(value));
+            theOut[i] = value * theWindow[i];
+        }
+        return peak;
+    }
+
+    @Override
+    public void window(final float[] theValues, final int theStart, final double[] theWindow,
+                       final double[] theOut, final int theLength) {
+        final int bound = DOUBLES.loopBound(theLength);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            widen(theValues, theStart + i).mul(DoubleVector.fromArray(DOUBLES, theWindow, i))
+                    .intoArray(theOut, i);
+        }
+        for (; i < theLength; i++) {
+            theOut[i] = theValues[theStart + i] * theWindow[i];
+        }
+    }
+
+    @Override
+    public double dot(final double[] theFirst, final double[] theSecond, final int theLength) {
+        final int bound = DOUBLES.loopBound(theLength);
+        DoubleVector sums = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            sums = sums.add(DoubleVector.fromArray(DOUBLES, theFirst, i)
+                    .mul(DoubleVector.fromArray(DOUBLES, theSecond, i)));
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < theLength; i++) {
+            sum += theFirst[i] * theSecond[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double sumOfSquares(final double[] theFirst, final double[] theSecond,
+                               final int theLength) {
+        final int bound = DOUBLES.loopBound(theLength);
+        DoubleVector sums = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            final DoubleVector first = DoubleVector.fromArray(DOUBLES, theFirst, i);
+            final DoubleVector second = DoubleVector.fromArray(DOUBLES, theSecond, i);
+            sums = sums.add(first.mul(first).add(second.mul(second)));
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < theLength; i++) {
+            sum += theFirst[i] * theFirst[i] + theSecond[i] * theSecond[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void burgUpdate(final double[] theForward, final double[] theBackward,
+                           final double theCoefficient, final int theLength) {
+        final int bound = DOUBLES.loopBound(theLength);
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            // load everything before storing: each block reads one element past its end
+            final DoubleVector forward = DoubleVector.fromArray(DOUBLES, theForward, j);
+            final DoubleVector backward = DoubleVector.fromArray(DOUBLES, theBackward, j);
+            final DoubleVector nextForward = DoubleVector.fromArray(DOUBLES, theForward, j + 1);
+            final DoubleVector nextBackward = DoubleVector.fromArray(DOUBLES, theBackward,
+                    j + 1);
+            forward.sub(backward.mul(theCoefficient)).intoArray(theForward, j);
+            nextBackward.sub(nextForward.mul(theCoefficient)).intoArray(theBackward, j);
+        }
+        for (; j < theLength; j++) {
+            theForward[j] -= theCoefficient * theBackward[j];
+            theBackward[j] = theBackward[j + 1] - theCoefficient * theForward[j + 1];
+        }
+    }
+
+    @Override
+    public void powerSpectrum(final double[] theReal, final double[] theImag,
+                              final int theLength) {
+        final int bound = DOUBLES.loopBound(theLength);
+        final DoubleVector zero = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            final DoubleVector real = DoubleVector.fromArray(DOUBLES, theReal, i);
+            final DoubleVector imag = DoubleVector.fromArray(DOUBLES, theImag, i);
+            real.mul(real).add(imag.mul(imag)).intoArray(theReal, i);
+            zero.intoArray(theImag, i);
+        }
+        for (; i < theLength; i++) {
+            theReal[i] = theReal[i] * theReal[i] + theImag[i] * theImag[i];
+            theImag[i] = 0;
+        }
+    }
+
+    @Override
+    public void butterflies(final double[] theReal, final double[] theImag, final int theSize,
+                            final int theHalf, final double[] theCos, final double[] theSin,
+                            final int theOffset, final double theSign) {
+        if (theHalf < LANES) {
+            myScalar.butterflies(theReal, theImag, theSize, theHalf, theCos, theSin, theOffset,
+                    theSign);
+            return;
+        }
+        // theHalf is a power of two of at least one vector, so there is no remainder
+        for (int i = 0; i < theSize; i += 2 * theHalf) {
+            for (int k = 0; k < theHalf; k += LANES) {
+                final DoubleVector wr = DoubleVector.fromArray(DOUBLES, theCos, theOffset + k);
+                final DoubleVector wi = DoubleVector.fromArray(DOUBLES, theSin, theOffset + k)
+                        .mul(theSign);
+                final int a = i + k;
+                final int b = a + theHalf;
+                final DoubleVector br = DoubleVector.fromArray(DOUBLES, theReal, b);
+                final DoubleVector bi = DoubleVector.fromArray(DOUBLES, theImag, b);
+                final DoubleVector ar = DoubleVector.fromArray(DOUBLES, theReal, a);
+                final DoubleVector ai = DoubleVector.fromArray(DOUBLES, theImag, a);
+                final DoubleVector xr = br.mul(wr).sub(bi.mul(wi));
+                final DoubleVector xi = br.mul(wi).add(bi.mul(wr));
+                ar.sub(xr).intoArray(theReal, b);
+                ai.sub(xi).intoArray(theImag, b);
+                ar.add(xr).intoArray(theReal, a);
+                ai.add(xi).intoArray(theImag, a);
+            }
+        }
+    }
+}
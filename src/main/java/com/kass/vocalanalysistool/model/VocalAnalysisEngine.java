@@ -0,0 +1,931 @@
+package com.kass.vocalanalysistool.model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * <p>Pure java replacement of the python analysis script. Computes the pitch candidates with
+ * the autocorrelation method and F1 - F4 with Burg's LPC method on a fixed time grid, picks
+ * the pitch path through the candidates as praat does, filters the frames the same way the
+ * script does, averages the tracks and computes the feature row of the CSV file.</p>
+ *
+ * <p>The engine itself holds no per-analysis state and can be shared between threads.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class VocalAnalysisEngine {
+
+    /**
+     * The number of frames analyzed between two progress reports.
+     */
+    public static final int CHUNK_FRAMES = 500;
+
+    /**
+     * Recordings of at most this many resampled samples (about 6 minutes) are resampled
+     * once and kept whole; longer ones are resampled a chunk at a time.
+     */
+    private static final int WHOLE_SIGNAL_SAMPLES = 1 << 22;
+
+    /**
+     * The system property holding the number of threads one recording is analyzed on.
+     */
+    public static final String THREADS_PROPERTY = "vocalanalysis.engine.threads";
+
+    /**
+     * The fewest frames of a segment, so the overlap stays small against its length.
+     */
+    private static final int MIN_SEGMENT_FRAMES = 50;
+
+    /**
+     * The segments each thread gets per chunk, so threads that finish early can steal.
+     */
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    /**
+     * The number of resampled samples the peak pass reads at a time.
+     */
+    private static final int PEAK_BLOCK_SAMPLES = 1 << 16;
+
+    /**
+     * The analysis parameters.
+     */
+    private final AnalysisParameters myParams;
+
+    /**
+     * The number of threads one recording is analyzed on.
+     */
+    private final int myThreads;
+
+    /**
+     * Constructor for the engine with the default parameters.
+     */
+    public VocalAnalysisEngine() {
+        this(AnalysisParameters.defaults());
+    }
+
+    /**
+     * Constructor for the engine using {@link #getDefaultThreads()} threads per recording.
+     *
+     * @param theParams The analysis parameters.
+     */
+    public VocalAnalysisEngine(final AnalysisParameters theParams) {
+        this(theParams, getDefaultThreads());
+    }
+
+    /**
+     * Constructor for the engine.
+     *
+     * @param theParams  The analysis parameters.
+     * @param theThreads The number of threads one recording is analyzed on; 1 analyzes on
+     *                   the calling thread.
+     */
+    public VocalAnalysisEngine(final AnalysisParameters theParams, final int theThreads) {
+        myParams = theParams;
+        myThreads = Math.max(1, theThreads);
+    }
+
+    /**
+     * @return Returns the thread count from {@value #THREADS_PROPERTY}, defaulting to the
+     * number of cores.
+     */
+    public static int getDefaultThreads() {
+        return Math.max(1, Integer.getInteger(THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @return Returns the analysis parameters.
+     */
+    public AnalysisParameters getParameters() {
+        return myParams;
+    }
+
+    /**
+     * Reads and analyzes the audio file.
+     *
+     * @param theFile The [.wav] or [.aiff] file.
+     * @return Returns the filtered tracks and their averages.
+     * @throws IOException Thrown if the file can not be read.
+     */
+    public AnalysisResult analyze(final Path theFile) throws IOException {
+        return analyze(theFile, null);
+    }
+
+    /**
+     * Reads and analyzes the audio file chunk by chunk. PCM and float files are read
+     * straight from a memory mapping, so only one chunk of samples is held at a time.
+     *
+     * @param theFile     The [.wav] or [.aiff] file.
+     * @param theListener Receives the progress and the frames of every chunk; may be null.
+     * @return Returns the filtered tracks and their averages.
+     * @throws IOException Thrown if the file can not be read.
+     */
+    public AnalysisResult analyze(final Path theFile, final ProgressListener theListener)
+            throws IOException {
+        try (final SampleSource source = open(theFile)) {
+            return analyze(source, theListener);
+        }
+    }
+
+    /**
+     * Maps the audio file, or decodes it through javax.sound if it can not be mapped.
+     *
+     * @param theFile The [.wav] or [.aiff] file.
+     * @return Returns the recording.
+     * @throws IOException Thrown if the file can not be read.
+     */
+    private static SampleSource open(final Path theFile) throws IOException {
+        try {
+            return MappedAudioFile.open(theFile);
+        } catch (final UnsupportedAudioFileException theException) {
+            return AudioSignal.read(theFile);
+        }
+    }
+
+    /**
+     * Analyzes the signal.
+     *
+     * @param theSignal The mono signal.
+     * @return Returns the filtered tracks and their averages.
+     */
+    public AnalysisResult analyze(final AudioSignal theSignal) {
+        return analyze(theSignal, null);
+    }
+
+    /**
+     * <p>Analyzes the recording in chunks of {@link #CHUNK_FRAMES} frames per thread.</p>
+     *
+     * <p>The frames of a chunk are split into segments that are analyzed on a fork/join
+     * pool, each from its own resampled and pre-emphasized copy of the samples around it, so
+     * neighboring segments overlap by a window. The frames are put back in time order and
+     * handed to the {@link PitchPathFinder}, and the frames it has decided run through the
+     * continuity filter on the calling thread; both keep their state from one chunk to the
+     * next. The candidates of every frame only depend on the samples around it and the path
+     * finder only decides frames no later frame can change, so the result is identical to
+     * analyzing the whole signal at once on one thread.</p>
+     *
+     * <p>The silence gate needs the peak of the whole resampled signal, which a first
+     * (also parallel) pass finds; short recordings keep the resampled signal of that pass
+     * instead of resampling every segment again.</p>
+     *
+     * <p>The analysis stops between two chunks when the thread is interrupted.</p>
+     *
+     * @param theSource   The mono recording.
+     * @param theListener Receives the progress and the frames of every chunk; may be null.
+     * @return Returns the filtered tracks and their averages.
+     * @throws CancellationException Thrown if the thread was interrupted.
+     */
+    public AnalysisResult analyze(final SampleSource theSource,
+                                  final ProgressListener theListener) {
+        final Recording recording = new Recording(theSource, myParams);
+        final ForkJoinPool pool = myThreads > 1 ? new ForkJoinPool(myThreads) : null;
+        try {
+            return analyze(recording, pool, theListener);
+        } finally {
+            if (pool != null) {
+                // waits for segments still running after a failed one, so the source can be
+                // closed once this returns
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the passes of {@link #analyze(SampleSource, ProgressListener)}.
+     *
+     * @param theRecording The recording.
+     * @param thePool      The pool the segments run on; null to run them on this thread.
+     * @param theListener  Receives the progress and the frames of every chunk; may be null.
+     * @return Returns the filtered tracks and their averages.
+     */
+    private AnalysisResult analyze(final Recording theRecording, final ForkJoinPool thePool,
+                                   final ProgressListener theListener) {
+        final int frames = theRecording.myFrames;
+        final double step = myParams.getTimeStep();
+        final int chunkFrames = CHUNK_FRAMES * myThreads;
+        // without a pool the tasks must not split, or they would fork to the common pool
+        final int segmentFrames = thePool == null ? chunkFrames : Math.max(MIN_SEGMENT_FRAMES,
+                chunkFrames / (SEGMENTS_PER_THREAD * myThreads));
+        final long peakSamples = thePool == null ? theRecording.myLength
+                : Math.max(PEAK_BLOCK_SAMPLES,
+                theRecording.myLength / (SEGMENTS_PER_THREAD * myThreads));
+
+        checkCancelled();
+        theRecording.myGlobalPeak = run(thePool, new PeakTask(theRecording, 0,
+                theRecording.myLength, peakSamples));
+        if (theRecording.myWhole) {
+            theRecording.myPrepared = FormantTracker.preEmphasize(theRecording.mySamples,
+                    myParams);
+        }
+
+        final FrameBlock block = new FrameBlock(Math.min(chunkFrames, frames));
+        final PitchPathFinder pathFinder = new PitchPathFinder(myParams);
+        final Queue<double[]> pending = new ArrayDeque<>();
+        final FormantContinuityFilter filter = new FormantContinuityFilter();
+        final List<double[]> chunkRows = new ArrayList<>(CHUNK_FRAMES);
+        final List<double[]> accepted = new ArrayList<>();
+        final double[] pitchTimes = new double[frames];
+        final double[] pitch = new double[frames];
+        final double[] harmonicity = new double[frames];
+        final StreamingFeatureExtractor liveFeatures = theListener == null ? null
+                : new StreamingFeatureExtractor(myParams);
+        final int[] analyzed = {0};
+        // the frames wait in pending, as {time, f1 - f4}, until the path finder decides them
+        final PitchPathFinder.Decision decision = (theFrequency, theStrength) -> {
+            final double[] frame = pending.remove();
+            final int index = analyzed[0]++;
+            pitchTimes[index] = frame[0];
+            pitch[index] = theFrequency;
+            harmonicity[index] = theFrequency > 0 ? PitchTracker.toHarmonicity(theStrength)
+                    : PitchTracker.UNVOICED_DB;
+            if (liveFeatures != null) {
+                liveFeatures.addFrame(frame[0], theFrequency, harmonicity[index]);
+            }
+            if (theFrequency > 0 && !Double.isNaN(frame[1])) {
+                chunkRows.add(new double[]{Math.round(frame[0] * 100) / 100.0, theFrequency,
+                        frame[1], frame[2], frame[3], frame[4]});
+            }
+        };
+
+        for (int chunkStart = 0; chunkStart < frames; chunkStart += chunkFrames) {
+            checkCancelled();
+            final int chunkEnd = Math.min(frames, chunkStart + chunkFrames);
+            run(thePool, new SegmentTask(theRecording, block, chunkStart, chunkStart, chunkEnd,
+                    segmentFrames));
+
+            chunkRows.clear();
+            for (int frame = chunkStart; frame < chunkEnd; frame++) {
+                final int i = frame - chunkStart;
+                if (!block.myAnalyzed[i]) {
+                    continue;
+                }
+                pathFinder.addFrame(block.myCandidateFrequencies, block.myCandidateStrengths,
+                        i * PitchTracker.MAX_CANDIDATES, block.myCandidateCounts[i]);
+                final double[] row = {frame * step, Double.NaN, Double.NaN, Double.NaN,
+                        Double.NaN};
+                if (block.myHasFormants[i]) {
+                    for (int f = 0; f < FormantTracker.REPORTED_FORMANTS; f++) {
+                        row[f + 1] = block.myFormants[f][i];
+                    }
+                }
+                pending.add(row);
+            }
+            if (chunkEnd == frames) {
+                pathFinder.finish(decision);
+            } else {
+                pathFinder.settle(decision);
+            }
+
+            final List<double[]> chunkAccepted = filter.filter(chunkRows);
+            accepted.addAll(chunkAccepted);
+            if (theListener != null) {
+                for (final double[] row : chunkAccepted) {
+                    liveFeatures.addFormants(row);
+                }
+                final AnalysisResult chunk = toResult(chunkAccepted);
+                theListener.chunkDone((double) chunkEnd / frames, new AnalysisResult(
+                        chunk.getTimes(), chunk.getFormants(), chunk.getAverages(),
+                        liveFeatures.getFeatures()));
+            }
+        }
+
+        final AnalysisResult filtered = toResult(accepted);
+        return new AnalysisResult(filtered.getTimes(), filtered.getFormants(),
+                filtered.getAverages(), FeatureExtractor.extract(filtered.getFormants(),
+                pitchTimes, pitch, harmonicity, analyzed[0], myParams));
+    }
+
+    /**
+     * Runs a task on the pool, or on this thread without a pool.
+     *
+     * @param thePool The pool; may be null.
+     * @param theTask The task.
+     * @param <T>     The result type.
+     * @return Returns the result of the task.
+     */
+    private static <T> T run(final ForkJoinPool thePool, final ForkJoinTask<T> theTask) {
+        return thePool == null ? theTask.invoke() : thePool.invoke(theTask);
+    }
+
+    /**
+     * Stops the analysis if its thread was interrupted.
+     *
+     * @throws CancellationException Thrown if the thread was interrupted.
+     */
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Analysis cancelled");
+        }
+    }
+
+    /**
+     * Splits the filtered rows into tracks and computes their averages.
+     *
+     * @param theRows Rows of {time, f0, f1, f2, f3, f4}.
+     * @return Returns the analysis result.
+     */
+    private static AnalysisResult toResult(final List<double[]> theRows) {
+        final int size = theRows.size();
+        final double[] times = new double[size];
+        final double[][] tracks = new double[5][size];
+        for (int i = 0; i < size; i++) {
+            final double[] row = theRows.get(i);
+            times[i] = row[0];
+            for (int f = 0; f < 5; f++) {
+                tracks[f][i] = row[f + 1];
+            }
+        }
+        final double[] averages = new double[5];
+        for (int f = 0; f < 5; f++) {
+            averages[f] = getFreqAverage(tracks[f]);
+        }
+        return new AnalysisResult(times, tracks, averages);
+    }
+
+    /**
+     * Gets the average of the positive, finite frequencies.
+     *
+     * @param theTrack The frequencies.
+     * @return Returns the mean frequency, NaN if there are no valid values.
+     */
+    static double getFreqAverage(final double[] theTrack) {
+        double sum = 0;
+        int count = 0;
+        for (final double value : theTrack) {
+            if (value > 0 && Double.isFinite(value)) {
+                sum += value;
+                count++;
+            }
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Receives the progress of a chunked analysis.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Called on the analysis thread after every chunk.
+         *
+         * @param theProgress The fraction of the frames analyzed so far.
+         * @param theChunk    The frames of the chunk that passed the filter, with the
+         *                    running feature row of the recording so far.
+         */
+        void chunkDone(double theProgress, AnalysisResult theChunk);
+    }
+
+    /**
+     * The layout of one recording at the analysis sampling rate, shared by the tasks of one
+     * analysis.
+     */
+    private static final class Recording {
+
+        /**
+         * The recording.
+         */
+        private final SampleSource mySource;
+
+        /**
+         * The analysis parameters.
+         */
+        private final AnalysisParameters myParams;
+
+        /**
+         * The analysis sampling rate in Hz.
+         */
+        private final double mySampleRate;
+
+        /**
+         * The number of resampled samples.
+         */
+        private final long myLength;
+
+        /**
+         * The pitch window length in samples.
+         */
+        private final int myPitchLength;
+
+        /**
+         * The formant window length in samples.
+         */
+        private final int myFormantLength;
+
+        /**
+         * The samples a segment reads before its first frame.
+         */
+        private final int myLead;
+
+        /**
+         * The samples a segment reads after its last frame.
+         */
+        private final int myTail;
+
+        /**
+         * The number of frames.
+         */
+        private final int myFrames;
+
+        /**
+         * True if the resampled signal is kept whole.
+         */
+        private final boolean myWhole;
+
+        /**
+         * The resampled signal if it is kept whole, else null.
+         */
+        private final float[] mySamples;
+
+        /**
+         * The pre-emphasized signal if it is kept whole, else null.
+         */
+        private float[] myPrepared;
+
+        /**
+         * The absolute peak of the resampled signal, set by the first pass.
+         */
+        private double myGlobalPeak;
+
+        /**
+         * The idle workers.
+         */
+        private final Queue<Worker> myWorkers = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Constructor for the layout.
+         *
+         * @param theSource The recording.
+         * @param theParams The analysis parameters.
+         */
+        private Recording(final SampleSource theSource, final AnalysisParameters theParams) {
+            mySource = theSource;
+            myParams = theParams;
+            // both trackers run on one resampled copy; praat low-passes for the formants
+            // anyway and nothing above 5 kHz matters for the pitch
+            mySampleRate = FormantTracker.getAnalysisSampleRate(theParams);
+            myLength = Resampler.getLength(theSource.getFrameCount(),
+                    theSource.getSampleRate(), mySampleRate);
+
+            final Worker worker = new Worker(this);
+            myWorkers.add(worker);
+            myPitchLength = worker.myPitchTracker.getWindowLength();
+            myFormantLength = worker.myFormantTracker.getWindowLength();
+            // the pre-emphasis looks one sample back
+            myLead = Math.max(myPitchLength / 2, myFormantLength / 2) + 1;
+            myTail = Math.max(myPitchLength - myPitchLength / 2,
+                    myFormantLength - myFormantLength / 2);
+
+            myFrames = (int) Math.ceil(theSource.getFrameCount() / theSource.getSampleRate()
+                    / theParams.getTimeStep());
+            myWhole = myLength <= WHOLE_SIGNAL_SAMPLES;
+            mySamples = myWhole ? new float[(int) myLength] : null;
+        }
+
+        /**
+         * @return Returns an idle worker, or a new one if all are busy.
+         */
+        private Worker acquire() {
+            final Worker worker = myWorkers.poll();
+            return worker == null ? new Worker(this) : worker;
+        }
+
+        /**
+         * @param theWorker A worker that is done.
+         */
+        private void release(final Worker theWorker) {
+            myWorkers.add(theWorker);
+        }
+    }
+
+    /**
+     * The trackers and buffers of one thread.
+     */
+    private static final class Worker {
+
+        /**
+         * The pitch tracker.
+         */
+        private final PitchTracker myPitchTracker;
+
+        /**
+         * The formant tracker.
+         */
+        private final FormantTracker myFormantTracker;
+
+        /**
+         * Reads the resampled samples.
+         */
+        private final ResampledReader myReader;
+
+        /**
+         * The resampled samples of the segment.
+         */
+        private float[] mySamples = new float[0];
+
+        /**
+         * The pre-emphasized samples of the segment.
+         */
+        private float[] myPrepared = new float[0];
+
+        /**
+         * Receives F1 - F4 of a frame.
+         */
+        private final double[] myFormants = new double[FormantTracker.REPORTED_FORMANTS];
+
+        /**
+         * Constructor for the worker.
+         *
+         * @param theRecording The recording.
+         */
+        private Worker(final Recording theRecording) {
+            myPitchTracker = new PitchTracker(theRecording.mySampleRate, theRecording.myParams);
+            myFormantTracker = new FormantTracker(theRecording.myParams);
+            myReader = new ResampledReader(theRecording.mySource, theRecording.mySampleRate);
+        }
+
+        /**
+         * @param theLength The number of samples needed.
+         */
+        private void ensureCapacity(final int theLength) {
+            if (theLength > mySamples.length) {
+                mySamples = new float[theLength];
+                myPrepared = new float[theLength];
+            }
+        }
+
+        /**
+         * Finds the absolute peak of a range of the resampled signal; a signal kept whole is
+         * stored on the way.
+         *
+         * @param theRecording The recording.
+         * @param theFirst     The first resampled sample.
+         * @param theLast      The end of the range (exclusive).
+         * @return Returns the peak.
+         */
+        private double findPeak(final Recording theRecording, final long theFirst,
+                                final long theLast) {
+            double peak = 0;
+            for (long first = theFirst; first < theLast; first += PEAK_BLOCK_SAMPLES) {
+                final int count = (int) Math.min(PEAK_BLOCK_SAMPLES, theLast - first);
+                final float[] out;
+                final int offset;
+                if (theRecording.myWhole) {
+                    out = theRecording.mySamples;
+                    offset = (int) first;
+                } else {
+                    ensureCapacity(count);
+                    out = mySamples;
+                    offset = 0;
+                }
+                myReader.read(first, out, offset, count);
+                for (int i = offset; i < offset + count; i++) {
+                    peak = Math.max(peak, Math.abs(out[i]));
+                }
+            }
+            return peak;
+        }
+
+        /**
+         * Analyzes a range of frames of a chunk.
+         *
+         * @param theRecording  The recording.
+         * @param theBlock      Receives the frames of the chunk.
+         * @param theChunkStart The first frame of the chunk.
+         * @param theFrom       The first frame analyzed.
+         * @param theTo         The end of the frames analyzed (exclusive).
+         */
+        private void analyze(final Recording theRecording, final FrameBlock theBlock,
+                             final int theChunkStart, final int theFrom, final int theTo) {
+            final double step = theRecording.myParams.getTimeStep();
+            final double sampleRate = theRecording.mySampleRate;
+            final long length = theRecording.myLength;
+            long bufferStart = 0;
+            float[] samples = theRecording.mySamples;
+            float[] prepared = theRecording.myPrepared;
+            if (!theRecording.myWhole) {
+                bufferStart = Math.max(0, Math.round(theFrom * step * sampleRate)
+                        - theRecording.myLead);
+                final long bufferEnd = Math.min(length,
+                        Math.round((theTo - 1) * step * sampleRate) + theRecording.myTail);
+                final int buffered = (int) Math.max(0, bufferEnd - bufferStart);
+                ensureCapacity(buffered);
+                myReader.read(bufferStart, mySamples, 0, buffered);
+                FormantTracker.preEmphasize(mySamples, buffered, myPrepared,
+                        theRecording.myParams);
+                samples = mySamples;
+                prepared = myPrepared;
+            }
+
+            final int pitchLength = theRecording.myPitchLength;
+            final int formantLength = theRecording.myFormantLength;
+            for (int frame = theFrom; frame < theTo; frame++) {
+                final int i = frame - theChunkStart;
+                theBlock.myAnalyzed[i] = false;
+                theBlock.myHasFormants[i] = false;
+
+                // frames whose window sticks out of the recording are undefined (as in praat)
+                final long center = Math.round(frame * step * sampleRate);
+                final long pitchStart = center - pitchLength / 2;
+                final long formantStart = center - formantLength / 2;
+                if (pitchStart < 0 || pitchStart + pitchLength > length
+                        || formantStart < 0 || formantStart + formantLength > length) {
+                    continue;
+                }
+
+                myPitchTracker.analyze(samples, (int) (pitchStart - bufferStart),
+                        theRecording.myGlobalPeak);
+                theBlock.myAnalyzed[i] = true;
+                final int candidates = myPitchTracker.getCandidateCount();
+                theBlock.myCandidateCounts[i] = candidates;
+                for (int c = 0; c < candidates; c++) {
+                    theBlock.myCandidateFrequencies[i * PitchTracker.MAX_CANDIDATES + c] =
+                            myPitchTracker.getCandidateFrequency(c);
+                    theBlock.myCandidateStrengths[i * PitchTracker.MAX_CANDIDATES + c] =
+                            myPitchTracker.getCandidateStrength(c);
+                }
+                if (!PitchPathFinder.canBeVoiced(myPitchTracker, theRecording.myParams)) {
+                    continue;
+                }
+                myFormantTracker.analyze(prepared, (int) (formantStart - bufferStart),
+                        myFormants);
+                if (Double.isNaN(myFormants[0]) || Double.isNaN(myFormants[1])
+                        || Double.isNaN(myFormants[2]) || Double.isNaN(myFormants[3])) {
+                    continue;
+                }
+                theBlock.myHasFormants[i] = true;
+                for (int f = 0; f < FormantTracker.REPORTED_FORMANTS; f++) {
+                    theBlock.myFormants[f][i] = myFormants[f];
+                }
+            }
+        }
+    }
+
+    /**
+     * The per-frame results of one chunk, indexed from the chunk's first frame.
+     */
+    private static final class FrameBlock {
+
+        /**
+         * True if the frame's windows lie inside the recording.
+         */
+        private final boolean[] myAnalyzed;
+
+        /**
+         * The number of pitch candidates of each frame.
+         */
+        private final int[] myCandidateCounts;
+
+        /**
+         * The candidate frequencies, {@link PitchTracker#MAX_CANDIDATES} per frame.
+         */
+        private final double[] myCandidateFrequencies;
+
+        /**
+         * The candidate strengths, {@link PitchTracker#MAX_CANDIDATES} per frame.
+         */
+        private final double[] myCandidateStrengths;
+
+        /**
+         * True if the path may make the frame voiced and it has F1 - F4.
+         */
+        private final boolean[] myHasFormants;
+
+        /**
+         * F1 - F4.
+         */
+        private final double[][] myFormants;
+
+        /**
+         * Constructor for the block.
+         *
+         * @param theFrames The number of frames of a chunk.
+         */
+        private FrameBlock(final int theFrames) {
+            myAnalyzed = new boolean[theFrames];
+            myCandidateCounts = new int[theFrames];
+            myCandidateFrequencies = new double[theFrames * PitchTracker.MAX_CANDIDATES];
+            myCandidateStrengths = new double[theFrames * PitchTracker.MAX_CANDIDATES];
+            myHasFormants = new boolean[theFrames];
+            myFormants = new double[FormantTracker.REPORTED_FORMANTS][theFrames];
+        }
+    }
+
+    /**
+     * Analyzes a range of frames, split into segments that run in parallel.
+     */
+    private static final class SegmentTask extends RecursiveAction {
+
+        /**
+         * ForkJoinTask is Serializable; the tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The recording.
+         */
+        private final transient Recording myRecording;
+
+        /**
+         * Receives the frames.
+         */
+        private final transient FrameBlock myBlock;
+
+        /**
+         * The first frame of the chunk.
+         */
+        private final int myChunkStart;
+
+        /**
+         * The first frame of the range.
+         */
+        private final int myFrom;
+
+        /**
+         * The end of the range (exclusive).
+         */
+        private final int myTo;
+
+        /**
+         * The largest segment analyzed without splitting.
+         */
+        private final int mySegmentFrames;
+
+        /**
+         * Constructor for the task.
+         *
+         * @param theRecording     The recording.
+         * @param theBlock         Receives the frames.
+         * @param theChunkStart    The first frame of the chunk.
+         * @param theFrom          The first frame of the range.
+         * @param theTo            The end of the range (exclusive).
+         * @param theSegmentFrames The largest segment analyzed without splitting.
+         */
+        private SegmentTask(final Recording theRecording, final FrameBlock theBlock,
+                            final int theChunkStart, final int theFrom, final int theTo,
+                            final int theSegmentFrames) {
+            myRecording = theRecording;
+            myBlock = theBlock;
+            myChunkStart = theChunkStart;
+            myFrom = theFrom;
+            myTo = theTo;
+            mySegmentFrames = theSegmentFrames;
+        }
+
+        @Override
+        protected void compute() {
+            if (myTo - myFrom > mySegmentFrames) {
+                final int middle = (myFrom + myTo) >>> 1;
+                invokeAll(new SegmentTask(myRecording, myBlock, myChunkStart, myFrom, middle,
+                                mySegmentFrames),
+                        new SegmentTask(myRecording, myBlock, myChunkStart, middle, myTo,
+                                mySegmentFrames));
+                return;
+            }
+            final Worker worker = myRecording.acquire();
+            try {
+                worker.analyze(myRecording, myBlock, myChunkStart, myFrom, myTo);
+            } finally {
+                myRecording.release(worker);
+            }
+        }
+    }
+
+    /**
+     * Finds the absolute peak of a range of the resampled signal in parallel.
+     */
+    private static final class PeakTask extends RecursiveTask<Double> {
+
+        /**
+         * ForkJoinTask is Serializable; the tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The recording.
+         */
+        private final transient Recording myRecording;
+
+        /**
+         * The first resampled sample.
+         */
+        private final long myFirst;
+
+        /**
+         * The end of the range (exclusive).
+         */
+        private final long myLast;
+
+        /**
+         * The largest range read without splitting.
+         */
+        private final long mySplitSamples;
+
+        /**
+         * Constructor for the task.
+         *
+         * @param theRecording    The recording.
+         * @param theFirst        The first resampled sample.
+         * @param theLast         The end of the range (exclusive).
+         * @param theSplitSamples The largest range read without splitting.
+         */
+        private PeakTask(final Recording theRecording, final long theFirst, final long theLast,
+                         final long theSplitSamples) {
+            myRecording = theRecording;
+            myFirst = theFirst;
+            myLast = theLast;
+            mySplitSamples = theSplitSamples;
+        }
+
+        @Override
+        protected Double compute() {
+            if (myLast - myFirst > mySplitSamples) {
+                final long middle = (myFirst + myLast) >>> 1;
+                final PeakTask right = new PeakTask(myRecording, middle, myLast,
+                        mySplitSamples);
+                right.fork();
+                final double left = new PeakTask(myRecording, myFirst, middle, mySplitSamples)
+                        .compute();
+                return Math.max(left, right.join());
+            }
+            final Worker worker = myRecording.acquire();
+            try {
+                return worker.findPeak(myRecording, myFirst, myLast);
+            } finally {
+                myRecording.release(worker);
+            }
+        }
+    }
+
+    /**
+     * Reads ranges of the recording resampled to the analysis sampling rate.
+     */
+    private static final class ResampledReader {
+
+        /**
+         * The recording.
+         */
+        private final SampleSource mySource;
+
+        /**
+         * The analysis sampling rate in Hz.
+         */
+        private final double myTargetRate;
+
+        /**
+         * The source samples around the range being resampled.
+         */
+        private float[] myWindow = new float[0];
+
+        /**
+         * Constructor for the reader.
+         *
+         * @param theSource     The recording.
+         * @param theTargetRate The analysis sampling rate in Hz.
+         */
+        private ResampledReader(final SampleSource theSource, final double theTargetRate) {
+            mySource = theSource;
+            myTargetRate = theTargetRate;
+        }
+
+        /**
+         * Resamples a range of the recording.
+         *
+         * @param theFirst  The index of the first resampled sample.
+         * @param theOut    Receives the samples.
+         * @param theOffset The index in theOut of the first sample.
+         * @param theCount  The number of samples; the range must lie inside the recording.
+         */
+        private void read(final long theFirst, final float[] theOut, final int theOffset,
+                          final int theCount) {
+            if (theCount <= 0) {
+                return;
+            }
+            final double sourceRate = mySource.getSampleRate();
+            final long sourceLength = mySource.getFrameCount();
+            final long from = Math.max(0,
+                    Resampler.getFirstInput(theFirst, sourceRate, myTargetRate));
+            final long to = Math.min(sourceLength - 1,
+                    Resampler.getLastInput(theFirst + theCount - 1, sourceRate, myTargetRate));
+            final int needed = (int) (to - from + 1);
+            if (needed > myWindow.length) {
+                myWindow = new float[needed];
+            }
+            mySource.read(from, myWindow, 0, needed);
+            Resampler.resample(myWindow, from, sourceLength, sourceRate, myTargetRate,
+                    theFirst, theOut, theOffset, theCount);
+        }
+    }
+}
@@ -1,28 +1,67 @@
 package com.kass.vocalanalysistool.view;
 
 import com.kass.vocalanalysistool.controller.Main;
+import com.kass.vocalanalysistool.model.AnalysisParameters;
+import com.kass.vocalanalysistool.model.CsvFactory;
+import com.kass.vocalanalysistool.model.GenderPerceptionModel;
+import com.kass.vocalanalysistool.model.StageMetrics;
 import com.kass.vocalanalysistool.model.UserFormantDatabase;
-import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
+import javafx.scene.control.ProgressBar;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 public class AudioDataController {
 
+    /**
+     * The choices offered by the export menu item; even indices export this session only.
+     */
+    private static final String[] EXPORT_OPTIONS = {
+            "Formant tracks (this session)", "Formant tracks (all sessions)",
+            "Feature vectors (this session)", "Feature vectors (all sessions)"};
+
+    /**
+     * The logger object for debugging.
+     */
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
     /**
      * The formant database object.
      */
     private final UserFormantDatabase db = new UserFormantDatabase(false);
 
     /**
-     * The scatterplot image container
+     * The session id of the analysis shown in this window.
+     */
+    private volatile long mySessionId = -1;
+
+    /**
+     * The gender perception model, loaded the first time it is needed.
+     */
+    private volatile GenderPerceptionModel myModel;
+
+    /**
+     * The pitch and formant chart
      */
     @FXML
-    private ImageView myScatterPlotImage;
+    private FormantChart myFormantChart;
 
     /**
      * The label inside the scrollable container
@@ -36,8 +75,6 @@ public class AudioDataController {
     @FXML
     private void initialize() {
 
-        myScatterPlotImage.setImage(new Image(new ByteArrayInputStream(db.getScatterPlot())));
-
         myInformationLabel.setText(
                 """    
                 * Formant [F1–F4] are resonant frequency ranges shaped by the vocal tract.
@@ -146,11 +183,129 @@ public class AudioDataController {
     }
 
     /**
-     * Opens the analysis scene where it breaks down formant data and outputs gender perception
+     * Opens a results window showing the analysis of a session, in the preloaded scene if
+     * one is ready.
+     *
+     * @param theSessionId The session id; a negative id shows the most recent analysis.
+     * @throws IOException Thrown if the scene can not be loaded.
+     */
+    @SuppressWarnings("try")
+    static void showSession(final long theSessionId) throws IOException {
+        FXMLLoader loader = ScenePreloader.takeResults();
+        if (loader == null) {
+            loader = new FXMLLoader(AudioDataController.class.getResource(
+                    "/com/kass/vocalanalysistool/gui/AudioData.fxml"));
+            try (final StageMetrics.Span span = StageMetrics.start("scene.results")) {
+                loader.load();
+            }
+        }
+        final Parent root = loader.getRoot();
+
+        //Passing the data to the AudioDataController class
+        final AudioDataController dataController = loader.getController();
+        dataController.setSessionId(theSessionId);
+
+        final Stage audioDataController = new Stage();
+        audioDataController.setTitle("Analysis Results");
+        audioDataController.setScene(new Scene(root));
+        audioDataController.show();
+        audioDataController.setResizable(false);
+        audioDataController.getIcons().add(ScenePreloader.getIcon());
+    }
+
+    /**
+     * Shows the analysis of the given session.
+     *
+     * @param theSessionId The session id returned by the database insert; a negative id
+     *                     shows the most recent analysis.
+     */
+    @SuppressWarnings("try")
+    public void setSessionId(final long theSessionId) {
+        final Task<double[][]> task = new Task<>() {
+            @Override
+            protected double[][] call() {
+                mySessionId = theSessionId < 0 ? db.getLatestSessionId() : theSessionId;
+                final double[][] formants = db.getFormants(mySessionId);
+                double[] times = db.getTimes(mySessionId);
+                if (times.length != formants[0].length) {
+                    // sessions migrated from the JSON schema have no times
+                    times = FormantChart.evenTimes(formants[0].length,
+                            AnalysisParameters.defaults().getTimeStep());
+                }
+                final double[][] tracks = new double[formants.length + 1][];
+                tracks[0] = times;
+                System.arraycopy(formants, 0, tracks, 1, formants.length);
+                return tracks;
+            }
+        };
+        task.setOnSucceeded(theEvent -> {
+            final double[][] tracks = task.getValue();
+            try (final StageMetrics.Span span = StageMetrics.start("results.chart")) {
+                myFormantChart.setData(tracks[0], Arrays.copyOfRange(tracks, 1,
+                        tracks.length));
+            }
+        });
+        task.setOnFailed(theEvent -> logger.log(Level.SEVERE,
+                "Unable to load the formant tracks", task.getException()));
+
+        final Thread loader = new Thread(task, "ChartLoader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Scores the gender perception of this session with the model named by the
+     * vocalanalysis.model property and shows the result.
      */
     @FXML
     private void handleAnalyzeButton() {
+        final Path modelFile = GenderPerceptionModel.getDefaultFile();
+        if (myModel == null && !Files.isRegularFile(modelFile)) {
+            final Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Gender Perception");
+            alert.setHeaderText("No gender perception model is installed!");
+            alert.setContentText("Train a model on the exported feature vectors and save it as "
+                    + modelFile.toAbsolutePath() + " (see the README for the format).");
+            alert.show();
+            return;
+        }
+
+        final long sessionId = mySessionId;
+        final Task<Double> task = new Task<>() {
+            @Override
+            protected Double call() throws IOException {
+                if (myModel == null) {
+                    myModel = GenderPerceptionModel.load(modelFile);
+                }
+                final Double score = myModel.scoreSessions(db, sessionId).get(sessionId);
+                if (score == null) {
+                    throw new IOException("Session " + sessionId + " is not stored");
+                }
+                return score;
+            }
+        };
+        task.setOnSucceeded(theEvent -> {
+            final double score = task.getValue();
+            final Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Gender Perception");
+            alert.setHeaderText("Perceived as " + myModel.getLabel(score));
+            alert.setContentText(String.format("%s: %.0f%%%n%s: %.0f%%",
+                    myModel.getPositiveLabel(), 100 * score,
+                    myModel.getNegativeLabel(), 100 * (1 - score)));
+            alert.show();
+        });
+        task.setOnFailed(theEvent -> {
+            logger.log(Level.SEVERE, "Unable to score the session", task.getException());
+            final Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Gender Perception");
+            alert.setHeaderText("Unable to score the recording!");
+            alert.setContentText(task.getException().getMessage());
+            alert.show();
+        });
 
+        final Thread scorer = new Thread(task, "GenderScorer");
+        scorer.setDaemon(true);
+        scorer.start();
     }
 
     /**
@@ -172,11 +327,83 @@ public class AudioDataController {
     }
 
     /**
-     * Exports the scatter plot as a .jpg and the formant data as a .csv
+     * Exports the formant tracks or the feature vectors of this session, or of every
+     * session, as a .csv. The rows are streamed from the database on a background thread.
      */
     @FXML
     private void handleMyExportButton() {
+        final ChoiceDialog<String> choice = new ChoiceDialog<>(EXPORT_OPTIONS[0], EXPORT_OPTIONS);
+        choice.setTitle("Export");
+        choice.setHeaderText("What would you like to export?");
+        final Optional<String> selected = choice.showAndWait();
+        if (selected.isEmpty()) {
+            return;
+        }
+        final int option = Arrays.asList(EXPORT_OPTIONS).indexOf(selected.get());
+        final boolean tracks = option < 2;
+        final long[] ids = option % 2 == 0 ? new long[] {mySessionId} : new long[0];
+
+        final FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export CSV");
+        fileChooser.setInitialFileName(tracks ? "formant_tracks.csv" : "features.csv");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        final File file = fileChooser.showSaveDialog(myFormantChart.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        final CsvFactory factory = new CsvFactory(db);
+        final Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws IOException {
+                factory.addPropertyChangeListener(theEvent -> updateProgress(
+                        (Double) theEvent.getNewValue(), 1));
+                return tracks ? factory.exportTracks(file.toPath(), ids)
+                        : factory.exportFeatures(file.toPath(), ids);
+            }
+
+            @Override
+            protected void cancelled() {
+                factory.cancel();
+            }
+        };
+
+        final ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.progressProperty().bind(task.progressProperty());
+        final Alert progress = new Alert(Alert.AlertType.NONE, null, ButtonType.CANCEL);
+        progress.setTitle("Export");
+        progress.setHeaderText("Exporting " + file.getName());
+        progress.getDialogPane().setContent(progressBar);
+        // closing the dialog cancels the export; a finished task ignores the cancel
+        progress.setOnHidden(theEvent -> task.cancel());
+
+        task.setOnSucceeded(theEvent -> {
+            progress.close();
+            final Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Export");
+            alert.setHeaderText("Exported " + task.getValue() + " rows to " + file.getName());
+            alert.show();
+        });
+        task.setOnCancelled(theEvent -> progress.close());
+        task.setOnFailed(theEvent -> {
+            progress.close();
+            if (task.getException() instanceof CancellationException) {
+                return;
+            }
+            logger.log(Level.SEVERE, "Unable to export " + file, task.getException());
+            final Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Export Error");
+            alert.setHeaderText("Unable to export the data!");
+            alert.setContentText(task.getException().getMessage());
+            alert.show();
+        });
 
+        final Thread exporter = new Thread(task, "CsvExporter");
+        exporter.setDaemon(true);
+        exporter.start();
+        progress.show();
     }
 
     /**
@@ -200,7 +427,7 @@ public class AudioDataController {
      */
     @FXML
     private void handleCloseProgram() {
-        final Stage myStage = (Stage) myScatterPlotImage.getScene().getWindow();
+        final Stage myStage = (Stage) myFormantChart.getScene().getWindow();
         myStage.close();
     }
 }
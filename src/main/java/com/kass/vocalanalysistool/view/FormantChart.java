@@ -0,0 +1,575 @@
+package com.kass.vocalanalysistool.view;
+
+import com.kass.vocalanalysistool.model.TrackPyramid;
+import java.util.Arrays;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * <p>The pitch line and the F1 - F4 scatter plot of an analysis, drawn on a canvas from the
+ * stored tracks.</p>
+ *
+ * <p>Every redraw walks the visible pixel columns, not the frames: each column takes the
+ * first, last, smallest and largest pitch of its frames and the extent of every formant
+ * from a {@link TrackPyramid}, so an hour-long recording draws as fast as a short one.</p>
+ *
+ * <p>Scroll to zoom the time axis around the cursor (hold Ctrl to zoom the frequency
+ * axis), drag to pan and double-click to show everything again.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class FormantChart extends Region {
+
+    /**
+     * The highest frequency shown on the y axis.
+     */
+    private static final double MAX_FREQUENCY = 5501.0;
+
+    /**
+     * The narrowest zoom of the time axis in seconds.
+     */
+    private static final double MIN_SPAN_SECONDS = 0.05;
+
+    /**
+     * The narrowest zoom of the frequency axis in Hz.
+     */
+    private static final double MIN_SPAN_HZ = 100.0;
+
+    /**
+     * The colors of F1 - F4 (matplotlib's default cycle, as in the exported plot).
+     */
+    private static final Color[] FORMANT_COLORS = {Color.web("#1f77b4"), Color.web("#ff7f0e"),
+            Color.web("#2ca02c"), Color.web("#d62728")};
+
+    /**
+     * Space left of the plot area in pixels.
+     */
+    private static final double LEFT = 52;
+
+    /**
+     * Space right of the plot area in pixels.
+     */
+    private static final double RIGHT = 10;
+
+    /**
+     * Space above the plot area in pixels.
+     */
+    private static final double TOP = 10;
+
+    /**
+     * Space below the plot area in pixels.
+     */
+    private static final double BOTTOM = 36;
+
+    /**
+     * The font of the tick labels.
+     */
+    private static final Font TICK_FONT = Font.font("SansSerif", 10);
+
+    /**
+     * The drawing surface.
+     */
+    private final Canvas myCanvas = new Canvas();
+
+    /**
+     * The time of every frame in ascending order.
+     */
+    private double[] myTimes = new double[0];
+
+    /**
+     * The F0 - F4 tracks.
+     */
+    private TrackPyramid[] myTracks = new TrackPyramid[0];
+
+    /**
+     * The first visible second.
+     */
+    private double myViewStart;
+
+    /**
+     * The last visible second.
+     */
+    private double myViewEnd = 1;
+
+    /**
+     * The lowest visible frequency.
+     */
+    private double myViewLow;
+
+    /**
+     * The highest visible frequency.
+     */
+    private double myViewHigh = MAX_FREQUENCY;
+
+    /**
+     * The x position where the drag started.
+     */
+    private double myDragX;
+
+    /**
+     * The y position where the drag started.
+     */
+    private double myDragY;
+
+    /**
+     * The first visible second when the drag started.
+     */
+    private double myDragStart;
+
+    /**
+     * The lowest visible frequency when the drag started.
+     */
+    private double myDragLow;
+
+    /**
+     * Constructor for the chart.
+     */
+    public FormantChart() {
+        getChildren().add(myCanvas);
+        setOnScroll(this::handleScroll);
+        setOnMousePressed(this::handlePressed);
+        setOnMouseDragged(this::handleDragged);
+        setOnMouseClicked(theEvent -> {
+            if (theEvent.getButton() == MouseButton.PRIMARY && theEvent.getClickCount() == 2) {
+                resetView();
+            }
+        });
+    }
+
+    /**
+     * Shows the tracks of an analysis.
+     *
+     * @param theTimes    The time of every frame in ascending order.
+     * @param theFormants The F0 - F4 tracks, each as long as the times.
+     */
+    public void setData(final double[] theTimes, final double[][] theFormants) {
+        myTimes = theTimes;
+        myTracks = new TrackPyramid[theFormants.length];
+        for (int f = 0; f < theFormants.length; f++) {
+            myTracks[f] = new TrackPyramid(theFormants[f]);
+        }
+        resetView();
+    }
+
+    /**
+     * Shows all frames and the full frequency range.
+     */
+    public void resetView() {
+        myViewStart = myTimes.length == 0 ? 0 : myTimes[0];
+        myViewEnd = myTimes.length == 0 ? 1 : myTimes[myTimes.length - 1];
+        if (myViewEnd - myViewStart < MIN_SPAN_SECONDS) {
+            myViewEnd = myViewStart + MIN_SPAN_SECONDS;
+        }
+        myViewLow = 0;
+        myViewHigh = MAX_FREQUENCY;
+        draw();
+    }
+
+    /**
+     * Resizes the canvas with the region and redraws.
+     */
+    @Override
+    protected void layoutChildren() {
+        final double width = snapSizeX(getWidth());
+        final double height = snapSizeY(getHeight());
+        if (myCanvas.getWidth() != width || myCanvas.getHeight() != height) {
+            myCanvas.setWidth(width);
+            myCanvas.setHeight(height);
+            draw();
+        }
+    }
+
+    /**
+     * Draws the axes and the visible part of the tracks.
+     */
+    private void draw() {
+        final GraphicsContext gc = myCanvas.getGraphicsContext2D();
+        final double width = myCanvas.getWidth();
+        final double height = myCanvas.getHeight();
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, width, height);
+        final double plotWidth = width - LEFT - RIGHT;
+        final double plotHeight = height - TOP - BOTTOM;
+        if (plotWidth < 10 || plotHeight < 10) {
+            return;
+        }
+
+        drawAxes(gc, plotWidth, plotHeight);
+        if (myTimes.length == 0) {
+            gc.setFill(Color.GRAY);
+            gc.setTextAlign(TextAlignment.CENTER);
+            gc.fillText("No frames", LEFT + plotWidth / 2, TOP + plotHeight / 2);
+            return;
+        }
+
+        gc.save();
+        gc.beginPath();
+        gc.rect(LEFT, TOP, plotWidth, plotHeight);
+        gc.clip();
+        final int columns = (int) Math.ceil(plotWidth);
+        final double secondsPerPixel = (myViewEnd - myViewStart) / plotWidth;
+        for (int f = 1; f < myTracks.length; f++) {
+            drawScatter(gc, myTracks[f], FORMANT_COLORS[(f - 1) % FORMANT_COLORS.length],
+                    columns, secondsPerPixel, plotHeight);
+        }
+        if (myTracks.length > 0) {
+            drawLine(gc, myTracks[0], columns, secondsPerPixel, plotHeight);
+        }
+        gc.restore();
+        drawLegend(gc);
+    }
+
+    /**
+     * Draws a formant as one dot or one vertical bar per pixel column.
+     *
+     * @param gc                 The graphics context.
+     * @param theTrack           The formant.
+     * @param theColor           The color of the formant.
+     * @param theColumns         The number of pixel columns.
+     * @param theSecondsPerPixel The width of one column in seconds.
+     * @param thePlotHeight      The height of the plot area.
+     */
+    private void drawScatter(final GraphicsContext gc, final TrackPyramid theTrack,
+                             final Color theColor, final int theColumns,
+                             final double theSecondsPerPixel, final double thePlotHeight) {
+        gc.setFill(theColor);
+        int from = lowerBound(myViewStart);
+        for (int column = 0; column < theColumns; column++) {
+            final int to = lowerBound(myViewStart + (column + 1) * theSecondsPerPixel);
+            if (to > from) {
+                final double low = theTrack.min(from, to);
+                if (low != Double.POSITIVE_INFINITY) {
+                    final double top = toY(theTrack.max(from, to), thePlotHeight);
+                    final double bottom = toY(low, thePlotHeight);
+                    gc.fillRect(LEFT + column - 1, top - 1.5, 3, bottom - top + 3);
+                }
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * Draws the pitch as a line through the first, the extremes and the last frame of
+     * every pixel column, which looks the same as a line through every frame.
+     *
+     * @param gc                 The graphics context.
+     * @param theTrack           The pitch.
+     * @param theColumns         The number of pixel columns.
+     * @param theSecondsPerPixel The width of one column in seconds.
+     * @param thePlotHeight      The height of the plot area.
+     */
+    private void drawLine(final GraphicsContext gc, final TrackPyramid theTrack,
+                          final int theColumns, final double theSecondsPerPixel,
+                          final double thePlotHeight) {
+        gc.setStroke(Color.BLACK);
+        gc.setLineWidth(1.5);
+        gc.beginPath();
+        boolean started = false;
+
+        int from = lowerBound(myViewStart);
+        // connect to the frame left of the view
+        final int before = previousValid(theTrack, from - 1);
+        if (before >= 0) {
+            gc.moveTo(toX(myTimes[before]), toY(theTrack.get(before), thePlotHeight));
+            started = true;
+        }
+        for (int column = 0; column < theColumns; column++) {
+            final int to = lowerBound(myViewStart + (column + 1) * theSecondsPerPixel);
+            if (to > from && theTrack.min(from, to) != Double.POSITIVE_INFINITY) {
+                final double x = LEFT + column + 0.5;
+                final int first = nextValid(theTrack, from);
+                final int last = previousValid(theTrack, to - 1);
+                final double y = toY(theTrack.get(first), thePlotHeight);
+                if (started) {
+                    gc.lineTo(x, y);
+                } else {
+                    gc.moveTo(x, y);
+                    started = true;
+                }
+                gc.lineTo(x, toY(theTrack.max(from, to), thePlotHeight));
+                gc.lineTo(x, toY(theTrack.min(from, to), thePlotHeight));
+                gc.lineTo(x, toY(theTrack.get(last), thePlotHeight));
+            }
+            from = to;
+        }
+        // and to the frame right of the view
+        final int after = nextValid(theTrack, from);
+        if (started && after < myTimes.length) {
+            gc.lineTo(toX(myTimes[after]), toY(theTrack.get(after), thePlotHeight));
+        }
+        gc.stroke();
+    }
+
+    /**
+     * Draws the grid, the ticks and the axis labels.
+     *
+     * @param gc            The graphics context.
+     * @param thePlotWidth  The width of the plot area.
+     * @param thePlotHeight The height of the plot area.
+     */
+    private void drawAxes(final GraphicsContext gc, final double thePlotWidth,
+                          final double thePlotHeight) {
+        gc.setFont(TICK_FONT);
+        gc.setLineWidth(1);
+        gc.setTextBaseline(VPos.CENTER);
+
+        final double hzStep = niceStep((myViewHigh - myViewLow) / 12);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        for (double hz = Math.ceil(myViewLow / hzStep) * hzStep; hz <= myViewHigh;
+             hz += hzStep) {
+            final double y = Math.round(toY(hz, thePlotHeight)) + 0.5;
+            gc.setStroke(Color.gray(0.88));
+            gc.strokeLine(LEFT, y, LEFT + thePlotWidth, y);
+            gc.setFill(Color.BLACK);
+            gc.fillText(format(hz, hzStep), LEFT - 4, y);
+        }
+
+        final double timeStep = niceStep((myViewEnd - myViewStart) / 8);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.TOP);
+        for (double time = Math.ceil(myViewStart / timeStep) * timeStep; time <= myViewEnd;
+             time += timeStep) {
+            final double x = Math.round(toX(time)) + 0.5;
+            gc.setStroke(Color.gray(0.88));
+            gc.strokeLine(x, TOP, x, TOP + thePlotHeight);
+            gc.setFill(Color.BLACK);
+            gc.fillText(format(time, timeStep), x, TOP + thePlotHeight + 3);
+        }
+
+        gc.setStroke(Color.BLACK);
+        gc.strokeRect(LEFT + 0.5, TOP + 0.5, thePlotWidth, thePlotHeight);
+        gc.fillText("Times (s)", LEFT + thePlotWidth / 2, TOP + thePlotHeight + 18);
+        gc.save();
+        gc.translate(12, TOP + thePlotHeight / 2);
+        gc.rotate(-90);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.fillText("Frequency (Hz)", 0, 0);
+        gc.restore();
+    }
+
+    /**
+     * Draws the legend in the upper left corner of the plot area.
+     *
+     * @param gc The graphics context.
+     */
+    private void drawLegend(final GraphicsContext gc) {
+        final double x = LEFT + 8;
+        final double y = TOP + 8;
+        gc.setFill(Color.color(1, 1, 1, 0.85));
+        gc.fillRect(x, y, 62, 76);
+        gc.setStroke(Color.gray(0.75));
+        gc.strokeRect(x + 0.5, y + 0.5, 62, 76);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.setStroke(Color.BLACK);
+        gc.setLineWidth(1.5);
+        gc.strokeLine(x + 6, y + 10, x + 20, y + 10);
+        gc.setFill(Color.BLACK);
+        gc.fillText("Pitch", x + 26, y + 10);
+        for (int f = 0; f < FORMANT_COLORS.length; f++) {
+            final double row = y + 24 + 14 * f;
+            gc.setFill(FORMANT_COLORS[f]);
+            gc.fillOval(x + 10, row - 3, 6, 6);
+            gc.setFill(Color.BLACK);
+            gc.fillText("F" + (f + 1), x + 26, row);
+        }
+    }
+
+    /**
+     * Zooms around the cursor.
+     *
+     * @param theEvent The scroll event.
+     */
+    private void handleScroll(final ScrollEvent theEvent) {
+        final double delta = theEvent.getDeltaY() == 0 ? theEvent.getDeltaX()
+                : theEvent.getDeltaY();
+        if (delta == 0 || myTimes.length == 0) {
+            return;
+        }
+        final double factor = Math.pow(0.998, delta);
+        final double plotWidth = myCanvas.getWidth() - LEFT - RIGHT;
+        final double plotHeight = myCanvas.getHeight() - TOP - BOTTOM;
+        if (theEvent.isControlDown()) {
+            final double share = Math.clamp((TOP + plotHeight - theEvent.getY()) / plotHeight,
+                    0, 1);
+            final double anchor = myViewLow + share * (myViewHigh - myViewLow);
+            final double span = Math.clamp((myViewHigh - myViewLow) * factor, MIN_SPAN_HZ,
+                    MAX_FREQUENCY);
+            setFrequencyView(anchor - share * span, span);
+        } else {
+            final double share = Math.clamp((theEvent.getX() - LEFT) / plotWidth, 0, 1);
+            final double anchor = myViewStart + share * (myViewEnd - myViewStart);
+            final double span = Math.clamp((myViewEnd - myViewStart) * factor,
+                    MIN_SPAN_SECONDS, Math.max(MIN_SPAN_SECONDS, getDuration()));
+            setTimeView(anchor - share * span, span);
+        }
+        draw();
+        theEvent.consume();
+    }
+
+    /**
+     * Remembers where a drag started.
+     *
+     * @param theEvent The mouse event.
+     */
+    private void handlePressed(final MouseEvent theEvent) {
+        myDragX = theEvent.getX();
+        myDragY = theEvent.getY();
+        myDragStart = myViewStart;
+        myDragLow = myViewLow;
+    }
+
+    /**
+     * Pans the view with the mouse.
+     *
+     * @param theEvent The mouse event.
+     */
+    private void handleDragged(final MouseEvent theEvent) {
+        final double plotWidth = myCanvas.getWidth() - LEFT - RIGHT;
+        final double plotHeight = myCanvas.getHeight() - TOP - BOTTOM;
+        final double span = myViewEnd - myViewStart;
+        final double hzSpan = myViewHigh - myViewLow;
+        setTimeView(myDragStart - (theEvent.getX() - myDragX) / plotWidth * span, span);
+        setFrequencyView(myDragLow + (theEvent.getY() - myDragY) / plotHeight * hzSpan,
+                hzSpan);
+        draw();
+    }
+
+    /**
+     * Moves the time axis, keeping it inside the recording.
+     *
+     * @param theStart The first visible second.
+     * @param theSpan  The visible duration.
+     */
+    private void setTimeView(final double theStart, final double theSpan) {
+        final double first = myTimes.length == 0 ? 0 : myTimes[0];
+        final double last = Math.max(first + theSpan,
+                myTimes.length == 0 ? 0 : myTimes[myTimes.length - 1]);
+        myViewStart = Math.clamp(theStart, first, last - theSpan);
+        myViewEnd = myViewStart + theSpan;
+    }
+
+    /**
+     * Moves the frequency axis, keeping it inside 0 - {@value #MAX_FREQUENCY} Hz.
+     *
+     * @param theLow  The lowest visible frequency.
+     * @param theSpan The visible range.
+     */
+    private void setFrequencyView(final double theLow, final double theSpan) {
+        myViewLow = Math.clamp(theLow, 0, MAX_FREQUENCY - theSpan);
+        myViewHigh = myViewLow + theSpan;
+    }
+
+    /**
+     * @return Returns the duration between the first and the last frame.
+     */
+    private double getDuration() {
+        return myTimes.length == 0 ? 0 : myTimes[myTimes.length - 1] - myTimes[0];
+    }
+
+    /**
+     * @param theTime A time in seconds.
+     * @return Returns the first frame at or after the time.
+     */
+    private int lowerBound(final double theTime) {
+        int low = 0;
+        int high = myTimes.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (myTimes[mid] < theTime) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param theTrack The track.
+     * @param theIndex The frame to start at.
+     * @return Returns the first frame at or after the index with a value, or the frame count.
+     */
+    private int nextValid(final TrackPyramid theTrack, final int theIndex) {
+        int index = theIndex;
+        while (index < myTimes.length && !(theTrack.get(index) > 0)) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * @param theTrack The track.
+     * @param theIndex The frame to start at.
+     * @return Returns the last frame at or before the index with a value, or -1.
+     */
+    private int previousValid(final TrackPyramid theTrack, final int theIndex) {
+        int index = theIndex;
+        while (index >= 0 && !(theTrack.get(index) > 0)) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * @param theTime A time in seconds.
+     * @return Returns the x coordinate of the time.
+     */
+    private double toX(final double theTime) {
+        return LEFT + (theTime - myViewStart) / (myViewEnd - myViewStart)
+                * (myCanvas.getWidth() - LEFT - RIGHT);
+    }
+
+    /**
+     * @param theHz         A frequency.
+     * @param thePlotHeight The height of the plot area.
+     * @return Returns the y coordinate of the frequency.
+     */
+    private double toY(final double theHz, final double thePlotHeight) {
+        return TOP + (myViewHigh - theHz) / (myViewHigh - myViewLow) * thePlotHeight;
+    }
+
+    /**
+     * @param theRough The wanted distance between two ticks.
+     * @return Returns the nearest 1, 2 or 5 times a power of ten.
+     */
+    private static double niceStep(final double theRough) {
+        final double magnitude = Math.pow(10, Math.floor(Math.log10(theRough)));
+        final double fraction = theRough / magnitude;
+        final double nice = fraction < 1.5 ? 1 : fraction < 3.5 ? 2 : fraction < 7.5 ? 5 : 10;
+        return nice * magnitude;
+    }
+
+    /**
+     * @param theValue The tick value.
+     * @param theStep  The tick distance.
+     * @return Returns the value with as many decimals as the step needs.
+     */
+    private static String format(final double theValue, final double theStep) {
+        final int decimals = (int) Math.max(0, -Math.floor(Math.log10(theStep)));
+        return String.format("%." + decimals + "f", theValue);
+    }
+
+    /**
+     * Synthesizes frame times for sessions stored without them (migrated from the JSON
+     * schema), one time step apart.
+     *
+     * @param theFrames   The number of frames.
+     * @param theTimeStep The time step in seconds.
+     * @return Returns the times.
+     */
+    static double[] evenTimes(final int theFrames, final double theTimeStep) {
+        final double[] times = new double[theFrames];
+        Arrays.setAll(times, theIndex -> theIndex * theTimeStep);
+        return times;
+    }
+}
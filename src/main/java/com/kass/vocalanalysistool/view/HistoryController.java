@@ -0,0 +1,279 @@
+package com.kass.vocalanalysistool.view;
+
+import com.kass.vocalanalysistool.model.SessionSummary;
+import com.kass.vocalanalysistool.model.UserFormantDatabase;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+
+/**
+ * <p>Lists the stored sessions, newest first, with a thumbnail of their formant tracks.</p>
+ *
+ * <p>The sessions are read {@value #PAGE_SIZE} at a time; the next page is read in the
+ * background once a row near the end of the list is shown. The thumbnails are loaded by a
+ * {@link ThumbnailCache} as their rows scroll into view. Double-click a session (or select
+ * it and press Open) to show its results.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public class HistoryController {
+
+    /**
+     * The number of sessions read at a time.
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * The next page is read once a row this close to the end of the list is shown.
+     */
+    private static final int PREFETCH_ROWS = 10;
+
+    /**
+     * The most thumbnails kept in memory.
+     */
+    private static final int CACHED_THUMBNAILS = 200;
+
+    /**
+     * The format SQLite stores the timestamps in (UTC).
+     */
+    private static final DateTimeFormatter STORED_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * The format the timestamps are shown in (local time).
+     */
+    private static final DateTimeFormatter SHOWN_FORMAT =
+            DateTimeFormatter.ofPattern("MMM d, yyyy  h:mm a");
+
+    /**
+     * The logger object for debugging.
+     */
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The database the sessions are read from.
+     */
+    private final UserFormantDatabase db = new UserFormantDatabase(false);
+
+    /**
+     * The thumbnails of the sessions.
+     */
+    private final ThumbnailCache myThumbnails = new ThumbnailCache(db, CACHED_THUMBNAILS);
+
+    /**
+     * The list of sessions.
+     */
+    @FXML
+    private ListView<SessionSummary> myHistoryList;
+
+    /**
+     * Shows how many sessions are loaded.
+     */
+    @FXML
+    private Label myStatusLabel;
+
+    /**
+     * Opens the selected session.
+     */
+    @FXML
+    private Button myOpenButton;
+
+    /**
+     * Set while a page is being read.
+     */
+    private boolean myLoading;
+
+    /**
+     * Set once the oldest session was read.
+     */
+    private boolean myExhausted;
+
+    /**
+     * Sets up the list and reads the first page.
+     */
+    @FXML
+    private void initialize() {
+        myHistoryList.setCellFactory(theList -> new SessionCell());
+        myHistoryList.setOnMouseClicked(theEvent -> {
+            if (theEvent.getClickCount() == 2) {
+                openSelected();
+            }
+        });
+        myHistoryList.setOnKeyPressed(theEvent -> {
+            if (theEvent.getCode() == KeyCode.ENTER) {
+                openSelected();
+            }
+        });
+        myOpenButton.disableProperty().bind(
+                myHistoryList.getSelectionModel().selectedItemProperty().isNull());
+        loadNextPage();
+    }
+
+    /**
+     * Shows the results of the selected session.
+     */
+    @FXML
+    private void handleOpen() {
+        openSelected();
+    }
+
+    /**
+     * Stops loading the thumbnails; called when the window is closed.
+     */
+    void shutdown() {
+        myThumbnails.close();
+    }
+
+    /**
+     * Shows the results of the selected session, if any.
+     */
+    private void openSelected() {
+        final SessionSummary session = myHistoryList.getSelectionModel().getSelectedItem();
+        if (session == null) {
+            return;
+        }
+        try {
+            AudioDataController.showSession(session.getId());
+        } catch (final IOException theException) {
+            logger.log(Level.SEVERE, "Unable to open session " + session.getId(),
+                    theException);
+            new Alert(Alert.AlertType.ERROR, "Unable to open the session.").show();
+        }
+    }
+
+    /**
+     * Reads the sessions older than the last one listed in the background, unless a page is
+     * already being read or the oldest session is listed.
+     */
+    private void loadNextPage() {
+        if (myLoading || myExhausted) {
+            return;
+        }
+        myLoading = true;
+        final ObservableList<SessionSummary> items = myHistoryList.getItems();
+        final long before = items.isEmpty() ? Long.MAX_VALUE
+                : items.get(items.size() - 1).getId();
+
+        final Task<List<SessionSummary>> task = new Task<>() {
+            @Override
+            protected List<SessionSummary> call() {
+                return db.getSessions(before, PAGE_SIZE);
+            }
+        };
+        task.setOnSucceeded(theEvent -> {
+            final List<SessionSummary> page = task.getValue();
+            items.addAll(page);
+            myExhausted = page.size() < PAGE_SIZE;
+            myLoading = false;
+            myStatusLabel.setText(items.isEmpty() ? "No sessions stored yet"
+                    : items.size() + (myExhausted ? "" : "+") + " sessions");
+        });
+        task.setOnFailed(theEvent -> {
+            logger.log(Level.SEVERE, "Unable to read the sessions", task.getException());
+            myLoading = false;
+            myStatusLabel.setText("Unable to read the sessions");
+        });
+
+        final Thread thread = new Thread(task, "HistoryLoader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @param theSession A session.
+     * @return Returns the text of its row: the local time it was stored and its averages.
+     */
+    private static String describe(final SessionSummary theSession) {
+        String stored;
+        try {
+            stored = LocalDateTime.parse(theSession.getTimestamp(), STORED_FORMAT)
+                    .atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault())
+                    .format(SHOWN_FORMAT);
+        } catch (final DateTimeParseException | NullPointerException theException) {
+            stored = String.valueOf(theSession.getTimestamp());
+        }
+        final double[] averages = theSession.getAverages();
+        return String.format("%s  (#%d)%nF0 %s   F1 %s   F2 %s%nF3 %s   F4 %s   %d frames",
+                stored, theSession.getId(), hertz(averages[0]), hertz(averages[1]),
+                hertz(averages[2]), hertz(averages[3]), hertz(averages[4]),
+                theSession.getFrameCount());
+    }
+
+    /**
+     * @param theValue A frequency in Hz; NaN if unknown.
+     * @return Returns the frequency rounded to Hz, or "-" if unknown.
+     */
+    private static String hertz(final double theValue) {
+        return Double.isNaN(theValue) ? "-" : String.format("%.0f Hz", theValue);
+    }
+
+    /**
+     * A row of the list: the thumbnail and the description of a session.
+     */
+    private final class SessionCell extends ListCell<SessionSummary> {
+
+        /**
+         * Shows the thumbnail.
+         */
+        private final ImageView myImage = new ImageView();
+
+        /**
+         * Shows the description.
+         */
+        private final Label myText = new Label();
+
+        /**
+         * Lays out the thumbnail and the description.
+         */
+        private final HBox myRow = new HBox(12, myImage, myText);
+
+        /**
+         * Constructor for the row.
+         */
+        private SessionCell() {
+            myImage.setFitWidth(UserFormantDatabase.THUMBNAIL_WIDTH);
+            myImage.setFitHeight(UserFormantDatabase.THUMBNAIL_HEIGHT);
+        }
+
+        @Override
+        protected void updateItem(final SessionSummary theSession, final boolean theEmpty) {
+            super.updateItem(theSession, theEmpty);
+            if (theEmpty || theSession == null) {
+                setGraphic(null);
+                return;
+            }
+            myText.setText(describe(theSession));
+            myImage.setImage(null);
+            final long id = theSession.getId();
+            myThumbnails.request(id, theImage -> {
+                final SessionSummary shown = getItem();
+                if (shown != null && shown.getId() == id) {
+                    myImage.setImage(theImage);
+                }
+            });
+            setGraphic(myRow);
+
+            if (getIndex() >= getListView().getItems().size() - PREFETCH_ROWS) {
+                loadNextPage();
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.kass.vocalanalysistool.view;
+
+import com.kass.vocalanalysistool.model.LiveAnalyzer;
+import com.kass.vocalanalysistool.model.LiveTrack;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.animation.AnimationTimer;
+import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.paint.Color;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * <p>Shows the pitch and the formants of the microphone as a scrolling chart.</p>
+ *
+ * <p>The chart is redrawn on every pulse of the JavaFX animation timer straight from the
+ * {@link LiveTrack}; the readout label is only updated a few times per second, so the
+ * layout is not recomputed at the frame rate.</p>
+ *
+ * <p>Run with {@code -Dvocalanalysis.live.file=path/to/file.wav} to feed a recording in
+ * real time instead of the microphone.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public class LiveAnalysisController {
+
+    /**
+     * The system property holding a recording to play instead of the microphone.
+     */
+    public static final String LIVE_FILE_PROPERTY = "vocalanalysis.live.file";
+
+    /**
+     * The visible history in seconds.
+     */
+    private static final double VISIBLE_SECONDS = 5.0;
+
+    /**
+     * The highest formant frequency on the chart in Hz.
+     */
+    private static final double MAX_FORMANT_HZ = 5500.0;
+
+    /**
+     * The pitch range of the lower band in Hz.
+     */
+    private static final double MIN_PITCH_HZ = 50.0;
+
+    /**
+     * The pitch range of the lower band in Hz.
+     */
+    private static final double MAX_PITCH_HZ = 500.0;
+
+    /**
+     * The share of the canvas height used by the formant band.
+     */
+    private static final double FORMANT_BAND = 0.7;
+
+    /**
+     * The readout refresh interval in nanoseconds.
+     */
+    private static final long READOUT_NANOS = 200_000_000L;
+
+    /**
+     * The track colors, F0 - F4.
+     */
+    private static final Color[] COLORS = {Color.BLACK, Color.CRIMSON, Color.ROYALBLUE,
+            Color.SEAGREEN, Color.DARKORANGE};
+
+    /**
+     * The logger object for debugging.
+     */
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The live analysis.
+     */
+    private final LiveAnalyzer myAnalyzer = new LiveAnalyzer();
+
+    /**
+     * The chart.
+     */
+    @FXML
+    private Canvas myCanvas;
+
+    /**
+     * The current values, latency and frame rate.
+     */
+    @FXML
+    private Label myReadoutLabel;
+
+    /**
+     * Starts and stops the capture.
+     */
+    @FXML
+    private Button myStartButton;
+
+    /**
+     * Redraws the chart on every pulse.
+     */
+    private AnimationTimer myTimer;
+
+    /**
+     * The time of the last readout refresh.
+     */
+    private long myLastReadout;
+
+    /**
+     * The number of pulses since the last readout refresh.
+     */
+    private int myPulses;
+
+    /**
+     * Initializes the scene prior to showcasing it.
+     */
+    @FXML
+    private void initialize() {
+        myTimer = new AnimationTimer() {
+            @Override
+            public void handle(final long theNow) {
+                draw();
+                myPulses++;
+                if (theNow - myLastReadout >= READOUT_NANOS) {
+                    updateReadout(theNow);
+                }
+            }
+        };
+        draw();
+    }
+
+    /**
+     * Starts or stops the capture.
+     */
+    @FXML
+    private void handleStartStop() {
+        if (myAnalyzer.isRunning()) {
+            shutdown();
+            return;
+        }
+        try {
+            final String file = System.getProperty(LIVE_FILE_PROPERTY);
+            if (file == null) {
+                myAnalyzer.startMicrophone();
+            } else {
+                myAnalyzer.startFile(Path.of(file));
+            }
+        } catch (final LineUnavailableException | IOException theException) {
+            logger.log(Level.SEVERE, "Unable to start the live analysis", theException);
+            myReadoutLabel.setText("Unable to start: " + theException.getMessage());
+            return;
+        }
+        myStartButton.setText("Stop");
+        myLastReadout = 0;
+        myTimer.start();
+    }
+
+    /**
+     * Stops the capture and the redraws; called when the window closes.
+     */
+    void shutdown() {
+        myAnalyzer.stop();
+        myTimer.stop();
+        myStartButton.setText("Start");
+        draw();
+    }
+
+    /**
+     * Draws the last {@value #VISIBLE_SECONDS} seconds of the track.
+     */
+    private void draw() {
+        final GraphicsContext gc = myCanvas.getGraphicsContext2D();
+        final double width = myCanvas.getWidth();
+        final double height = myCanvas.getHeight();
+        final double band = height * FORMANT_BAND;
+
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, width, height);
+        gc.setStroke(Color.gray(0.85));
+        gc.setLineWidth(1);
+        for (int hz = 1000; hz < MAX_FORMANT_HZ; hz += 1000) {
+            final double y = band * (1 - hz / MAX_FORMANT_HZ);
+            gc.strokeLine(0, y, width, y);
+        }
+        gc.setStroke(Color.gray(0.5));
+        gc.strokeLine(0, band, width, band);
+
+        final LiveTrack track = myAnalyzer.getTrack();
+        final long count = track.getCount();
+        if (count == 0) {
+            return;
+        }
+        final long oldest = Math.max(0, count - track.getCapacity() + 1);
+        final double newest = track.getTime(count - 1);
+        final double pixelsPerSecond = width / VISIBLE_SECONDS;
+
+        gc.setLineWidth(2);
+        for (int f = 0; f < LiveTrack.TRACKS; f++) {
+            gc.setStroke(COLORS[f]);
+            gc.beginPath();
+            boolean open = false;
+            for (long frame = count - 1; frame >= oldest; frame--) {
+                final double time = track.getTime(frame);
+                if (newest - time > VISIBLE_SECONDS) {
+                    break;
+                }
+                final double value = track.getFrequency(f, frame);
+                if (Double.isNaN(value)) {
+                    open = false;
+                    continue;
+                }
+                final double x = width - (newest - time) * pixelsPerSecond;
+                final double y = f == 0
+                        ? band + (height - band) * (1 - (value - MIN_PITCH_HZ)
+                        / (MAX_PITCH_HZ - MIN_PITCH_HZ))
+                        : band * (1 - value / MAX_FORMANT_HZ);
+                if (open) {
+                    gc.lineTo(x, y);
+                } else {
+                    gc.moveTo(x, y);
+                    open = true;
+                }
+            }
+            gc.stroke();
+        }
+    }
+
+    /**
+     * Shows the newest values, the capture-to-result latency and the redraw rate.
+     *
+     * @param theNow The current pulse time in nanoseconds.
+     */
+    private void updateReadout(final long theNow) {
+        final double seconds = (theNow - myLastReadout) / 1e9;
+        final int fps = myLastReadout == 0 ? 0 : (int) Math.round(myPulses / seconds);
+        myLastReadout = theNow;
+        myPulses = 0;
+
+        if (myAnalyzer.getFailure() != null) {
+            myReadoutLabel.setText("Stopped: " + myAnalyzer.getFailure().getMessage());
+            shutdown();
+            return;
+        }
+        final LiveTrack track = myAnalyzer.getTrack();
+        final long count = track.getCount();
+        if (count == 0) {
+            myReadoutLabel.setText("Listening...");
+            return;
+        }
+        final long frame = count - 1;
+        final StringBuilder text = new StringBuilder();
+        for (int f = 0; f < LiveTrack.TRACKS; f++) {
+            final double value = track.getFrequency(f, frame);
+            text.append('F').append(f).append(' ')
+                    .append(Double.isNaN(value) ? "-" : String.valueOf(Math.round(value)))
+                    .append(" Hz   ");
+        }
+        text.append("| latency ").append(track.getLatency(frame) / 1_000_000).append(" ms | ")
+                .append(fps).append(" fps");
+        myReadoutLabel.setText(text.toString());
+        if (!myAnalyzer.isRunning()) {
+            shutdown();
+        }
+    }
+}
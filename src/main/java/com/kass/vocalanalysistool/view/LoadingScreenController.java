@@ -1,10 +1,16 @@
 package com.kass.vocalanalysistool.view;
 
 import com.kass.vocalanalysistool.common.Properties;
+import com.kass.vocalanalysistool.model.AnalysisResult;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.AnchorPane;
 
 /**
  * Shows the loading screen whenever an audio file gets selected.
@@ -14,21 +20,136 @@ import javafx.scene.control.ProgressBar;
  */
 public class LoadingScreenController implements PropertyChangeListener {
 
+    /**
+     * The width of the loading screen once the preview is shown.
+     */
+    private static final double PREVIEW_WIDTH = 560;
+
+    /**
+     * The height of the loading screen once the preview is shown.
+     */
+    private static final double PREVIEW_HEIGHT = 330;
+
+    @FXML
+    private AnchorPane myRoot;
+
     @FXML
     private ProgressBar myProgBar;
 
+    /**
+     * The status line under the title.
+     */
+    @FXML
+    private Label myStatusLabel;
+
+    /**
+     * The cancel button.
+     */
+    @FXML
+    private Button myCancelButton;
+
+    /**
+     * The tracks analyzed so far.
+     */
+    @FXML
+    private FormantChart myPreviewChart;
+
+    /**
+     * Stops the running analysis; null while nothing can be cancelled.
+     */
+    private Runnable myOnCancel;
+
+    /**
+     * The times and the F0 - F4 tracks of the preview.
+     */
+    private final double[][] myPreview = new double[6][256];
+
+    /**
+     * The number of frames of the preview.
+     */
+    private int myPreviewSize;
+
     protected void setMyMainSceneController(final SelectAudioFileController theScene) {
         theScene.addPropertyChangeListener(this);
     }
 
+    /**
+     * Sets the action of the cancel button.
+     *
+     * @param theAction Stops the running analysis.
+     */
+    protected void setOnCancel(final Runnable theAction) {
+        myOnCancel = theAction;
+    }
+
     protected double getProgressStatus() {
         return myProgBar.getProgress();
     }
 
+    /**
+     * Cancels the analysis; it stops once the chunk in progress is done.
+     */
+    @FXML
+    private void handleCancel() {
+        myCancelButton.setDisable(true);
+        myStatusLabel.setText("Cancelling...");
+        if (myOnCancel != null) {
+            myOnCancel.run();
+        }
+    }
+
     @Override
     public void propertyChange(final PropertyChangeEvent theEvent) {
-        if(theEvent.getPropertyName().equals(Properties.UPDATE_PROGRESS.toString())) {
-            myProgBar.setProgress((double) theEvent.getNewValue());
+        if (theEvent.getPropertyName().equals(Properties.UPDATE_PROGRESS.toString())) {
+            final double progress = (double) theEvent.getNewValue();
+            Platform.runLater(() -> myProgBar.setProgress(progress));
+        } else if (theEvent.getPropertyName().equals(Properties.PARTIAL_RESULT.toString())) {
+            final AnalysisResult chunk = (AnalysisResult) theEvent.getNewValue();
+            Platform.runLater(() -> showPartialResult(chunk));
+        }
+    }
+
+    /**
+     * Appends the frames of a chunk to the preview, enlarging the screen to fit the chart
+     * the first time.
+     *
+     * @param theChunk The frames of the latest chunk that passed the filter, with the
+     *                 running features.
+     */
+    private void showPartialResult(final AnalysisResult theChunk) {
+        if (myCancelButton.isDisabled()) {
+            return;
+        }
+        final int size = theChunk.getTimes().length;
+        if (myPreviewSize + size > myPreview[0].length) {
+            final int capacity = Math.max(2 * myPreview[0].length, myPreviewSize + size);
+            for (int row = 0; row < myPreview.length; row++) {
+                myPreview[row] = Arrays.copyOf(myPreview[row], capacity);
+            }
+        }
+        System.arraycopy(theChunk.getTimes(), 0, myPreview[0], myPreviewSize, size);
+        for (int f = 0; f < 5; f++) {
+            System.arraycopy(theChunk.getFormants()[f], 0, myPreview[f + 1], myPreviewSize,
+                    size);
+        }
+        myPreviewSize += size;
+        final Double median = theChunk.getFeatures().get("F0_med");
+        myStatusLabel.setText(myPreviewSize + " voiced frames so far"
+                + (median == null || median.isNaN() ? ""
+                : String.format(", median F0 %.0f Hz", median)));
+        if (myPreviewSize == 0) {
+            return;
+        }
+
+        final double[][] formants = new double[5][];
+        for (int f = 0; f < 5; f++) {
+            formants[f] = Arrays.copyOf(myPreview[f + 1], myPreviewSize);
+        }
+        myPreviewChart.setData(Arrays.copyOf(myPreview[0], myPreviewSize), formants);
+        if (!myPreviewChart.isVisible()) {
+            myPreviewChart.setVisible(true);
+            myRoot.setPrefSize(PREVIEW_WIDTH, PREVIEW_HEIGHT);
+            myRoot.getScene().getWindow().sizeToScene();
         }
     }
 }
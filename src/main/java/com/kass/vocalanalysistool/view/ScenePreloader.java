@@ -0,0 +1,152 @@
+package com.kass.vocalanalysistool.view;
+
+import com.kass.vocalanalysistool.model.StageMetrics;
+import com.kass.vocalanalysistool.model.UserFormantDatabase;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.image.Image;
+
+/**
+ * <p>Does the slow parts of opening a window ahead of time on background threads, so they
+ * overlap with the start up and the analysis instead of running on the JavaFX application
+ * thread once the user is waiting.</p>
+ *
+ * <ul>
+ *     <li>{@link #warmUp()} opens the database (loading the SQLite library and checking the
+ *     schema) and decodes the window icon while the first scene is loaded.</li>
+ *     <li>{@link #preloadResults()} loads the results scene, whose controller opens its own
+ *     database handle, while an analysis runs; {@link #takeResults()} hands it over once the
+ *     analysis is done.</li>
+ * </ul>
+ *
+ * <p>The nodes are built off the JavaFX application thread, which is allowed as long as they
+ * are not part of a showing window yet.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+public final class ScenePreloader {
+
+    /**
+     * The results scene.
+     */
+    private static final String RESULTS_FXML = "/com/kass/vocalanalysistool/gui/AudioData.fxml";
+
+    /**
+     * The logger object for debugging.
+     */
+    private static final Logger MY_LOGGER = Logger.getLogger(ScenePreloader.class.getName());
+
+    /**
+     * Loads the next results scene; null if none is being loaded. Only used on the JavaFX
+     * application thread.
+     */
+    private static Task<FXMLLoader> ourResults;
+
+    /**
+     * Utility class.
+     */
+    private ScenePreloader() {
+    }
+
+    /**
+     * @return Returns the window icon, decoded once.
+     */
+    public static Image getIcon() {
+        return Icon.IMAGE;
+    }
+
+    /**
+     * Opens the database and decodes the icon on a background thread.
+     */
+    @SuppressWarnings("try")
+    public static void warmUp() {
+        final Thread thread = new Thread(() -> {
+            try (final StageMetrics.Span span = StageMetrics.start("startup.warmUp")) {
+                getIcon();
+                new UserFormantDatabase(false);
+            } catch (final RuntimeException theException) {
+                // the windows open the database again and report the failure there
+                MY_LOGGER.log(Level.WARNING, "Unable to warm up the database", theException);
+            }
+        }, "StartupWarmUp");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts loading a results scene on a background thread, unless one is already loaded
+     * or being loaded. Called on the JavaFX application thread.
+     */
+    static void preloadResults() {
+        if (ourResults != null) {
+            return;
+        }
+        final Task<FXMLLoader> task = new Task<>() {
+            @Override
+            @SuppressWarnings("try")
+            protected FXMLLoader call() throws IOException {
+                final FXMLLoader loader = new FXMLLoader(
+                        ScenePreloader.class.getResource(RESULTS_FXML));
+                try (final StageMetrics.Span span = StageMetrics.start("scene.results.preload")) {
+                    loader.load();
+                }
+                getIcon();
+                return loader;
+            }
+        };
+        task.setOnFailed(theEvent -> {
+            MY_LOGGER.log(Level.WARNING, "Unable to preload the results scene",
+                    task.getException());
+            if (ourResults == task) {
+                ourResults = null;
+            }
+        });
+        ourResults = task;
+
+        final Thread thread = new Thread(task, "ResultsPreloader");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Hands over the preloaded results scene. A scene that is still loading is left for the
+     * next call rather than waited for. Called on the JavaFX application thread.
+     *
+     * @return Returns the loader holding the root and the controller of the scene, or null
+     * if none is ready.
+     */
+    static FXMLLoader takeResults() {
+        final Task<FXMLLoader> task = ourResults;
+        if (task == null || task.getState() != Worker.State.SUCCEEDED) {
+            return null;
+        }
+        ourResults = null;
+        return task.getValue();
+    }
+
+    /**
+     * Decodes the icon on first use.
+     */
+    private static final class Icon {
+
+        /**
+         * The window icon.
+         */
+        private static final Image IMAGE = new Image(Objects.requireNonNull(
+                ScenePreloader.class.getResourceAsStream(
+                        "/com/kass/vocalanalysistool/icons/vocal_analysis_icon.png")));
+
+        /**
+         * Holder class.
+         */
+        private Icon() {
+        }
+    }
+}
@@ -1,20 +1,25 @@
 package com.kass.vocalanalysistool.view;
 
 import com.kass.vocalanalysistool.common.Properties;
+import com.kass.vocalanalysistool.controller.Main;
+import com.kass.vocalanalysistool.model.AnalysisCache;
+import com.kass.vocalanalysistool.model.AnalysisMode;
+import com.kass.vocalanalysistool.model.AnalysisParameters;
+import com.kass.vocalanalysistool.model.AnalysisResult;
+import com.kass.vocalanalysistool.model.BatchAnalyzer;
+import com.kass.vocalanalysistool.model.BatchReport;
+import com.kass.vocalanalysistool.model.FeatureCsvWriter;
+import com.kass.vocalanalysistool.model.PythonWorkerPool;
+import com.kass.vocalanalysistool.model.StageMetrics;
+import com.kass.vocalanalysistool.model.UserFormantDatabase;
+import com.kass.vocalanalysistool.model.VocalAnalysisEngine;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.Map;
-import java.util.Objects;
-import java.util.function.Function;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.concurrent.Task;
@@ -22,8 +27,9 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
-import javafx.scene.image.Image;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
@@ -50,12 +56,42 @@ public class SelectAudioFileController implements PropertyChangeListener {
      */
     private final PropertyChangeSupport myChanges = new PropertyChangeSupport(this);
 
+    /**
+     * The part of the progress bar filled by the python worker; storing the result fills the
+     * rest.
+     */
+    private static final double PYTHON_ANALYSIS_SHARE = 0.9;
+
+    /**
+     * Appends the python feature rows to user_features.csv.
+     */
+    private static final FeatureCsvWriter FEATURE_CSV =
+            new FeatureCsvWriter(Path.of(FeatureCsvWriter.DEFAULT_FILE));
+
     /**
      * The open file button
      */
     @FXML
     private Button myOpenFileButton;
 
+    /**
+     * The open folder button (batch analysis)
+     */
+    @FXML
+    private Button myOpenFolderButton;
+
+    /**
+     * The live microphone button
+     */
+    @FXML
+    private Button myLiveButton;
+
+    /**
+     * The history button
+     */
+    @FXML
+    private Button myHistoryButton;
+
     /**
      * The exit button
      */
@@ -74,6 +110,7 @@ public class SelectAudioFileController implements PropertyChangeListener {
      * Opens the filechooser window where the user is able to choose the audio file.
      */
     @FXML
+    @SuppressWarnings("try")
     private void handleOpenFile() throws IOException {
 
         logger.setLevel(Level.INFO);
@@ -98,46 +135,184 @@ public class SelectAudioFileController implements PropertyChangeListener {
 
             final FXMLLoader loadingScreenFXML = new FXMLLoader(getClass().getResource(
                     "/com/kass/vocalanalysistool/gui/LoadingScreen.fxml"));
-            final Scene loadingScreenScene = new Scene(loadingScreenFXML.load());
+            final Scene loadingScreenScene;
+            try (final StageMetrics.Span span = StageMetrics.start("scene.loading")) {
+                loadingScreenScene = new Scene(loadingScreenFXML.load());
+            }
             final LoadingScreenController loadingScreenController = loadingScreenFXML.getController();
             loadingScreenController.setMyMainSceneController(this);
             final Stage loadingScreenStage = new Stage();
             loadingScreenStage.initStyle(StageStyle.UNDECORATED);
             loadingScreenStage.setScene(loadingScreenScene);
-            loadingScreenStage.getIcons().add(new Image(Objects.requireNonNull
-                    (getClass().getResourceAsStream
-                            ("/com/kass/vocalanalysistool/icons/vocal_analysis_icon.png"))));
+            loadingScreenStage.getIcons().add(ScenePreloader.getIcon());
             loadingScreenStage.setResizable(false);
             loadingScreenStage.setAlwaysOnTop(true);
             loadingScreenStage.show();
 
-            final Task<Void> task = getThreadedTask(path, loadingScreenController, loadingScreenStage);
+            final Task<Long> task = getThreadedTask(path, loadingScreenController, loadingScreenStage);
 
             final Thread worker = new Thread(task, "PythonRunner");
             worker.setDaemon(true);
             worker.start();
+            // the results window is ready by the time the analysis is
+            ScenePreloader.preloadResults();
+
+
+        }
+    }
+
+    /**
+     * Opens the directory chooser and analyzes every audio file of the chosen directory on
+     * a pool of worker threads. The rows are appended to user_features.csv and the
+     * user_formants table; the throughput is shown when the batch is done.
+     */
+    @FXML
+    @SuppressWarnings("try")
+    private void handleOpenFolder() throws IOException {
+        final DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Audio Folder");
+        final File directory = directoryChooser.showDialog(
+                myOpenFolderButton.getScene().getWindow());
+        if (directory == null) {
+            return;
+        }
 
+        final FXMLLoader loadingScreenFXML = new FXMLLoader(getClass().getResource(
+                "/com/kass/vocalanalysistool/gui/LoadingScreen.fxml"));
+        final Scene loadingScreenScene;
+        try (final StageMetrics.Span span = StageMetrics.start("scene.loading")) {
+            loadingScreenScene = new Scene(loadingScreenFXML.load());
+        }
+        final LoadingScreenController loadingScreenController = loadingScreenFXML.getController();
+        loadingScreenController.setMyMainSceneController(this);
+        final Stage loadingScreenStage = new Stage();
+        loadingScreenStage.initStyle(StageStyle.UNDECORATED);
+        loadingScreenStage.setScene(loadingScreenScene);
+        loadingScreenStage.setResizable(false);
+        loadingScreenStage.setAlwaysOnTop(true);
+        loadingScreenStage.show();
+
+        final Task<BatchReport> task = new Task<>() {
+            @Override
+            protected BatchReport call() throws IOException {
+                final BatchAnalyzer.FileAnalysis analysis;
+                if (AnalysisMode.fromSystemProperty() == AnalysisMode.NATIVE) {
+                    // the batch already runs one file per core
+                    analysis = new VocalAnalysisEngine(AnalysisParameters.defaults(), 1)::analyze;
+                } else {
+                    final PythonWorkerPool pool =
+                            PythonWorkerPool.getShared(SelectAudioFileController.this);
+                    analysis = theFile -> pool.analyze(theFile, AnalysisParameters.defaults(),
+                            null);
+                }
+                final BatchAnalyzer batch = new BatchAnalyzer(analysis,
+                        BatchAnalyzer.getDefaultThreads(), new UserFormantDatabase(false),
+                        FEATURE_CSV);
+                batch.addPropertyChangeListener(SelectAudioFileController.this);
+                return batch.run(directory.toPath());
+            }
+        };
+
+        task.setOnSucceeded(theEvent -> {
+            myChanges.removePropertyChangeListener(loadingScreenController);
+            loadingScreenStage.close();
+            final BatchReport report = task.getValue();
+            final Alert alert = new Alert(Alert.AlertType.INFORMATION, report.toString());
+            alert.setTitle("Batch Analysis");
+            alert.setHeaderText("Analyzed " + report.getSucceeded() + " of "
+                    + report.getTotal() + " files");
+            alert.show();
+        });
+
+        task.setOnFailed(theEvent -> {
+            myChanges.removePropertyChangeListener(loadingScreenController);
+            loadingScreenStage.close();
+            logger.log(Level.SEVERE, "Batch processing failed", task.getException());
+        });
+
+        task.setOnCancelled(theEvent -> {
+            myChanges.removePropertyChangeListener(loadingScreenController);
+            loadingScreenStage.close();
+            logger.info("Batch analysis cancelled");
+        });
+        loadingScreenController.setOnCancel(task::cancel);
+
+        final Thread worker = new Thread(task, "BatchRunner");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Opens the live analysis window, which tracks the pitch and the formants of the
+     * microphone while the user speaks. The capture stops when the window is closed.
+     */
+    @FXML
+    @SuppressWarnings("try")
+    private void handleLive() throws IOException {
+        final FXMLLoader loader = new FXMLLoader(getClass().getResource(
+                "/com/kass/vocalanalysistool/gui/LiveAnalysis.fxml"));
+        final Parent root;
+        try (final StageMetrics.Span span = StageMetrics.start("scene.live")) {
+            root = loader.load();
+        }
+        final LiveAnalysisController liveController = loader.getController();
+
+        final Stage liveStage = new Stage();
+        liveStage.setTitle("Live Analysis");
+        liveStage.setScene(new Scene(root));
+        liveStage.setResizable(false);
+        liveStage.getIcons().add(ScenePreloader.getIcon());
+        liveStage.setOnHidden(theEvent -> liveController.shutdown());
+        liveStage.initOwner(myLiveButton.getScene().getWindow());
+        liveStage.show();
+    }
 
+    /**
+     * Opens the history window, which lists the stored sessions newest first.
+     */
+    @FXML
+    @SuppressWarnings("try")
+    private void handleHistory() throws IOException {
+        final FXMLLoader loader = new FXMLLoader(getClass().getResource(
+                "/com/kass/vocalanalysistool/gui/History.fxml"));
+        final Parent root;
+        try (final StageMetrics.Span span = StageMetrics.start("scene.history")) {
+            root = loader.load();
         }
+        final HistoryController historyController = loader.getController();
+
+        final Stage historyStage = new Stage();
+        historyStage.setTitle("Session History");
+        historyStage.setScene(new Scene(root));
+        historyStage.setResizable(false);
+        historyStage.getIcons().add(ScenePreloader.getIcon());
+        historyStage.setOnHidden(theEvent -> historyController.shutdown());
+        historyStage.initOwner(myHistoryButton.getScene().getWindow());
+        historyStage.show();
     }
 
     /**
-     * Runs the python script on a separate thread.
-     * @param thePath the path of the python script.
+     * Runs the analysis on a separate thread.
+     * @param thePath the path of the audio file.
      * @param theLoadingScreenController The loading screen controller object.
      * @param theLoadingScreenStage The loading screen stage object.
-     * @return a task object of the thread.
+     * @return a task object of the thread; its value is the session id of the analysis. The
+     * task fails if the file could not be analyzed or stored.
      */
-    private Task<Void> getThreadedTask(final String thePath,
+    private Task<Long> getThreadedTask(final String thePath,
                                        final LoadingScreenController theLoadingScreenController,
                                        final Stage theLoadingScreenStage) {
-        final Task<Void> task = new Task<>() {
+        final Task<Long> task = new Task<>() {
             @Override
-            protected Void call() {
-                runPythonScript(thePath);
+            @SuppressWarnings("try")
+            protected Long call() throws IOException {
+                final long sessionId;
+                try (final StageMetrics.Span span = StageMetrics.start("analysis.total")) {
+                    sessionId = runAnalysis(thePath);
+                }
                 myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
                         (double) 1);
-                return null;
+                return sessionId;
             }
         };
 
@@ -149,23 +324,7 @@ public class SelectAudioFileController implements PropertyChangeListener {
             }
 
             try {
-                final FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/kass" +
-                        "/vocalanalysistool/gui/AudioData.fxml"));
-                final Parent root = loader.load();
-
-                //Passing the data to the AudioDataController class
-                final AudioDataController dataController = loader.getController();
-                //dataController.setResults(results);
-
-                final Stage audioDataController = new Stage();
-                audioDataController.setTitle("Analysis Results");
-                audioDataController.setScene(new Scene(root));
-                audioDataController.show();
-                audioDataController.setResizable(false);
-                audioDataController.getIcons().add(new Image(Objects.requireNonNull
-                        (getClass().getResourceAsStream
-                                ("/com/kass/vocalanalysistool/icons/vocal_analysis_icon.png"))));
-
+                AudioDataController.showSession(task.getValue());
             } catch (final IOException theException) {
 
                 logger.log(Level.SEVERE, "No File Found!", theException);
@@ -173,12 +332,38 @@ public class SelectAudioFileController implements PropertyChangeListener {
             }
         });
 
+        // the file chooser was closed when the file was picked, so it is brought back once
+        // the error was read
         task.setOnFailed(theEvent -> {
             myChanges.removePropertyChangeListener(theLoadingScreenController);
             theLoadingScreenStage.close();
             logger.log(Level.SEVERE, "Processing failed", task.getException());
 
+            final Alert alert = new Alert(Alert.AlertType.ERROR,
+                    String.valueOf(task.getException().getMessage()));
+            alert.setTitle("Analysis Failed");
+            alert.setHeaderText("Unable to analyze " + Path.of(thePath).getFileName());
+            alert.showAndWait();
+            try {
+                new Main().start(new Stage());
+            } catch (final IOException theException) {
+                logger.log(Level.SEVERE, "Unable to reopen the file chooser", theException);
+            }
+        });
+
+        // the file chooser was closed when the file was picked, so a cancelled analysis
+        // brings it back
+        task.setOnCancelled(theEvent -> {
+            myChanges.removePropertyChangeListener(theLoadingScreenController);
+            theLoadingScreenStage.close();
+            logger.info(() -> "Analysis cancelled: " + thePath);
+            try {
+                new Main().start(new Stage());
+            } catch (final IOException theException) {
+                logger.log(Level.SEVERE, "Unable to reopen the file chooser", theException);
+            }
         });
+        theLoadingScreenController.setOnCancel(task::cancel);
         return task;
     }
 
@@ -192,174 +377,160 @@ public class SelectAudioFileController implements PropertyChangeListener {
     }
 
     /**
-     * Gets the temporary location of the python file for execution.
+     * Shows the stored session when the same recording was already analyzed with the
+     * current parameters; otherwise analyzes it and remembers its session.
      *
-     * @param resourcePath the path of the resource file.
-     * @param suffix       the file extension type.
-     * @return returns the path of the temporary file.
-     * @throws IOException Thrown if the input stream is null
+     * @param theFilePath the file path of the audio file.
+     * @return Returns the session id of the stored analysis.
+     * @throws IOException Thrown if the audio file could not be analyzed or stored.
      */
-    private Path extractResourceToTemp(final String resourcePath, final String suffix) throws IOException {
-        final Path tmp = Files.createTempFile("vat_", suffix);
-        tmp.toFile().deleteOnExit();
-        try (final InputStream in = getClass().getResourceAsStream(resourcePath)) {
-            if (in == null) {
-                throw new IOException("Resource not found");
+    @SuppressWarnings("try")
+    private long runAnalysis(final String theFilePath) throws IOException {
+        AnalysisCache cache = null;
+        String audioHash = null;
+        try {
+            cache = new AnalysisCache(new UserFormantDatabase(false),
+                    AnalysisMode.fromSystemProperty(), AnalysisParameters.defaults());
+            try (final StageMetrics.Span span = StageMetrics.start("cache.hash")) {
+                audioHash = AnalysisCache.hashAudio(Path.of(theFilePath));
             }
-            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            final long cached = cache.lookup(audioHash);
+            if (cached >= 0) {
+                logger.info(() -> "Showing the cached session " + cached + " of " + theFilePath);
+                myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
+                        (double) 1);
+                return cached;
+            }
+        } catch (final IOException | RuntimeException theEvent) {
+            logger.log(Level.WARNING, "Analysis cache unavailable", theEvent);
         }
 
-        return tmp;
+        final long sessionId = analyzeFile(theFilePath);
+        if (cache != null && audioHash != null) {
+            cache.store(audioHash, sessionId);
+        }
+        return sessionId;
     }
 
     /**
-     * Gets the temporary directory of the python script.
+     * Analyzes the audio file with the selected engine. The python script is used when it
+     * is selected or when the native engine is unable to read the file.
      *
-     * @return the path of the directory that the python script is installed on.
+     * @param theFilePath the file path of the audio file.
+     * @return Returns the session id of the stored analysis.
+     * @throws IOException Thrown if neither engine could analyze the file.
      */
-    private Path getAppDir() {
-        return Path.of(System.getProperty("user.dir")).toAbsolutePath();
+    private long analyzeFile(final String theFilePath) throws IOException {
+        if (AnalysisMode.fromSystemProperty() == AnalysisMode.NATIVE) {
+            try {
+                return runNativeAnalysis(theFilePath);
+            } catch (final IOException theNativeFailure) {
+                logger.log(Level.WARNING, "Native analysis failed; falling back to python",
+                        theNativeFailure);
+                try {
+                    return runPythonScript(theFilePath);
+                } catch (final IOException thePythonFailure) {
+                    thePythonFailure.addSuppressed(theNativeFailure);
+                    throw thePythonFailure;
+                }
+            }
+        }
+        return runPythonScript(theFilePath);
     }
 
     /**
-     * Runs the python script to extract praat data from the chosen audio file.
+     * Analyzes the audio file with the java engine and stores the result in the database.
      *
      * @param theFilePath the file path of the audio file.
+     * @return Returns the session id of the stored analysis.
+     * @throws IOException Thrown if the audio file can not be read.
      */
-    private void runPythonScript(final String theFilePath) {
-        try {
-            final Path pythonScript = extractResourceToTemp(
-                    "/VocalAnalysisToolKit/Vocal_Analysis_Script.py", ".py");
-            final Path setupBat = extractResourceToTemp("/pythonInstall.bat", ".bat");
-
-            final Path appDir = getAppDir(); //The directory of the program install location
-
-            myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
-                    (double) 10);
-
-            myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
-                    (double) 16 / 100);
-
-            // Run setup in appDir so .venv is created at appDir\.venv
-            final ProcessBuilder setupPB = new ProcessBuilder("cmd.exe", "/c",
-                    setupBat.toString());
-            setupPB.directory(appDir.toFile());
-            setupPB.redirectErrorStream(true);
-            final Process setupProc = setupPB.start();
-            try (final BufferedReader reader =
-                         new BufferedReader(new InputStreamReader(setupProc.getInputStream()))) {
-                String ln;
-                while ((ln = reader.readLine()) != null) logger.info("[setup] " + ln);
-            }
-            final int setupExit = setupProc.waitFor();
-            if (setupExit != 0) {
-                logger.severe("Environment setup failed (exit " + setupExit + "); aborting.");
-                return;
-            }
-
-            myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
-                    (double) 32 / 100);
+    @SuppressWarnings("try")
+    private long runNativeAnalysis(final String theFilePath) throws IOException {
+        final long start = System.nanoTime();
+
+        // the progress is the fraction of frames analyzed; every chunk also shows its tracks
+        final AnalysisResult result;
+        try (final StageMetrics.Span span = StageMetrics.start("analysis.native")) {
+            result = new VocalAnalysisEngine().analyze(Path.of(theFilePath),
+                    (theProgress, theChunk) -> {
+                        myChanges.firePropertyChange(Properties.PARTIAL_RESULT.toString(), null,
+                                theChunk);
+                        myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
+                                theProgress);
+                    });
+        }
+        if (result.isEmpty()) {
+            throw new IOException("No valid frames after filtering: " + theFilePath);
+        }
+        checkCancelled();
 
-            // 2) Resolve venv python; do not silently fall back
-            final Path venvPy = appDir.resolve(".venv").resolve("Scripts").resolve("python.exe");
-            if (!Files.exists(venvPy)) {
-                throw new IllegalStateException("Venv python not found at " + venvPy + ". Ensure setup ran in " + appDir);
-            }
-            final String pythonExe = venvPy.toString();
+        final long sessionId = new UserFormantDatabase(false).insertFormants(result);
+        try (final StageMetrics.Span span = StageMetrics.start("csv.append")) {
+            FEATURE_CSV.append(FeatureCsvWriter.getFileId(Path.of(theFilePath)),
+                    result.getFeatures());
+        }
 
-            // Helper to run a short python/pip command and log all output
-            Function<String[], Integer> run = (args) -> {
-                try {
-                    Process p = getProcess(new ProcessBuilder(args), appDir);
-                    try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
-                        String s;
-                        while ((s = br.readLine()) != null) logger.info("[pip] " + s);
-                    }
-                    return p.waitFor();
-                } catch (Exception e) {
-                    logger.log(Level.SEVERE, "Subprocess failed: " + String.join(" ", args), e);
-                    return -1;
-                }
-            };
+        logger.info(() -> "Native analysis finished in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0, (double) 1);
+        return sessionId;
+    }
 
-            myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
-                    (double) 48 / 100);
-            // 3) Ensure matplotlib is installed in the venv
-            final Path req = appDir.resolve("requirements.txt");
-            int code;
-            if (Files.exists(req)) {
-                logger.info("Installing requirements from: " + req);
-                code = run.apply(new String[]{pythonExe, "-m", "pip", "install", "-r", req.toString()});
-                if (code != 0)
-                    throw new IllegalStateException("pip install -r failed with code " + code);
-            } else {
-                // Minimal guarantee
-                logger.info("requirements.txt not found in " + appDir + " — installing matplotlib explicitly.");
-                code = run.apply(new String[]{pythonExe, "-m", "pip", "install", "matplotlib"});
-                if (code != 0)
-                    throw new IllegalStateException("pip install matplotlib failed with code " + code);
+    /**
+     * Analyzes the audio file on a warm python worker and stores the result in the database
+     * and the feature CSV file. The workers are started on the first python analysis and
+     * shared afterward; the venv setup is skipped while its fingerprint matches. If the
+     * workers are unable to start (e.g. a package can not be imported) the venv is rebuilt
+     * once. The progress bar only follows the worker's progress through the frames, up to
+     * 90%; storing the result fills the rest.
+     *
+     * @param theFilePath the file path of the audio file.
+     * @return Returns the session id of the stored analysis.
+     * @throws IOException Thrown if the workers could not start, the script failed or no
+     *                     frame survived the filter.
+     */
+    @SuppressWarnings("try")
+    private long runPythonScript(final String theFilePath) throws IOException {
+        try {
+            final AnalysisResult result = PythonWorkerPool.getShared(null).analyze(
+                    Path.of(theFilePath), AnalysisParameters.defaults(),
+                    theProgress -> myChanges.firePropertyChange(
+                            Properties.UPDATE_PROGRESS.toString(), 0,
+                            PYTHON_ANALYSIS_SHARE * theProgress));
+            if (result.isEmpty()) {
+                throw new IOException("No valid frames after filtering: " + theFilePath);
             }
-
+            checkCancelled();
             myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
-                    (double) 64 / 100);
-            // 4) Probe: show interpreter & matplotlib version (fail fast if missing)
-            code = run.apply(new String[]{pythonExe, "-c",
-                    "import sys; print('[PyProbe] exe:', sys.executable); " +
-                            "import importlib, pkgutil; " +
-                            "m = importlib.util.find_spec('matplotlib'); " +
-                            "print('[PyProbe] matplotlib present:', bool(m)); " +
-                            "import matplotlib; print('[PyProbe] matplotlib version:', matplotlib.__version__)"
-            });
-            if (code != 0)
-                throw new IllegalStateException("Probe failed; matplotlib not importable.");
+                    PYTHON_ANALYSIS_SHARE);
 
+            final long sessionId = new UserFormantDatabase(false).insertFormants(result);
             myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
-                    (double) 95 / 100);
-
-            // 5) Runs the python script
-            final Process process = getProcess(new ProcessBuilder(pythonExe,
-                    pythonScript.toString(), theFilePath), appDir);
-            try (final BufferedReader reader =
-                         new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null)
-
-                    logger.info("[Python] " + line);
+                    (1 + PYTHON_ANALYSIS_SHARE) / 2);
+            try (final StageMetrics.Span span = StageMetrics.start("csv.append")) {
+                FEATURE_CSV.append(FeatureCsvWriter.getFileId(Path.of(theFilePath)),
+                        result.getFeatures());
             }
-            int exit = process.waitFor();
-            if (exit != 0) logger.severe("Python script exited with code " + exit);
             myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0, (double) 1);
-        } catch (final IOException | InterruptedException theEvent) {
+            return sessionId;
+        } catch (final IOException theEvent) {
             logger.log(Level.SEVERE, "Failed to run Python script", theEvent);
-            Thread.currentThread().interrupt();
+            throw theEvent;
         }
     }
 
     /**
-     * Helper method to condense code. Gets the process object based on the process builder.
+     * Keeps a cancelled analysis from being stored.
      *
-     * @param theCommandArgs the arguments of which process builder is executing
-     * @param theAppDir      The path of the application directory
-     * @return Returns a process object to execute the commands.
-     * @throws IOException Thrown if the path is invalid.
+     * @throws CancellationException Thrown if the analysis thread was interrupted.
      */
-    private static Process getProcess(final ProcessBuilder theCommandArgs,
-                                      final Path theAppDir) throws IOException {
-
-        theCommandArgs.directory(theAppDir.toFile());
-        theCommandArgs.redirectErrorStream(true);
-
-        final Map<String, String> env = theCommandArgs.environment();
-        env.remove("PYTHONHOME");
-        env.remove("PYTHONPATH");
-        env.put("MPLBACKEND", "Agg");
-        env.putIfAbsent("PYTHONIOENCODING", "utf-8");
-
-
-        return theCommandArgs.start();
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Analysis cancelled");
+        }
     }
 
-
     /**
      * Adds the listener scene to the mains property change support object.
      *
@@ -378,7 +549,11 @@ public class SelectAudioFileController implements PropertyChangeListener {
      */
     @Override
     public void propertyChange(final PropertyChangeEvent theEvent) {
-
+        // Relays the python environment's setup progress to the loading screen
+        if (theEvent.getPropertyName().equals(Properties.UPDATE_PROGRESS.toString())) {
+            myChanges.firePropertyChange(Properties.UPDATE_PROGRESS.toString(), 0,
+                    theEvent.getNewValue());
+        }
     }
 
 }
@@ -0,0 +1,132 @@
+package com.kass.vocalanalysistool.view;
+
+import com.kass.vocalanalysistool.model.UserFormantDatabase;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+/**
+ * <p>Loads the session thumbnails of the history on a background thread and keeps the
+ * most recently used ones, so scrolling back does not read them again. The newest request
+ * is loaded first, so the rows that are on screen win over the ones that were scrolled
+ * past.</p>
+ *
+ * <p>All methods are called on the JavaFX application thread.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+final class ThumbnailCache {
+
+    /**
+     * The logger object for debugging.
+     */
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The database the thumbnails are read from.
+     */
+    private final UserFormantDatabase myDatabase;
+
+    /**
+     * The loaded thumbnails by session id, least recently used first.
+     */
+    private final Map<Long, Image> myImages;
+
+    /**
+     * The callbacks waiting for a thumbnail that is being loaded, by session id.
+     */
+    private final Map<Long, List<Consumer<Image>>> myPending = new HashMap<>();
+
+    /**
+     * Loads the thumbnails, newest request first.
+     */
+    private final ExecutorService myLoader;
+
+    /**
+     * Constructor for the cache.
+     *
+     * @param theDatabase The database the thumbnails are read from.
+     * @param theCapacity The most thumbnails kept.
+     */
+    ThumbnailCache(final UserFormantDatabase theDatabase, final int theCapacity) {
+        myDatabase = theDatabase;
+        myImages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Image> theEldest) {
+                return size() > theCapacity;
+            }
+        };
+        myLoader = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingDeque<>() {
+                    @Override
+                    public boolean offer(final Runnable theTask) {
+                        return offerFirst(theTask);
+                    }
+                }, theTask -> {
+                    final Thread thread = new Thread(theTask, "ThumbnailLoader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Hands the thumbnail of a session to the callback: right away if it is cached,
+     * otherwise once it is loaded. Nothing is handed over if it can not be loaded.
+     *
+     * @param theSessionId The session id.
+     * @param theCallback  Receives the thumbnail on the JavaFX application thread.
+     */
+    void request(final long theSessionId, final Consumer<Image> theCallback) {
+        final Image cached = myImages.get(theSessionId);
+        if (cached != null) {
+            theCallback.accept(cached);
+            return;
+        }
+        final List<Consumer<Image>> waiting = myPending.get(theSessionId);
+        if (waiting != null) {
+            waiting.add(theCallback);
+            return;
+        }
+        final List<Consumer<Image>> callbacks = new ArrayList<>();
+        callbacks.add(theCallback);
+        myPending.put(theSessionId, callbacks);
+        myLoader.execute(() -> {
+            Image image = null;
+            try {
+                image = new Image(new ByteArrayInputStream(
+                        myDatabase.getThumbnail(theSessionId)));
+            } catch (final RuntimeException theException) {
+                logger.log(Level.WARNING, "Unable to load the thumbnail of session "
+                        + theSessionId, theException);
+            }
+            final Image loaded = image;
+            Platform.runLater(() -> {
+                final List<Consumer<Image>> done = myPending.remove(theSessionId);
+                if (loaded != null) {
+                    myImages.put(theSessionId, loaded);
+                    done.forEach(theDone -> theDone.accept(loaded));
+                }
+            });
+        });
+    }
+
+    /**
+     * Stops loading; pending requests are dropped.
+     */
+    void close() {
+        myLoader.shutdownNow();
+    }
+}
@@ -9,7 +9,13 @@ module com.kass.vocalanalysistool {
     requires java.desktop;
     requires org.xerial.sqlitejdbc;
     requires java.sql;
+    requires jdk.jfr;
+    requires jdk.httpserver;
+    // sun.misc.Unsafe, to unmap the audio files once they are analyzed
+    requires jdk.unsupported;
     requires com.google.gson;
+    // optional: the SIMD kernels are used when run with --add-modules jdk.incubator.vector
+    requires static jdk.incubator.vector;
 
     opens com.kass.vocalanalysistool.view to javafx.fxml;
     exports com.kass.vocalanalysistool.view;
@@ -1,15 +1,11 @@
-import io
 import json
 import math
 import sys
 from pathlib import Path
 from sqlite3 import Binary
 from typing import Optional
-import matplotlib
 import pandas as pd
 
-matplotlib.use("Agg")
-import matplotlib.pyplot as plt
 import numpy as np
 import parselmouth
 import sqlite3
@@ -464,75 +460,132 @@ def _feature_for_file(sound: parselmouth.Sound,
 
     return row
 
-def plot_formants(time_: list[float], f0_: list[float],
-                  f1_: list[float], f2_: list[float],
-                  f3_: list[float], f4_: list[float]) -> bytes:
+# The user_formants schema version stored in PRAGMA user_version
+# (0 = JSON text tracks, 2 = packed BLOBs, 3 = index for the latest session,
+#  4 = session_features table)
+SCHEMA_VERSION = 4
+
+
+def _pack_f32(values: list[float]) -> Binary:
     """
-    Generates a dot graph of all the different formant and returns
+    Packs a frequency track as little-endian float32, the layout the Java app decodes.
 
-    :param time_: The list of time sequence
-    :param f0_: The list of pitch
-    :param f1_: The list of Formants 1
-    :param f2_: The list of Formant 2
-    :param f3_: The list of Formant 3
-    :param f4_: The list of Formant 4
-    return: the bytes of the plot.
+    :param values: The frequencies.
+    :return: The packed bytes.
     """
+    return Binary(np.asarray(values, dtype="<f4").tobytes())
 
-    ticks1 = np.arange(0, 1001, 100)
-    ticks2 = np.arange(1000, 8001, 500)
-    yticks = np.unique(np.concatenate([ticks1, ticks2]))
 
-    fig, ax = plt.subplots(figsize=(6, 12), dpi=300)
+def _pack_f64(values: list[float]) -> Binary:
+    """
+    Packs the time track as little-endian float64.
 
-    ax.plot(time_, f0_, label="Pitch", color="black")
-    ax.set_yticks(yticks)
-    ax.minorticks_on()
-    ax.scatter(time_, f1_, s=5, label="F1")
-    ax.scatter(time_, f2_, s=5, label="F2")
-    ax.scatter(time_, f3_, s=5, label="F3")
-    ax.scatter(time_, f4_, s=5, label="F4")
-    ax.set_xlabel("Times (s)")
-    ax.set_ylabel("Frequency (Hz)")
-    ax.set_ybound(0, 5501)
-    ax.grid(True)
-    ax.legend(loc="upper left", frameon=True)
-    buf = io.BytesIO()
-    fig.savefig(buf, format="png", bbox_inches="tight")
-    plt.close(fig)
-    return buf.getvalue()
+    :param values: The times.
+    :return: The packed bytes.
+    """
+    return Binary(np.asarray(values, dtype="<f8").tobytes())
+
+
+def _avg_or_none(value: float):
+    """
+    :param value: An average frequency.
+    :return: The value, or None (NULL) if it is NaN.
+    """
+    return float(value) if value is not None and math.isfinite(value) else None
+
+
+def _connect() -> sqlite3.Connection:
+    """
+    Opens the database with the same settings as the Java app: WAL journaling so the app can read
+    while the script writes, and a busy timeout instead of failing on a locked database.
+
+    :return: The open connection.
+    """
+    conn = sqlite3.connect("Vocal_Analysis.db", timeout=5.0)
+    conn.execute("PRAGMA journal_mode = WAL")
+    conn.execute("PRAGMA synchronous = NORMAL")
+    conn.execute("PRAGMA foreign_keys = ON")
+    return conn
 
 
 def connect_table():
     """
     Generate an SQLite3 table that stores chart data for GUI, f0-f4 frequency data, and formant mean data.
+    Databases that still store the tracks as JSON text are migrated to packed BLOBs.
     """
-    conn = sqlite3.connect("Vocal_Analysis.db")
+    conn = _connect()
     cursor = conn.cursor()
+    version = cursor.execute("PRAGMA user_version").fetchone()[0]
+    if version >= SCHEMA_VERSION:
+        conn.close()
+        return
+
+    legacy = cursor.execute(
+        "SELECT 1 FROM pragma_table_info('user_formants') WHERE name = 'f0_json'").fetchone() is not None
+    if legacy:
+        cursor.execute("ALTER TABLE user_formants RENAME TO user_formants_json")
 
     cursor.execute("""
                    CREATE TABLE IF NOT EXISTS user_formants
                    (
-                       id               INTEGER PRIMARY KEY AUTOINCREMENT,
-                       timestamp        TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                       f0_json          TEXT NOT NULL CHECK (json_valid(f0_json)),
-                       f1_json          TEXT NOT NULL CHECK (json_valid(f1_json)),
-                       f2_json          TEXT NOT NULL CHECK (json_valid(f2_json)),
-                       f3_json          TEXT NOT NULL CHECK (json_valid(f3_json)),
-                       f4_json          TEXT NOT NULL CHECK (json_valid(f4_json)),
-                       formant_avg_json TEXT NOT NULL CHECK (json_valid(formant_avg_json)),
-                       scatter_plot     BLOB NOT NULL
+                       id           INTEGER PRIMARY KEY AUTOINCREMENT,
+                       timestamp    TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                       frame_count  INTEGER NOT NULL,
+                       time_blob    BLOB,
+                       f0_blob      BLOB NOT NULL,
+                       f1_blob      BLOB NOT NULL,
+                       f2_blob      BLOB NOT NULL,
+                       f3_blob      BLOB NOT NULL,
+                       f4_blob      BLOB NOT NULL,
+                       f0_avg       REAL,
+                       f1_avg       REAL,
+                       f2_avg       REAL,
+                       f3_avg       REAL,
+                       f4_avg       REAL,
+                       scatter_plot BLOB
                    )
                    """)
+    if legacy:
+        rows = cursor.execute("""
+                              SELECT id, timestamp, f0_json, f1_json, f2_json, f3_json, f4_json,
+                                     formant_avg_json, scatter_plot
+                              FROM user_formants_json
+                              """).fetchall()
+        for row in rows:
+            tracks = [json.loads(col) for col in row[2:7]]
+            avgs = json.loads(row[7])
+            avgs = (avgs + [None] * 5)[:5]
+            cursor.execute("""
+                           INSERT INTO user_formants(id, timestamp, frame_count, f0_blob, f1_blob, f2_blob,
+                                                     f3_blob, f4_blob, f0_avg, f1_avg, f2_avg, f3_avg,
+                                                     f4_avg, scatter_plot)
+                           VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                           """, (row[0], row[1], len(tracks[0]), *[_pack_f32(t) for t in tracks],
+                                 *[_avg_or_none(a) for a in avgs], row[8]))
+        cursor.execute("DROP TABLE user_formants_json")
+    cursor.execute("CREATE INDEX IF NOT EXISTS idx_user_formants_timestamp ON user_formants (timestamp, id)")
+    cursor.execute("""
+                   CREATE TABLE IF NOT EXISTS session_features
+                   (
+                       session_id INTEGER NOT NULL
+                           REFERENCES user_formants (id) ON DELETE CASCADE,
+                       name       TEXT    NOT NULL,
+                       value      REAL,
+                       PRIMARY KEY (session_id, name)
+                   ) WITHOUT ROWID
+                   """)
+    cursor.execute(f"PRAGMA user_version = {SCHEMA_VERSION}")
     conn.commit()
     conn.close()
 
 
 def insert_to_table(time_: list[float], f0_: list[float], f1_: list[float], f2_: list[float], f3_: list[float], f4_: list[float],
-                    formant_avg: list[float]) -> None:
+                    formant_avg: list[float], features: Optional[dict] = None) -> None:
     """
-    Inserts the formant data (filtered and average) into the SQL database and generates a plot.
+    Inserts the formant data (filtered and average) and the feature row into the SQL database. The app
+    draws the chart from the tracks, so no plot image is stored (scatter_plot stays NULL).
     Each element of formant corresponds to the time stamp in the list of time sequence.
+    The tracks are stored as packed little-endian BLOBs (float64 times, float32 frequencies).
 
     :param time_: The list of time sequence
     :param f0_: The list of pitch
@@ -541,25 +594,33 @@ def insert_to_table(time_: list[float], f0_: list[float], f1_: list[float], f2_:
     :param f3_: The list of Formant 3
     :param f4_: The list of Formant 4
     :param formant_avg: List of average formants (F0-F1)
+    :param features: The feature row of the recording (column name -> value)
     :return: None
     """
-    png_bytes = plot_formants(time_, f0_, f1_, f2_, f3_, f4_)
     payload = (
-        json.dumps(list(map(float, f0_))),
-        json.dumps(list(map(float, f1_))),
-        json.dumps(list(map(float, f2_))),
-        json.dumps(list(map(float, f3_))),
-        json.dumps(list(map(float, f4_))),
-        json.dumps(list(map(float, formant_avg))),
-        Binary(png_bytes)
+        len(time_),
+        _pack_f64(time_),
+        _pack_f32(f0_),
+        _pack_f32(f1_),
+        _pack_f32(f2_),
+        _pack_f32(f3_),
+        _pack_f32(f4_),
+        *[_avg_or_none(a) for a in formant_avg]
     )
 
-    conn = sqlite3.connect("Vocal_Analysis.db")
+    conn = _connect()
     cur = conn.cursor()
     cur.execute("""
-                INSERT INTO user_formants(f0_json, f1_json, f2_json, f3_json, f4_json, formant_avg_json, scatter_plot)
-                VALUES (json(?), json(?), json(?), json(?), json(?), json(?), ?)
+                INSERT INTO user_formants(frame_count, time_blob, f0_blob, f1_blob, f2_blob, f3_blob, f4_blob,
+                                          f0_avg, f1_avg, f2_avg, f3_avg, f4_avg)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
                 """, payload)
+    session_id = cur.lastrowid
+    if features:
+        cur.executemany("INSERT INTO session_features(session_id, name, value) VALUES (?, ?, ?)",
+                        [(session_id, name, _avg_or_none(float(value)))
+                         for name, value in features.items()
+                         if isinstance(value, (int, float, np.integer, np.floating))])
     conn.commit()
     conn.close()
 
@@ -578,77 +639,164 @@ def _create_csv(row: dict) -> None:
     )
     print("CSV has been generated!")
 
-def main():
+def analyze_file(file_path: str, params: Optional[dict] = None, progress=None) -> Optional[dict]:
+    """
+    Runs the whole analysis of one audio file without touching the database or the CSV file.
+
+    :param file_path: The path of the audio file.
+    :param params: Optional analysis parameters (time_step, pitch_floor, pitch_ceiling,
+    max_formant, formant_count, window_length, pre_emphasis). Praat's defaults are used for
+    missing entries.
+    :param progress: Optional callback that receives the progress [0 - 1].
+    :return: A dictionary with the filtered tracks, their averages and the feature row, or None
+    if no frame survived the filter.
+    """
+    params = params or {}
+    time_step = float(params.get("time_step", 0.01))
     _reset_track_state()
 
+    sound = parselmouth.Sound(file_path)
+
+    formant = sound.to_formant_burg(time_step=time_step,
+                                    max_number_of_formants=float(params.get("formant_count", 5)),
+                                    maximum_formant=float(params.get("max_formant", 5500.0)),
+                                    window_length=float(params.get("window_length", 0.025)),
+                                    pre_emphasis_from=float(params.get("pre_emphasis", 50.0)))
+    pitch = sound.to_pitch(time_step=time_step,
+                           pitch_floor=float(params.get("pitch_floor", 75.0)),
+                           pitch_ceiling=float(params.get("pitch_ceiling", 600.0)))
+    times = np.arange(0, sound.get_total_duration(), time_step)
+    # Initializes the formant and pitch
+
+    full_data = []
+
+    for i, t in enumerate(times):
+        f0 = pitch.get_value_at_time(t)
+        f1 = formant.get_value_at_time(1, t)
+        f2 = formant.get_value_at_time(2, t)
+        f3 = formant.get_value_at_time(3, t)
+        f4 = formant.get_value_at_time(4, t)
+        if (not math.isnan(f0) and not math.isnan(f1) and not math.isnan(f2) and not math.isnan(f3)
+                and not math.isnan(f4)):
+            full_data.append([float(round(t, 2)), round(f0, 5), round(f1, 5), round(f2, 5), round(f3, 5),
+                              round(f4, 5)])
+        if progress is not None and (i % 100 == 0 or i == len(times) - 1):
+            progress((i + 1) / len(times))
+
+    full_data = filter_frequency_synchronized_patch(full_data)
+
+    if not full_data:
+        return None
+
+    row = feature_for_file(sound, full_data, file_id=Path(file_path).stem)
+
+    times_, f0_vals_arr, f1_vals_arr, f2_vals_arr, f3_vals_arr, f4_vals_arr = (list(col) for col in zip(*full_data))
+
+    # Crates a list of averages where i = 0 is f0_average and i = 4 is f4_average
+    avg_formants = [get_freq_average(f0_vals_arr), get_freq_average(f1_vals_arr), get_freq_average(f2_vals_arr),
+                    get_freq_average(f3_vals_arr), get_freq_average(f4_vals_arr)]
+
+    return {
+        "times": times_,
+        "f0": f0_vals_arr,
+        "f1": f1_vals_arr,
+        "f2": f2_vals_arr,
+        "f3": f3_vals_arr,
+        "f4": f4_vals_arr,
+        "averages": avg_formants,
+        "features": row
+    }
+
+
+def _json_safe(value):
+    """
+    Replaces NaN and infinity (which are not valid JSON) with None.
+
+    :param value: A number, string, list or dictionary.
+    :return: The value with every non-finite float replaced.
+    """
+    if isinstance(value, dict):
+        return {k: _json_safe(v) for k, v in value.items()}
+    if isinstance(value, (list, tuple)):
+        return [_json_safe(v) for v in value]
+    if isinstance(value, (float, np.floating)):
+        return float(value) if math.isfinite(value) else None
+    if isinstance(value, np.integer):
+        return int(value)
+    return value
+
+
+def _emit(message: dict) -> None:
+    """
+    Writes one protocol message as a single JSON line to stdout.
+
+    :param message: The message.
+    :return: None
+    """
+    sys.stdout.write(json.dumps(_json_safe(message), allow_nan=False) + "\n")
+    sys.stdout.flush()
+
+
+def worker_main():
+    """
+    Long-lived worker mode. The heavy imports (parselmouth, numpy, pandas) happen once
+    when the process starts; afterward one JSON request per line is read from stdin:
+
+    {"id": 1, "type": "analyze", "path": "C:/take.wav", "params": {"time_step": 0.01}}
+    {"id": 2, "type": "ping"}
+
+    Every response is one JSON line on stdout carrying the request id, with the type "progress",
+    "result", "empty", "pong" or "error". The worker exits when stdin is closed.
+    """
+    _emit({"type": "ready"})
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        request_id = None
+        try:
+            request = json.loads(line)
+            request_id = request.get("id")
+            if request.get("type") == "ping":
+                _emit({"id": request_id, "type": "pong"})
+                continue
+
+            def report(value, rid=request_id):
+                _emit({"id": rid, "type": "progress", "value": value})
+
+            result = analyze_file(request["path"], request.get("params"), report)
+            if result is None:
+                _emit({"id": request_id, "type": "empty"})
+            else:
+                result.update({"id": request_id, "type": "result"})
+                _emit(result)
+        except Exception as e:
+            _emit({"id": request_id, "type": "error", "message": f"{type(e).__name__}: {e}"})
+
+
+def main():
+    if len(sys.argv) > 1 and sys.argv[1] == "--worker":
+        worker_main()
+        return
+
     try:
         global FILE_PATH
         FILE_PATH = sys.argv[1]
         if FILE_PATH:
 
-            sound = parselmouth.Sound(FILE_PATH)
-
-            formant = sound.to_formant_burg(time_step=0.01)
-            pitch = sound.to_pitch(time_step=0.01)
-            times = np.arange(0, sound.get_total_duration(), 0.01)
-            f0_dict = {}
-            f1_dict = {}
-            f2_dict = {}
-            f3_dict = {}
-            f4_dict = {}
-            # Initializes the formant and pitch
-
-            full_data = []
-
-            for t in times:
-                f0 = pitch.get_value_at_time(t)
-                f1 = formant.get_value_at_time(1, t)
-                f2 = formant.get_value_at_time(2, t)
-                f3 = formant.get_value_at_time(3, t)
-                f4 = formant.get_value_at_time(4, t)
-                if (not math.isnan(f0) and not math.isnan(f1) and not math.isnan(f2) and not math.isnan(f3)
-                        and not math.isnan(f4)):
-                    f0_dict[float(t)] = f0
-                    f1_dict[float(t)] = f1
-                    f2_dict[float(t)] = f2
-                    f3_dict[float(t)] = f3
-                    f4_dict[float(t)] = f4
-
-                    full_data.append([float(round(t, 2)), round(f0, 5), round(f1, 5), round(f2, 5), round(f3, 5),
-                                      round(f4, 5)])
-
-            full_data = filter_frequency_synchronized_patch(full_data)
-
-            if not full_data:
+            result = analyze_file(FILE_PATH)
+
+            if result is None:
                 print("No valid frames after filtering; skipping file")
                 return
 
-            row = feature_for_file(sound, full_data, file_id=Path(FILE_PATH).stem)
-            _create_csv(row)
-
-            times_, f0_vals_arr, f1_vals_arr, f2_vals_arr, f3_vals_arr, f4_vals_arr = [], [], [], [], [], []
-
-            for i in range(len(full_data)):
-                times_.append(full_data[i][0])
-                f0_vals_arr.append(full_data[i][1])
-                f1_vals_arr.append(full_data[i][2])
-                f2_vals_arr.append(full_data[i][3])
-                f3_vals_arr.append(full_data[i][4])
-                f4_vals_arr.append(full_data[i][5])
-
-            # Gets the average formants
-            f0_average = get_freq_average(f0_vals_arr)
-            f1_average = get_freq_average(f1_vals_arr)
-            f2_average = get_freq_average(f2_vals_arr)
-            f3_average = get_freq_average(f3_vals_arr)
-            f4_average = get_freq_average(f4_vals_arr)
-            # Crates a list of averages where i = 0 is f0_average and i = 4 is f4_average
-            avg_formants = [f0_average, f1_average, f2_average, f3_average, f4_average]
+            _create_csv(result["features"])
+
             # Connects to the sqlite db
             connect_table()
             # Inserts the formant data into the sqlite3 database
-            insert_to_table(times_, f0_vals_arr, f1_vals_arr, f2_vals_arr,
-                            f3_vals_arr, f4_vals_arr, avg_formants)
+            insert_to_table(result["times"], result["f0"], result["f1"], result["f2"],
+                            result["f3"], result["f4"], result["averages"], result["features"])
 
 
     except NameError:
@@ -0,0 +1,263 @@
+package com.kass.vocalanalysistool.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>Checks the SIMD kernels against the scalar ones. The element-wise kernels must give the
+ * same bits; the sums may only differ by the rounding of adding in another order.</p>
+ *
+ * <p>The lengths cover the empty loop, tails shorter than one vector, whole vectors and odd
+ * lengths, at start offsets that leave the loads unaligned. The tests are skipped unless the
+ * JVM runs with {@code --add-modules jdk.incubator.vector}, as the build configures.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+class DspKernelsTest {
+
+    /**
+     * The lengths tried; 2 to 8 doubles fit one vector, depending on the CPU.
+     */
+    private static final int[] LENGTHS = {0, 1, 2, 3, 5, 7, 8, 9, 15, 16, 17, 31, 33, 63, 65,
+            1021, 1024};
+
+    /**
+     * The first samples tried.
+     */
+    private static final int[] STARTS = {0, 1, 3};
+
+    /**
+     * The reference implementation.
+     */
+    private final DspKernels myScalar = new ScalarKernels();
+
+    /**
+     * The checked implementation.
+     */
+    private DspKernels myVector;
+
+    /**
+     * The random inputs, the same on every run.
+     */
+    private final Random myRandom = new Random(1);
+
+    /**
+     * Creates the SIMD kernels, or skips the test without the Vector API.
+     */
+    @BeforeEach
+    void setUp() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "run with --add-modules jdk.incubator.vector");
+        myVector = new VectorKernels();
+    }
+
+    /**
+     * The trackers use the SIMD kernels when the Vector API is there.
+     */
+    @Test
+    void selectsTheVectorKernels() {
+        assumeTrue(Boolean.parseBoolean(System.getProperty(DspKernels.SIMD_PROPERTY, "true")));
+        assertInstanceOf(VectorKernels.class, DspKernels.SELECTED);
+    }
+
+    /**
+     * sum adds the same samples.
+     */
+    @Test
+    void sumMatchesScalar() {
+        for (final int start : STARTS) {
+            for (final int length : LENGTHS) {
+                final float[] samples = samples(start + length);
+                assertClose(myScalar.sum(samples, start, length),
+                        myVector.sum(samples, start, length), length, "sum " + length);
+            }
+        }
+    }
+
+    /**
+     * windowCentered gives the same windowed samples and peak.
+     */
+    @Test
+    void windowCenteredMatchesScalar() {
+        for (final int start : STARTS) {
+            for (final int length : LENGTHS) {
+                final float[] samples = samples(start + length);
+                final double[] window = values(length);
+                final double[] expected = new double[length];
+                final double[] actual = new double[length];
+                assertEquals(myScalar.windowCentered(samples, start, 0.25, window, expected,
+                                length),
+                        myVector.windowCentered(samples, start, 0.25, window, actual, length),
+                        "peak " + length);
+                assertArrayEquals(expected, actual, "windowCentered " + length);
+            }
+        }
+    }
+
+    /**
+     * window gives the same windowed samples.
+     */
+    @Test
+    void windowMatchesScalar() {
+        for (final int start : STARTS) {
+            for (final int length : LENGTHS) {
+                final float[] samples = samples(start + length);
+                final double[] window = values(length);
+                final double[] expected = new double[length];
+                final double[] actual = new double[length];
+                myScalar.window(samples, start, window, expected, length);
+                myVector.window(samples, start, window, actual, length);
+                assertArrayEquals(expected, actual, "window " + length);
+            }
+        }
+    }
+
+    /**
+     * dot and sumOfSquares add the same products.
+     */
+    @Test
+    void sumsOfProductsMatchScalar() {
+        for (final int length : LENGTHS) {
+            final double[] first = values(length);
+            final double[] second = values(length);
+            assertClose(myScalar.dot(first, second, length),
+                    myVector.dot(first, second, length), length, "dot " + length);
+            assertClose(myScalar.sumOfSquares(first, second, length),
+                    myVector.sumOfSquares(first, second, length), 2 * length,
+                    "sumOfSquares " + length);
+        }
+    }
+
+    /**
+     * burgUpdate gives the same errors, reading one element past the updated ones.
+     */
+    @Test
+    void burgUpdateMatchesScalar() {
+        for (final int length : LENGTHS) {
+            final double[] forward = values(length + 1);
+            final double[] backward = values(length + 1);
+            final double[] vectorForward = forward.clone();
+            final double[] vectorBackward = backward.clone();
+            myScalar.burgUpdate(forward, backward, 0.3, length);
+            myVector.burgUpdate(vectorForward, vectorBackward, 0.3, length);
+            assertArrayEquals(forward, vectorForward, "forward " + length);
+            assertArrayEquals(backward, vectorBackward, "backward " + length);
+        }
+    }
+
+    /**
+     * powerSpectrum gives the same powers.
+     */
+    @Test
+    void powerSpectrumMatchesScalar() {
+        for (final int length : LENGTHS) {
+            final double[] real = values(length);
+            final double[] imag = values(length);
+            final double[] vectorReal = real.clone();
+            final double[] vectorImag = imag.clone();
+            myScalar.powerSpectrum(real, imag, length);
+            myVector.powerSpectrum(vectorReal, vectorImag, length);
+            assertArrayEquals(real, vectorReal, "power " + length);
+            assertArrayEquals(imag, vectorImag, "imag " + length);
+        }
+    }
+
+    /**
+     * The FFT built on either kernels gives the same spectrum, including the sizes whose
+     * stages are narrower than a vector.
+     */
+    @Test
+    void fftMatchesScalar() {
+        for (int size = 2; size <= 4096; size *= 2) {
+            final double[] real = values(size);
+            final double[] imag = values(size);
+            final double[] vectorReal = real.clone();
+            final double[] vectorImag = imag.clone();
+            new Fft(size, myScalar).transform(real, imag, false);
+            new Fft(size, myVector).transform(vectorReal, vectorImag, false);
+            assertArrayEquals(real, vectorReal, "real " + size);
+            assertArrayEquals(imag, vectorImag, "imag " + size);
+        }
+    }
+
+    /**
+     * A NaN sample, in a vector or in the tail, ends up in the same outputs of both.
+     */
+    @Test
+    void nanPropagatesLikeScalar() {
+        final int length = 1021;
+        for (final int nan : new int[]{0, 5, 512, length - 1}) {
+            final float[] samples = samples(length);
+            samples[nan] = Float.NaN;
+            final double[] window = values(length);
+            final double[] expected = new double[length];
+            final double[] actual = new double[length];
+
+            assertTrue(Double.isNaN(myScalar.sum(samples, 0, length)));
+            assertTrue(Double.isNaN(myVector.sum(samples, 0, length)), "sum NaN at " + nan);
+            assertEquals(myScalar.windowCentered(samples, 0, 0, window, expected, length),
+                    myVector.windowCentered(samples, 0, 0, window, actual, length),
+                    "peak NaN at " + nan);
+            assertArrayEquals(expected, actual, "windowCentered NaN at " + nan);
+
+            final double[] other = values(length);
+            actual[nan] = Double.NaN;
+            assertTrue(Double.isNaN(myVector.dot(actual, other, length)), "dot NaN at " + nan);
+            assertTrue(Double.isNaN(myVector.sumOfSquares(actual, other, length)),
+                    "sumOfSquares NaN at " + nan);
+
+            final double[] imag = values(length);
+            final double[] vectorReal = actual.clone();
+            final double[] vectorImag = imag.clone();
+            myScalar.powerSpectrum(actual, imag, length);
+            myVector.powerSpectrum(vectorReal, vectorImag, length);
+            assertArrayEquals(actual, vectorReal, "power NaN at " + nan);
+        }
+    }
+
+    /**
+     * @param theLength The number of samples.
+     * @return Returns Gaussian samples.
+     */
+    private float[] samples(final int theLength) {
+        final float[] samples = new float[theLength];
+        for (int i = 0; i < theLength; i++) {
+            samples[i] = (float) myRandom.nextGaussian();
+        }
+        return samples;
+    }
+
+    /**
+     * @param theLength The number of values.
+     * @return Returns Gaussian values.
+     */
+    private double[] values(final int theLength) {
+        final double[] values = new double[theLength];
+        for (int i = 0; i < theLength; i++) {
+            values[i] = myRandom.nextGaussian();
+        }
+        return values;
+    }
+
+    /**
+     * Asserts that two sums of Gaussian terms agree up to the rounding of their order.
+     *
+     * @param theExpected The scalar sum.
+     * @param theActual   The SIMD sum.
+     * @param theTerms    The number of terms added.
+     * @param theMessage  The failure message.
+     */
+    private static void assertClose(final double theExpected, final double theActual,
+                                    final int theTerms, final String theMessage) {
+        // each term is a few units at most, so this is a few ulps of the largest partial sum
+        assertEquals(theExpected, theActual, 1e-13 * Math.max(1, theTerms), theMessage);
+    }
+}
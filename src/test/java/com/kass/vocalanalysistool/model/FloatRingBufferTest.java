@@ -0,0 +1,94 @@
+package com.kass.vocalanalysistool.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>Checks the ring between the live capture and the analysis: the capacity, wrapping
+ * around the end of the array and what happens when the writer outruns the reader.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+class FloatRingBufferTest {
+
+    /**
+     * The capacity is rounded up to a power of two.
+     */
+    @Test
+    void roundsTheCapacityUp() {
+        assertEquals(1, new FloatRingBuffer(1).getCapacity());
+        assertEquals(16, new FloatRingBuffer(16).getCapacity());
+        assertEquals(16384, new FloatRingBuffer(11025).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new FloatRingBuffer(0));
+    }
+
+    /**
+     * Samples written across the end of the array are read back in order.
+     */
+    @Test
+    void wrapsAround() {
+        final FloatRingBuffer ring = new FloatRingBuffer(8);
+        assertEquals(6, ring.write(ramp(0, 6), 0, 6));
+        ring.skip(5);
+        assertEquals(6, ring.write(ramp(6, 6), 0, 6));
+        assertEquals(7, ring.available());
+
+        final float[] out = new float[7];
+        ring.peek(out, 7);
+        assertArrayEquals(ramp(5, 7), out);
+        assertEquals(5, ring.getReadPosition());
+        assertEquals(0, ring.getOverruns());
+    }
+
+    /**
+     * A full ring keeps the oldest samples and counts the newest ones it drops; once the
+     * reader skips ahead the writer continues with the next block.
+     */
+    @Test
+    void dropsTheNewestSamplesWhenFull() {
+        final FloatRingBuffer ring = new FloatRingBuffer(8);
+        assertEquals(8, ring.write(ramp(0, 11), 0, 11));
+        assertEquals(3, ring.getOverruns());
+        assertEquals(0, ring.write(ramp(11, 4), 0, 4));
+        assertEquals(7, ring.getOverruns());
+        assertEquals(8, ring.available());
+
+        final float[] out = new float[8];
+        ring.peek(out, 8);
+        assertArrayEquals(ramp(0, 8), out);
+
+        ring.skip(6);
+        assertEquals(6, ring.write(ramp(20, 6), 0, 6));
+        ring.peek(out, 8);
+        assertArrayEquals(new float[]{6, 7, 20, 21, 22, 23, 24, 25}, out);
+        assertEquals(7, ring.getOverruns());
+    }
+
+    /**
+     * Reading or skipping more than was written fails instead of returning stale samples.
+     */
+    @Test
+    void rejectsReadingPastTheWriter() {
+        final FloatRingBuffer ring = new FloatRingBuffer(8);
+        ring.write(ramp(0, 3), 0, 3);
+        assertThrows(IllegalStateException.class, () -> ring.peek(new float[4], 4));
+        assertThrows(IllegalStateException.class, () -> ring.skip(4));
+    }
+
+    /**
+     * @param theFirst  The first value.
+     * @param theLength The number of values.
+     * @return Returns the values counting up from the first.
+     */
+    private static float[] ramp(final int theFirst, final int theLength) {
+        final float[] values = new float[theLength];
+        for (int i = 0; i < theLength; i++) {
+            values[i] = theFirst + i;
+        }
+        return values;
+    }
+}
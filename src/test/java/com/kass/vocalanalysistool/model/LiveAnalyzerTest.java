@@ -0,0 +1,163 @@
+package com.kass.vocalanalysistool.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * <p>Plays a synthetic vowel through the live path, the same way
+ * {@code LiveAnalysisController.LIVE_FILE_PROPERTY} does, and checks the frames the analysis
+ * emits: F0 and F1 - F4 where the vowel was made, in time order and close behind the
+ * capture. Unpaced, the recording overflows the ring, and the analysis must skip ahead to
+ * the newest samples without failing or mixing up the frames.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+class LiveAnalyzerTest {
+
+    /**
+     * The fundamental frequency of the vowel in Hz.
+     */
+    private static final double F0 = 200;
+
+    /**
+     * The allowed error of the formants; with 200 Hz between the harmonics, F1 is pulled
+     * about 10 % towards the nearest one.
+     */
+    private static final double FORMANT_TOLERANCE = 0.15;
+
+    /**
+     * The time step of the analysis in seconds.
+     */
+    private static final double TIME_STEP = AnalysisParameters.defaults().getTimeStep();
+
+    /**
+     * The longest the live path may take to play the recording.
+     */
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(20);
+
+    /**
+     * The directory the recording is written to.
+     */
+    @TempDir
+    Path myDirectory;
+
+    /**
+     * In real time the ring never overflows, the frames follow the recording to its end
+     * and the voiced ones carry the pitch and formants of the vowel. Frames may be skipped
+     * while the JIT compiles the trackers, so only their order is checked.
+     *
+     * @throws Exception Thrown if the recording can not be written or read.
+     */
+    @Test
+    void tracksTheVowelInRealTime() throws Exception {
+        final double seconds = 1.5;
+        final LiveAnalyzer analyzer = new LiveAnalyzer();
+        analyzer.startFile(vowel(seconds), true);
+        await(analyzer);
+
+        assertNull(analyzer.getFailure());
+        assertEquals(0, analyzer.getOverruns());
+        final LiveTrack track = analyzer.getTrack();
+        final long count = track.getCount();
+        assertTrue(count > seconds / TIME_STEP / 4, "frames " + count);
+        assertInOrder(track);
+        // the last frame is centered half a window (25 ms) before the end, give or take a step
+        assertEquals(seconds - 0.025, track.getTime(count - 1), 2 * TIME_STEP, "last frame");
+        assertVowel(track, 0.9 * count);
+    }
+
+    /**
+     * Unpaced, the capture overflows the ring: the dropped samples are counted, the
+     * analysis skips over its backlog rather than falling behind, and the frames it
+     * still emits are right.
+     *
+     * @throws Exception Thrown if the recording can not be written or read.
+     */
+    @Test
+    void skipsAheadWhenTheRingOverflows() throws Exception {
+        final double seconds = 6;
+        final LiveAnalyzer analyzer = new LiveAnalyzer();
+        analyzer.startFile(vowel(seconds), false);
+        await(analyzer);
+
+        assertNull(analyzer.getFailure());
+        assertTrue(analyzer.getOverruns() > 0, "no overruns");
+        final LiveTrack track = analyzer.getTrack();
+        final long count = track.getCount();
+        // the ring holds about 1.5 s, so most of the recording is never analyzed
+        assertTrue(count > 0 && count < seconds / TIME_STEP / 2, "frames " + count);
+        assertInOrder(track);
+        assertVowel(track, 0.9 * count);
+    }
+
+    /**
+     * Asserts that the frames are at least one time step apart and in time order.
+     *
+     * @param theTrack The frames.
+     */
+    private static void assertInOrder(final LiveTrack theTrack) {
+        for (long frame = 1; frame < theTrack.getCount(); frame++) {
+            final double step = theTrack.getTime(frame) - theTrack.getTime(frame - 1);
+            assertTrue(step > TIME_STEP - 1e-3, "step " + step + " at frame " + frame);
+        }
+    }
+
+    /**
+     * Asserts that most frames are voiced and that each voiced frame has the pitch and
+     * formants of the vowel.
+     *
+     * @param theTrack     The frames.
+     * @param theMinVoiced The number of frames that must be voiced.
+     */
+    private static void assertVowel(final LiveTrack theTrack, final double theMinVoiced) {
+        int voiced = 0;
+        for (long frame = 0; frame < theTrack.getCount(); frame++) {
+            final double pitch = theTrack.getFrequency(0, frame);
+            if (Double.isNaN(pitch)) {
+                continue;
+            }
+            voiced++;
+            assertEquals(F0, pitch, 0.02 * F0, "F0 at frame " + frame);
+            for (int f = 0; f < LiveTrack.TRACKS - 1; f++) {
+                final double formant = SyntheticVowels.FORMANTS[f];
+                assertEquals(formant, theTrack.getFrequency(f + 1, frame),
+                        FORMANT_TOLERANCE * formant, "F" + (f + 1) + " at frame " + frame);
+            }
+        }
+        assertTrue(voiced >= theMinVoiced, voiced + " voiced frames");
+    }
+
+    /**
+     * Plays the recording until the analysis has emitted every frame.
+     *
+     * @param theAnalyzer The started analyzer.
+     * @throws InterruptedException Thrown if the test is interrupted.
+     */
+    private static void await(final LiveAnalyzer theAnalyzer) throws InterruptedException {
+        final long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (theAnalyzer.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(theAnalyzer.isRunning(), "the recording did not end");
+        theAnalyzer.stop();
+    }
+
+    /**
+     * @param theSeconds The duration.
+     * @return Returns a [.wav] file of the vowel.
+     * @throws IOException Thrown if the file can not be written.
+     */
+    private Path vowel(final double theSeconds) throws IOException {
+        return SyntheticVowels.writeWav(SyntheticVowels.harmonics(F0, theSeconds),
+                myDirectory.resolve("vowel.wav"));
+    }
+}
@@ -0,0 +1,163 @@
+package com.kass.vocalanalysistool.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>Checks the choices of the pitch path finder on hand made candidates: octave errors and
+ * weak frames inside a voiced stretch are bridged, and deciding frames early while they are
+ * added gives the same path as deciding them all at the end.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+class PitchPathFinderTest {
+
+    /**
+     * The strength of the unvoiced candidate of a loud frame (the voicing threshold).
+     */
+    private static final double UNVOICED = 0.45;
+
+    /**
+     * The path finder under test.
+     */
+    private final PitchPathFinder myFinder = new PitchPathFinder(AnalysisParameters.defaults());
+
+    /**
+     * The decided frequencies.
+     */
+    private final List<Double> myPath = new ArrayList<>();
+
+    /**
+     * Appends the decided frequencies to the path.
+     */
+    private final PitchPathFinder.Decision myDecision =
+            (theFrequency, theStrength) -> myPath.add(theFrequency);
+
+    /**
+     * Two frames whose subharmonic is the stronger peak stay on the pitch of their
+     * neighbors; jumping down and back costs more than the weaker peak.
+     */
+    @Test
+    void bridgesOctaveErrors() {
+        for (int frame = 0; frame < 20; frame++) {
+            final boolean octaveError = frame == 8 || frame == 9;
+            add(new double[]{0, 180, 90},
+                    new double[]{UNVOICED, octaveError ? 0.75 : 0.8, octaveError ? 0.85 : 0.6});
+        }
+        myFinder.finish(myDecision);
+        assertEquals(20, myPath.size());
+        for (int frame = 0; frame < 20; frame++) {
+            assertEquals(180, myPath.get(frame), "frame " + frame);
+        }
+    }
+
+    /**
+     * A frame slightly below the voicing threshold inside a voiced stretch stays voiced,
+     * while a long stretch of such frames turns unvoiced.
+     */
+    @Test
+    void bridgesWeakFrames() {
+        for (int frame = 0; frame < 40; frame++) {
+            final boolean weak = frame == 5 || frame >= 20;
+            add(new double[]{0, 200}, new double[]{UNVOICED, weak ? 0.4 : 0.8});
+        }
+        myFinder.finish(myDecision);
+        assertEquals(200, myPath.get(5));
+        assertEquals(0, myPath.get(30));
+    }
+
+    /**
+     * Frames are held back while two paths compete and decided once a frame settles which
+     * one wins.
+     */
+    @Test
+    void holdsFramesUntilThePathsMeet() {
+        // 200 Hz gains less on 100 Hz in 300 frames than the octave jump would cost, so the
+        // two paths stay apart
+        for (int frame = 0; frame < 300; frame++) {
+            add(new double[]{0, 100, 200}, new double[]{UNVOICED, 0.8095, 0.8});
+            myFinder.settle(myDecision);
+        }
+        assertEquals(300, myFinder.getPending());
+
+        // every path runs through the only candidate of a silent frame
+        add(new double[]{0}, new double[]{UNVOICED + 2});
+        myFinder.settle(myDecision);
+        assertEquals(0, myFinder.getPending());
+        assertEquals(301, myPath.size());
+        for (int frame = 0; frame < 300; frame++) {
+            assertEquals(200, myPath.get(frame), "frame " + frame);
+        }
+        assertEquals(0, myPath.get(300));
+    }
+
+    /**
+     * Deciding frames while they are added gives the same path as deciding them all at the
+     * end, whatever the candidates.
+     */
+    @Test
+    void settlingEarlyGivesTheSamePath() {
+        final Random random = new Random(7);
+        final int frames = 2000;
+        final double[][] frequencies = new double[frames][];
+        final double[][] strengths = new double[frames][];
+        for (int frame = 0; frame < frames; frame++) {
+            final int count = 1 + random.nextInt(PitchTracker.MAX_CANDIDATES);
+            frequencies[frame] = new double[count];
+            strengths[frame] = new double[count];
+            strengths[frame][0] = UNVOICED + (random.nextInt(10) == 0 ? random.nextDouble() : 0);
+            for (int c = 1; c < count; c++) {
+                // a few pitches and their octaves, so the paths compete
+                frequencies[frame][c] = 100 * (1 + random.nextInt(4)) * (1 + 0.02 * c);
+                strengths[frame][c] = 0.3 + 0.7 * random.nextDouble();
+            }
+        }
+
+        for (int frame = 0; frame < frames; frame++) {
+            myFinder.addFrame(frequencies[frame], strengths[frame], 0,
+                    frequencies[frame].length);
+        }
+        myFinder.finish(myDecision);
+        final double[] atOnce = toArray(myPath);
+
+        for (final int every : new int[]{1, 7, 500}) {
+            myPath.clear();
+            final PitchPathFinder finder = new PitchPathFinder(AnalysisParameters.defaults());
+            for (int frame = 0; frame < frames; frame++) {
+                finder.addFrame(frequencies[frame], strengths[frame], 0,
+                        frequencies[frame].length);
+                if (frame % every == 0) {
+                    finder.settle(myDecision);
+                }
+            }
+            finder.finish(myDecision);
+            assertArrayEquals(atOnce, toArray(myPath), "settled every " + every);
+        }
+    }
+
+    /**
+     * @param theFrequencies The candidate frequencies; the first is 0.
+     * @param theStrengths   The candidate strengths.
+     */
+    private void add(final double[] theFrequencies, final double[] theStrengths) {
+        myFinder.addFrame(theFrequencies, theStrengths, 0, theFrequencies.length);
+    }
+
+    /**
+     * @param theValues The values.
+     * @return Returns the values as an array.
+     */
+    private static double[] toArray(final List<Double> theValues) {
+        final double[] array = new double[theValues.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = theValues.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,153 @@
+package com.kass.vocalanalysistool.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Random;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * <p>Makes the /a/ vowels the tests analyze, whose pitch and formants are known: a steady
+ * sum of harmonics, or a pulse train with the vibrato, jitter and shimmer of a real voice.
+ * Both peak at about half of full scale.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+final class SyntheticVowels {
+
+    /**
+     * The sampling frequency of the vowels.
+     */
+    static final double RATE = 44100;
+
+    /**
+     * The formant frequencies of the vowel in Hz. The fifth keeps the tracker, which looks
+     * for five, from placing a spurious one among the first four.
+     */
+    static final double[] FORMANTS = {700, 1220, 2600, 3500, 4500};
+
+    /**
+     * The formant bandwidths in Hz.
+     */
+    private static final double[] BANDWIDTHS = {80, 90, 120, 150, 200};
+
+    /**
+     * The highest harmonic of {@link #harmonics(double, double)} in Hz.
+     */
+    private static final double HIGHEST_HARMONIC = 5000;
+
+    /**
+     * Utility class.
+     */
+    private SyntheticVowels() {
+    }
+
+    /**
+     * Makes a vowel from the harmonics of a steady pitch, each weighted by the resonances of
+     * {@link #FORMANTS}.
+     *
+     * @param theF0      The pitch in Hz.
+     * @param theSeconds The duration.
+     * @return Returns the vowel.
+     */
+    static AudioSignal harmonics(final double theF0, final double theSeconds) {
+        final int harmonics = (int) (HIGHEST_HARMONIC / theF0);
+        final double[] amplitudes = new double[harmonics + 1];
+        double total = 0;
+        for (int h = 1; h <= harmonics; h++) {
+            double gain = 1;
+            for (int f = 0; f < FORMANTS.length; f++) {
+                // magnitude of a second order resonance with unit gain at 0 Hz
+                final double x = h * theF0 / FORMANTS[f];
+                final double q = BANDWIDTHS[f] / FORMANTS[f];
+                gain /= Math.sqrt((1 - x * x) * (1 - x * x) + q * q * x * x);
+            }
+            amplitudes[h] = gain;
+            total += gain;
+        }
+
+        final float[] samples = new float[(int) (theSeconds * RATE)];
+        for (int i = 0; i < samples.length; i++) {
+            double sample = 0;
+            for (int h = 1; h <= harmonics; h++) {
+                sample += amplitudes[h] * Math.sin(2 * Math.PI * h * theF0 * i / RATE);
+            }
+            samples[i] = (float) (0.5 * sample / total);
+        }
+        return new AudioSignal(samples, RATE);
+    }
+
+    /**
+     * Makes a vowel from a pulse train, with 3 % vibrato at 5.5 Hz, 2 % jitter and 15 %
+     * shimmer, through the resonances of {@link #FORMANTS}.
+     *
+     * @param theF0      The mean pitch in Hz.
+     * @param theSeconds The duration.
+     * @param theSeed    The seed of the jitter and shimmer.
+     * @return Returns the vowel.
+     */
+    static AudioSignal pulses(final double theF0, final double theSeconds, final long theSeed) {
+        final Random random = new Random(theSeed);
+        final float[] samples = new float[(int) (theSeconds * RATE)];
+        double next = 0;
+        for (int i = 0; i < samples.length; i++) {
+            if (i >= next) {
+                samples[i] = (float) (1 + 0.15 * random.nextGaussian());
+                final double pitch = theF0 * (1 + 0.03 * Math.sin(2 * Math.PI * 5.5 * i / RATE));
+                next += RATE / pitch * (1 + 0.02 * random.nextGaussian());
+            }
+        }
+        for (int f = 0; f < FORMANTS.length; f++) {
+            // a two pole resonator with unit gain at 0 Hz
+            final double radius = Math.exp(-Math.PI * BANDWIDTHS[f] / RATE);
+            final double a1 = 2 * radius * Math.cos(2 * Math.PI * FORMANTS[f] / RATE);
+            final double a2 = -radius * radius;
+            double y1 = 0;
+            double y2 = 0;
+            for (int i = 0; i < samples.length; i++) {
+                final double y = (1 - a1 - a2) * samples[i] + a1 * y1 + a2 * y2;
+                y2 = y1;
+                y1 = y;
+                samples[i] = (float) y;
+            }
+        }
+        float peak = 0;
+        for (final float sample : samples) {
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] *= 0.5f / peak;
+        }
+        return new AudioSignal(samples, RATE);
+    }
+
+    /**
+     * Writes a vowel as a 16 bit mono [.wav] file.
+     *
+     * @param theSignal The vowel.
+     * @param theFile   The file to write.
+     * @return Returns the file.
+     * @throws IOException Thrown if the file can not be written.
+     */
+    static Path writeWav(final AudioSignal theSignal, final Path theFile) throws IOException {
+        final float[] samples = theSignal.getSamples();
+        final ByteBuffer pcm = ByteBuffer.allocate(samples.length * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (final float sample : samples) {
+            pcm.putShort((short) Math.round(sample * Short.MAX_VALUE));
+        }
+        final AudioFormat format = new AudioFormat((float) theSignal.getSampleRate(), 16, 1,
+                true, false);
+        try (AudioInputStream stream = new AudioInputStream(
+                new ByteArrayInputStream(pcm.array()), format, samples.length)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, theFile.toFile());
+        }
+        return theFile;
+    }
+}
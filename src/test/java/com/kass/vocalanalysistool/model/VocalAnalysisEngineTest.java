@@ -0,0 +1,62 @@
+package com.kass.vocalanalysistool.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>Analyzes synthetic vowels with a known pitch. The vowel has vibrato and the cycle to
+ * cycle jitter and shimmer of a real voice, which make the subharmonic the highest
+ * autocorrelation peak of some frames; the pitch path must not follow them an octave down,
+ * or the continuity filter locks onto the wrong octave.</p>
+ *
+ * @author Kassie Whitney
+ * @version 10.18.26
+ */
+class VocalAnalysisEngineTest {
+
+    /**
+     * The mean pitch of the vowels in Hz.
+     */
+    private static final double F0 = 180;
+
+    /**
+     * The track and the averages stay on the pitch of the vowel, whatever the jitter does.
+     */
+    @Test
+    void staysOnThePitchOfAJitteryVowel() {
+        final VocalAnalysisEngine engine = new VocalAnalysisEngine(
+                AnalysisParameters.defaults(), 1);
+        for (long seed = 1; seed <= 8; seed++) {
+            final AnalysisResult result = engine.analyze(SyntheticVowels.pulses(F0, 2, seed));
+            final double[] pitch = result.getFormants()[0];
+            // the filter keeps at most every other frame of the 2 s
+            assertTrue(pitch.length > 60, "seed " + seed + ": " + pitch.length + " frames");
+            for (final double frequency : pitch) {
+                assertEquals(F0, frequency, 0.1 * F0, "seed " + seed);
+            }
+            assertEquals(F0, result.getAverages()[0], 0.01 * F0, "seed " + seed);
+            final double f2 = SyntheticVowels.FORMANTS[1];
+            assertEquals(f2, result.getAverages()[2], 0.05 * f2, "seed " + seed);
+        }
+    }
+
+    /**
+     * Several chunks give the same frames as one, although the path finder decides the
+     * frames of a chunk before it has seen the next one.
+     */
+    @Test
+    void chunksGiveTheSameResult() {
+        final AudioSignal signal = SyntheticVowels.pulses(F0, 12, 2);
+        final AnalysisResult chunked = new VocalAnalysisEngine(AnalysisParameters.defaults(), 1)
+                .analyze(signal);
+        final AnalysisResult whole = new VocalAnalysisEngine(AnalysisParameters.defaults(), 3)
+                .analyze(signal);
+        assertArrayEquals(whole.getTimes(), chunked.getTimes());
+        for (int f = 0; f < 5; f++) {
+            assertArrayEquals(whole.getFormants()[f], chunked.getFormants()[f], "F" + f);
+        }
+    }
+}